@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe.benchmark;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parameters and {@link Executor} handling shared by all pipe benchmarks.
+ * <p>
+ * Each benchmark invocation transfers {@link #payloadSize} bytes resp. chars through one pipe. Throughput is reported in operations per second, latency percentiles by the
+ * sample time mode. Restrict the parameter matrix on the command line, e.g. {@code -p payloadSize=1048576 -p engine=ringBuffer}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractPipeBenchmark {
+
+	/**
+	 * Size of the chunks the producer writes and the consumer reads.
+	 */
+	protected static final int CHUNK_SIZE = 8192;
+
+	@Param({ "piped", "ringBuffer", "adaptive" })
+	public String engine;
+
+	@Param({ "1024", "65536", "1048576" })
+	public int pipeSize;
+
+	@Param({ "100", "10240", "1048576", "104857600", "1073741824" })
+	public long payloadSize;
+
+	/**
+	 * The executor running the pipes, {@code virtualThreads} requires Java 21 or later and is therefore not part of the default matrix, select it by
+	 * {@code -p executor=virtualThreads}.
+	 */
+	@Param({ "commonPool", "cachedThreadPool" })
+	public String executor;
+
+	private ExecutorService executorService;
+
+	/**
+	 * Returns the {@link Executor} selected by the {@link #executor} parameter.
+	 * 
+	 * @return {@link Executor}
+	 */
+	protected final Executor executor() {
+		return executorService != null ? executorService : ForkJoinPool.commonPool();
+	}
+
+	@Setup
+	public final void setUpExecutor() throws Throwable {
+		switch (executor) {
+		case "commonPool":
+			executorService = null;
+			break;
+		case "cachedThreadPool":
+			executorService = Executors.newCachedThreadPool();
+			break;
+		case "virtualThreads":
+			if (Runtime.version().feature() < 21) {
+				throw new IllegalStateException("executor virtualThreads requires Java 21 or later, running on " + Runtime.version());
+			}
+			// looked up reflectively to keep this module buildable on Java 11
+			executorService = (ExecutorService) MethodHandles.publicLookup()
+					.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class)).invoke();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown executor: " + executor);
+		}
+		setUpPipes();
+	}
+
+	@TearDown
+	public final void tearDownExecutor() throws InterruptedException {
+		if (executorService != null) {
+			executorService.shutdown();
+			executorService.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	/**
+	 * Builds the pipes under test once per trial, pipes obtained by the builders are reusable.
+	 * 
+	 * @throws Exception
+	 *             if the pipes cannot be built for the current parameters
+	 */
+	protected abstract void setUpPipes() throws Exception;
+
+}
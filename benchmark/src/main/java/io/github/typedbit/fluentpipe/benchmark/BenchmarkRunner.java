@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the {@link GCProfiler} enabled so that the allocation rate is always reported next to throughput and latency. Accepts the usual JMH command line
+ * options.
+ * 
+ * @author Dieter König
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// main class
+	}
+
+	public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
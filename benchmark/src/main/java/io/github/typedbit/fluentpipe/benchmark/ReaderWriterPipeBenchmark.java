@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import io.github.typedbit.fluentpipe.ReaderWriterPipeBuilder;
+import io.github.typedbit.fluentpipe.ReaderWriterPipeEngine;
+import io.github.typedbit.fluentpipe.builder.SizedReaderWriterPipeBuilder;
+
+/**
+ * Benchmarks for pipes built by {@link ReaderWriterPipeBuilder}. The payload size is measured in chars.
+ * 
+ * @author Dieter König
+ */
+public class ReaderWriterPipeBenchmark extends AbstractPipeBenchmark {
+
+	private static final char[] CHUNK = new char[CHUNK_SIZE];
+
+	static {
+		Arrays.fill(CHUNK, 'x');
+	}
+
+	private Supplier<Callable<Void>> readAsync;
+
+	private Supplier<Callable<Void>> writeAsync;
+
+	private Supplier<CompletableFuture<Long>> completable;
+
+	private SizedReaderWriterPipeBuilder builder() {
+		switch (engine) {
+		case "piped":
+			return ReaderWriterPipeBuilder.create().engine(ReaderWriterPipeEngine.piped(pipeSize));
+		case "ringBuffer":
+			return ReaderWriterPipeBuilder.create().engine(ReaderWriterPipeEngine.ringBuffer(pipeSize));
+		case "adaptive":
+			// starts small and grows up to the pipe size
+			return ReaderWriterPipeBuilder.create().engine(ReaderWriterPipeEngine.adaptive(1024, pipeSize));
+		default:
+			throw new IllegalArgumentException("unknown engine: " + engine);
+		}
+	}
+
+	private Consumer<Writer> producer() {
+		final long payloadSize = this.payloadSize;
+		return (w) -> {
+			try {
+				long remaining = payloadSize;
+				while (remaining > 0) {
+					final int len = (int) Math.min(CHUNK_SIZE, remaining);
+					w.write(CHUNK, 0, len);
+					remaining -= len;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	private static Function<Reader, Long> consumer() {
+		return (r) -> {
+			try {
+				final char[] buffer = new char[CHUNK_SIZE];
+				long count = 0;
+				int len;
+				while ((len = r.read(buffer)) != -1) {
+					count += len;
+				}
+				return count;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	@Override
+	protected void setUpPipes() {
+		final Function<Reader, Long> consumer = consumer();
+		readAsync = builder().forWriter(producer()).forReader(consumer::apply).asyncRead(executor());
+		writeAsync = builder().forWriter(producer()).forReader(consumer::apply).asyncWrite(executor());
+		completable = builder().forWriter(producer()).mapReader(consumer).asyncRead(executor()).asyncWrite(executor());
+	}
+
+	@Benchmark
+	public void readAsync() throws Exception {
+		readAsync.get().call();
+	}
+
+	@Benchmark
+	public void writeAsync() throws Exception {
+		writeAsync.get().call();
+	}
+
+	@Benchmark
+	public long completable() throws Exception {
+		return completable.get().get();
+	}
+
+}
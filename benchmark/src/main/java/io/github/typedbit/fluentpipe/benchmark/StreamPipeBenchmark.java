@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import io.github.typedbit.fluentpipe.StreamPipeBuilder;
+import io.github.typedbit.fluentpipe.StreamPipeEngine;
+import io.github.typedbit.fluentpipe.builder.SizedStreamPipeBuilder;
+
+/**
+ * Benchmarks for pipes built by {@link StreamPipeBuilder}.
+ * 
+ * @author Dieter König
+ */
+public class StreamPipeBenchmark extends AbstractPipeBenchmark {
+
+	private static final byte[] CHUNK = new byte[CHUNK_SIZE];
+
+	static {
+		Arrays.fill(CHUNK, (byte) 'x');
+	}
+
+	private Supplier<Callable<Void>> readAsync;
+
+	private Supplier<Callable<Void>> writeAsync;
+
+	private Supplier<CompletableFuture<Long>> completable;
+
+	private SizedStreamPipeBuilder builder() {
+		switch (engine) {
+		case "piped":
+			return StreamPipeBuilder.create().engine(StreamPipeEngine.piped(pipeSize));
+		case "ringBuffer":
+			return StreamPipeBuilder.create().engine(StreamPipeEngine.ringBuffer(pipeSize));
+		case "adaptive":
+			// starts small and grows up to the pipe size
+			return StreamPipeBuilder.create().engine(StreamPipeEngine.adaptive(1024, pipeSize));
+		default:
+			throw new IllegalArgumentException("unknown engine: " + engine);
+		}
+	}
+
+	private Consumer<OutputStream> producer() {
+		final long payloadSize = this.payloadSize;
+		return (o) -> {
+			try {
+				long remaining = payloadSize;
+				while (remaining > 0) {
+					final int len = (int) Math.min(CHUNK_SIZE, remaining);
+					o.write(CHUNK, 0, len);
+					remaining -= len;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	private static Function<InputStream, Long> consumer() {
+		return (i) -> {
+			try {
+				final byte[] buffer = new byte[CHUNK_SIZE];
+				long count = 0;
+				int len;
+				while ((len = i.read(buffer)) != -1) {
+					count += len;
+				}
+				return count;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	@Override
+	protected void setUpPipes() {
+		final Function<InputStream, Long> consumer = consumer();
+		readAsync = builder().forOutput(producer()).forInput(consumer::apply).asyncRead(executor());
+		writeAsync = builder().forOutput(producer()).forInput(consumer::apply).asyncWrite(executor());
+		completable = builder().forOutput(producer()).mapInput(consumer).asyncRead(executor()).asyncWrite(executor());
+	}
+
+	@Benchmark
+	public void readAsync() throws Exception {
+		readAsync.get().call();
+	}
+
+	@Benchmark
+	public void writeAsync() throws Exception {
+		writeAsync.get().call();
+	}
+
+	@Benchmark
+	public long completable() throws Exception {
+		return completable.get().get();
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Abstract class coordinating one writing and several reading threads on a ring buffer shared by all of them. Every reading side reads every element, the writing side may only
+ * overwrite an element after all reading sides which are still open have read it, so the writing side is throttled by the slowest reading side.
+ * <p>
+ * Like {@link AbstractPipeBuffer} positions grow monotonically, are published by volatile writes and a waiting side parks after registering itself. A reading side closed early
+ * no longer throttles the writing side, only if all reading sides have been closed the writing side fails.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+abstract class AbstractBroadcastBuffer {
+
+	/**
+	 * Position and parking state of one reading side.
+	 */
+	protected static final class Cursor {
+
+		private final PaddedSequence sequence = new PaddedSequence();
+
+		private volatile Thread parked;
+
+		private volatile boolean closed;
+
+	}
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	private final Cursor[] cursors;
+
+	private final PaddedSequence writeSequence = new PaddedSequence();
+
+	private volatile Thread parkedWriter;
+
+	private volatile boolean writeClosed;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param readers
+	 *            The number of reading sides.
+	 */
+	protected AbstractBroadcastBuffer(final int capacity, final int readers) {
+		if (readers <= 0) {
+			throw new IllegalArgumentException("at least one reader is required");
+		}
+		this.capacity = AbstractRingBuffer.capacityFor(capacity);
+		this.mask = this.capacity - 1;
+		this.cursors = new Cursor[readers];
+		for (int i = 0; i < readers; i++) {
+			cursors[i] = new Cursor();
+		}
+	}
+
+	/**
+	 * Returns the cursor of a reading side.
+	 * 
+	 * @param reader
+	 *            The index of the reading side.
+	 * @return {@link Cursor}
+	 */
+	protected final Cursor cursor(final int reader) {
+		return cursors[reader];
+	}
+
+	/**
+	 * Returns the position of the next element to read. Must only be called by the given reading side.
+	 * 
+	 * @param cursor
+	 *            The reading side.
+	 * @return position
+	 */
+	protected final long readPosition(final Cursor cursor) {
+		return cursor.sequence.get();
+	}
+
+	/**
+	 * Returns the position of the next element to write. Must only be called by the writing side.
+	 * 
+	 * @return position
+	 */
+	protected final long writePosition() {
+		return writeSequence.get();
+	}
+
+	/**
+	 * Returns the number of elements the given reading side can read without blocking.
+	 * 
+	 * @param cursor
+	 *            The reading side.
+	 * @return number of readable elements
+	 */
+	protected final int readable(final Cursor cursor) {
+		return (int) (writeSequence.get() - cursor.sequence.get());
+	}
+
+	/**
+	 * Blocks the given reading side until at least one element is readable.
+	 * 
+	 * @param cursor
+	 *            The reading side.
+	 * @return number of readable elements starting at {@link #readPosition(Cursor)} or -1 if the writing side has been closed and all elements have been read
+	 * @throws IOException
+	 *             if the reading side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int awaitReadable(final Cursor cursor) throws IOException {
+		if (cursor.closed) {
+			throw new IOException("Pipe closed");
+		}
+		final long position = cursor.sequence.get();
+		final long cached = cursor.sequence.getCache();
+		if (cached != position) {
+			return (int) (cached - position);
+		}
+		for (;;) {
+			final long written = writeSequence.get();
+			if (written != position) {
+				cursor.sequence.setCache(written);
+				return (int) (written - position);
+			}
+			if (writeClosed) {
+				// the writing side publishes its last position before it gets closed, so check once again
+				final long last = writeSequence.get();
+				if (last != position) {
+					cursor.sequence.setCache(last);
+					return (int) (last - position);
+				}
+				return -1;
+			}
+			parkReader(cursor, position);
+			if (cursor.closed) {
+				throw new IOException("Pipe closed");
+			}
+		}
+	}
+
+	/**
+	 * Blocks the writing side until at least one element can be written, i.e. until the slowest open reading side has read enough.
+	 * 
+	 * @return number of free elements starting at {@link #writePosition()}
+	 * @throws IOException
+	 *             if the writing side or all reading sides have already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int awaitWritable() throws IOException {
+		checkWritable();
+		final long position = writeSequence.get();
+		final long cachedFree = capacity - (position - writeSequence.getCache());
+		if (cachedFree > 0) {
+			return (int) cachedFree;
+		}
+		for (;;) {
+			final long read = slowest();
+			if (position - read < capacity) {
+				writeSequence.setCache(read);
+				return (int) (capacity - (position - read));
+			}
+			parkWriter(read);
+			checkWritable();
+		}
+	}
+
+	/**
+	 * Publishes the elements written up to the given position and wakes up all reading sides waiting for data.
+	 * 
+	 * @param position
+	 *            The position of the next element to write.
+	 */
+	protected final void commitWrite(final long position) {
+		writeSequence.set(position);
+		unparkReaders();
+	}
+
+	/**
+	 * Publishes the elements read by the given reading side up to the given position and wakes up the writing side if it waits for free space.
+	 * 
+	 * @param cursor
+	 *            The reading side.
+	 * @param position
+	 *            The position of the next element to read.
+	 */
+	protected final void commitRead(final Cursor cursor, final long position) {
+		cursor.sequence.set(position);
+		unparkWriter();
+	}
+
+	/**
+	 * Closes the given reading side. It does not throttle the writing side any longer.
+	 * 
+	 * @param cursor
+	 *            The reading side.
+	 */
+	protected final void closeRead(final Cursor cursor) {
+		cursor.closed = true;
+		unparkWriter();
+	}
+
+	/**
+	 * Closes the writing side. Each reading side reaches EOF after it has read all written elements.
+	 */
+	protected final void closeWrite() {
+		writeClosed = true;
+		unparkReaders();
+	}
+
+	private void checkWritable() throws IOException {
+		if (writeClosed) {
+			throw new IOException("Pipe closed");
+		}
+		for (final Cursor cursor : cursors) {
+			if (!cursor.closed) {
+				return;
+			}
+		}
+		throw new IOException("Read end closed");
+	}
+
+	private long slowest() {
+		long slowest = Long.MAX_VALUE;
+		for (final Cursor cursor : cursors) {
+			if (!cursor.closed) {
+				slowest = Math.min(slowest, cursor.sequence.get());
+			}
+		}
+		// all reading sides closed, checkWritable() fails afterwards
+		return slowest == Long.MAX_VALUE ? writeSequence.get() : slowest;
+	}
+
+	private void unparkReaders() {
+		for (final Cursor cursor : cursors) {
+			final Thread reader = cursor.parked;
+			if (reader != null) {
+				LockSupport.unpark(reader);
+			}
+		}
+	}
+
+	private void unparkWriter() {
+		final Thread writer = parkedWriter;
+		if (writer != null) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	private void parkReader(final Cursor cursor, final long position) throws InterruptedIOException {
+		cursor.parked = Thread.currentThread();
+		try {
+			// re-check after registration, otherwise a concurrent commitWrite() or closeWrite() might miss this thread
+			if (writeSequence.get() == position && !writeClosed && !cursor.closed) {
+				ManagedBlocking.park(this);
+			}
+		} finally {
+			cursor.parked = null;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("interrupted while waiting for data");
+		}
+	}
+
+	private void parkWriter(final long read) throws InterruptedIOException {
+		parkedWriter = Thread.currentThread();
+		try {
+			// re-check after registration, otherwise a concurrent commitRead() or closeRead() might miss this thread
+			if (slowest() == read && !writeClosed) {
+				ManagedBlocking.park(this);
+			}
+		} finally {
+			parkedWriter = null;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("interrupted while waiting for free space");
+		}
+	}
+
+}
@@ -29,6 +29,33 @@ import java.util.function.Consumer;
  */
 abstract class AbstractPipe {
 
+	/**
+	 * Registers an operation which the writing side runs the first time it finds the buffer of the pipe full, provided that the engine tells about it.
+	 * 
+	 * @param connection
+	 *            The connection built up by the engine.
+	 * @param writeEnd
+	 *            The writing end of the connection.
+	 * @param handler
+	 *            The operation, e.g. starting the reading side.
+	 * @return {@code true} if the operation has been registered, {@code false} if the engine does not tell when its buffer is full
+	 */
+	protected final boolean onFull(final Object connection, final Object writeEnd, final Runnable handler) {
+		if (connection instanceof AbstractPipeBuffer) {
+			((AbstractPipeBuffer) connection).onFull(handler);
+			return true;
+		}
+		if (writeEnd instanceof ManagedPipedOutputStream) {
+			((ManagedPipedOutputStream) writeEnd).onFull(handler);
+			return true;
+		}
+		if (writeEnd instanceof ManagedPipedWriter) {
+			((ManagedPipedWriter) writeEnd).onFull(handler);
+			return true;
+		}
+		return false;
+	}
+
 	protected final Runnable inputRunnable(final InputStream pipedInput, final Consumer<InputStream> inputStreamConsumer) {
 		return () -> {
 			// close stream in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
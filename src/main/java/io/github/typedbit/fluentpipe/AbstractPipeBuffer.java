@@ -0,0 +1,454 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Abstract class coordinating exactly one reading and one writing thread on a buffer. Subclasses provide the storage and copy the elements, this class tracks positions and blocks
+ * a side only if the buffer is actually empty resp. full.
+ * <p>
+ * Both positions grow monotonically and are published by volatile writes after the elements have been copied. A side which has to wait registers itself before it re-checks the
+ * position of the opposite side and parks, the opposite side unparks it after publishing its new position or after closing its end. This way a thread is never woken up without a
+ * reason and no monitor is taken at any time. A worker of a {@link java.util.concurrent.ForkJoinPool} parks by {@link ManagedBlocking}, so that the pool compensates for it.
+ * </p>
+ * <p>
+ * If {@link PipeMetrics} are attached, each side records its figures in fields of its own and the figures are added to the metrics once after both sides have been closed. The
+ * same holds for the Flight Recorder events, see {@link FlightRecorderEvents}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+abstract class AbstractPipeBuffer {
+
+	private static final VarHandle RECORDED;
+
+	static {
+		try {
+			RECORDED = MethodHandles.lookup().findVarHandle(AbstractPipeBuffer.class, "recorded", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final PaddedSequence readSequence = new PaddedSequence();
+
+	private final PaddedSequence writeSequence = new PaddedSequence();
+
+	private volatile Thread parkedReader;
+
+	private volatile Thread parkedWriter;
+
+	private volatile boolean readClosed;
+
+	private volatile boolean writeClosed;
+
+	private volatile boolean tornDown;
+
+	private final Object pipeEvent = FlightRecorderEvents.beginPipe(getClass());
+
+	private final long startTime = System.nanoTime();
+
+	private PipeMetrics metrics;
+
+	private long readClosedTime;
+
+	private long writeClosedTime;
+
+	// accessed by the reading side only
+	private long readBlockedTime;
+
+	private long readWakeups;
+
+	// accessed by the writing side only
+	private long writeBlockedTime;
+
+	private long writeWakeups;
+
+	private long[] occupancy;
+
+	private Runnable fullHandler;
+
+	// set once by the side which records the metrics and the event
+	private volatile int recorded;
+
+	/**
+	 * Attaches metrics to this buffer. Must be called before the buffer is handed out to the reading and the writing side.
+	 * 
+	 * @param metrics
+	 *            The {@link PipeMetrics} to add the figures of this buffer to.
+	 */
+	final void meter(final PipeMetrics metrics) {
+		this.metrics = metrics;
+		this.occupancy = new long[PipeMetrics.OCCUPANCY_BUCKETS];
+	}
+
+	/**
+	 * Registers an operation which the writing side runs once, the first time it finds the buffer full and would have to wait for the reading side. Must be called before the
+	 * buffer is handed out to the writing side.
+	 * 
+	 * @param handler
+	 *            The operation, e.g. starting the reading side.
+	 */
+	final void onFull(final Runnable handler) {
+		this.fullHandler = handler;
+	}
+
+	/**
+	 * Returns the position of the next element to read. Must only be called by the reading side.
+	 * 
+	 * @return position
+	 */
+	protected final long readPosition() {
+		return readSequence.get();
+	}
+
+	/**
+	 * Returns the position of the next element to write. Must only be called by the writing side.
+	 * 
+	 * @return position
+	 */
+	protected final long writePosition() {
+		return writeSequence.get();
+	}
+
+	/**
+	 * Returns the number of elements which can be read without blocking.
+	 * 
+	 * @return number of readable elements
+	 */
+	protected final int readable() {
+		return count(writeSequence.get() - readSequence.get());
+	}
+
+	/**
+	 * Narrows a number of elements to {@code int}. A writing side which never blocks, e.g. one spilling to disk, may get more than {@link Integer#MAX_VALUE} elements ahead.
+	 * 
+	 * @param count
+	 *            The number of elements.
+	 * @return count, at most {@link Integer#MAX_VALUE}
+	 */
+	static int count(final long count) {
+		return (int) Math.min(count, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Blocks the reading side until at least one element is readable.
+	 * 
+	 * @return number of readable elements starting at {@link #readPosition()} or -1 if the writing side has been closed and all elements have been read
+	 * @throws IOException
+	 *             if the reading side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int awaitReadable() throws IOException {
+		if (readClosed) {
+			throw new IOException("Pipe closed");
+		}
+		final long position = readSequence.get();
+		final long cached = readSequence.getCache();
+		if (cached != position) {
+			return count(cached - position);
+		}
+		for (;;) {
+			final long written = writeSequence.get();
+			if (written != position) {
+				readSequence.setCache(written);
+				return count(written - position);
+			}
+			if (writeClosed) {
+				// the writing side publishes its last position before it gets closed, so check once again
+				final long last = writeSequence.get();
+				if (last != position) {
+					readSequence.setCache(last);
+					return count(last - position);
+				}
+				return -1;
+			}
+			parkReader(position);
+			if (readClosed) {
+				throw new IOException("Pipe closed");
+			}
+		}
+	}
+
+	/**
+	 * Blocks the writing side until at least one element can be written without exceeding the given capacity.
+	 * 
+	 * @param capacity
+	 *            The maximum number of elements which may be written but not yet read.
+	 * @return number of free elements starting at {@link #writePosition()}
+	 * @throws IOException
+	 *             if either side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int awaitWritable(final int capacity) throws IOException {
+		checkWritable();
+		final long position = writeSequence.get();
+		final long cachedFree = capacity - (position - writeSequence.getCache());
+		if (cachedFree > 0) {
+			return (int) cachedFree;
+		}
+		for (;;) {
+			final long read = readSequence.get();
+			if (position - read < capacity) {
+				writeSequence.setCache(read);
+				return (int) (capacity - (position - read));
+			}
+			parkWriter(position - capacity);
+			checkWritable();
+		}
+	}
+
+	/**
+	 * Blocks the writing side until the reading side has moved beyond the given position, i.e. until it has released some space.
+	 * 
+	 * @param position
+	 *            The read position the writing side has seen last, see {@link #readCommitted()}.
+	 * @throws IOException
+	 *             if either side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final void awaitReadProgress(final long position) throws IOException {
+		checkWritable();
+		parkWriter(position);
+		checkWritable();
+	}
+
+	/**
+	 * Returns the position up to which the reading side has read all elements. May be called by the writing side.
+	 * 
+	 * @return position
+	 */
+	protected final long readCommitted() {
+		return readSequence.get();
+	}
+
+	/**
+	 * Returns the position up to which the writing side has written all elements. May be called by any thread.
+	 * 
+	 * @return position
+	 */
+	final long writeCommitted() {
+		return writeSequence.get();
+	}
+
+	/**
+	 * Fails if no further elements can be written because either side has been closed.
+	 * 
+	 * @throws IOException
+	 *             if either side has already been closed
+	 */
+	protected final void checkWritable() throws IOException {
+		if (writeClosed) {
+			throw new IOException("Pipe closed");
+		}
+		if (readClosed) {
+			throw new IOException("Read end closed");
+		}
+	}
+
+	/**
+	 * Returns whether the reading side has been closed.
+	 * 
+	 * @return {@code true} if {@link #closeRead()} has been called
+	 */
+	protected final boolean isReadClosed() {
+		return readClosed;
+	}
+
+	/**
+	 * Returns whether the writing side has been closed.
+	 * 
+	 * @return {@code true} if {@link #closeWrite()} has been called
+	 */
+	protected final boolean isWriteClosed() {
+		return writeClosed;
+	}
+
+	/**
+	 * Marks the pipe as torn down by another thread, see {@link PipeGuard}. Must be called before that thread closes the reading side.
+	 */
+	final void tearDown() {
+		tornDown = true;
+	}
+
+	/**
+	 * Returns whether the pipe has been torn down by another thread. The reading side may then still be copying from the buffer after both sides have been closed, so
+	 * {@link #dispose()} must not hand the memory of the buffer to another pipe.
+	 * 
+	 * @return {@code true} if {@link #tearDown()} has been called
+	 */
+	protected final boolean isTornDown() {
+		return tornDown;
+	}
+
+	/**
+	 * Publishes the elements read up to the given position and wakes up the writing side if it waits for free space.
+	 * 
+	 * @param position
+	 *            The position of the next element to read.
+	 */
+	protected final void commitRead(final long position) {
+		readSequence.set(position);
+		final Thread writer = parkedWriter;
+		if (writer != null) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Publishes the elements written up to the given position and wakes up the reading side if it waits for data.
+	 * 
+	 * @param position
+	 *            The position of the next element to write.
+	 */
+	protected final void commitWrite(final long position) {
+		writeSequence.set(position);
+		if (occupancy != null) {
+			occupancy[PipeMetrics.occupancyBucket(position - readSequence.get())]++;
+		}
+		final Thread reader = parkedReader;
+		if (reader != null) {
+			LockSupport.unpark(reader);
+		}
+	}
+
+	/**
+	 * Closes the reading side. Any waiting or further write operation fails afterwards.
+	 */
+	protected final void closeRead() {
+		if (pipeEvent != null && readClosedTime == 0) {
+			readClosedTime = System.nanoTime();
+		}
+		readClosed = true;
+		final Thread writer = parkedWriter;
+		if (writer != null) {
+			LockSupport.unpark(writer);
+		}
+		// another thread may close the reading side to tear down the pipe
+		final Thread reader = parkedReader;
+		if (reader != null) {
+			LockSupport.unpark(reader);
+		}
+		if (writeClosed) {
+			record();
+			dispose();
+		}
+	}
+
+	/**
+	 * Closes the writing side. The reading side reaches EOF after all written elements have been read.
+	 */
+	protected final void closeWrite() {
+		if (pipeEvent != null && writeClosedTime == 0) {
+			writeClosedTime = System.nanoTime();
+		}
+		writeClosed = true;
+		final Thread reader = parkedReader;
+		if (reader != null) {
+			LockSupport.unpark(reader);
+		}
+		if (readClosed) {
+			record();
+			dispose();
+		}
+	}
+
+	/**
+	 * Releases resources held by the buffer after both sides have been closed. If both sides get closed concurrently, both of them may call this method, so implementations must
+	 * tolerate repeated calls.
+	 */
+	protected void dispose() {
+		// heap memory only, nothing to release
+	}
+
+	/**
+	 * Returns the number of bytes resp. chars read, recorded by {@link PipeMetrics} and the flight recorder after both sides have been closed. Buffers whose elements are not
+	 * single bytes resp. chars must override this method.
+	 * 
+	 * @return number of bytes resp. chars read
+	 */
+	protected long transferred() {
+		return readSequence.get();
+	}
+
+	private void record() {
+		// both sides may get here if they are closed concurrently, only one of them records
+		if ((metrics != null || pipeEvent != null) && RECORDED.compareAndSet(this, 0, 1)) {
+			final long transferred = transferred();
+			if (metrics != null) {
+				metrics.record(transferred, System.nanoTime() - startTime, writeBlockedTime, readBlockedTime, writeWakeups, readWakeups, occupancy);
+			}
+			FlightRecorderEvents.endPipe(pipeEvent, transferred, writeClosedTime - startTime, readClosedTime - startTime);
+		}
+	}
+
+	private void parkReader(final long position) throws InterruptedIOException {
+		parkedReader = Thread.currentThread();
+		try {
+			// re-check after registration, otherwise a concurrent commitWrite() or closeWrite() might miss this thread
+			if (writeSequence.get() == position && !writeClosed && !readClosed) {
+				final Object stall = FlightRecorderEvents.beginStall(getClass(), false);
+				if (metrics == null) {
+					ManagedBlocking.park(this);
+				} else {
+					final long parked = System.nanoTime();
+					ManagedBlocking.park(this);
+					readBlockedTime += System.nanoTime() - parked;
+					readWakeups++;
+				}
+				FlightRecorderEvents.endStall(stall);
+			}
+		} finally {
+			parkedReader = null;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("interrupted while waiting for data");
+		}
+	}
+
+	private void parkWriter(final long position) throws InterruptedIOException {
+		if (fullHandler != null) {
+			// the reading side may not even run yet, so let it start before waiting for it
+			final Runnable handler = fullHandler;
+			fullHandler = null;
+			handler.run();
+		}
+		parkedWriter = Thread.currentThread();
+		try {
+			// re-check after registration, otherwise a concurrent commitRead() or closeRead() might miss this thread
+			if (readSequence.get() == position && !readClosed && !writeClosed) {
+				final Object stall = FlightRecorderEvents.beginStall(getClass(), true);
+				if (metrics == null) {
+					ManagedBlocking.park(this);
+				} else {
+					final long parked = System.nanoTime();
+					ManagedBlocking.park(this);
+					writeBlockedTime += System.nanoTime() - parked;
+					writeWakeups++;
+				}
+				FlightRecorderEvents.endStall(stall);
+			}
+		} finally {
+			parkedWriter = null;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("interrupted while waiting for free space");
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Abstract class turning the items of a {@link Flow.Publisher} into a source for a blocking reading side. The items are queued as they arrive without blocking the thread of the
+ * {@link Flow.Publisher}, the reading side takes them from the queue and blocks only if the queue is empty.
+ * <p>
+ * The subscriber requests one item at a time and only as long as the elements queued but not yet read are less than the capacity, so the memory used is bounded by the capacity
+ * plus one item. Each time the reading side has freed space the next item is requested. Closing the reading side cancels the subscription, also from another thread, which wakes
+ * up a blocked reading side.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <B>
+ *            Type of the items published
+ */
+abstract class AbstractPublisherSource<B extends Buffer> implements Flow.Subscriber<B> {
+
+	static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final long capacity;
+
+	private final Queue<B> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong queued = new AtomicLong();
+
+	private final AtomicBoolean outstanding = new AtomicBoolean();
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile boolean completed;
+
+	private volatile Throwable failure;
+
+	private volatile boolean closed;
+
+	private volatile Thread parkedReader;
+
+	// accessed by the reading side only
+	private B current;
+
+	/**
+	 * @param capacity
+	 *            The number of elements which may be queued before no further item is requested. If the provided value is negative or zero then {@link #DEFAULT_CAPACITY} is
+	 *            used.
+	 */
+	protected AbstractPublisherSource(final int capacity) {
+		this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+	}
+
+	@Override
+	public final void onSubscribe(final Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		if (this.subscription != null || closed) {
+			// subscribed twice or not needed anymore
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		requestIfFree();
+	}
+
+	@Override
+	public final void onNext(final B item) {
+		Objects.requireNonNull(item);
+		if (!closed && item.hasRemaining()) {
+			queue.add(item);
+			queued.addAndGet(item.remaining());
+		}
+		outstanding.set(false);
+		requestIfFree();
+		wakeUp();
+	}
+
+	@Override
+	public final void onError(final Throwable throwable) {
+		failure = Objects.requireNonNull(throwable);
+		wakeUp();
+	}
+
+	@Override
+	public final void onComplete() {
+		completed = true;
+		wakeUp();
+	}
+
+	/**
+	 * Blocks the reading side until an item is readable.
+	 * 
+	 * @return the item to read from or {@code null} if the {@link Flow.Publisher} has completed and all items have been read
+	 * @throws IOException
+	 *             if the reading side has already been closed, the {@link Flow.Publisher} failed or the thread has been interrupted while waiting
+	 */
+	protected final B awaitReadable() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (current != null && current.hasRemaining()) {
+			return current;
+		}
+		for (;;) {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			// items published before a terminal signal are read first
+			current = queue.poll();
+			if (current != null) {
+				return current;
+			}
+			if (failure != null) {
+				throw new IOException("publisher failed", failure);
+			}
+			if (completed) {
+				current = queue.poll();
+				return current;
+			}
+			parkReader();
+		}
+	}
+
+	/**
+	 * Releases the space of elements read and requests the next item if enough space is free.
+	 * 
+	 * @param count
+	 *            The number of elements read.
+	 */
+	protected final void consumed(final int count) {
+		queued.addAndGet(-count);
+		requestIfFree();
+	}
+
+	/**
+	 * Returns the number of elements which can be read without blocking from the current item.
+	 * 
+	 * @return number of readable elements
+	 */
+	protected final int readable() {
+		return current == null ? 0 : current.remaining();
+	}
+
+	/**
+	 * Closes the reading side and cancels the subscription.
+	 */
+	protected final void closeRead() {
+		closed = true;
+		final Flow.Subscription subscription = this.subscription;
+		if (subscription != null) {
+			subscription.cancel();
+		}
+		queue.clear();
+		current = null;
+		wakeUp();
+	}
+
+	/**
+	 * Fails if the {@link Flow.Publisher} has signaled an error, even if the reading side did not read up to it.
+	 * 
+	 * @throws IOException
+	 *             if the {@link Flow.Publisher} failed
+	 */
+	final void checkPublisher() throws IOException {
+		final Throwable failure = this.failure;
+		if (failure != null) {
+			throw new IOException("publisher failed", failure);
+		}
+	}
+
+	private void requestIfFree() {
+		final Flow.Subscription subscription = this.subscription;
+		if (subscription != null && !closed && queued.get() < capacity && outstanding.compareAndSet(false, true)) {
+			subscription.request(1);
+		}
+	}
+
+	private void parkReader() throws InterruptedIOException {
+		parkedReader = Thread.currentThread();
+		try {
+			// re-check after registration, otherwise a concurrent signal might miss this thread
+			if (queue.isEmpty() && failure == null && !completed && !closed) {
+				ManagedBlocking.park(this);
+			}
+		} finally {
+			parkedReader = null;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("interrupted while waiting for data");
+		}
+	}
+
+	private void wakeUp() {
+		final Thread reader = parkedReader;
+		if (reader != null) {
+			LockSupport.unpark(reader);
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+
+/**
+ * Abstract class for ring buffers of a power of two capacity which is fixed for the whole lifetime of the buffer.
+ * 
+ * @author Dieter König
+ */
+abstract class AbstractRingBuffer extends AbstractPipeBuffer {
+
+	static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer, rounded up to the next power of two. If the provided value is negative or zero then {@link #DEFAULT_CAPACITY} is used.
+	 */
+	protected AbstractRingBuffer(final int capacity) {
+		this.capacity = capacityFor(capacity);
+		this.mask = this.capacity - 1;
+	}
+
+	static int capacityFor(final int capacity) {
+		if (capacity <= 0) {
+			return DEFAULT_CAPACITY;
+		}
+		if (capacity >= MAXIMUM_CAPACITY) {
+			return MAXIMUM_CAPACITY;
+		}
+		return Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+	}
+
+	/**
+	 * Blocks the writing side until at least one element can be written.
+	 * 
+	 * @return number of free elements starting at {@link #writePosition()}
+	 * @throws IOException
+	 *             if either side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int awaitWritable() throws IOException {
+		return awaitWritable(capacity);
+	}
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+
+/**
+ * Abstract class for buffers whose capacity adapts between a minimum and a maximum. The storage is a circular list of segments: the writing side fills the tail segment and moves
+ * on to the next one as long as the reading side does not read from it, the reading side follows segment by segment.
+ * <p>
+ * The buffer starts with the minimum capacity. If the writing side keeps finding the buffer full, a new segment is linked in right behind the tail segment, doubling the capacity
+ * until the maximum is reached. If the writing side keeps finding the buffer empty, i.e. the reading side has caught up, segments beyond the minimum capacity are unlinked and
+ * released again. Segments are never copied and their size is limited, so a large buffer does not end up as a single huge array.
+ * </p>
+ * <p>
+ * Only the writing side modifies the list. Links are written before any element behind them is published by {@link #commitWrite(long)}, the reading side only follows a link after
+ * it has seen such an element, so a plain field suffices for the links.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <A>
+ *            Type of the array holding the elements of a segment
+ */
+abstract class AbstractSegmentedBuffer<A> extends AbstractPipeBuffer {
+
+	static final int DEFAULT_MINIMUM_CAPACITY = 1 << 10;
+
+	static final int DEFAULT_MAXIMUM_CAPACITY = 1 << 26;
+
+	/**
+	 * Limits the size of a segment to 256 KiB for chars so that segments are not allocated as humongous objects by the G1 garbage collector.
+	 */
+	private static final int MAXIMUM_SEGMENT_SIZE = 1 << 17;
+
+	private static final int GROW_THRESHOLD = 2;
+
+	private static final int SHRINK_THRESHOLD = 4;
+
+	private static final class Segment<A> {
+
+		private final A data;
+
+		private final int length;
+
+		// segments of the minimum capacity are never released
+		private final boolean grown;
+
+		private Segment<A> next;
+
+		private Segment(final A data, final int length, final boolean grown) {
+			this.data = data;
+			this.length = length;
+			this.grown = grown;
+		}
+
+	}
+
+	private final int minimumCapacity;
+
+	private final int maximumCapacity;
+
+	// accessed by the writing side only
+	private Segment<A> tail;
+
+	private long tailStart;
+
+	private int capacity;
+
+	private int fullCount;
+
+	private int emptyCount;
+
+	// written by the reading side, compared by the writing side
+	private volatile Segment<A> head;
+
+	// accessed by the reading side only
+	private long headStart;
+
+	/**
+	 * @param minimumCapacity
+	 *            The capacity the buffer starts with and shrinks back to. If the provided value is negative or zero then {@link #DEFAULT_MINIMUM_CAPACITY} is used.
+	 * @param maximumCapacity
+	 *            The capacity the buffer may grow to. If the provided value is negative or zero then {@link #DEFAULT_MAXIMUM_CAPACITY} is used.
+	 */
+	protected AbstractSegmentedBuffer(final int minimumCapacity, final int maximumCapacity) {
+		this.minimumCapacity = minimumCapacity(minimumCapacity);
+		this.maximumCapacity = maximumCapacity(minimumCapacity, maximumCapacity);
+		// at least two segments, otherwise the writing side could not tell a full from an empty buffer
+		final int firstLength = Math.min(MAXIMUM_SEGMENT_SIZE, this.minimumCapacity - this.minimumCapacity / 2);
+		final Segment<A> first = new Segment<>(allocate(firstLength), firstLength, false);
+		Segment<A> last = first;
+		capacity = firstLength;
+		do {
+			final int length = Math.min(MAXIMUM_SEGMENT_SIZE, this.minimumCapacity - capacity);
+			last.next = new Segment<>(allocate(length), length, false);
+			last = last.next;
+			capacity += length;
+		} while (capacity < this.minimumCapacity);
+		last.next = first;
+		tail = first;
+		head = first;
+	}
+
+	private static int minimumCapacity(final int minimumCapacity) {
+		return minimumCapacity <= 0 ? DEFAULT_MINIMUM_CAPACITY : Math.max(2, minimumCapacity);
+	}
+
+	private static int maximumCapacity(final int minimumCapacity, final int maximumCapacity) {
+		return maximumCapacity <= 0 ? Math.max(DEFAULT_MAXIMUM_CAPACITY, minimumCapacity(minimumCapacity)) : maximumCapacity;
+	}
+
+	/**
+	 * Checks the given capacities so that misconfiguration fails early instead of on first use of the pipe.
+	 * 
+	 * @param minimumCapacity
+	 *            The minimum capacity, negative or zero for default.
+	 * @param maximumCapacity
+	 *            The maximum capacity, negative or zero for default.
+	 * @throws IllegalArgumentException
+	 *             if the maximum capacity is less than the minimum capacity
+	 */
+	static void checkCapacities(final int minimumCapacity, final int maximumCapacity) {
+		if (maximumCapacity(minimumCapacity, maximumCapacity) < minimumCapacity(minimumCapacity)) {
+			throw new IllegalArgumentException("maximum capacity " + maximumCapacity + " is less than minimum capacity " + minimumCapacity);
+		}
+	}
+
+	/**
+	 * Allocates the array of a new segment.
+	 * 
+	 * @param length
+	 *            The number of elements of the segment.
+	 * @return new array
+	 */
+	protected abstract A allocate(int length);
+
+	/**
+	 * Blocks the reading side until at least one element is readable and moves on to the next segment if the current one has been read completely.
+	 * 
+	 * @return number of elements readable from {@link #headData()} starting at {@link #headIndex()} or -1 if the writing side has been closed and all elements have been read
+	 * @throws IOException
+	 *             if the reading side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int claimReadable() throws IOException {
+		final int readable = awaitReadable();
+		if (readable < 0) {
+			return -1;
+		}
+		final long position = readPosition();
+		Segment<A> segment = head;
+		if (position == headStart + segment.length) {
+			segment = segment.next;
+			head = segment;
+			headStart = position;
+		}
+		return (int) Math.min(readable, headStart + segment.length - position);
+	}
+
+	/**
+	 * Returns the segment the reading side reads from.
+	 * 
+	 * @return array of the segment
+	 */
+	protected final A headData() {
+		return head.data;
+	}
+
+	/**
+	 * Returns the index of the next element to read within {@link #headData()}.
+	 * 
+	 * @return index
+	 */
+	protected final int headIndex() {
+		return (int) (readPosition() - headStart);
+	}
+
+	/**
+	 * Blocks the writing side until at least one element can be written and moves on to the next segment if the current one is full. Grows or shrinks the buffer if necessary.
+	 * 
+	 * @return number of elements writable to {@link #tailData()} starting at {@link #tailIndex()}
+	 * @throws IOException
+	 *             if either side has already been closed or the thread has been interrupted while waiting
+	 */
+	protected final int claimWritable() throws IOException {
+		checkWritable();
+		final long position = writePosition();
+		if (position == tailStart + tail.length) {
+			advance(position);
+		}
+		return (int) (tailStart + tail.length - position);
+	}
+
+	/**
+	 * Returns the segment the writing side writes to.
+	 * 
+	 * @return array of the segment
+	 */
+	protected final A tailData() {
+		return tail.data;
+	}
+
+	/**
+	 * Returns the index of the next element to write within {@link #tailData()}.
+	 * 
+	 * @return index
+	 */
+	protected final int tailIndex() {
+		return (int) (writePosition() - tailStart);
+	}
+
+	/**
+	 * Returns the current capacity. Only the writing side may call this method.
+	 * 
+	 * @return capacity
+	 */
+	final int capacity() {
+		return capacity;
+	}
+
+	private void advance(final long position) throws IOException {
+		for (;;) {
+			// read the position before the head, so that a concurrent move of the head is noticed by awaitReadProgress()
+			final long read = readCommitted();
+			final Segment<A> next = tail.next;
+			if (next != head) {
+				if (read == position) {
+					fullCount = 0;
+					if (++emptyCount >= SHRINK_THRESHOLD && release(next)) {
+						emptyCount = 0;
+					}
+				} else {
+					emptyCount = 0;
+				}
+				tail = next;
+				tailStart = position;
+				return;
+			}
+			if (capacity < maximumCapacity && ++fullCount >= GROW_THRESHOLD) {
+				fullCount = 0;
+				grow(position);
+				return;
+			}
+			awaitReadProgress(read);
+		}
+	}
+
+	private void grow(final long position) {
+		final int length = Math.min(MAXIMUM_SEGMENT_SIZE, Math.min(capacity, maximumCapacity - capacity));
+		final Segment<A> segment = new Segment<>(allocate(length), length, true);
+		segment.next = tail.next;
+		tail.next = segment;
+		capacity += length;
+		tail = segment;
+		tailStart = position;
+	}
+
+	private boolean release(final Segment<A> next) {
+		// unlink the segment behind the next tail if it has been grown and is not read from, otherwise retry on the next segment
+		final Segment<A> candidate = next.next;
+		if (candidate.grown && candidate != head && candidate != tail) {
+			next.next = candidate.next;
+			capacity -= candidate.length;
+			return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Abstract class for ring buffers which never block the writing side: once the ring buffer is full, further elements are appended to a memory-mapped temporary file which the
+ * reading side drains in order. As soon as the reading side has caught up, the writing side continues in memory and the file is overwritten by the next spill.
+ * <p>
+ * The heap memory used is bounded by the capacity of the ring buffer, the file is mapped in windows of {@link #WINDOW_SIZE} elements. The file is created on first spill and
+ * deleted after both sides have been closed, which the pipes do on success as well as on failure.
+ * </p>
+ * <p>
+ * The writing side publishes the position of the first spilled element by a volatile write before it commits any spilled element. Elements before this position are read from
+ * memory, elements from this position on are read from the file.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <V>
+ *            Type of the view on a mapped window of the file
+ */
+abstract class AbstractSpillBuffer<V extends Buffer> extends AbstractRingBuffer {
+
+	/**
+	 * Number of elements mapped at once.
+	 */
+	static final int WINDOW_SIZE = 1 << 20;
+
+	private static final long NOT_SPILLING = Long.MAX_VALUE;
+
+	private final Path directory;
+
+	private final int elementSize;
+
+	private volatile long spillStart = NOT_SPILLING;
+
+	// guarded by this, published to the reading side by spillStart
+	private Path file;
+
+	private FileChannel channel;
+
+	private boolean disposed;
+
+	// accessed by the writing side only
+	private boolean spilling;
+
+	private long writeSpillStart;
+
+	private long writeWindow = -1;
+
+	private V writeView;
+
+	// accessed by the reading side only
+	private boolean readingSpill;
+
+	private long readWindow = -1;
+
+	private V readView;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in memory, rounded up to the next power of two. If the provided value is negative or zero then {@link #DEFAULT_CAPACITY} is used.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 * @param elementSize
+	 *            The number of bytes of an element in the file.
+	 */
+	protected AbstractSpillBuffer(final int capacity, final Path directory, final int elementSize) {
+		super(capacity);
+		this.directory = directory;
+		this.elementSize = elementSize;
+	}
+
+	/**
+	 * Creates a view of the elements on a mapped window of the file.
+	 * 
+	 * @param window
+	 *            The mapped bytes.
+	 * @return view
+	 */
+	protected abstract V view(ByteBuffer window);
+
+	/**
+	 * Blocks the reading side until at least one element is readable.
+	 * 
+	 * @return number of elements readable either from memory starting at {@link #readPosition()} or from {@link #spillReadView()} starting at its position, depending on
+	 *         {@link #readingSpill()}; -1 if the writing side has been closed and all elements have been read
+	 * @throws IOException
+	 *             if the reading side has already been closed, the thread has been interrupted while waiting or the file could not be mapped
+	 */
+	protected final int claimReadable() throws IOException {
+		final int readable = awaitReadable();
+		if (readable < 0) {
+			return -1;
+		}
+		final long position = readPosition();
+		final long start = spillStart;
+		if (position < start) {
+			readingSpill = false;
+			return (int) Math.min(readable, start - position);
+		}
+		readingSpill = true;
+		final long offset = position - start;
+		final long window = offset / WINDOW_SIZE;
+		if (window != readWindow) {
+			readView = map(window);
+			readWindow = window;
+		}
+		final int index = (int) (offset % WINDOW_SIZE);
+		readView.position(index);
+		return Math.min(readable, WINDOW_SIZE - index);
+	}
+
+	/**
+	 * Tells whether the elements claimed by the last {@link #claimReadable()} are to be read from the file.
+	 * 
+	 * @return {@code true} if the elements are in the file
+	 */
+	protected final boolean readingSpill() {
+		return readingSpill;
+	}
+
+	/**
+	 * Returns the view to read the elements claimed by the last {@link #claimReadable()} from, if {@link #readingSpill()}.
+	 * 
+	 * @return view positioned at the next element to read
+	 */
+	protected final V spillReadView() {
+		return readView;
+	}
+
+	/**
+	 * Claims space for at least one element without blocking. Starts spilling if the ring buffer is full and stops spilling if the reading side has drained the file.
+	 * 
+	 * @return number of elements writable either to memory starting at {@link #writePosition()} or to {@link #spillWriteView()} starting at its position, depending on
+	 *         {@link #spilling()}
+	 * @throws IOException
+	 *             if either side has already been closed or the file could not be created or mapped
+	 */
+	protected final int claimWritable() throws IOException {
+		checkWritable();
+		final long position = writePosition();
+		if (spilling) {
+			if (readCommitted() != position) {
+				return claimSpill(position);
+			}
+			// the reading side has drained the file, continue in memory
+			spilling = false;
+			spillStart = NOT_SPILLING;
+		}
+		final long free = capacity - (position - readCommitted());
+		if (free > 0) {
+			return (int) free;
+		}
+		open();
+		spilling = true;
+		writeSpillStart = position;
+		spillStart = position;
+		return claimSpill(position);
+	}
+
+	/**
+	 * Tells whether the elements claimed by the last {@link #claimWritable()} are to be written to the file.
+	 * 
+	 * @return {@code true} if the elements go to the file
+	 */
+	protected final boolean spilling() {
+		return spilling;
+	}
+
+	/**
+	 * Returns the view to write the elements claimed by the last {@link #claimWritable()} to, if {@link #spilling()}.
+	 * 
+	 * @return view positioned at the next element to write
+	 */
+	protected final V spillWriteView() {
+		return writeView;
+	}
+
+	private int claimSpill(final long position) throws IOException {
+		final long offset = position - writeSpillStart;
+		final long window = offset / WINDOW_SIZE;
+		if (window != writeWindow) {
+			writeView = map(window);
+			writeWindow = window;
+		}
+		final int index = (int) (offset % WINDOW_SIZE);
+		writeView.position(index);
+		return WINDOW_SIZE - index;
+	}
+
+	private synchronized void open() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		if (disposed) {
+			throw new IOException("Pipe closed");
+		}
+		file = directory == null ? Files.createTempFile("fluent-pipe", ".spill") : Files.createTempFile(directory, "fluent-pipe", ".spill");
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			Files.deleteIfExists(file);
+			file = null;
+			throw e;
+		}
+	}
+
+	private synchronized V map(final long window) throws IOException {
+		if (disposed) {
+			throw new IOException("Pipe closed");
+		}
+		final long size = (long) WINDOW_SIZE * elementSize;
+		// mapping beyond the end of the file grows the file
+		return view(channel.map(FileChannel.MapMode.READ_WRITE, window * size, size));
+	}
+
+	/**
+	 * Returns the temporary file, if it has been created and not yet deleted.
+	 * 
+	 * @return file or {@code null}
+	 */
+	synchronized Path file() {
+		return file;
+	}
+
+	@Override
+	protected synchronized void dispose() {
+		if (disposed) {
+			return;
+		}
+		disposed = true;
+		if (file == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// the file gets deleted anyway
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// some platforms refuse to delete a file while it is mapped
+			file.toFile().deleteOnExit();
+		}
+		file = null;
+		channel = null;
+	}
+
+}
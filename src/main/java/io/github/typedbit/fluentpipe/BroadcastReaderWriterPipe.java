@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of Pipe connecting a {@link Consumer} with several {@link Function}. The {@link Consumer} is writing to an {@link Writer} and each {@link Function} is reading from
+ * its own {@link Reader} which in fact will read all chars written by the {@link Consumer}.
+ * <p>
+ * All {@link Reader} share one ring buffer, the {@link Consumer} may only overwrite chars after all {@link Function} still reading have read them. So the {@link Consumer} is
+ * throttled by the slowest {@link Function} and the chars are produced only once, no matter how many {@link Function} process them.
+ * </p>
+ * <p>
+ * This implementation executes {@link Consumer#accept(Object)} of {@code writerConsumer} and {@link Function#apply(Object)} of each of {@code readerMappers} <b>asynchronously</b>
+ * on the given {@link Executor}, each operation in a task on its own. The returned {@link CompletableFuture} completes with the results in the order of the {@link Function} after
+ * all operations have finished, or exceptionally if any of them failed.
+ * </p>
+ * <p>
+ * All methods are invoked only after {@link #get()} method of this {@link Supplier} is being called.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the result of each {@link Function}
+ */
+public class BroadcastReaderWriterPipe<T> extends AbstractPipe implements Supplier<CompletableFuture<List<T>>> {
+
+	private final int capacity;
+
+	private final Executor readExecutor;
+
+	private final Executor writeExecutor;
+
+	private final Consumer<Writer> writerConsumer;
+
+	private final List<Function<Reader, T>> readerMappers;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * <p>
+	 * The used {@link Executor} implementations should be able to spawn a thread for the write operation and for each read operation at the same time otherwise the pipe will
+	 * block infinitely. Don't use direct implementation for both {@link Executor}.
+	 * </p>
+	 * 
+	 * @param capacity
+	 *            The capacity of the shared ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back
+	 *            to default capacity of 64 Ki chars.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link Reader}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link Writer}.
+	 * @param writerConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param readerMappers
+	 *            {@link Function} instances which will be used by the pipe to process the {@link Reader} and produce a result each.
+	 */
+	public BroadcastReaderWriterPipe(final int capacity, final Executor readExecutor, final Executor writeExecutor, final Consumer<Writer> writerConsumer, final List<Function<Reader, T>> readerMappers) {
+		if (readerMappers.isEmpty()) {
+			throw new IllegalArgumentException("readerMappers must not be empty");
+		}
+		this.capacity = capacity;
+		this.readExecutor = Objects.requireNonNull(readExecutor);
+		this.writeExecutor = Objects.requireNonNull(writeExecutor);
+		this.writerConsumer = Objects.requireNonNull(writerConsumer);
+		this.readerMappers = new ArrayList<>(readerMappers);
+		this.readerMappers.forEach(Objects::requireNonNull);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> get() {
+		// build up a pipe
+		final CharBroadcastBuffer buffer = new CharBroadcastBuffer(capacity, readerMappers.size());
+
+		// submit write task to given Executor
+		final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(writerRunnable(buffer.getWriter(), writerConsumer), writeExecutor);
+
+		// submit a read task per Function to given Executor
+		final List<CompletableFuture<T>> readFutures = new ArrayList<>(readerMappers.size());
+		for (int i = 0; i < readerMappers.size(); i++) {
+			final Reader pipedReader = buffer.getReader(i);
+			final Function<Reader, T> readerMapper = readerMappers.get(i);
+			readFutures.add(CompletableFuture.supplyAsync(() -> {
+				// close reader in both cases (success, failure) prior to death of thread otherwise the writing side will block infinitely
+				try (final Reader reader = pipedReader) {
+					return readerMapper.apply(reader);
+				} catch (IOException e) {
+					throw new RuntimeException("error closing Reader", e);
+				}
+			}, readExecutor));
+		}
+
+		// complete after all operations, fail if any of them failed
+		final CompletableFuture<?>[] all = readFutures.toArray(new CompletableFuture<?>[readFutures.size() + 1]);
+		all[readFutures.size()] = writeFuture;
+		return CompletableFuture.allOf(all).thenApply((v) -> readFutures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of Pipe connecting a {@link Consumer} with several {@link Function}. The {@link Consumer} is writing to an {@link OutputStream} and each {@link Function} is reading from
+ * its own {@link InputStream} which in fact will read all bytes written by the {@link Consumer}.
+ * <p>
+ * All {@link InputStream} share one ring buffer, the {@link Consumer} may only overwrite bytes after all {@link Function} still reading have read them. So the {@link Consumer} is
+ * throttled by the slowest {@link Function} and the bytes are produced only once, no matter how many {@link Function} process them.
+ * </p>
+ * <p>
+ * This implementation executes {@link Consumer#accept(Object)} of {@code outputStreamConsumer} and {@link Function#apply(Object)} of each of {@code inputStreamMappers}
+ * <b>asynchronously</b> on the given {@link Executor}, each operation in a task on its own. The returned {@link CompletableFuture} completes with the results in the order of the
+ * {@link Function} after all operations have finished, or exceptionally if any of them failed.
+ * </p>
+ * <p>
+ * All methods are invoked only after {@link #get()} method of this {@link Supplier} is being called.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the result of each {@link Function}
+ */
+public class BroadcastStreamPipe<T> extends AbstractPipe implements Supplier<CompletableFuture<List<T>>> {
+
+	private final int capacity;
+
+	private final Executor readExecutor;
+
+	private final Executor writeExecutor;
+
+	private final Consumer<OutputStream> outputStreamConsumer;
+
+	private final List<Function<InputStream, T>> inputStreamMappers;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * <p>
+	 * The used {@link Executor} implementations should be able to spawn a thread for the write operation and for each read operation at the same time otherwise the pipe will
+	 * block infinitely. Don't use direct implementation for both {@link Executor}.
+	 * </p>
+	 * 
+	 * @param capacity
+	 *            The capacity of the shared ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back
+	 *            to default capacity of 64 KiB.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamMappers
+	 *            {@link Function} instances which will be used by the pipe to process the {@link InputStream} and produce a result each.
+	 */
+	public BroadcastStreamPipe(final int capacity, final Executor readExecutor, final Executor writeExecutor, final Consumer<OutputStream> outputStreamConsumer, final List<Function<InputStream, T>> inputStreamMappers) {
+		if (inputStreamMappers.isEmpty()) {
+			throw new IllegalArgumentException("inputStreamMappers must not be empty");
+		}
+		this.capacity = capacity;
+		this.readExecutor = Objects.requireNonNull(readExecutor);
+		this.writeExecutor = Objects.requireNonNull(writeExecutor);
+		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
+		this.inputStreamMappers = new ArrayList<>(inputStreamMappers);
+		this.inputStreamMappers.forEach(Objects::requireNonNull);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> get() {
+		// build up a pipe
+		final ByteBroadcastBuffer buffer = new ByteBroadcastBuffer(capacity, inputStreamMappers.size());
+
+		// submit write task to given Executor
+		final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(outputRunnable(buffer.getOutputStream(), outputStreamConsumer), writeExecutor);
+
+		// submit a read task per Function to given Executor
+		final List<CompletableFuture<T>> readFutures = new ArrayList<>(inputStreamMappers.size());
+		for (int i = 0; i < inputStreamMappers.size(); i++) {
+			final InputStream pipedInput = buffer.getInputStream(i);
+			final Function<InputStream, T> inputStreamMapper = inputStreamMappers.get(i);
+			readFutures.add(CompletableFuture.supplyAsync(() -> {
+				// close stream in both cases (success, failure) prior to death of thread otherwise the writing side will block infinitely
+				try (final InputStream input = pipedInput) {
+					return inputStreamMapper.apply(input);
+				} catch (IOException e) {
+					throw new RuntimeException("error closing InputStream", e);
+				}
+			}, readExecutor));
+		}
+
+		// complete after all operations, fail if any of them failed
+		final CompletableFuture<?>[] all = readFutures.toArray(new CompletableFuture<?>[readFutures.size() + 1]);
+		all[readFutures.size()] = writeFuture;
+		return CompletableFuture.allOf(all).thenApply((v) -> readFutures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+	}
+
+}
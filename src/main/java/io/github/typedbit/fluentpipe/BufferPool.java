@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Bounded pool of the arrays backing ring buffers, so executing a configured pipe over and over again does not allocate a new buffer each time.
+ * <p>
+ * Arrays are kept in size classes of powers of two, one stack per class and element type. An array is returned to the pool after both ends of its pipe have been closed,
+ * unless the execution has been cancelled or timed out, and is handed out again to the next pipe of the same capacity, most recently returned first. Each class retains a
+ * limited number of arrays; arrays which have not been used for longer than the idle timeout are dropped the next time the class is accessed, so a pool does not hold memory
+ * after a burst of pipes has gone. No background thread is involved. The same holds for the direct {@link ByteBuffer}s backing the ring buffers of
+ * {@link StreamPipeEngine#directRingBuffer(int, BufferPool)}, which are kept apart from the heap arrays.
+ * </p>
+ * <p>
+ * A pool is thread-safe and may be shared by any number of pipes and builders, see {@link StreamPipeEngine#ringBuffer(int, BufferPool)} and
+ * {@link ReaderWriterPipeEngine#ringBuffer(int, BufferPool)}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public final class BufferPool {
+
+	private static final int DEFAULT_MAXIMUM_PER_CLASS = 16;
+
+	private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+	private static final int CLASSES = Integer.SIZE;
+
+	/**
+	 * Stack of the arrays of one size class, the bottom holds the array returned longest ago.
+	 */
+	private static final class SizeClass {
+
+		private final Object[] arrays;
+
+		private final long[] returned;
+
+		private int size;
+
+		private SizeClass(final int maximum) {
+			this.arrays = new Object[maximum];
+			this.returned = new long[maximum];
+		}
+
+		private synchronized Object take(final long now, final long idleTimeout) {
+			evict(now, idleTimeout);
+			if (size == 0) {
+				return null;
+			}
+			final Object array = arrays[--size];
+			arrays[size] = null;
+			return array;
+		}
+
+		private synchronized void give(final Object array, final long now, final long idleTimeout) {
+			evict(now, idleTimeout);
+			if (size < arrays.length) {
+				arrays[size] = array;
+				returned[size] = now;
+				size++;
+			}
+		}
+
+		private void evict(final long now, final long idleTimeout) {
+			int idle = 0;
+			while (idle < size && now - returned[idle] > idleTimeout) {
+				idle++;
+			}
+			if (idle > 0) {
+				System.arraycopy(arrays, idle, arrays, 0, size - idle);
+				System.arraycopy(returned, idle, returned, 0, size - idle);
+				for (int i = size - idle; i < size; i++) {
+					arrays[i] = null;
+				}
+				size -= idle;
+			}
+		}
+
+		private synchronized int size() {
+			return size;
+		}
+
+	}
+
+	private final SizeClass[] byteClasses = new SizeClass[CLASSES];
+
+	private final SizeClass[] charClasses = new SizeClass[CLASSES];
+
+	private final SizeClass[] directClasses = new SizeClass[CLASSES];
+
+	private final long idleTimeout;
+
+	private BufferPool(final int maximumPerClass, final Duration idleTimeout) {
+		if (maximumPerClass <= 0) {
+			throw new IllegalArgumentException("maximumPerClass must be positive");
+		}
+		if (idleTimeout.isNegative()) {
+			throw new IllegalArgumentException("idleTimeout must not be negative");
+		}
+		this.idleTimeout = idleTimeout.toNanos();
+		for (int i = 0; i < CLASSES; i++) {
+			byteClasses[i] = new SizeClass(maximumPerClass);
+			charClasses[i] = new SizeClass(maximumPerClass);
+			directClasses[i] = new SizeClass(maximumPerClass);
+		}
+	}
+
+	/**
+	 * Returns a new pool retaining up to 16 arrays per size class for one minute.
+	 * 
+	 * @return {@link BufferPool}
+	 */
+	public static BufferPool create() {
+		return new BufferPool(DEFAULT_MAXIMUM_PER_CLASS, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Returns a new pool.
+	 * 
+	 * @param maximumPerClass
+	 *            The maximum number of arrays retained per size class and element type.
+	 * @param idleTimeout
+	 *            The time after which an array not handed out again is dropped.
+	 * @return {@link BufferPool}
+	 * @throws IllegalArgumentException
+	 *             if {@code maximumPerClass} is not positive or {@code idleTimeout} is negative
+	 */
+	public static BufferPool create(final int maximumPerClass, final Duration idleTimeout) {
+		return new BufferPool(maximumPerClass, Objects.requireNonNull(idleTimeout));
+	}
+
+	/**
+	 * Takes an array of the given capacity from the pool or allocates a new one.
+	 * 
+	 * @param capacity
+	 *            A power of two.
+	 * @return array
+	 */
+	byte[] takeBytes(final int capacity) {
+		final byte[] array = (byte[]) byteClasses[classOf(capacity)].take(System.nanoTime(), idleTimeout);
+		return array == null ? new byte[capacity] : array;
+	}
+
+	/**
+	 * Returns an array to the pool, where it is dropped if its size class is full.
+	 * 
+	 * @param array
+	 *            An array taken by {@link #takeBytes(int)}.
+	 */
+	void giveBytes(final byte[] array) {
+		byteClasses[classOf(array.length)].give(array, System.nanoTime(), idleTimeout);
+	}
+
+	/**
+	 * Takes an array of the given capacity from the pool or allocates a new one.
+	 * 
+	 * @param capacity
+	 *            A power of two.
+	 * @return array
+	 */
+	char[] takeChars(final int capacity) {
+		final char[] array = (char[]) charClasses[classOf(capacity)].take(System.nanoTime(), idleTimeout);
+		return array == null ? new char[capacity] : array;
+	}
+
+	/**
+	 * Returns an array to the pool, where it is dropped if its size class is full.
+	 * 
+	 * @param array
+	 *            An array taken by {@link #takeChars(int)}.
+	 */
+	void giveChars(final char[] array) {
+		charClasses[classOf(array.length)].give(array, System.nanoTime(), idleTimeout);
+	}
+
+	/**
+	 * Takes a direct buffer of the given capacity from the pool or allocates a new one.
+	 * 
+	 * @param capacity
+	 *            A power of two.
+	 * @return direct buffer, position and limit are undefined
+	 */
+	ByteBuffer takeDirect(final int capacity) {
+		final ByteBuffer buffer = (ByteBuffer) directClasses[classOf(capacity)].take(System.nanoTime(), idleTimeout);
+		return buffer == null ? ByteBuffer.allocateDirect(capacity) : buffer;
+	}
+
+	/**
+	 * Returns a direct buffer to the pool, where it is dropped if its size class is full.
+	 * 
+	 * @param buffer
+	 *            A buffer taken by {@link #takeDirect(int)}.
+	 */
+	void giveDirect(final ByteBuffer buffer) {
+		directClasses[classOf(buffer.capacity())].give(buffer, System.nanoTime(), idleTimeout);
+	}
+
+	/**
+	 * Returns the number of arrays and direct buffers currently retained.
+	 * 
+	 * @return number of arrays
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < CLASSES; i++) {
+			size += byteClasses[i].size() + charClasses[i].size() + directClasses[i].size();
+		}
+		return size;
+	}
+
+	private static int classOf(final int capacity) {
+		return Integer.numberOfTrailingZeros(capacity);
+	}
+
+}
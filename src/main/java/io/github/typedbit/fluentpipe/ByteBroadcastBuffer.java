@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Ring buffer of bytes shared by one {@link OutputStream} and several {@link InputStream}, each of them reading all bytes written.
+ * 
+ * @author Dieter König
+ */
+final class ByteBroadcastBuffer extends AbstractBroadcastBuffer {
+
+	private final class BroadcastInputStream extends InputStream {
+
+		private final Cursor cursor;
+
+		private BroadcastInputStream(final Cursor cursor) {
+			this.cursor = cursor;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (awaitReadable(cursor) < 0) {
+				return -1;
+			}
+			final long position = readPosition(cursor);
+			final int value = buffer[(int) position & mask] & 0xff;
+			commitRead(cursor, position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable(cursor);
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition(cursor);
+			final int count = Math.min(readable, len);
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			System.arraycopy(buffer, index, b, off, head);
+			if (head < count) {
+				// wrap around
+				System.arraycopy(buffer, 0, b, off + head, count - head);
+			}
+			commitRead(cursor, position + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			final int readable = awaitReadable(cursor);
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(cursor, readPosition(cursor) + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return readable(cursor);
+		}
+
+		@Override
+		public void close() {
+			closeRead(cursor);
+		}
+
+	}
+
+	private final class BroadcastOutputStream extends OutputStream {
+
+		@Override
+		public void write(final int b) throws IOException {
+			awaitWritable();
+			final long position = writePosition();
+			buffer[(int) position & mask] = (byte) b;
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, len);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(b, off, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(b, off + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+	}
+
+	private final byte[] buffer;
+
+	private final OutputStream output = new BroadcastOutputStream();
+
+	private final InputStream[] inputs;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param readers
+	 *            The number of {@link InputStream}.
+	 */
+	ByteBroadcastBuffer(final int capacity, final int readers) {
+		super(capacity, readers);
+		this.buffer = new byte[this.capacity];
+		this.inputs = new InputStream[readers];
+		for (int i = 0; i < readers; i++) {
+			inputs[i] = new BroadcastInputStream(cursor(i));
+		}
+	}
+
+	/**
+	 * Returns the writing end.
+	 * 
+	 * @return {@link OutputStream}
+	 */
+	OutputStream getOutputStream() {
+		return output;
+	}
+
+	/**
+	 * Returns a reading end.
+	 * 
+	 * @param reader
+	 *            The index of the reading end.
+	 * @return {@link InputStream}
+	 */
+	InputStream getInputStream(final int reader) {
+		return inputs[reader];
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Subscriber} of {@link ByteBuffer} items providing an {@link InputStream} for the reading thread.
+ * 
+ * @author Dieter König
+ */
+final class BytePublisherSource extends AbstractPublisherSource<ByteBuffer> {
+
+	private final class SourceInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			final ByteBuffer item = awaitReadable();
+			if (item == null) {
+				return -1;
+			}
+			final int value = item.get() & 0xff;
+			consumed(1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final ByteBuffer item = awaitReadable();
+			if (item == null) {
+				return -1;
+			}
+			final int count = Math.min(len, item.remaining());
+			item.get(b, off, count);
+			consumed(count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return readable();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final InputStream inputStream = new SourceInputStream();
+
+	/**
+	 * @param capacity
+	 *            The number of bytes which may be queued before no further item is requested. If the provided value is negative or zero then default capacity is used.
+	 */
+	BytePublisherSource(final int capacity) {
+		super(capacity);
+	}
+
+	InputStream getInputStream() {
+		return inputStream;
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring buffer of bytes providing an {@link OutputStream} for the writing and an {@link InputStream} for the reading thread.
+ * <p>
+ * Both streams implement the channel API as well, see {@link ChannelSink} and {@link ChannelSource}: channels read into resp. write from a view of the array backing the ring
+ * buffer, so no intermediate array is needed.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ByteRingBuffer extends AbstractRingBuffer implements StreamPipeEngine.Connection {
+
+	private final class RingInputStream extends InputStream implements ChannelSource {
+
+		@Override
+		public int read() throws IOException {
+			if (awaitReadable() < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int value = buffer[(int) position & mask] & 0xff;
+			commitRead(position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, len);
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			System.arraycopy(buffer, index, b, off, head);
+			if (head < count) {
+				// wrap around
+				System.arraycopy(buffer, 0, b, off + head, count - head);
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			if (dst.hasArray()) {
+				// copy straight into the backing array of the target
+				final int count = read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+				if (count > 0) {
+					dst.position(dst.position() + count);
+				}
+				return count;
+			}
+			if (!dst.hasRemaining()) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, dst.remaining());
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			dst.put(buffer, index, head);
+			if (head < count) {
+				// wrap around
+				dst.put(buffer, 0, count - head);
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public long transferTo(final WritableByteChannel target) throws IOException {
+			if (target instanceof SelectableChannel && !((SelectableChannel) target).isBlocking()) {
+				// a non-blocking channel would spin on writes returning 0
+				throw new IllegalBlockingModeException();
+			}
+			long transferred = 0;
+			int readable;
+			while ((readable = awaitReadable()) >= 0) {
+				final long position = readPosition();
+				final int index = (int) position & mask;
+				final int count = target.write(ByteBuffer.wrap(buffer, index, Math.min(readable, capacity - index)));
+				commitRead(position + count);
+				transferred += count;
+			}
+			return transferred;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return readable();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !isReadClosed();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class RingOutputStream extends OutputStream implements ChannelSink {
+
+		@Override
+		public void write(final int b) throws IOException {
+			awaitWritable();
+			final long position = writePosition();
+			buffer[(int) position & mask] = (byte) b;
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, len);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(b, off, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(b, off + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			final int length = src.remaining();
+			if (src.hasArray()) {
+				// copy straight from the backing array of the source
+				write(src.array(), src.arrayOffset() + src.position(), length);
+				src.position(src.limit());
+				return length;
+			}
+			while (src.hasRemaining()) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, src.remaining());
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				src.get(buffer, index, head);
+				if (head < count) {
+					// wrap around
+					src.get(buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+			}
+			return length;
+		}
+
+		@Override
+		public long transferFrom(final ReadableByteChannel source) throws IOException {
+			if (source instanceof SelectableChannel && !((SelectableChannel) source).isBlocking()) {
+				// a non-blocking channel would spin on reads returning 0
+				throw new IllegalBlockingModeException();
+			}
+			long transferred = 0;
+			for (;;) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int index = (int) position & mask;
+				final int count = source.read(ByteBuffer.wrap(buffer, index, Math.min(writable, capacity - index)));
+				if (count < 0) {
+					return transferred;
+				}
+				commitWrite(position + count);
+				transferred += count;
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !isWriteClosed();
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+	}
+
+	private final byte[] buffer;
+
+	private final BufferPool pool;
+
+	// guarded by this
+	private boolean returned;
+
+	private final InputStream input = new RingInputStream();
+
+	private final OutputStream output = new RingOutputStream();
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 */
+	ByteRingBuffer(final int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffer from and return it to after both ends have been closed, {@code null} to allocate the buffer.
+	 */
+	ByteRingBuffer(final int capacity, final BufferPool pool) {
+		super(capacity);
+		this.pool = pool;
+		this.buffer = pool == null ? new byte[this.capacity] : pool.takeBytes(this.capacity);
+	}
+
+	@Override
+	protected void dispose() {
+		// a torn down reading side may still copy from the buffer, leave it to the garbage collector
+		if (pool != null && !isTornDown()) {
+			synchronized (this) {
+				if (returned) {
+					return;
+				}
+				returned = true;
+			}
+			pool.giveBytes(buffer);
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+}
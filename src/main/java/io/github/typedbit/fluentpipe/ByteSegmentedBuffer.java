@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer buffer of bytes growing and shrinking between a minimum and a maximum capacity, providing an {@link OutputStream} for the writing and an
+ * {@link InputStream} for the reading thread.
+ * 
+ * @author Dieter König
+ */
+final class ByteSegmentedBuffer extends AbstractSegmentedBuffer<byte[]> implements StreamPipeEngine.Connection {
+
+	private final class SegmentedInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			if (claimReadable() < 0) {
+				return -1;
+			}
+			final int value = headData()[headIndex()] & 0xff;
+			commitRead(readPosition() + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final int count = Math.min(readable, len);
+			System.arraycopy(headData(), headIndex(), b, off, count);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return readable();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class SegmentedOutputStream extends OutputStream {
+
+		@Override
+		public void write(final int b) throws IOException {
+			claimWritable();
+			tailData()[tailIndex()] = (byte) b;
+			commitWrite(writePosition() + 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				final int count = Math.min(claimWritable(), len);
+				System.arraycopy(b, off, tailData(), tailIndex(), count);
+				commitWrite(writePosition() + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+	}
+
+	private final InputStream input = new SegmentedInputStream();
+
+	private final OutputStream output = new SegmentedOutputStream();
+
+	/**
+	 * @param minimumCapacity
+	 *            The capacity in bytes the buffer starts with and shrinks back to. If the provided value is negative or zero then default capacity is used.
+	 * @param maximumCapacity
+	 *            The capacity in bytes the buffer may grow to. If the provided value is negative or zero then default capacity is used.
+	 */
+	ByteSegmentedBuffer(final int minimumCapacity, final int maximumCapacity) {
+		super(minimumCapacity, maximumCapacity);
+	}
+
+	@Override
+	protected byte[] allocate(final int length) {
+		return new byte[length];
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+}
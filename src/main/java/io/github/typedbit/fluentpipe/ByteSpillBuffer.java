@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring buffer of bytes spilling to a memory-mapped temporary file when full, providing an {@link OutputStream} for the writing and an
+ * {@link InputStream} for the reading thread. A write operation never blocks.
+ * 
+ * @author Dieter König
+ */
+final class ByteSpillBuffer extends AbstractSpillBuffer<ByteBuffer> implements StreamPipeEngine.Connection {
+
+	private final class SpillInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			if (claimReadable() < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int value = (readingSpill() ? spillReadView().get() : buffer[(int) position & mask]) & 0xff;
+			commitRead(position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, len);
+			if (readingSpill()) {
+				spillReadView().get(b, off, count);
+			} else {
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(buffer, index, b, off, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(buffer, 0, b, off + head, count - head);
+				}
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return readable();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class SpillOutputStream extends OutputStream {
+
+		@Override
+		public void write(final int b) throws IOException {
+			claimWritable();
+			final long position = writePosition();
+			if (spilling()) {
+				spillWriteView().put((byte) b);
+			} else {
+				buffer[(int) position & mask] = (byte) b;
+			}
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				final int count = Math.min(claimWritable(), len);
+				final long position = writePosition();
+				if (spilling()) {
+					spillWriteView().put(b, off, count);
+				} else {
+					final int index = (int) position & mask;
+					final int head = Math.min(count, capacity - index);
+					System.arraycopy(b, off, buffer, index, head);
+					if (head < count) {
+						// wrap around
+						System.arraycopy(b, off + head, buffer, 0, count - head);
+					}
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+	}
+
+	private final byte[] buffer;
+
+	private final InputStream input = new SpillInputStream();
+
+	private final OutputStream output = new SpillOutputStream();
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 */
+	ByteSpillBuffer(final int capacity, final Path directory) {
+		super(capacity, directory, Byte.BYTES);
+		this.buffer = new byte[this.capacity];
+	}
+
+	@Override
+	protected ByteBuffer view(final ByteBuffer window) {
+		return window;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+}
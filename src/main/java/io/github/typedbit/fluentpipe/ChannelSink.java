@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Writing end of a pipe as {@link WritableByteChannel}. Besides copying a {@link java.nio.ByteBuffer} into the pipe, the producer may let the pipe read from a channel directly
+ * into its buffer by {@link #transferFrom(ReadableByteChannel)}.
+ * <p>
+ * The ring buffer engines pass an {@link OutputStream} implementing this interface to the write operation, so the write operation can use either API. {@link #of(OutputStream)}
+ * returns the channel API for any {@link OutputStream}. With {@link StreamPipeEngine#directRingBuffer(int)} a {@link java.nio.channels.FileChannel} is read straight into the
+ * off-heap memory of the pipe, without the temporary buffer the JDK uses for heap buffers.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public interface ChannelSink extends WritableByteChannel {
+
+	/**
+	 * Returns the channel API of the given {@link OutputStream}. If the stream is the writing end of a ring buffer pipe the stream itself is returned, otherwise bytes are copied
+	 * into the stream.
+	 * 
+	 * @param outputStream
+	 *            The {@link OutputStream} to write to.
+	 * @return {@link ChannelSink}
+	 */
+	public static ChannelSink of(final OutputStream outputStream) {
+		Objects.requireNonNull(outputStream);
+		return outputStream instanceof ChannelSink ? (ChannelSink) outputStream : new CopyingChannelSink(outputStream);
+	}
+
+	/**
+	 * Reads the given channel until end-of-stream and writes all bytes read to the pipe, blocking while the pipe is full. The channel is read directly into the buffer of the
+	 * pipe if possible. The channel is not closed.
+	 * 
+	 * @param source
+	 *            The blocking {@link ReadableByteChannel} to read from.
+	 * @return number of bytes transferred
+	 * @throws IOException
+	 *             if reading from the channel failed, the pipe has been closed or the thread has been interrupted while waiting
+	 * @throws java.nio.channels.IllegalBlockingModeException
+	 *             if the channel is a {@link java.nio.channels.SelectableChannel} in non-blocking mode
+	 */
+	public long transferFrom(ReadableByteChannel source) throws IOException;
+
+}
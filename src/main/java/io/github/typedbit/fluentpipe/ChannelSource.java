@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Reading end of a pipe as {@link ReadableByteChannel}. Besides copying into a {@link java.nio.ByteBuffer}, the consumer may let the pipe write to a channel directly from its
+ * buffer by {@link #transferTo(WritableByteChannel)}.
+ * <p>
+ * The ring buffer engines pass an {@link InputStream} implementing this interface to the read operation, so the read operation can use either API. {@link #of(InputStream)}
+ * returns the channel API for any {@link InputStream}. With {@link StreamPipeEngine#directRingBuffer(int)} a {@link java.nio.channels.SocketChannel} is written straight from the
+ * off-heap memory of the pipe, without the temporary buffer the JDK uses for heap buffers.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public interface ChannelSource extends ReadableByteChannel {
+
+	/**
+	 * Returns the channel API of the given {@link InputStream}. If the stream is the reading end of a ring buffer pipe the stream itself is returned, otherwise bytes are copied
+	 * from the stream.
+	 * 
+	 * @param inputStream
+	 *            The {@link InputStream} to read from.
+	 * @return {@link ChannelSource}
+	 */
+	public static ChannelSource of(final InputStream inputStream) {
+		Objects.requireNonNull(inputStream);
+		return inputStream instanceof ChannelSource ? (ChannelSource) inputStream : new CopyingChannelSource(inputStream);
+	}
+
+	/**
+	 * Reads the pipe until EOF and writes all bytes read to the given channel, blocking while the pipe is empty. The channel is written directly from the buffer of the pipe if
+	 * possible. The channel is not closed.
+	 * 
+	 * @param target
+	 *            The blocking {@link WritableByteChannel} to write to.
+	 * @return number of bytes transferred
+	 * @throws IOException
+	 *             if writing to the channel failed, the pipe has been closed or the thread has been interrupted while waiting
+	 * @throws java.nio.channels.IllegalBlockingModeException
+	 *             if the channel is a {@link java.nio.channels.SelectableChannel} in non-blocking mode
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException;
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * Ring buffer of chars shared by one {@link Writer} and several {@link Reader}, each of them reading all chars written. Like {@link CharRingBuffer} the chars are copied in bulk.
+ * 
+ * @author Dieter König
+ */
+final class CharBroadcastBuffer extends AbstractBroadcastBuffer {
+
+	private final class BroadcastReader extends Reader {
+
+		private final Cursor cursor;
+
+		private BroadcastReader(final Cursor cursor) {
+			this.cursor = cursor;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (awaitReadable(cursor) < 0) {
+				return -1;
+			}
+			final long position = readPosition(cursor);
+			final char value = buffer[(int) position & mask];
+			commitRead(cursor, position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable(cursor);
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition(cursor);
+			final int count = Math.min(readable, len);
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			System.arraycopy(buffer, index, cbuf, off, head);
+			if (head < count) {
+				// wrap around
+				System.arraycopy(buffer, 0, cbuf, off + head, count - head);
+			}
+			commitRead(cursor, position + count);
+			return count;
+		}
+
+		@Override
+		public int read(final CharBuffer target) throws IOException {
+			if (target.hasArray()) {
+				// copy straight into the backing array of the target
+				final int count = read(target.array(), target.arrayOffset() + target.position(), target.remaining());
+				if (count > 0) {
+					target.position(target.position() + count);
+				}
+				return count;
+			}
+			if (!target.hasRemaining()) {
+				return 0;
+			}
+			final int readable = awaitReadable(cursor);
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition(cursor);
+			final int count = Math.min(readable, target.remaining());
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			target.put(buffer, index, head);
+			if (head < count) {
+				// wrap around
+				target.put(buffer, 0, count - head);
+			}
+			commitRead(cursor, position + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n < 0) {
+				throw new IllegalArgumentException("skip value is negative");
+			}
+			if (n == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable(cursor);
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(cursor, readPosition(cursor) + count);
+			return count;
+		}
+
+		@Override
+		public boolean ready() {
+			return readable(cursor) > 0;
+		}
+
+		@Override
+		public void close() {
+			closeRead(cursor);
+		}
+
+	}
+
+	private final class BroadcastWriter extends Writer {
+
+		@Override
+		public void write(final int c) throws IOException {
+			awaitWritable();
+			final long position = writePosition();
+			buffer[(int) position & mask] = (char) c;
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final char[] cbuf, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			while (len > 0) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, len);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(cbuf, off, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(cbuf, off + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, str.length());
+			writeChars(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(final CharSequence csq) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			writeChars(chars, 0, chars.length());
+			return this;
+		}
+
+		@Override
+		public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			Objects.checkFromToIndex(start, end, chars.length());
+			writeChars(chars, start, end);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+			// every write is visible to the reading sides immediately
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+		private void writeChars(final CharSequence chars, int start, final int end) throws IOException {
+			while (start < end) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, end - start);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				CharRingBuffer.getChars(chars, start, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					CharRingBuffer.getChars(chars, start + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				start += count;
+			}
+		}
+
+	}
+
+	private final char[] buffer;
+
+	private final Writer writer = new BroadcastWriter();
+
+	private final Reader[] readers;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param readers
+	 *            The number of {@link Reader}.
+	 */
+	CharBroadcastBuffer(final int capacity, final int readers) {
+		super(capacity, readers);
+		this.buffer = new char[this.capacity];
+		this.readers = new Reader[readers];
+		for (int i = 0; i < readers; i++) {
+			this.readers[i] = new BroadcastReader(cursor(i));
+		}
+	}
+
+	/**
+	 * Returns the writing end.
+	 * 
+	 * @return {@link Writer}
+	 */
+	Writer getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Returns a reading end.
+	 * 
+	 * @param reader
+	 *            The index of the reading end.
+	 * @return {@link Reader}
+	 */
+	Reader getReader(final int reader) {
+		return readers[reader];
+	}
+
+}
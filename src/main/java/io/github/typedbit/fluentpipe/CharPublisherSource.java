@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Subscriber} of {@link CharBuffer} items providing a {@link Reader} for the reading thread.
+ * 
+ * @author Dieter König
+ */
+final class CharPublisherSource extends AbstractPublisherSource<CharBuffer> {
+
+	private final class SourceReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			final CharBuffer item = awaitReadable();
+			if (item == null) {
+				return -1;
+			}
+			final char value = item.get();
+			consumed(1);
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			if (len == 0) {
+				return 0;
+			}
+			final CharBuffer item = awaitReadable();
+			if (item == null) {
+				return -1;
+			}
+			final int count = Math.min(len, item.remaining());
+			item.get(cbuf, off, count);
+			consumed(count);
+			return count;
+		}
+
+		@Override
+		public boolean ready() {
+			return readable() > 0;
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final Reader reader = new SourceReader();
+
+	/**
+	 * @param capacity
+	 *            The number of chars which may be queued before no further item is requested. If the provided value is negative or zero then default capacity is used.
+	 */
+	CharPublisherSource(final int capacity) {
+		super(capacity);
+	}
+
+	Reader getReader() {
+		return reader;
+	}
+
+}
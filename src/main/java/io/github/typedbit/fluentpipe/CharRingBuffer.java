@@ -0,0 +1,301 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring buffer of chars providing a {@link Writer} for the writing and a {@link Reader} for the reading thread.
+ * <p>
+ * In contrast to {@link java.io.PipedWriter} which hands over every single char to {@link java.io.PipedReader} the chars are copied in bulk. {@link Writer#append(CharSequence)}
+ * copies {@link String}, {@link StringBuilder}, {@link StringBuffer} and {@link CharBuffer} directly into the ring buffer without creating an intermediate {@link String}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class CharRingBuffer extends AbstractRingBuffer implements ReaderWriterPipeEngine.Connection {
+
+	private final class RingReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			if (awaitReadable() < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final char value = buffer[(int) position & mask];
+			commitRead(position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, len);
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			System.arraycopy(buffer, index, cbuf, off, head);
+			if (head < count) {
+				// wrap around
+				System.arraycopy(buffer, 0, cbuf, off + head, count - head);
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public int read(final CharBuffer target) throws IOException {
+			if (target.hasArray()) {
+				// copy straight into the backing array of the target
+				final int count = read(target.array(), target.arrayOffset() + target.position(), target.remaining());
+				if (count > 0) {
+					target.position(target.position() + count);
+				}
+				return count;
+			}
+			if (!target.hasRemaining()) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, target.remaining());
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			target.put(buffer, index, head);
+			if (head < count) {
+				// wrap around
+				target.put(buffer, 0, count - head);
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n < 0) {
+				throw new IllegalArgumentException("skip value is negative");
+			}
+			if (n == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public boolean ready() {
+			return readable() > 0;
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class RingWriter extends Writer {
+
+		@Override
+		public void write(final int c) throws IOException {
+			awaitWritable();
+			final long position = writePosition();
+			buffer[(int) position & mask] = (char) c;
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final char[] cbuf, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			while (len > 0) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, len);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(cbuf, off, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(cbuf, off + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, str.length());
+			writeChars(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(final CharSequence csq) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			writeChars(chars, 0, chars.length());
+			return this;
+		}
+
+		@Override
+		public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			Objects.checkFromToIndex(start, end, chars.length());
+			writeChars(chars, start, end);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+			// every write is visible to the reading side immediately
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+		private void writeChars(final CharSequence chars, int start, final int end) throws IOException {
+			while (start < end) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, end - start);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				getChars(chars, start, buffer, index, head);
+				if (head < count) {
+					// wrap around
+					getChars(chars, start + head, buffer, 0, count - head);
+				}
+				commitWrite(position + count);
+				start += count;
+			}
+		}
+
+	}
+
+	/**
+	 * Copies chars of a {@link CharSequence} into an array using the bulk operations of the well known implementations.
+	 * 
+	 * @param chars
+	 *            The source.
+	 * @param start
+	 *            The index of the first char to copy from the source.
+	 * @param destination
+	 *            The target array.
+	 * @param index
+	 *            The index in the target array to copy to.
+	 * @param count
+	 *            The number of chars to copy.
+	 */
+	static void getChars(final CharSequence chars, final int start, final char[] destination, final int index, final int count) {
+		if (chars instanceof String) {
+			((String) chars).getChars(start, start + count, destination, index);
+		} else if (chars instanceof StringBuilder) {
+			((StringBuilder) chars).getChars(start, start + count, destination, index);
+		} else if (chars instanceof StringBuffer) {
+			((StringBuffer) chars).getChars(start, start + count, destination, index);
+		} else if (chars instanceof CharBuffer) {
+			final CharBuffer charBuffer = (CharBuffer) chars;
+			if (charBuffer.hasArray()) {
+				System.arraycopy(charBuffer.array(), charBuffer.arrayOffset() + charBuffer.position() + start, destination, index, count);
+			} else {
+				// relative get on a view, the position of the given buffer must not change
+				charBuffer.duplicate().position(charBuffer.position() + start).get(destination, index, count);
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				destination[index + i] = chars.charAt(start + i);
+			}
+		}
+	}
+
+	private final char[] buffer;
+
+	private final BufferPool pool;
+
+	// guarded by this
+	private boolean returned;
+
+	private final Reader reader = new RingReader();
+
+	private final Writer writer = new RingWriter();
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 */
+	CharRingBuffer(final int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffer from and return it to after both ends have been closed, {@code null} to allocate the buffer.
+	 */
+	CharRingBuffer(final int capacity, final BufferPool pool) {
+		super(capacity);
+		this.pool = pool;
+		this.buffer = pool == null ? new char[this.capacity] : pool.takeChars(this.capacity);
+	}
+
+	@Override
+	protected void dispose() {
+		// a torn down reading side may still copy from the buffer, leave it to the garbage collector
+		if (pool != null && !isTornDown()) {
+			synchronized (this) {
+				if (returned) {
+					return;
+				}
+				returned = true;
+			}
+			pool.giveChars(buffer);
+		}
+	}
+
+	@Override
+	public Reader getReader() {
+		return reader;
+	}
+
+	@Override
+	public Writer getWriter() {
+		return writer;
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer buffer of chars growing and shrinking between a minimum and a maximum capacity, providing a {@link Writer} for the writing and a {@link Reader}
+ * for the reading thread. Like {@link CharRingBuffer} the chars are copied in bulk.
+ * 
+ * @author Dieter König
+ */
+final class CharSegmentedBuffer extends AbstractSegmentedBuffer<char[]> implements ReaderWriterPipeEngine.Connection {
+
+	private final class SegmentedReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			if (claimReadable() < 0) {
+				return -1;
+			}
+			final char value = headData()[headIndex()];
+			commitRead(readPosition() + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final int count = Math.min(readable, len);
+			System.arraycopy(headData(), headIndex(), cbuf, off, count);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public int read(final CharBuffer target) throws IOException {
+			if (target.hasArray()) {
+				// copy straight into the backing array of the target
+				final int count = read(target.array(), target.arrayOffset() + target.position(), target.remaining());
+				if (count > 0) {
+					target.position(target.position() + count);
+				}
+				return count;
+			}
+			if (!target.hasRemaining()) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final int count = Math.min(readable, target.remaining());
+			target.put(headData(), headIndex(), count);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n < 0) {
+				throw new IllegalArgumentException("skip value is negative");
+			}
+			if (n == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public boolean ready() {
+			return readable() > 0;
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class SegmentedWriter extends Writer {
+
+		@Override
+		public void write(final int c) throws IOException {
+			claimWritable();
+			tailData()[tailIndex()] = (char) c;
+			commitWrite(writePosition() + 1);
+		}
+
+		@Override
+		public void write(final char[] cbuf, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			while (len > 0) {
+				final int count = Math.min(claimWritable(), len);
+				System.arraycopy(cbuf, off, tailData(), tailIndex(), count);
+				commitWrite(writePosition() + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, str.length());
+			writeChars(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(final CharSequence csq) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			writeChars(chars, 0, chars.length());
+			return this;
+		}
+
+		@Override
+		public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			Objects.checkFromToIndex(start, end, chars.length());
+			writeChars(chars, start, end);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+			// every write is visible to the reading side immediately
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+		private void writeChars(final CharSequence chars, int start, final int end) throws IOException {
+			while (start < end) {
+				final int count = Math.min(claimWritable(), end - start);
+				CharRingBuffer.getChars(chars, start, tailData(), tailIndex(), count);
+				commitWrite(writePosition() + count);
+				start += count;
+			}
+		}
+
+	}
+
+	private final Reader reader = new SegmentedReader();
+
+	private final Writer writer = new SegmentedWriter();
+
+	/**
+	 * @param minimumCapacity
+	 *            The capacity in chars the buffer starts with and shrinks back to. If the provided value is negative or zero then default capacity is used.
+	 * @param maximumCapacity
+	 *            The capacity in chars the buffer may grow to. If the provided value is negative or zero then default capacity is used.
+	 */
+	CharSegmentedBuffer(final int minimumCapacity, final int maximumCapacity) {
+		super(minimumCapacity, maximumCapacity);
+	}
+
+	@Override
+	protected char[] allocate(final int length) {
+		return new char[length];
+	}
+
+	@Override
+	public Reader getReader() {
+		return reader;
+	}
+
+	@Override
+	public Writer getWriter() {
+		return writer;
+	}
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring buffer of chars spilling to a memory-mapped temporary file when full, providing a {@link Writer} for the writing and a {@link Reader} for
+ * the reading thread. A write operation never blocks. Like {@link CharRingBuffer} the chars are copied in bulk.
+ * 
+ * @author Dieter König
+ */
+final class CharSpillBuffer extends AbstractSpillBuffer<CharBuffer> implements ReaderWriterPipeEngine.Connection {
+
+	private final class SpillReader extends Reader {
+
+		@Override
+		public int read() throws IOException {
+			if (claimReadable() < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final char value = readingSpill() ? spillReadView().get() : buffer[(int) position & mask];
+			commitRead(position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, len);
+			if (readingSpill()) {
+				spillReadView().get(cbuf, off, count);
+			} else {
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				System.arraycopy(buffer, index, cbuf, off, head);
+				if (head < count) {
+					// wrap around
+					System.arraycopy(buffer, 0, cbuf, off + head, count - head);
+				}
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public int read(final CharBuffer target) throws IOException {
+			if (target.hasArray()) {
+				// copy straight into the backing array of the target
+				final int count = read(target.array(), target.arrayOffset() + target.position(), target.remaining());
+				if (count > 0) {
+					target.position(target.position() + count);
+				}
+				return count;
+			}
+			if (!target.hasRemaining()) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, target.remaining());
+			if (readingSpill()) {
+				final CharBuffer source = spillReadView();
+				final int limit = source.limit();
+				source.limit(source.position() + count);
+				target.put(source);
+				source.limit(limit);
+			} else {
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				target.put(buffer, index, head);
+				if (head < count) {
+					// wrap around
+					target.put(buffer, 0, count - head);
+				}
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n < 0) {
+				throw new IllegalArgumentException("skip value is negative");
+			}
+			if (n == 0) {
+				return 0;
+			}
+			final int readable = claimReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public boolean ready() {
+			return readable() > 0;
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class SpillWriter extends Writer {
+
+		@Override
+		public void write(final int c) throws IOException {
+			claimWritable();
+			final long position = writePosition();
+			if (spilling()) {
+				spillWriteView().put((char) c);
+			} else {
+				buffer[(int) position & mask] = (char) c;
+			}
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final char[] cbuf, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			while (len > 0) {
+				final int count = Math.min(claimWritable(), len);
+				final long position = writePosition();
+				if (spilling()) {
+					spillWriteView().put(cbuf, off, count);
+				} else {
+					final int index = (int) position & mask;
+					final int head = Math.min(count, capacity - index);
+					System.arraycopy(cbuf, off, buffer, index, head);
+					if (head < count) {
+						// wrap around
+						System.arraycopy(cbuf, off + head, buffer, 0, count - head);
+					}
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, str.length());
+			writeChars(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(final CharSequence csq) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			writeChars(chars, 0, chars.length());
+			return this;
+		}
+
+		@Override
+		public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+			final CharSequence chars = csq == null ? "null" : csq;
+			Objects.checkFromToIndex(start, end, chars.length());
+			writeChars(chars, start, end);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+			// every write is visible to the reading side immediately
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+		private void writeChars(final CharSequence chars, int start, final int end) throws IOException {
+			while (start < end) {
+				final int count = Math.min(claimWritable(), end - start);
+				final long position = writePosition();
+				if (spilling()) {
+					putChars(chars, start, count);
+				} else {
+					final int index = (int) position & mask;
+					final int head = Math.min(count, capacity - index);
+					CharRingBuffer.getChars(chars, start, buffer, index, head);
+					if (head < count) {
+						// wrap around
+						CharRingBuffer.getChars(chars, start + head, buffer, 0, count - head);
+					}
+				}
+				commitWrite(position + count);
+				start += count;
+			}
+		}
+
+		private void putChars(final CharSequence chars, final int start, final int count) {
+			final CharBuffer target = spillWriteView();
+			if (chars instanceof String) {
+				target.put((String) chars, start, start + count);
+			} else if (chars instanceof CharBuffer) {
+				// relative get on a view, the position of the given buffer must not change
+				final CharBuffer source = ((CharBuffer) chars).duplicate();
+				source.position(source.position() + start);
+				source.limit(source.position() + count);
+				target.put(source);
+			} else {
+				for (int i = 0; i < count; i++) {
+					target.put(chars.charAt(start + i));
+				}
+			}
+		}
+
+	}
+
+	private final char[] buffer;
+
+	private final Reader reader = new SpillReader();
+
+	private final Writer writer = new SpillWriter();
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 */
+	CharSpillBuffer(final int capacity, final Path directory) {
+		super(capacity, directory, Character.BYTES);
+		this.buffer = new char[this.capacity];
+	}
+
+	@Override
+	protected CharBuffer view(final ByteBuffer window) {
+		return window.asCharBuffer();
+	}
+
+	@Override
+	public Reader getReader() {
+		return reader;
+	}
+
+	@Override
+	public Writer getWriter() {
+		return writer;
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bulk conversion between bytes and chars as used by the pipes connecting an {@link java.io.OutputStream} with a {@link java.io.Reader} resp. a {@link java.io.Writer} with an
+ * {@link java.io.InputStream}.
+ * <p>
+ * ISO-8859-1 maps each byte to the char of the same value, and US-ASCII and UTF-8 do so for bytes below 0x80. For these charsets the bytes resp. chars are converted by a plain
+ * loop over the backing arrays until the first one which is not covered, only the rest is passed on to the {@link CharsetDecoder} resp. {@link CharsetEncoder}. So mostly ASCII
+ * text is converted without the overhead of the coders. Malformed input and unmappable characters are replaced like {@link java.io.InputStreamReader} and
+ * {@link java.io.OutputStreamWriter} do.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class CharsetCodec {
+
+	private CharsetCodec() {
+		// hidden, utility class
+	}
+
+	/**
+	 * Returns a new decoder replacing malformed input and unmappable characters.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} to decode.
+	 * @return {@link CharsetDecoder}
+	 */
+	static CharsetDecoder decoder(final Charset charset) {
+		return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Returns a new encoder replacing malformed input and unmappable characters.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 * @return {@link CharsetEncoder}
+	 */
+	static CharsetEncoder encoder(final Charset charset) {
+		return charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	private static int limit(final Charset charset) {
+		// highest value converted one-to-one
+		if (StandardCharsets.ISO_8859_1.equals(charset)) {
+			return 0xff;
+		}
+		if (StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+			return 0x7f;
+		}
+		return -1;
+	}
+
+	/**
+	 * Decodes as many bytes as possible, see {@link CharsetDecoder#decode(ByteBuffer, CharBuffer, boolean)}.
+	 * 
+	 * @param decoder
+	 *            The {@link CharsetDecoder} to use.
+	 * @param in
+	 *            The bytes to decode.
+	 * @param out
+	 *            The buffer to decode into.
+	 * @param endOfInput
+	 *            {@code true} if no more bytes will follow.
+	 * @return {@link CoderResult#UNDERFLOW} if more bytes are needed, {@link CoderResult#OVERFLOW} if the buffer is full
+	 */
+	static CoderResult decode(final CharsetDecoder decoder, final ByteBuffer in, final CharBuffer out, final boolean endOfInput) {
+		final int limit = limit(decoder.charset());
+		if (limit > 0 && in.hasArray() && out.hasArray()) {
+			final byte[] source = in.array();
+			final char[] target = out.array();
+			final int sourceIndex = in.arrayOffset() + in.position();
+			final int targetIndex = out.arrayOffset() + out.position();
+			final int length = Math.min(in.remaining(), out.remaining());
+			int count = 0;
+			while (count < length) {
+				final int value = source[sourceIndex + count] & 0xff;
+				if (value > limit) {
+					break;
+				}
+				target[targetIndex + count++] = (char) value;
+			}
+			in.position(in.position() + count);
+			out.position(out.position() + count);
+		}
+		// the coder converts the rest and keeps track of the end of input
+		return decoder.decode(in, out, endOfInput);
+	}
+
+	/**
+	 * Encodes as many chars as possible, see {@link CharsetEncoder#encode(CharBuffer, ByteBuffer, boolean)}.
+	 * 
+	 * @param encoder
+	 *            The {@link CharsetEncoder} to use.
+	 * @param in
+	 *            The chars to encode.
+	 * @param out
+	 *            The buffer to encode into.
+	 * @param endOfInput
+	 *            {@code true} if no more chars will follow.
+	 * @return {@link CoderResult#UNDERFLOW} if more chars are needed, {@link CoderResult#OVERFLOW} if the buffer is full
+	 */
+	static CoderResult encode(final CharsetEncoder encoder, final CharBuffer in, final ByteBuffer out, final boolean endOfInput) {
+		final int limit = limit(encoder.charset());
+		if (limit > 0 && in.hasArray() && out.hasArray()) {
+			final char[] source = in.array();
+			final byte[] target = out.array();
+			final int sourceIndex = in.arrayOffset() + in.position();
+			final int targetIndex = out.arrayOffset() + out.position();
+			final int length = Math.min(in.remaining(), out.remaining());
+			int count = 0;
+			while (count < length) {
+				final char value = source[sourceIndex + count];
+				if (value > limit) {
+					break;
+				}
+				target[targetIndex + count++] = (byte) value;
+			}
+			in.position(in.position() + count);
+			out.position(out.position() + count);
+		}
+		return encoder.encode(in, out, endOfInput);
+	}
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring of {@link ByteBuffer} chunks. Instead of bytes, the ring holds references to chunks: the producer fills the chunk of the next free slot and
+ * publishes it, the consumer reads the chunk of the next published slot and releases it, which makes the slot free again. Chunks are allocated lazily and recycled afterwards, so
+ * in steady state no bytes are copied by the pipe and nothing is allocated.
+ * <p>
+ * The {@link OutputStream} and the {@link InputStream} are adapters implementing {@link ChunkSink} and {@link ChunkSource}, so existing stream based operations keep working
+ * (with one copy on each side) and chunk aware operations may use both APIs on the same pipe.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ChunkRingBuffer extends AbstractRingBuffer implements StreamPipeEngine.Connection {
+
+	static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	static final int DEFAULT_CHUNK_COUNT = 1 << 3;
+
+	private final class ChunkOutputStream extends OutputStream implements ChunkSink {
+
+		// obtained by the producer, not yet published
+		private ByteBuffer obtained;
+
+		// obtained by write operations, not yet published
+		private ByteBuffer pending;
+
+		@Override
+		public ByteBuffer obtain() throws IOException {
+			if (obtained != null) {
+				throw new IllegalStateException("chunk was already obtained");
+			}
+			publishPending();
+			obtained = next();
+			return obtained;
+		}
+
+		@Override
+		public void publish(final ByteBuffer chunk) throws IOException {
+			if (obtained == null || chunk != obtained) {
+				throw new IllegalStateException("chunk was not obtained from this sink");
+			}
+			obtained = null;
+			commit();
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (pending == null) {
+				pending = next();
+			}
+			pending.put((byte) b);
+			if (!pending.hasRemaining()) {
+				publishPending();
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				if (pending == null) {
+					pending = next();
+				}
+				final int count = Math.min(pending.remaining(), len);
+				pending.put(b, off, count);
+				if (!pending.hasRemaining()) {
+					publishPending();
+				}
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			publishPending();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				publishPending();
+			} finally {
+				closeWrite();
+			}
+		}
+
+		private ByteBuffer next() throws IOException {
+			if (obtained != null) {
+				throw new IllegalStateException("chunk was obtained but not published");
+			}
+			awaitWritable();
+			final int index = (int) writePosition() & mask;
+			ByteBuffer chunk = chunks[index];
+			if (chunk == null) {
+				chunk = ByteBuffer.allocate(chunkSize);
+				chunks[index] = chunk;
+			}
+			chunk.clear();
+			return chunk;
+		}
+
+		private void publishPending() throws IOException {
+			if (pending != null && pending.position() > 0) {
+				pending.flip();
+				pending = null;
+				commit();
+			}
+		}
+
+		private void commit() throws IOException {
+			checkWritable();
+			commitWrite(writePosition() + 1);
+		}
+
+	}
+
+	private final class ChunkInputStream extends InputStream implements ChunkSource {
+
+		// received by the consumer, not yet released
+		private ByteBuffer received;
+
+		// received by read operations, not yet released
+		private ByteBuffer current;
+
+		@Override
+		public ByteBuffer receive() throws IOException {
+			if (received != null) {
+				throw new IllegalStateException("chunk was already received");
+			}
+			if (current != null) {
+				received = current;
+				current = null;
+				return received;
+			}
+			received = next();
+			return received;
+		}
+
+		@Override
+		public void release(final ByteBuffer chunk) {
+			if (received == null || chunk != received) {
+				throw new IllegalStateException("chunk was not received from this source");
+			}
+			received = null;
+			consumed(chunk);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			final int value = current.get() & 0xff;
+			releaseCurrent();
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			final int count = Math.min(current.remaining(), len);
+			current.get(b, off, count);
+			releaseCurrent();
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0 || !fill()) {
+				return 0;
+			}
+			final int count = (int) Math.min(current.remaining(), n);
+			current.position(current.position() + count);
+			releaseCurrent();
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return current == null ? 0 : current.remaining();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+		private ByteBuffer next() throws IOException {
+			if (received != null) {
+				throw new IllegalStateException("chunk was received but not released");
+			}
+			if (awaitReadable() < 0) {
+				return null;
+			}
+			return chunks[(int) readPosition() & mask];
+		}
+
+		private boolean fill() throws IOException {
+			while (current == null || !current.hasRemaining()) {
+				if (current != null) {
+					// empty chunk published
+					consumed(current);
+					current = null;
+				}
+				current = next();
+				if (current == null) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void consumed(final ByteBuffer chunk) {
+			readBytes += chunk.limit();
+			commitRead(readPosition() + 1);
+		}
+
+		private void releaseCurrent() {
+			if (!current.hasRemaining()) {
+				consumed(current);
+				current = null;
+			}
+		}
+
+	}
+
+	private final int chunkSize;
+
+	private final ByteBuffer[] chunks;
+
+	// accessed by the reading side only, the sequences count chunks
+	private long readBytes;
+
+	private final ChunkInputStream input = new ChunkInputStream();
+
+	private final ChunkOutputStream output = new ChunkOutputStream();
+
+	/**
+	 * @param chunkSize
+	 *            The size of a chunk in bytes. If the provided value is negative or zero then {@link #DEFAULT_CHUNK_SIZE} is used.
+	 * @param chunkCount
+	 *            The number of chunks, rounded up to the next power of two. If the provided value is negative or zero then {@link #DEFAULT_CHUNK_COUNT} is used.
+	 */
+	ChunkRingBuffer(final int chunkSize, final int chunkCount) {
+		super(chunkCount <= 0 ? DEFAULT_CHUNK_COUNT : chunkCount);
+		this.chunkSize = chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : chunkSize;
+		this.chunks = new ByteBuffer[capacity];
+	}
+
+	@Override
+	protected long transferred() {
+		return readBytes;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+}
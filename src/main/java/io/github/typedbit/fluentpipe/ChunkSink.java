@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Producing end of a chunk based pipe. Instead of copying bytes into the pipe, the producer obtains a {@link ByteBuffer}, fills it and publishes it, which moves the ownership of
+ * the chunk to the consumer.
+ * <p>
+ * A pipe built with {@link StreamPipeEngine#chunked(int, int)} passes an {@link OutputStream} implementing this interface to the write operation, so the write operation can use
+ * either API. {@link #of(OutputStream)} returns the chunk API for any {@link OutputStream}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public interface ChunkSink extends Closeable {
+
+	/**
+	 * Returns the chunk API of the given {@link OutputStream}. If the stream is the writing end of a chunk based pipe the stream itself is returned, otherwise published chunks are
+	 * copied into the stream.
+	 * 
+	 * @param outputStream
+	 *            The {@link OutputStream} to write chunks to.
+	 * @return {@link ChunkSink}
+	 */
+	public static ChunkSink of(final OutputStream outputStream) {
+		Objects.requireNonNull(outputStream);
+		return outputStream instanceof ChunkSink ? (ChunkSink) outputStream : new CopyingChunkSink(outputStream);
+	}
+
+	/**
+	 * Obtains an empty chunk, blocking until the consumer has released one if all chunks are in use. Bytes written by {@link OutputStream} operations and not yet published are
+	 * published before.
+	 * 
+	 * @return cleared chunk owned by the producer until it gets published
+	 * @throws IOException
+	 *             if the pipe has been closed or the thread has been interrupted while waiting
+	 * @throws IllegalStateException
+	 *             if the previously obtained chunk has not been published yet
+	 */
+	public ByteBuffer obtain() throws IOException;
+
+	/**
+	 * Publishes the bytes between position and limit of the given chunk, i.e. the chunk has to be flipped after filling it. The ownership of the chunk moves to the consumer, the
+	 * producer must not touch it afterwards.
+	 * 
+	 * @param chunk
+	 *            The chunk returned by {@link #obtain()}.
+	 * @throws IOException
+	 *             if the pipe has been closed
+	 * @throws IllegalStateException
+	 *             if the chunk has not been obtained from this sink
+	 */
+	public void publish(ByteBuffer chunk) throws IOException;
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Consuming end of a chunk based pipe. Instead of copying bytes out of the pipe, the consumer receives the {@link ByteBuffer} published by the producer and returns it after
+ * processing.
+ * <p>
+ * A pipe built with {@link StreamPipeEngine#chunked(int, int)} passes an {@link InputStream} implementing this interface to the read operation, so the read operation can use
+ * either API. {@link #of(InputStream)} returns the chunk API for any {@link InputStream}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public interface ChunkSource extends Closeable {
+
+	/**
+	 * Returns the chunk API of the given {@link InputStream}. If the stream is the reading end of a chunk based pipe the stream itself is returned, otherwise chunks are filled
+	 * from the stream.
+	 * 
+	 * @param inputStream
+	 *            The {@link InputStream} to read chunks from.
+	 * @return {@link ChunkSource}
+	 */
+	public static ChunkSource of(final InputStream inputStream) {
+		Objects.requireNonNull(inputStream);
+		return inputStream instanceof ChunkSource ? (ChunkSource) inputStream : new CopyingChunkSource(inputStream);
+	}
+
+	/**
+	 * Receives the next chunk, blocking until the producer has published one. If bytes of the current chunk have been read partially by {@link InputStream} operations, that chunk
+	 * is returned with its remaining bytes.
+	 * 
+	 * @return chunk with the bytes between position and limit owned by the consumer until it gets released, or {@code null} if the producer has finished
+	 * @throws IOException
+	 *             if the pipe has been closed or the thread has been interrupted while waiting
+	 * @throws IllegalStateException
+	 *             if the previously received chunk has not been released yet
+	 */
+	public ByteBuffer receive() throws IOException;
+
+	/**
+	 * Returns the given chunk to the producer, the consumer must not touch it afterwards.
+	 * 
+	 * @param chunk
+	 *            The chunk returned by {@link #receive()}.
+	 * @throws IllegalStateException
+	 *             if the chunk has not been received from this source
+	 */
+	public void release(ByteBuffer chunk);
+
+}
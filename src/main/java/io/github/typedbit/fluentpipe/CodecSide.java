@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+/**
+ * Side of a pipe converting between bytes and chars, i.e. the thread which pays for decoding resp. encoding if the write operation and the read operation of a pipe differ in
+ * kind.
+ * 
+ * @author Dieter König
+ */
+public enum CodecSide {
+
+	/**
+	 * The read operation converts: the pipe buffers what has been written and the read operation decodes resp. encodes it in bulk. Choose this side if the write operation is
+	 * the bottleneck.
+	 */
+	READING,
+
+	/**
+	 * The write operation converts: it decodes resp. encodes in bulk into the buffer of the pipe and the read operation consumes what it needs. Choose this side if the read
+	 * operation is the bottleneck.
+	 */
+	WRITING
+
+}
@@ -16,8 +16,6 @@
 package io.github.typedbit.fluentpipe;
 
 import java.io.IOException;
-import java.io.PipedReader;
-import java.io.PipedWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.Objects;
@@ -43,7 +41,7 @@ import java.util.function.Supplier;
  */
 public class CompletableReaderWriterPipe<T> extends AbstractPipe implements Supplier<CompletableFuture<T>> {
 
-	private final int pipeSize;
+	private final ReaderWriterPipeEngine engine;
 
 	private final Executor readExecutor;
 
@@ -53,6 +51,8 @@ public class CompletableReaderWriterPipe<T> extends AbstractPipe implements Supp
 
 	private final Function<Reader, T> readerMapper;
 
+	private final PipeTimeouts timeouts;
+
 	/**
 	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
 	 * <p>
@@ -72,27 +72,73 @@ public class CompletableReaderWriterPipe<T> extends AbstractPipe implements Supp
 	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
 	 */
 	public CompletableReaderWriterPipe(final int pipeSize, final Executor readExecutor, final Executor writeExecutor, final Consumer<Writer> writerConsumer, final Function<Reader, T> readerMapper) {
-		this.pipeSize = pipeSize;
+		this(ReaderWriterPipeEngine.piped(pipeSize), readExecutor, writeExecutor, writerConsumer, readerMapper);
+	}
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * <p>
+	 * If {@link #readExecutor} and {@link #writeExecutor} are the same than the used implementation should be able to spawn at least 2 threads otherwise the pipe will block
+	 * infinitely. Don't use direct implementation for both {@link Executor}.
+	 * </p>
+	 * 
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} building up the buffer connecting {@link Writer} and {@link Reader}.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link Reader}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link Writer}.
+	 * @param writerConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param readerMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
+	 */
+	public CompletableReaderWriterPipe(final ReaderWriterPipeEngine engine, final Executor readExecutor, final Executor writeExecutor, final Consumer<Writer> writerConsumer, final Function<Reader, T> readerMapper) {
+		this(engine, readExecutor, writeExecutor, writerConsumer, readerMapper, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} building up the buffer connecting {@link Writer} and {@link Reader}.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link Reader}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link Writer}.
+	 * @param writerConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param readerMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	CompletableReaderWriterPipe(final ReaderWriterPipeEngine engine, final Executor readExecutor, final Executor writeExecutor, final Consumer<Writer> writerConsumer, final Function<Reader, T> readerMapper, final PipeTimeouts timeouts) {
+		this.engine = Objects.requireNonNull(engine);
 		this.readExecutor = Objects.requireNonNull(readExecutor);
 		this.writeExecutor = Objects.requireNonNull(writeExecutor);
 		this.writerConsumer = Objects.requireNonNull(writerConsumer);
 		this.readerMapper = Objects.requireNonNull(readerMapper);
+		this.timeouts = Objects.requireNonNull(timeouts);
 	}
 
 	@Override
 	public CompletableFuture<T> get() {
 		try {
 			// build up a pipe
-			final PipedWriter pipedWriter = new PipedWriter();
-			final PipedReader pipedReader = pipeSize > 0 ? new PipedReader(pipedWriter, pipeSize) : new PipedReader(pipedWriter);
+			final ReaderWriterPipeEngine.Connection connection = engine.connect();
+			final Writer pipedWriter = connection.getWriter();
+			final Reader pipedReader = connection.getReader();
+
+			final PipeGuard guard = new PipeGuard(timeouts, connection, pipedReader);
 
 			// submit write task to given Executor
-			final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(writerRunnable(pipedWriter, writerConsumer), writeExecutor);
+			final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(guard.guard(writerRunnable(pipedWriter, writerConsumer)), writeExecutor);
 
 			// submit read task to given Executor
-			final CompletableFuture<T> readFuture = CompletableFuture.supplyAsync(() -> {
+			final CompletableFuture<T> readFuture = CompletableFuture.supplyAsync(guard.guard(() -> {
 				// close reader in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
-				try (final Reader reader = pipedReader) {
+				try (final Reader reader = guard.watch(pipedReader)) {
 					final T result = readerMapper.apply(reader);
 					// check if async write operation failed with an exception and if so throw it
 					try {
@@ -104,11 +150,20 @@ public class CompletableReaderWriterPipe<T> extends AbstractPipe implements Supp
 				} catch (IOException e) {
 					throw new RuntimeException("error closing Reader", e);
 				}
-			}, readExecutor);
+			}), readExecutor);
+
+			// cancellation of the future, a timeout or a failure tears down both operations, so that none of them keeps blocking a thread
+			readFuture.whenComplete((result, failure) -> {
+				if (failure != null) {
+					guard.cancel(failure);
+				}
+				guard.finish();
+			});
+			guard.start(readFuture::completeExceptionally);
 
 			return readFuture;
 		} catch (IOException e) {
-			// setting up a pipe ('new PipedReader...') failed
+			// setting up a pipe ('engine.connect()') failed
 			return CompletableFuture.failedFuture(e);
 		}
 	}
@@ -18,8 +18,6 @@ package io.github.typedbit.fluentpipe;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -43,7 +41,7 @@ import java.util.function.Supplier;
  */
 public class CompletableStreamPipe<T> extends AbstractPipe implements Supplier<CompletableFuture<T>> {
 
-	private final int pipeSize;
+	private final StreamPipeEngine engine;
 
 	private final Executor readExecutor;
 
@@ -53,6 +51,8 @@ public class CompletableStreamPipe<T> extends AbstractPipe implements Supplier<C
 
 	private final Function<InputStream, T> inputStreamMapper;
 
+	private final PipeTimeouts timeouts;
+
 	/**
 	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
 	 * <p>
@@ -72,27 +72,73 @@ public class CompletableStreamPipe<T> extends AbstractPipe implements Supplier<C
 	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
 	 */
 	public CompletableStreamPipe(final int pipeSize, final Executor readExecutor, final Executor writeExecutor, final Consumer<OutputStream> outputStreamConsumer, final Function<InputStream, T> inputStreamMapper) {
-		this.pipeSize = pipeSize;
+		this(StreamPipeEngine.piped(pipeSize), readExecutor, writeExecutor, outputStreamConsumer, inputStreamMapper);
+	}
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * <p>
+	 * If {@link #readExecutor} and {@link #writeExecutor} are the same than the used implementation should be able to spawn at least 2 threads otherwise the pipe will block
+	 * infinitely. Don't use direct implementation for both {@link Executor}.
+	 * </p>
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 */
+	public CompletableStreamPipe(final StreamPipeEngine engine, final Executor readExecutor, final Executor writeExecutor, final Consumer<OutputStream> outputStreamConsumer, final Function<InputStream, T> inputStreamMapper) {
+		this(engine, readExecutor, writeExecutor, outputStreamConsumer, inputStreamMapper, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	CompletableStreamPipe(final StreamPipeEngine engine, final Executor readExecutor, final Executor writeExecutor, final Consumer<OutputStream> outputStreamConsumer, final Function<InputStream, T> inputStreamMapper, final PipeTimeouts timeouts) {
+		this.engine = Objects.requireNonNull(engine);
 		this.readExecutor = Objects.requireNonNull(readExecutor);
 		this.writeExecutor = Objects.requireNonNull(writeExecutor);
 		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
 		this.inputStreamMapper = Objects.requireNonNull(inputStreamMapper);
+		this.timeouts = Objects.requireNonNull(timeouts);
 	}
 
 	@Override
 	public CompletableFuture<T> get() {
 		try {
 			// build up a pipe
-			final PipedOutputStream pipedOutput = new PipedOutputStream();
-			final PipedInputStream pipedInput = pipeSize > 0 ? new PipedInputStream(pipedOutput, pipeSize) : new PipedInputStream(pipedOutput);
+			final StreamPipeEngine.Connection connection = engine.connect();
+			final OutputStream pipedOutput = connection.getOutputStream();
+			final InputStream pipedInput = connection.getInputStream();
+
+			final PipeGuard guard = new PipeGuard(timeouts, connection, pipedInput);
 
 			// submit write task to given Executor
-			final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(outputRunnable(pipedOutput, outputStreamConsumer), writeExecutor);
+			final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(guard.guard(outputRunnable(pipedOutput, outputStreamConsumer)), writeExecutor);
 
 			// submit read task to given Executor
-			final CompletableFuture<T> readFuture = CompletableFuture.supplyAsync(() -> {
+			final CompletableFuture<T> readFuture = CompletableFuture.supplyAsync(guard.guard(() -> {
 				// close stream in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
-				try (final InputStream input = pipedInput) {
+				try (final InputStream input = guard.watch(pipedInput)) {
 					final T result = inputStreamMapper.apply(input);
 					// check if async write operation failed with an exception and if so throw it
 					try {
@@ -104,11 +150,20 @@ public class CompletableStreamPipe<T> extends AbstractPipe implements Supplier<C
 				} catch (IOException e) {
 					throw new RuntimeException("error closing InputStream", e);
 				}
-			}, readExecutor);
+			}), readExecutor);
+
+			// cancellation of the future, a timeout or a failure tears down both operations, so that none of them keeps blocking a thread
+			readFuture.whenComplete((result, failure) -> {
+				if (failure != null) {
+					guard.cancel(failure);
+				}
+				guard.finish();
+			});
+			guard.start(readFuture::completeExceptionally);
 
 			return readFuture;
 		} catch (IOException e) {
-			// setting up a pipe ('new PipedInputStream...') failed
+			// setting up a pipe ('engine.connect()') failed
 			return CompletableFuture.failedFuture(e);
 		}
 	}
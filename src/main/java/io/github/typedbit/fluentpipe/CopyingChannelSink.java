@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * {@link ChannelSink} copying into an arbitrary {@link OutputStream}. Heap buffers are written from their backing array, other buffers are copied by a reused array.
+ * 
+ * @author Dieter König
+ */
+final class CopyingChannelSink implements ChannelSink {
+
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	private final OutputStream outputStream;
+
+	private ByteBuffer chunk;
+
+	private boolean closed;
+
+	CopyingChannelSink(final OutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+
+	@Override
+	public int write(final ByteBuffer src) throws IOException {
+		checkOpen();
+		final int count = src.remaining();
+		if (src.hasArray()) {
+			outputStream.write(src.array(), src.arrayOffset() + src.position(), count);
+			src.position(src.limit());
+		} else {
+			final ByteBuffer chunk = chunk();
+			while (src.hasRemaining()) {
+				chunk.clear();
+				final int length = Math.min(chunk.remaining(), src.remaining());
+				chunk.put(src.duplicate().limit(src.position() + length));
+				src.position(src.position() + length);
+				outputStream.write(chunk.array(), 0, length);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public long transferFrom(final ReadableByteChannel source) throws IOException {
+		if (source instanceof SelectableChannel && !((SelectableChannel) source).isBlocking()) {
+			// a non-blocking channel would spin on reads returning 0
+			throw new IllegalBlockingModeException();
+		}
+		checkOpen();
+		final ByteBuffer chunk = chunk();
+		long transferred = 0;
+		for (;;) {
+			chunk.clear();
+			final int count = source.read(chunk);
+			if (count < 0) {
+				return transferred;
+			}
+			outputStream.write(chunk.array(), 0, count);
+			transferred += count;
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		outputStream.close();
+	}
+
+	private void checkOpen() throws ClosedChannelException {
+		if (closed) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	private ByteBuffer chunk() {
+		if (chunk == null) {
+			chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		}
+		return chunk;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link ChannelSource} copying from an arbitrary {@link InputStream}. Heap buffers are read into their backing array, other buffers are filled by a reused array.
+ * 
+ * @author Dieter König
+ */
+final class CopyingChannelSource implements ChannelSource {
+
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	private final InputStream inputStream;
+
+	private byte[] chunk;
+
+	private boolean closed;
+
+	CopyingChannelSource(final InputStream inputStream) {
+		this.inputStream = inputStream;
+	}
+
+	@Override
+	public int read(final ByteBuffer dst) throws IOException {
+		checkOpen();
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		if (dst.hasArray()) {
+			final int count = inputStream.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+			if (count > 0) {
+				dst.position(dst.position() + count);
+			}
+			return count;
+		}
+		final byte[] chunk = chunk();
+		final int count = inputStream.read(chunk, 0, Math.min(chunk.length, dst.remaining()));
+		if (count > 0) {
+			dst.put(chunk, 0, count);
+		}
+		return count;
+	}
+
+	@Override
+	public long transferTo(final WritableByteChannel target) throws IOException {
+		if (target instanceof SelectableChannel && !((SelectableChannel) target).isBlocking()) {
+			// a non-blocking channel would spin on writes returning 0
+			throw new IllegalBlockingModeException();
+		}
+		checkOpen();
+		final byte[] chunk = chunk();
+		long transferred = 0;
+		int count;
+		while ((count = inputStream.read(chunk)) >= 0) {
+			final ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+			transferred += count;
+		}
+		return transferred;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		inputStream.close();
+	}
+
+	private void checkOpen() throws ClosedChannelException {
+		if (closed) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	private byte[] chunk() {
+		if (chunk == null) {
+			chunk = new byte[CHUNK_SIZE];
+		}
+		return chunk;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ChunkSink} copying each published chunk into an arbitrary {@link OutputStream}. A single chunk is reused, so the producer has to publish it before obtaining the next one.
+ * 
+ * @author Dieter König
+ */
+final class CopyingChunkSink implements ChunkSink {
+
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	private final OutputStream outputStream;
+
+	private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+	private boolean obtained;
+
+	CopyingChunkSink(final OutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+
+	@Override
+	public ByteBuffer obtain() {
+		if (obtained) {
+			throw new IllegalStateException("chunk was already obtained");
+		}
+		obtained = true;
+		chunk.clear();
+		return chunk;
+	}
+
+	@Override
+	public void publish(final ByteBuffer chunk) throws IOException {
+		if (!obtained || chunk != this.chunk) {
+			throw new IllegalStateException("chunk was not obtained from this sink");
+		}
+		obtained = false;
+		outputStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+	}
+
+	@Override
+	public void close() throws IOException {
+		outputStream.close();
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ChunkSource} filling a single reused chunk from an arbitrary {@link InputStream}, so the consumer has to release it before receiving the next one.
+ * 
+ * @author Dieter König
+ */
+final class CopyingChunkSource implements ChunkSource {
+
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	private final InputStream inputStream;
+
+	private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+	private boolean received;
+
+	CopyingChunkSource(final InputStream inputStream) {
+		this.inputStream = inputStream;
+	}
+
+	@Override
+	public ByteBuffer receive() throws IOException {
+		if (received) {
+			throw new IllegalStateException("chunk was already received");
+		}
+		final int len = inputStream.read(chunk.array(), 0, chunk.capacity());
+		if (len < 0) {
+			return null;
+		}
+		received = true;
+		chunk.clear().limit(len);
+		return chunk;
+	}
+
+	@Override
+	public void release(final ByteBuffer chunk) {
+		if (!received || chunk != this.chunk) {
+			throw new IllegalStateException("chunk was not received from this source");
+		}
+		received = false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Objects;
+
+/**
+ * {@link OutputStream} decoding the written bytes into a {@link Writer} on the writing thread. The bytes are decoded straight from the array given to
+ * {@link #write(byte[], int, int)}, only an incomplete sequence at its end is kept until the next write, see {@link CharsetCodec} for the fast paths.
+ * 
+ * @author Dieter König
+ */
+final class DecodingOutputStream extends OutputStream {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final Writer writer;
+
+	private final CharsetDecoder decoder;
+
+	// in write mode, holds an incomplete sequence or single bytes
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+	private boolean finished;
+
+	/**
+	 * @param writer
+	 *            The {@link Writer} to write the decoded chars to.
+	 * @param charset
+	 *            The {@link Charset} of the bytes.
+	 */
+	DecodingOutputStream(final Writer writer, final Charset charset) {
+		this.writer = Objects.requireNonNull(writer);
+		this.decoder = CharsetCodec.decoder(charset);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		checkFinished();
+		if (!bytes.hasRemaining()) {
+			decodeBuffered();
+		}
+		bytes.put((byte) b);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		checkFinished();
+		while (len > 0) {
+			if (bytes.position() == 0) {
+				final ByteBuffer in = ByteBuffer.wrap(b, off, len);
+				decode(in, false);
+				// an incomplete sequence at the end
+				bytes.put(in);
+				return;
+			}
+			final int count = Math.min(len, bytes.remaining());
+			bytes.put(b, off, count);
+			off += count;
+			len -= count;
+			decodeBuffered();
+		}
+	}
+
+	private void decodeBuffered() throws IOException {
+		bytes.flip();
+		decode(bytes, false);
+		bytes.compact();
+	}
+
+	private void decode(final ByteBuffer in, final boolean endOfInput) throws IOException {
+		while (CharsetCodec.decode(decoder, in, chars, endOfInput).isOverflow()) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (chars.position() > 0) {
+			writer.write(chars.array(), chars.arrayOffset(), chars.position());
+			chars.clear();
+		}
+	}
+
+	private void checkFinished() throws IOException {
+		if (finished) {
+			throw new IOException("stream finished");
+		}
+	}
+
+	/**
+	 * Passes on all chars decoded so far, an incomplete sequence is kept until it has been completed by further bytes.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!finished) {
+			decodeBuffered();
+		}
+		drain();
+		writer.flush();
+	}
+
+	/**
+	 * Decodes the remaining bytes and writes all chars to the {@link Writer}, but does not close it.
+	 * 
+	 * @throws IOException
+	 *             if writing to the {@link Writer} failed
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		bytes.flip();
+		decode(bytes, true);
+		while (decoder.flush(chars).isOverflow()) {
+			drain();
+		}
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		writer.close();
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Objects;
+
+/**
+ * {@link Reader} decoding the bytes of an {@link InputStream} on the reading thread. In contrast to {@link java.io.InputStreamReader} the chars are decoded straight into the
+ * array given to {@link #read(char[], int, int)} from a large buffer of bytes, see {@link CharsetCodec} for the fast paths.
+ * 
+ * @author Dieter König
+ */
+final class DecodingReader extends Reader {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final InputStream input;
+
+	private final CharsetDecoder decoder;
+
+	// in read mode
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+	// low surrogate left over by a read of a single char
+	private final char[] single = new char[2];
+
+	private boolean leftover;
+
+	private boolean endOfInput;
+
+	private boolean flushed;
+
+	/**
+	 * @param input
+	 *            The {@link InputStream} to decode.
+	 * @param charset
+	 *            The {@link Charset} of the bytes.
+	 */
+	DecodingReader(final InputStream input, final Charset charset) {
+		this.input = Objects.requireNonNull(input);
+		this.decoder = CharsetCodec.decoder(charset);
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, cbuf.length);
+		if (len == 0) {
+			return 0;
+		}
+		if (leftover) {
+			leftover = false;
+			cbuf[off] = single[1];
+			return 1;
+		}
+		if (len == 1) {
+			// a supplementary character does not fit into a single char
+			final int count = decode(single, 0, 2);
+			if (count > 0) {
+				cbuf[off] = single[0];
+				leftover = count == 2;
+				return 1;
+			}
+			return count;
+		}
+		return decode(cbuf, off, len);
+	}
+
+	private int decode(final char[] cbuf, final int off, final int len) throws IOException {
+		final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		for (;;) {
+			if (!flushed) {
+				if (CharsetCodec.decode(decoder, bytes, out, endOfInput).isUnderflow() && endOfInput) {
+					flushed = decoder.flush(out).isUnderflow();
+				}
+			}
+			final int count = out.position() - off;
+			if (count > 0) {
+				return count;
+			}
+			if (flushed) {
+				return -1;
+			}
+			if (!endOfInput) {
+				fill();
+			}
+		}
+	}
+
+	private void fill() throws IOException {
+		bytes.compact();
+		try {
+			final int count = input.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			if (count < 0) {
+				endOfInput = true;
+			} else {
+				bytes.position(bytes.position() + count);
+			}
+		} finally {
+			bytes.flip();
+		}
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		return leftover || bytes.hasRemaining() || input.available() > 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+}
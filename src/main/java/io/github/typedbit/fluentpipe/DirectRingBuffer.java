@@ -0,0 +1,307 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Single-producer/single-consumer ring buffer of bytes in off-heap memory providing an {@link OutputStream} for the writing and an {@link InputStream} for the reading thread.
+ * <p>
+ * Both streams implement the channel API as well, see {@link ChannelSink} and {@link ChannelSource}. As the memory is a direct {@link ByteBuffer}, file and socket channels
+ * read into resp. write from the ring buffer itself, so a file-to-socket transfer through the pipe copies each byte into and out of the ring buffer only.
+ * </p>
+ * <p>
+ * Each side works on a view of the memory of its own, so neither side modifies position or limit of a buffer used by the other side.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class DirectRingBuffer extends AbstractRingBuffer implements StreamPipeEngine.Connection {
+
+	private final class DirectInputStream extends InputStream implements ChannelSource {
+
+		private final ByteBuffer view = buffer.duplicate();
+
+		@Override
+		public int read() throws IOException {
+			if (awaitReadable() < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int value = buffer.get((int) position & mask) & 0xff;
+			commitRead(position + 1);
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, len);
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			range(view, index, head).get(b, off, head);
+			if (head < count) {
+				// wrap around
+				range(view, 0, count - head).get(b, off + head, count - head);
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			if (!dst.hasRemaining()) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return -1;
+			}
+			final long position = readPosition();
+			final int count = Math.min(readable, dst.remaining());
+			final int index = (int) position & mask;
+			final int head = Math.min(count, capacity - index);
+			dst.put(range(view, index, head));
+			if (head < count) {
+				// wrap around
+				dst.put(range(view, 0, count - head));
+			}
+			commitRead(position + count);
+			return count;
+		}
+
+		@Override
+		public long transferTo(final WritableByteChannel target) throws IOException {
+			if (target instanceof SelectableChannel && !((SelectableChannel) target).isBlocking()) {
+				// a non-blocking channel would spin on writes returning 0
+				throw new IllegalBlockingModeException();
+			}
+			long transferred = 0;
+			int readable;
+			while ((readable = awaitReadable()) >= 0) {
+				final long position = readPosition();
+				final int index = (int) position & mask;
+				final int count = target.write(range(view, index, Math.min(readable, capacity - index)));
+				commitRead(position + count);
+				transferred += count;
+			}
+			return transferred;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			final int readable = awaitReadable();
+			if (readable < 0) {
+				return 0;
+			}
+			final int count = (int) Math.min(readable, n);
+			commitRead(readPosition() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return readable();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !isReadClosed();
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final class DirectOutputStream extends OutputStream implements ChannelSink {
+
+		private final ByteBuffer view = buffer.duplicate();
+
+		@Override
+		public void write(final int b) throws IOException {
+			awaitWritable();
+			final long position = writePosition();
+			buffer.put((int) position & mask, (byte) b);
+			commitWrite(position + 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int count = Math.min(writable, len);
+				final int index = (int) position & mask;
+				final int head = Math.min(count, capacity - index);
+				range(view, index, head).put(b, off, head);
+				if (head < count) {
+					// wrap around
+					range(view, 0, count - head).put(b, off + head, count - head);
+				}
+				commitWrite(position + count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			final int length = src.remaining();
+			final int limit = src.limit();
+			try {
+				while (src.position() < limit) {
+					final int writable = awaitWritable();
+					final long position = writePosition();
+					final int count = Math.min(writable, limit - src.position());
+					final int index = (int) position & mask;
+					final int head = Math.min(count, capacity - index);
+					// narrow the source instead of slicing it, so that no view gets allocated
+					src.limit(src.position() + head);
+					range(view, index, head).put(src);
+					if (head < count) {
+						// wrap around
+						src.limit(src.position() + count - head);
+						range(view, 0, count - head).put(src);
+					}
+					src.limit(limit);
+					commitWrite(position + count);
+				}
+			} finally {
+				src.limit(limit);
+			}
+			return length;
+		}
+
+		@Override
+		public long transferFrom(final ReadableByteChannel source) throws IOException {
+			if (source instanceof SelectableChannel && !((SelectableChannel) source).isBlocking()) {
+				// a non-blocking channel would spin on reads returning 0
+				throw new IllegalBlockingModeException();
+			}
+			long transferred = 0;
+			for (;;) {
+				final int writable = awaitWritable();
+				final long position = writePosition();
+				final int index = (int) position & mask;
+				final int count = source.read(range(view, index, Math.min(writable, capacity - index)));
+				if (count < 0) {
+					return transferred;
+				}
+				commitWrite(position + count);
+				transferred += count;
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !isWriteClosed();
+		}
+
+		@Override
+		public void close() {
+			closeWrite();
+		}
+
+	}
+
+	private final ByteBuffer buffer;
+
+	private final BufferPool pool;
+
+	// guarded by this
+	private boolean returned;
+
+	private final InputStream input;
+
+	private final OutputStream output;
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 */
+	DirectRingBuffer(final int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then default capacity is used.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffer from and return it to after both ends have been closed, {@code null} to allocate the buffer.
+	 */
+	DirectRingBuffer(final int capacity, final BufferPool pool) {
+		super(capacity);
+		this.pool = pool;
+		this.buffer = pool == null ? ByteBuffer.allocateDirect(this.capacity) : pool.takeDirect(this.capacity);
+		this.input = new DirectInputStream();
+		this.output = new DirectOutputStream();
+	}
+
+	private static ByteBuffer range(final ByteBuffer view, final int index, final int length) {
+		// the limit first, so that the position never exceeds it
+		view.limit(index + length);
+		view.position(index);
+		return view;
+	}
+
+	@Override
+	protected void dispose() {
+		// a torn down reading side may still copy from the buffer, leave it to the garbage collector
+		if (pool != null && !isTornDown()) {
+			synchronized (this) {
+				if (returned) {
+					return;
+				}
+				returned = true;
+			}
+			pool.giveDirect(buffer);
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Objects;
+
+/**
+ * {@link InputStream} encoding the chars of a {@link Reader} on the reading thread. The bytes are encoded straight into the array given to {@link #read(byte[], int, int)} from a
+ * large buffer of chars, see {@link CharsetCodec} for the fast paths.
+ * 
+ * @author Dieter König
+ */
+final class EncodingInputStream extends InputStream {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Reads of fewer bytes go through a buffer, they might not hold the encoding of a single char.
+	 */
+	private static final int MINIMUM_READ = 16;
+
+	private final Reader reader;
+
+	private final CharsetEncoder encoder;
+
+	// in read mode
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE).flip();
+
+	// in read mode, bytes encoded for small reads
+	private final ByteBuffer small = ByteBuffer.allocate(MINIMUM_READ).flip();
+
+	private boolean endOfInput;
+
+	private boolean flushed;
+
+	/**
+	 * @param reader
+	 *            The {@link Reader} to encode.
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 */
+	EncodingInputStream(final Reader reader, final Charset charset) {
+		this.reader = Objects.requireNonNull(reader);
+		this.encoder = CharsetCodec.encoder(charset);
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		if (len == 0) {
+			return 0;
+		}
+		if (!small.hasRemaining() && len < MINIMUM_READ) {
+			small.clear();
+			final int count = encode(small.array(), 0, MINIMUM_READ);
+			small.limit(Math.max(count, 0));
+			if (count < 0) {
+				return -1;
+			}
+		}
+		if (small.hasRemaining()) {
+			final int count = Math.min(len, small.remaining());
+			small.get(b, off, count);
+			return count;
+		}
+		return encode(b, off, len);
+	}
+
+	private int encode(final byte[] b, final int off, final int len) throws IOException {
+		final ByteBuffer out = ByteBuffer.wrap(b, off, len);
+		for (;;) {
+			if (!flushed) {
+				if (CharsetCodec.encode(encoder, chars, out, endOfInput).isUnderflow() && endOfInput) {
+					flushed = encoder.flush(out).isUnderflow();
+				}
+			}
+			final int count = out.position() - off;
+			if (count > 0) {
+				return count;
+			}
+			if (flushed) {
+				return -1;
+			}
+			if (!endOfInput) {
+				fill();
+			}
+		}
+	}
+
+	private void fill() throws IOException {
+		chars.compact();
+		try {
+			final int count = reader.read(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+			if (count < 0) {
+				endOfInput = true;
+			} else {
+				chars.position(chars.position() + count);
+			}
+		} finally {
+			chars.flip();
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		return small.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Objects;
+
+/**
+ * {@link Writer} encoding the written chars into an {@link OutputStream} on the writing thread. The chars are encoded straight from the array given to
+ * {@link #write(char[], int, int)}, only a high surrogate at its end is kept until the next write, see {@link CharsetCodec} for the fast paths.
+ * 
+ * @author Dieter König
+ */
+final class EncodingWriter extends Writer {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final OutputStream output;
+
+	private final CharsetEncoder encoder;
+
+	// in write mode, holds a high surrogate or chars copied from strings
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private boolean finished;
+
+	/**
+	 * @param output
+	 *            The {@link OutputStream} to write the encoded bytes to.
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 */
+	EncodingWriter(final OutputStream output, final Charset charset) {
+		this.output = Objects.requireNonNull(output);
+		this.encoder = CharsetCodec.encoder(charset);
+	}
+
+	@Override
+	public void write(final int c) throws IOException {
+		checkFinished();
+		if (!chars.hasRemaining()) {
+			encodeBuffered();
+		}
+		chars.put((char) c);
+	}
+
+	@Override
+	public void write(final char[] cbuf, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, cbuf.length);
+		checkFinished();
+		while (len > 0) {
+			if (chars.position() == 0) {
+				final CharBuffer in = CharBuffer.wrap(cbuf, off, len);
+				encode(in, false);
+				// a high surrogate at the end
+				chars.put(in);
+				return;
+			}
+			final int count = Math.min(len, chars.remaining());
+			chars.put(cbuf, off, count);
+			off += count;
+			len -= count;
+			encodeBuffered();
+		}
+	}
+
+	@Override
+	public void write(final String str, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, str.length());
+		checkFinished();
+		while (len > 0) {
+			// copy in bulk instead of encoding a read-only view of the string char by char
+			if (!chars.hasRemaining()) {
+				encodeBuffered();
+			}
+			final int count = Math.min(len, chars.remaining());
+			str.getChars(off, off + count, chars.array(), chars.arrayOffset() + chars.position());
+			chars.position(chars.position() + count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	private void encodeBuffered() throws IOException {
+		chars.flip();
+		encode(chars, false);
+		chars.compact();
+	}
+
+	private void encode(final CharBuffer in, final boolean endOfInput) throws IOException {
+		while (CharsetCodec.encode(encoder, in, bytes, endOfInput).isOverflow()) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (bytes.position() > 0) {
+			output.write(bytes.array(), bytes.arrayOffset(), bytes.position());
+			bytes.clear();
+		}
+	}
+
+	private void checkFinished() throws IOException {
+		if (finished) {
+			throw new IOException("writer finished");
+		}
+	}
+
+	/**
+	 * Passes on all bytes encoded so far, including chars copied from strings.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!finished) {
+			encodeBuffered();
+		}
+		drain();
+		output.flush();
+	}
+
+	/**
+	 * Encodes the remaining chars and writes all bytes to the {@link OutputStream}, but does not close it.
+	 * 
+	 * @throws IOException
+	 *             if writing to the {@link OutputStream} failed
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		chars.flip();
+		encode(chars, true);
+		while (encoder.flush(bytes).isOverflow()) {
+			drain();
+		}
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		output.close();
+	}
+
+}
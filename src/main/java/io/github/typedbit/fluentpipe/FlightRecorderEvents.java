@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+/**
+ * Emits JDK Flight Recorder events for the buffers of pipes: one event per pipe covering its lifetime from building up the buffer until both ends have been closed, with the
+ * elements transferred and the duration of either side, and one event per stall, i.e. each time a side blocks on a full resp. empty buffer for longer than the threshold.
+ * <p>
+ * This is the Java 9 variant of this class which emits no events at all, the Flight Recorder API is available from Java 11 on. The Java 11 variant from
+ * {@code META-INF/versions/11} emits the events {@code io.github.typedbit.fluentpipe.Pipe} and {@code io.github.typedbit.fluentpipe.PipeStall}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class FlightRecorderEvents {
+
+	private FlightRecorderEvents() {
+		// utility class
+	}
+
+	/**
+	 * Begins the event of a pipe if recording is enabled.
+	 * 
+	 * @param buffer
+	 *            The class of the buffer connecting both sides of the pipe.
+	 * @return event to pass to {@link #endPipe(Object, long, long, long)} or {@code null} if the event is not recorded
+	 */
+	static Object beginPipe(final Class<?> buffer) {
+		return null;
+	}
+
+	/**
+	 * Ends and commits the event of a pipe.
+	 * 
+	 * @param event
+	 *            The event returned by {@link #beginPipe(Class)}, may be {@code null}.
+	 * @param transferred
+	 *            The number of elements read.
+	 * @param writeDuration
+	 *            The duration of the writing side in nanoseconds.
+	 * @param readDuration
+	 *            The duration of the reading side in nanoseconds.
+	 */
+	static void endPipe(final Object event, final long transferred, final long writeDuration, final long readDuration) {
+		// nothing recorded
+	}
+
+	/**
+	 * Begins the event of a stall if recording is enabled.
+	 * 
+	 * @param buffer
+	 *            The class of the buffer the side blocks on.
+	 * @param writing
+	 *            {@code true} if the writing side blocks on a full buffer, {@code false} if the reading side blocks on an empty buffer.
+	 * @return event to pass to {@link #endStall(Object)} or {@code null} if the event is not recorded
+	 */
+	static Object beginStall(final Class<?> buffer, final boolean writing) {
+		return null;
+	}
+
+	/**
+	 * Ends the event of a stall and commits it if it lasted longer than the threshold.
+	 * 
+	 * @param event
+	 *            The event returned by {@link #beginStall(Class, boolean)}, may be {@code null}.
+	 */
+	static void endStall(final Object event) {
+		// nothing recorded
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of Pipe connecting a {@link Consumer} with a {@link Function}. The {@link Consumer} is writing to an {@link OutputStream} and the {@link Function} is reading from
+ * an {@link InputStream} which in fact will read the bytes written by the {@link Consumer}.
+ * <p>
+ * This implementation executes {@link Consumer#accept(Object)} of {@code outputStreamConsumer} <b>directly</b> on the thread calling {@link #get()}. As long as everything written fits
+ * into the buffer of the pipe, {@link Function#apply(Object)} of {@code inputStreamMapper} is executed afterwards on the same thread, so a small payload costs no handoff to another
+ * thread at all. Only if the buffer gets full, {@link Function#apply(Object)} is executed <b>asynchronously</b> on the given {@link Executor} while the write operation goes on.
+ * </p>
+ * <p>
+ * The engine must tell when its buffer is full, which ring buffers, adaptive buffers and piped streams do. Buffers which never get full, i.e. spill-to-disk, always run both
+ * operations on the calling thread, other engines always run the read operation asynchronously.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public class InlineStreamPipe<T> extends AbstractPipe implements Supplier<CompletableFuture<T>> {
+
+	private final StreamPipeEngine engine;
+
+	private final Executor executor;
+
+	private final Consumer<OutputStream> outputStreamConsumer;
+
+	private final Function<InputStream, T> inputStreamMapper;
+
+	private final PipeTimeouts timeouts;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param executor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream} once the buffer is full.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 */
+	public InlineStreamPipe(final StreamPipeEngine engine, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final Function<InputStream, T> inputStreamMapper) {
+		this(engine, executor, outputStreamConsumer, inputStreamMapper, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param executor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream} once the buffer is full.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	InlineStreamPipe(final StreamPipeEngine engine, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final Function<InputStream, T> inputStreamMapper, final PipeTimeouts timeouts) {
+		this.engine = Objects.requireNonNull(engine);
+		this.executor = Objects.requireNonNull(executor);
+		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
+		this.inputStreamMapper = Objects.requireNonNull(inputStreamMapper);
+		this.timeouts = Objects.requireNonNull(timeouts);
+	}
+
+	private static <T> void complete(final CompletableFuture<T> source, final CompletableFuture<T> target) {
+		source.whenComplete((result, failure) -> {
+			if (failure != null) {
+				target.completeExceptionally(failure);
+			} else {
+				target.complete(result);
+			}
+		});
+	}
+
+	/**
+	 * Executes the piped processing and waits for its result, for use as {@link java.util.concurrent.Callable}.
+	 * 
+	 * @return result of the read operation
+	 * @throws Exception
+	 *             if the execution failed or the calling thread has been interrupted while waiting
+	 */
+	T call() throws Exception {
+		final CompletableFuture<T> future = get();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			// free the thread of the read operation as well
+			future.cancel(true);
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<T> get() {
+		// build up a pipe
+		final StreamPipeEngine.Connection connection;
+		try {
+			connection = engine.connect();
+		} catch (IOException e) {
+			// setting up a pipe ('engine.connect()') failed
+			return CompletableFuture.failedFuture(e);
+		}
+		final OutputStream pipedOutput = connection.getOutputStream();
+		final InputStream pipedInput = connection.getInputStream();
+
+		final PipeGuard guard = new PipeGuard(timeouts, connection, pipedInput);
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		final CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+		final Supplier<T> read = guard.guard(() -> {
+			// close stream in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
+			try (final InputStream input = guard.watch(pipedInput)) {
+				return inputStreamMapper.apply(input);
+			} catch (IOException e) {
+				throw new RuntimeException("error closing InputStream", e);
+			}
+		});
+
+		// the write operation hands the read operation over to the executor as soon as it would have to wait for it
+		final AtomicBoolean handedOver = new AtomicBoolean();
+		final Runnable handOver = () -> {
+			handedOver.set(true);
+			guard.stopWatchingWrites();
+			complete(CompletableFuture.supplyAsync(read, executor).thenCombine(writeFuture, (result, ignored) -> result), future);
+		};
+
+		// cancellation of the future, a timeout or a failure tears down both operations, so that none of them keeps blocking a thread
+		future.whenComplete((result, failure) -> {
+			if (failure != null) {
+				guard.cancel(failure);
+			}
+			guard.finish();
+		});
+		guard.start(future::completeExceptionally);
+
+		// until the read operation runs, the elements written are the only progress
+		final OutputStream output = guard.watchWrites(pipedOutput);
+		if (!onFull(connection, pipedOutput, handOver)) {
+			handOver.run();
+		}
+		try {
+			guard.guard(outputRunnable(output, outputStreamConsumer)).run();
+			writeFuture.complete(null);
+		} catch (RuntimeException e) {
+			writeFuture.completeExceptionally(new RuntimeException("error during writing to OutputStream", e));
+		}
+		if (!handedOver.get()) {
+			// everything written fits into the buffer, so read on this thread as well
+			if (writeFuture.isCompletedExceptionally()) {
+				try {
+					pipedInput.close();
+				} catch (IOException e) {
+					// the failure of the write operation gets reported
+				}
+			}
+			complete(writeFuture.thenApply((ignored) -> read.get()), future);
+		}
+		return future;
+	}
+
+}
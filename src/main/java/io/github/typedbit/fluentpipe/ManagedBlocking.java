@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Blocking of pipe operations running on a {@link ForkJoinPool}, e.g. the common pool which is the default {@link java.util.concurrent.Executor} of the builders. A blocked
+ * worker of a {@link ForkJoinPool} reduces its parallelism unless the pool knows about it: blocking through {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}
+ * lets the pool activate a spare thread meanwhile, so blocked pipes do not starve other tasks of the pool, e.g. parallel streams.
+ * <p>
+ * A pool which has reached its maximum number of threads cannot compensate. The thread then blocks without compensation and a warning is logged once per pool, as pipes will
+ * starve such a pool.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ManagedBlocking {
+
+	/**
+	 * Blocking operation of a pipe.
+	 */
+	@FunctionalInterface
+	interface BlockingCall {
+
+		int call() throws IOException;
+
+	}
+
+	private static final class Parker implements ForkJoinPool.ManagedBlocker {
+
+		private final Object blocker;
+
+		private boolean parked;
+
+		private Parker(final Object blocker) {
+			this.blocker = blocker;
+		}
+
+		@Override
+		public boolean block() {
+			// park once, the caller re-checks its condition anyway
+			LockSupport.park(blocker);
+			parked = true;
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return parked;
+		}
+
+	}
+
+	private static final class CallBlocker implements ForkJoinPool.ManagedBlocker {
+
+		private final BlockingCall call;
+
+		private boolean done;
+
+		private int result;
+
+		private IOException failure;
+
+		private CallBlocker(final BlockingCall call) {
+			this.call = call;
+		}
+
+		@Override
+		public boolean block() {
+			try {
+				result = call.call();
+			} catch (IOException e) {
+				failure = e;
+			}
+			done = true;
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return done;
+		}
+
+	}
+
+	private static final System.Logger LOGGER = System.getLogger(ManagedBlocking.class.getPackageName());
+
+	// pools a warning has been logged for
+	static final Set<ForkJoinPool> WARNED = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+	private ManagedBlocking() {
+		// utility class
+	}
+
+	/**
+	 * Returns whether the current thread is a worker of a {@link ForkJoinPool}, i.e. whether blocking should be managed.
+	 * 
+	 * @return {@code true} if the current thread is a {@link ForkJoinWorkerThread}
+	 */
+	static boolean isManaged() {
+		return Thread.currentThread() instanceof ForkJoinWorkerThread;
+	}
+
+	/**
+	 * Parks the current thread like {@link LockSupport#park(Object)}, letting the {@link ForkJoinPool} of the current thread compensate meanwhile. Like
+	 * {@link LockSupport#park(Object)} this method may return spuriously and keeps the interrupt status.
+	 * 
+	 * @param blocker
+	 *            The synchronization object responsible for parking.
+	 */
+	static void park(final Object blocker) {
+		if (isManaged()) {
+			block(new Parker(blocker));
+		} else {
+			LockSupport.park(blocker);
+		}
+	}
+
+	/**
+	 * Executes the given operation which may block, letting the {@link ForkJoinPool} of the current thread compensate meanwhile.
+	 * 
+	 * @param call
+	 *            The blocking operation.
+	 * @return result of the operation
+	 * @throws IOException
+	 *             if the operation failed
+	 */
+	static int call(final BlockingCall call) throws IOException {
+		if (!isManaged()) {
+			return call.call();
+		}
+		final CallBlocker blocker = new CallBlocker(call);
+		block(blocker);
+		if (blocker.failure != null) {
+			throw blocker.failure;
+		}
+		return blocker.result;
+	}
+
+	private static void block(final ForkJoinPool.ManagedBlocker blocker) {
+		try {
+			try {
+				ForkJoinPool.managedBlock(blocker);
+			} catch (RejectedExecutionException e) {
+				warn(e);
+				// block without compensation
+				while (!blocker.isReleasable() && !blocker.block()) {
+					// block() returns true after a single attempt
+				}
+			}
+		} catch (InterruptedException e) {
+			// none of the blockers throws it, but keep the status for the caller if the pool does
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void warn(final RejectedExecutionException e) {
+		final ForkJoinPool pool = ((ForkJoinWorkerThread) Thread.currentThread()).getPool();
+		if (WARNED.add(pool)) {
+			LOGGER.log(Level.WARNING, "pipe blocks a worker of " + pool + " which cannot compensate, pipes may starve the pool; run pipes on an Executor of their own", e);
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+
+/**
+ * {@link PipedInputStream} which lets a {@link java.util.concurrent.ForkJoinPool} compensate for a worker blocked on an empty pipe, see {@link ManagedBlocking}. It tells the
+ * writing end about the free space in the buffer, so that {@link ManagedPipedOutputStream} can do the same for a worker blocked on a full pipe.
+ * 
+ * @author Dieter König
+ */
+final class ManagedPipedInputStream extends PipedInputStream {
+
+	/**
+	 * @param pipeSize
+	 *            The size of pipe buffer to use. If the provided value is negative or zero then default size is used.
+	 */
+	ManagedPipedInputStream(final int pipeSize) {
+		super(pipeSize > 0 ? pipeSize : PIPE_SIZE);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return ManagedBlocking.isManaged() && isEmpty() ? ManagedBlocking.call(super::read) : super.read();
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		return ManagedBlocking.isManaged() && isEmpty() ? ManagedBlocking.call(() -> super.read(b, off, len)) : super.read(b, off, len);
+	}
+
+	private synchronized boolean isEmpty() {
+		return in < 0;
+	}
+
+	/**
+	 * Returns the number of bytes which can be written without blocking.
+	 * 
+	 * @return free space in the buffer
+	 */
+	synchronized int free() {
+		if (in < 0) {
+			return buffer.length;
+		}
+		if (in == out) {
+			return 0;
+		}
+		return in > out ? buffer.length - (in - out) : out - in;
+	}
+
+}
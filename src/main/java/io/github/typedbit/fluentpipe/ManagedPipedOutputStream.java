@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.PipedOutputStream;
+
+/**
+ * {@link PipedOutputStream} which lets a {@link java.util.concurrent.ForkJoinPool} compensate for a worker blocked on a full pipe, see {@link ManagedBlocking}, and which tells when
+ * the pipe is full for the first time, see {@link #onFull(Runnable)}.
+ * 
+ * @author Dieter König
+ */
+final class ManagedPipedOutputStream extends PipedOutputStream {
+
+	private final ManagedPipedInputStream sink;
+
+	private Runnable fullHandler;
+
+	ManagedPipedOutputStream(final ManagedPipedInputStream sink) throws IOException {
+		super(sink);
+		this.sink = sink;
+	}
+
+	/**
+	 * Registers an operation which the writing side runs once, the first time it finds the pipe full. Must be called before the first write.
+	 * 
+	 * @param handler
+	 *            The operation, e.g. starting the reading side.
+	 */
+	void onFull(final Runnable handler) {
+		this.fullHandler = handler;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (isFull(1) && ManagedBlocking.isManaged()) {
+			ManagedBlocking.call(() -> {
+				super.write(b);
+				return 1;
+			});
+		} else {
+			super.write(b);
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (isFull(len) && ManagedBlocking.isManaged()) {
+			ManagedBlocking.call(() -> {
+				super.write(b, off, len);
+				return len;
+			});
+		} else {
+			super.write(b, off, len);
+		}
+	}
+
+	private boolean isFull(final int len) {
+		if (fullHandler == null && !ManagedBlocking.isManaged()) {
+			// nobody to tell
+			return false;
+		}
+		if (sink.free() >= len) {
+			return false;
+		}
+		if (fullHandler != null) {
+			final Runnable handler = fullHandler;
+			fullHandler = null;
+			handler.run();
+		}
+		return true;
+	}
+
+}
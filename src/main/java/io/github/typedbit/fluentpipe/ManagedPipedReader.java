@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.PipedReader;
+
+/**
+ * {@link PipedReader} which lets a {@link java.util.concurrent.ForkJoinPool} compensate for a worker blocked on an empty pipe, see {@link ManagedBlocking}. It counts the chars
+ * read, so that {@link ManagedPipedWriter} can tell the free space in the buffer and do the same for a worker blocked on a full pipe.
+ * 
+ * @author Dieter König
+ */
+final class ManagedPipedReader extends PipedReader {
+
+	private static final int DEFAULT_PIPE_SIZE = 1024;
+
+	private final int pipeSize;
+
+	// written by the reading side only
+	private volatile long readCount;
+
+	/**
+	 * @param pipeSize
+	 *            The size of pipe buffer to use. If the provided value is negative or zero then default size is used.
+	 */
+	ManagedPipedReader(final int pipeSize) {
+		super(pipeSize(pipeSize));
+		this.pipeSize = pipeSize(pipeSize);
+	}
+
+	private static int pipeSize(final int pipeSize) {
+		return pipeSize > 0 ? pipeSize : DEFAULT_PIPE_SIZE;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int c = ManagedBlocking.isManaged() && !isReady() ? ManagedBlocking.call(super::read) : super.read();
+		if (c >= 0) {
+			readCount++;
+		}
+		return c;
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		final int count = ManagedBlocking.isManaged() && !isReady() ? ManagedBlocking.call(() -> super.read(cbuf, off, len)) : super.read(cbuf, off, len);
+		if (count > 0) {
+			readCount += count;
+		}
+		return count;
+	}
+
+	private boolean isReady() {
+		try {
+			return ready();
+		} catch (IOException e) {
+			// let the read operation report it
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the number of chars which can be written without blocking.
+	 * 
+	 * @param written
+	 *            The number of chars written so far.
+	 * @return free space in the buffer
+	 */
+	int free(final long written) {
+		return (int) (pipeSize - (written - readCount));
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+/**
+ * Position counter of one side of a ring buffer. The counter is surrounded by padding so that it occupies a cache line on its own and the producer and the consumer do not
+ * invalidate each others caches when they advance their positions (false sharing).
+ * <p>
+ * Only the owning side writes the {@code value}, the opposite side reads it. The {@code cache} holds the last observed position of the opposite side and is accessed by the
+ * owning side only.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class PaddedSequence {
+
+	@SuppressWarnings("unused")
+	private long p1, p2, p3, p4, p5, p6, p7;
+
+	private volatile long value;
+
+	private long cache;
+
+	@SuppressWarnings("unused")
+	private long p9, p10, p11, p12, p13, p14, p15;
+
+	long get() {
+		return value;
+	}
+
+	void set(final long value) {
+		this.value = value;
+	}
+
+	long getCache() {
+		return cache;
+	}
+
+	void setCache(final long cache) {
+		this.cache = cache;
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Stage cutting the {@link InputStream} into chunks of fixed size and transforming them in parallel. The transformed chunks are written to the {@link OutputStream} in the
+ * original order.
+ * <p>
+ * The stage submits one task per chunk to the given {@link Executor} but never has more than {@code parallelism} chunks in flight: if the window is full it waits for the oldest
+ * chunk and writes it before reading the next one. So at most {@code parallelism} workers are busy and the memory used is bounded by {@code parallelism} times the chunk size
+ * plus the transformed chunks.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ParallelChunkStage implements BiConsumer<InputStream, OutputStream> {
+
+	private final int chunkSize;
+
+	private final int parallelism;
+
+	private final Executor executor;
+
+	private final Function<byte[], byte[]> transformation;
+
+	/**
+	 * @param chunkSize
+	 *            The number of bytes of each chunk, only the last chunk may be shorter.
+	 * @param parallelism
+	 *            The maximum number of chunks in flight.
+	 * @param executor
+	 *            The {@link Executor} to transform the chunks on.
+	 * @param transformation
+	 *            The {@link Function} transforming a chunk.
+	 * @throws IllegalArgumentException
+	 *             if chunk size or parallelism are not positive
+	 */
+	ParallelChunkStage(final int chunkSize, final int parallelism, final Executor executor, final Function<byte[], byte[]> transformation) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size " + chunkSize + " is not positive");
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism " + parallelism + " is not positive");
+		}
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+		this.executor = Objects.requireNonNull(executor);
+		this.transformation = Objects.requireNonNull(transformation);
+	}
+
+	@Override
+	public void accept(final InputStream input, final OutputStream output) {
+		final Queue<CompletableFuture<byte[]>> window = new ArrayDeque<>(parallelism);
+		try {
+			for (;;) {
+				if (window.size() == parallelism) {
+					// free the slot before the next chunk is read, so no more than parallelism chunks are held
+					output.write(window.remove().join());
+				}
+				// allocate the chunk only once a byte has been read, not for the end of stream
+				final int first = input.read();
+				if (first < 0) {
+					break;
+				}
+				final byte[] chunk = new byte[chunkSize];
+				chunk[0] = (byte) first;
+				final int length = 1 + input.readNBytes(chunk, 1, chunkSize - 1);
+				final byte[] data = length < chunkSize ? Arrays.copyOf(chunk, length) : chunk;
+				window.add(CompletableFuture.supplyAsync(() -> transformation.apply(data), executor));
+			}
+			while (!window.isEmpty()) {
+				output.write(window.remove().join());
+			}
+		} catch (IOException e) {
+			cancel(window);
+			throw new RuntimeException("error transferring chunks", e);
+		} catch (CompletionException e) {
+			cancel(window);
+			throw new RuntimeException("error transforming chunk", e.getCause());
+		} catch (RuntimeException | Error e) {
+			cancel(window);
+			throw e;
+		}
+	}
+
+	private static void cancel(final Queue<CompletableFuture<byte[]>> window) {
+		// chunks not transformed yet are not needed anymore
+		for (final CompletableFuture<byte[]> future : window) {
+			future.cancel(false);
+		}
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Stage decompressing a gzip stream from the {@link InputStream}, member by member in parallel. The decompressed members are written to the {@link OutputStream} in the original
+ * order, with the same bounded window of members in flight as {@link ParallelChunkStage}.
+ * <p>
+ * Members are found without inflating by the length recorded by {@link ParallelGzipStage}. As soon as a member does not carry its length, e.g. if the stream has been written by
+ * another gzip implementation, the rest of the stream is decompressed sequentially, member by member with an {@link Inflater} each, so any gzip stream is accepted. Like gunzip,
+ * the stage ignores trailing garbage after the last member.
+ * </p>
+ * <p>
+ * Member length and uncompressed size are read from the stream, so they are not trusted: a member longer than 64 MiB or claiming to decompress to more than 64 MiB or more than
+ * deflate can expand it to is decompressed sequentially as well. So a forged length never makes the stage allocate more than 64 MiB per member in flight.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ParallelGunzipStage implements BiConsumer<InputStream, OutputStream> {
+
+	/**
+	 * Upper bound of the length of a member and of its uncompressed size decompressed in parallel.
+	 */
+	static final int MAXIMUM_MEMBER_SIZE = 64 << 20;
+
+	/**
+	 * Upper bound of the ratio of uncompressed to compressed size of deflate, which encodes a run of 258 bytes in 2 bits at best.
+	 */
+	private static final int MAXIMUM_RATIO = 1032;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int FHCRC = 2;
+
+	private static final int FEXTRA = 4;
+
+	private static final int FNAME = 8;
+
+	private static final int FCOMMENT = 16;
+
+	private final int parallelism;
+
+	private final Executor executor;
+
+	/**
+	 * @param parallelism
+	 *            The maximum number of members in flight.
+	 * @param executor
+	 *            The {@link Executor} to decompress the members on.
+	 * @throws IllegalArgumentException
+	 *             if parallelism is not positive
+	 */
+	ParallelGunzipStage(final int parallelism, final Executor executor) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism " + parallelism + " is not positive");
+		}
+		this.parallelism = parallelism;
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	@Override
+	public void accept(final InputStream input, final OutputStream output) {
+		final Queue<CompletableFuture<byte[]>> window = new ArrayDeque<>(parallelism);
+		try {
+			boolean first = true;
+			for (;;) {
+				final byte[] header = new byte[ParallelGzipStage.HEADER_LENGTH];
+				final int length = input.readNBytes(header, 0, header.length);
+				if (length == 0 && !first) {
+					break;
+				}
+				final int memberLength = memberLength(header, length);
+				if (memberLength < 0) {
+					inflateSequentially(window, new ByteArrayInputStream(header, 0, length), input, output, first);
+					return;
+				}
+				final byte[] member = Arrays.copyOf(header, memberLength);
+				if (input.readNBytes(member, header.length, memberLength - header.length) < memberLength - header.length) {
+					throw new ZipException("truncated gzip member");
+				}
+				if (!isPlausibleSize(member)) {
+					inflateSequentially(window, new ByteArrayInputStream(member), input, output, first);
+					return;
+				}
+				first = false;
+				if (window.size() == parallelism) {
+					output.write(window.remove().join());
+				}
+				window.add(CompletableFuture.supplyAsync(() -> inflate(member), executor));
+			}
+			while (!window.isEmpty()) {
+				output.write(window.remove().join());
+			}
+		} catch (IOException e) {
+			cancel(window);
+			throw new RuntimeException("error decompressing gzip stream", e);
+		} catch (CompletionException e) {
+			cancel(window);
+			throw new RuntimeException("error decompressing gzip member", e.getCause());
+		} catch (RuntimeException | Error e) {
+			cancel(window);
+			throw e;
+		}
+	}
+
+	private static int memberLength(final byte[] header, final int length) {
+		if (length < header.length || header[0] != 0x1f || header[1] != (byte) 0x8b || header[2] != 8 || header[3] != 4 || header[10] != 8 || header[11] != 0
+				|| header[12] != ParallelGzipStage.SUBFIELD_ID1 || header[13] != ParallelGzipStage.SUBFIELD_ID2 || header[14] != 4 || header[15] != 0) {
+			return -1;
+		}
+		final int memberLength = ParallelGzipStage.readInt(header, header.length - 4);
+		return memberLength < header.length + ParallelGzipStage.TRAILER_LENGTH || memberLength > MAXIMUM_MEMBER_SIZE ? -1 : memberLength;
+	}
+
+	private static boolean isPlausibleSize(final byte[] member) {
+		final int size = ParallelGzipStage.readInt(member, member.length - 4);
+		final long compressed = member.length - ParallelGzipStage.HEADER_LENGTH - ParallelGzipStage.TRAILER_LENGTH;
+		return size >= 0 && size <= MAXIMUM_MEMBER_SIZE && size <= compressed * MAXIMUM_RATIO;
+	}
+
+	private static byte[] inflate(final byte[] member) {
+		final int trailer = member.length - ParallelGzipStage.TRAILER_LENGTH;
+		final int size = ParallelGzipStage.readInt(member, trailer + 4);
+		final byte[] block = new byte[size];
+		final Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(member, ParallelGzipStage.HEADER_LENGTH, trailer - ParallelGzipStage.HEADER_LENGTH);
+			int length = 0;
+			while (length < size && !inflater.finished()) {
+				final int count = inflater.inflate(block, length, size - length);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += count;
+			}
+			// the member must end exactly where its data does
+			if (length < size || inflater.inflate(new byte[1]) > 0 || !inflater.finished() || inflater.getRemaining() > 0) {
+				throw new IllegalStateException("corrupt gzip member");
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("corrupt gzip member", e);
+		} finally {
+			inflater.end();
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(block);
+		if ((int) crc.getValue() != ParallelGzipStage.readInt(member, trailer)) {
+			throw new IllegalStateException("corrupt gzip member (CRC mismatch)");
+		}
+		return block;
+	}
+
+	private static void inflateSequentially(final Queue<CompletableFuture<byte[]>> window, final InputStream consumed, final InputStream input, final OutputStream output, final boolean first)
+			throws IOException {
+		while (!window.isEmpty()) {
+			output.write(window.remove().join());
+		}
+		// the bytes already consumed from the stream are the start of the member
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final PushbackInputStream members = new PushbackInputStream(new SequenceInputStream(consumed, input), buffer.length);
+		boolean leading = first;
+		while (readHeader(members, leading)) {
+			inflateMember(members, buffer, output);
+			leading = false;
+		}
+	}
+
+	private static boolean readHeader(final InputStream input, final boolean first) throws IOException {
+		final int id1 = input.read();
+		if (id1 < 0 && !first) {
+			return false;
+		}
+		final int id2 = input.read();
+		if (id1 != 0x1f || id2 != 0x8b) {
+			if (first) {
+				throw new ZipException("Not in GZIP format");
+			}
+			// trailing garbage is ignored like gunzip does
+			return false;
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(id1);
+		crc.update(id2);
+		if (readByte(input, crc) != 8) {
+			throw new ZipException("Unsupported compression method");
+		}
+		final int flags = readByte(input, crc);
+		// modification time, extra flags and operating system
+		for (int i = 0; i < 6; i++) {
+			readByte(input, crc);
+		}
+		if ((flags & FEXTRA) != 0) {
+			final int length = readByte(input, crc) | readByte(input, crc) << 8;
+			for (int i = 0; i < length; i++) {
+				readByte(input, crc);
+			}
+		}
+		if ((flags & FNAME) != 0) {
+			while (readByte(input, crc) != 0) {
+				// skip file name
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (readByte(input, crc) != 0) {
+				// skip comment
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			final int headerCrc = (int) crc.getValue() & 0xffff;
+			if ((readByte(input, crc) | readByte(input, crc) << 8) != headerCrc) {
+				throw new ZipException("Corrupt GZIP header");
+			}
+		}
+		return true;
+	}
+
+	private static int readByte(final InputStream input, final CRC32 crc) throws IOException {
+		final int value = input.read();
+		if (value < 0) {
+			throw new EOFException("truncated gzip member");
+		}
+		crc.update(value);
+		return value;
+	}
+
+	private static void inflateMember(final PushbackInputStream input, final byte[] buffer, final OutputStream output) throws IOException {
+		// a fresh Inflater per member, the deflate data of a member ends where the Inflater finishes
+		final Inflater inflater = new Inflater(true);
+		final CRC32 crc = new CRC32();
+		final byte[] block = new byte[BUFFER_SIZE];
+		long size = 0;
+		try {
+			int length = 0;
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					length = input.read(buffer);
+					if (length < 0) {
+						throw new EOFException("truncated gzip member");
+					}
+					inflater.setInput(buffer, 0, length);
+				} else if (inflater.needsDictionary()) {
+					throw new ZipException("corrupt gzip member");
+				}
+				final int count = inflater.inflate(block);
+				crc.update(block, 0, count);
+				output.write(block, 0, count);
+				size += count;
+			}
+			// the input read beyond the deflate data is the trailer and the next member
+			input.unread(buffer, length - inflater.getRemaining(), inflater.getRemaining());
+		} catch (DataFormatException e) {
+			throw new ZipException("corrupt gzip member: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		final byte[] trailer = new byte[ParallelGzipStage.TRAILER_LENGTH];
+		if (input.readNBytes(trailer, 0, trailer.length) < trailer.length) {
+			throw new EOFException("truncated gzip member");
+		}
+		if (ParallelGzipStage.readInt(trailer, 0) != (int) crc.getValue() || ParallelGzipStage.readInt(trailer, 4) != (int) size) {
+			throw new ZipException("corrupt gzip member (CRC or size mismatch)");
+		}
+	}
+
+	private static void cancel(final Queue<CompletableFuture<byte[]>> window) {
+		// members not decompressed yet are not needed anymore
+		for (final CompletableFuture<byte[]> future : window) {
+			future.cancel(false);
+		}
+	}
+
+}
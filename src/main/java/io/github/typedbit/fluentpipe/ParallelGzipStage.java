@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Stage compressing the {@link InputStream} into a gzip stream, block by block in parallel. Each block becomes a gzip member of its own, so the result is a standard multi-member
+ * gzip stream (RFC 1952) which any gunzip decompresses to the concatenated blocks.
+ * <p>
+ * In contrast to pigz the blocks are compressed independently, i.e. without the preceding block as dictionary, which costs a little compression ratio for blocks of a few KiB
+ * but lets {@link ParallelGunzipStage} decompress the members in parallel as well. To find the members without inflating, each member carries its total length in an extra field
+ * which other decompressors ignore.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ParallelGzipStage implements BiConsumer<InputStream, OutputStream> {
+
+	/**
+	 * Length of the member header: fixed header, length of the extra field and the extra field holding the member length.
+	 */
+	static final int HEADER_LENGTH = 20;
+
+	/**
+	 * Length of the member trailer: CRC-32 and size of the uncompressed data.
+	 */
+	static final int TRAILER_LENGTH = 8;
+
+	/**
+	 * Identifies the extra subfield holding the member length.
+	 */
+	static final byte SUBFIELD_ID1 = 'F';
+
+	static final byte SUBFIELD_ID2 = 'P';
+
+	private static final byte[] HEADER = {
+			// ID1, ID2, CM = deflate, FLG = FEXTRA
+			0x1f, (byte) 0x8b, 8, 4,
+			// MTIME = not available, XFL, OS = unknown
+			0, 0, 0, 0, 0, (byte) 255,
+			// XLEN
+			8, 0,
+			// subfield ID and LEN, followed by the member length
+			SUBFIELD_ID1, SUBFIELD_ID2, 4, 0 };
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private boolean written;
+
+		private CountingOutputStream(final OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			written = true;
+			out.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			written |= len > 0;
+			out.write(b, off, len);
+		}
+
+	}
+
+	private final ParallelChunkStage chunks;
+
+	/**
+	 * @param blockSize
+	 *            The number of uncompressed bytes of each member, only the last member may hold less.
+	 * @param parallelism
+	 *            The maximum number of blocks compressed at the same time.
+	 * @param executor
+	 *            The {@link Executor} to compress the blocks on.
+	 * @throws IllegalArgumentException
+	 *             if block size or parallelism are not positive
+	 */
+	ParallelGzipStage(final int blockSize, final int parallelism, final Executor executor) {
+		this.chunks = new ParallelChunkStage(blockSize, parallelism, executor, ParallelGzipStage::compress);
+	}
+
+	@Override
+	public void accept(final InputStream input, final OutputStream output) {
+		final CountingOutputStream counting = new CountingOutputStream(output);
+		chunks.accept(input, counting);
+		if (!counting.written) {
+			// a gzip stream consists of at least one member
+			try {
+				output.write(compress(new byte[0]));
+			} catch (IOException e) {
+				throw new RuntimeException("error transferring chunks", e);
+			}
+		}
+	}
+
+	/**
+	 * Compresses the given block into a complete gzip member.
+	 * 
+	 * @param block
+	 *            The uncompressed data.
+	 * @return gzip member
+	 */
+	static byte[] compress(final byte[] block) {
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(block);
+			deflater.finish();
+			// compressible data shrinks, incompressible data grows by a few bytes per stored block
+			byte[] member = Arrays.copyOf(HEADER, HEADER_LENGTH + block.length + (block.length >>> 12) + 64);
+			int length = HEADER_LENGTH;
+			while (!deflater.finished()) {
+				if (length == member.length - TRAILER_LENGTH) {
+					member = Arrays.copyOf(member, member.length + (member.length >>> 1));
+				}
+				length += deflater.deflate(member, length, member.length - TRAILER_LENGTH - length);
+			}
+			final CRC32 crc = new CRC32();
+			crc.update(block);
+			writeInt(member, length, (int) crc.getValue());
+			writeInt(member, length + 4, block.length);
+			length += TRAILER_LENGTH;
+			writeInt(member, HEADER_LENGTH - 4, length);
+			return length == member.length ? member : Arrays.copyOf(member, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Writes a little-endian int.
+	 * 
+	 * @param buffer
+	 *            The array to write to.
+	 * @param index
+	 *            The index of the lowest byte.
+	 * @param value
+	 *            The value to write.
+	 */
+	static void writeInt(final byte[] buffer, final int index, final int value) {
+		// gzip is little-endian
+		buffer[index] = (byte) value;
+		buffer[index + 1] = (byte) (value >>> 8);
+		buffer[index + 2] = (byte) (value >>> 16);
+		buffer[index + 3] = (byte) (value >>> 24);
+	}
+
+	/**
+	 * Reads a little-endian int.
+	 * 
+	 * @param buffer
+	 *            The array to read from.
+	 * @param index
+	 *            The index of the lowest byte.
+	 * @return value
+	 */
+	static int readInt(final byte[] buffer, final int index) {
+		return (buffer[index] & 0xff) | (buffer[index + 1] & 0xff) << 8 | (buffer[index + 2] & 0xff) << 16 | (buffer[index + 3] & 0xff) << 24;
+	}
+
+}
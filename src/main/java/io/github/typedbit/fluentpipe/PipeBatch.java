@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs one pipe definition over many inputs with a bounded number of pipes in flight. The definition maps an input to a pipe, i.e. a {@link Supplier} of
+ * {@link CompletableFuture} as returned by {@link StreamPipeBuilder} resp. {@link ReaderWriterPipeBuilder}, and each execution of the pipe produces the result for its input.
+ * <p>
+ * Threads and buffers are shared across the inputs by the pipe definition: let all pipes run on the same {@link java.util.concurrent.Executor} with at least two threads per pipe
+ * in flight (one per pipe with {@code inlineIfFits}) and take their buffers from the same {@link BufferPool}, so that a batch of thousands of inputs uses a fixed number of
+ * threads and allocates buffers for the pipes in flight only.
+ * </p>
+ * 
+ * <pre>
+ * BufferPool pool = BufferPool.create();
+ * ExecutorService executor = Executors.newFixedThreadPool(16);
+ * try (Stream&lt;Document&gt; documents = PipeBatch
+ * 		.create((Path file) -&gt; StreamPipeBuilder.create().ringBuffer(64 * 1024, pool)
+ * 			.forOutput((o) -&gt; copy(file, o)).mapInput(parse).asyncRead(executor).asyncWrite(executor))
+ * 		.concurrency(8).completionOrder().run(files)) {
+ * 	documents.forEach(index::add);
+ * }
+ * </pre>
+ * <p>
+ * Pipes are started lazily while the returned {@link Stream} is consumed, at most {@link #concurrency(int)} of them at a time. In submission order a pipe which has finished
+ * early keeps its slot until the results before it have been consumed. A failed pipe makes the {@link Stream} throw a {@link CompletionException} with the cause of the failure,
+ * closing the {@link Stream} cancels the pipes still in flight.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <I>
+ *            Type of the inputs
+ * @param <T>
+ *            Type of the results
+ */
+public final class PipeBatch<I, T> {
+
+	private final class BatchIterator implements Iterator<T> {
+
+		private final Iterator<? extends I> inputs;
+
+		private final int limit;
+
+		private final boolean unordered;
+
+		// accessed by the consuming thread only, completed pipes are moved to the queue below in completion order
+		private final Queue<CompletableFuture<T>> inFlight = new ArrayDeque<>();
+
+		private final BlockingQueue<CompletableFuture<T>> completed = new LinkedBlockingQueue<>();
+
+		private BatchIterator(final Iterator<? extends I> inputs, final int limit, final boolean unordered) {
+			this.inputs = inputs;
+			this.limit = limit;
+			this.unordered = unordered;
+		}
+
+		@Override
+		public boolean hasNext() {
+			fill();
+			return !inFlight.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final CompletableFuture<T> future;
+			if (unordered) {
+				try {
+					future = completed.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancel();
+					throw new CompletionException(e);
+				}
+				inFlight.remove(future);
+			} else {
+				future = inFlight.remove();
+			}
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel();
+				throw new CompletionException(e);
+			} catch (ExecutionException e) {
+				throw new CompletionException(e.getCause());
+			}
+		}
+
+		private void fill() {
+			while (inFlight.size() < limit && inputs.hasNext()) {
+				final CompletableFuture<T> future = pipes.apply(inputs.next()).get();
+				inFlight.add(future);
+				if (unordered) {
+					future.whenComplete((result, failure) -> completed.add(future));
+				}
+			}
+		}
+
+		private void cancel() {
+			final List<CompletableFuture<T>> pending = new ArrayList<>(inFlight);
+			inFlight.clear();
+			for (final CompletableFuture<T> future : pending) {
+				future.cancel(true);
+			}
+		}
+
+	}
+
+	private final Function<? super I, ? extends Supplier<CompletableFuture<T>>> pipes;
+
+	private int concurrency;
+
+	private boolean completionOrder;
+
+	private PipeBatch(final Function<? super I, ? extends Supplier<CompletableFuture<T>>> pipes) {
+		this.pipes = pipes;
+	}
+
+	/**
+	 * Returns a new instance running the given pipe definition, by default with as many pipes in flight as processors are available and results in submission order.
+	 * 
+	 * @param pipes
+	 *            {@link Function} returning the pipe for an input.
+	 * @param <I>
+	 *            Type of the inputs
+	 * @param <T>
+	 *            Type of the results
+	 * @return {@link PipeBatch}
+	 */
+	public static <I, T> PipeBatch<I, T> create(final Function<? super I, ? extends Supplier<CompletableFuture<T>>> pipes) {
+		return new PipeBatch<>(Objects.requireNonNull(pipes));
+	}
+
+	/**
+	 * Limits the number of pipes in flight.
+	 * 
+	 * @param concurrency
+	 *            The maximum number of pipes executed at the same time.
+	 * @return this {@link PipeBatch}
+	 * @throws IllegalArgumentException
+	 *             if the given value is not positive
+	 * @throws IllegalStateException
+	 *             if the concurrency has already been set
+	 */
+	public PipeBatch<I, T> concurrency(final int concurrency) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+		}
+		if (this.concurrency != 0) {
+			throw new IllegalStateException("concurrency was already initialized");
+		}
+		this.concurrency = concurrency;
+		return this;
+	}
+
+	/**
+	 * Configures this batch to return the results in the order the pipes finish instead of the order of the inputs, so a slow input does not hold back the results of the
+	 * following ones.
+	 * 
+	 * @return this {@link PipeBatch}
+	 */
+	public PipeBatch<I, T> completionOrder() {
+		this.completionOrder = true;
+		return this;
+	}
+
+	/**
+	 * Runs the pipe definition over the given inputs.
+	 * 
+	 * @param inputs
+	 *            The inputs, iterated lazily while the returned {@link Stream} is consumed.
+	 * @return {@link Stream} of results, sequential and ordered
+	 */
+	public Stream<T> run(final Iterable<? extends I> inputs) {
+		return run(inputs.iterator());
+	}
+
+	/**
+	 * Runs the pipe definition over the given inputs.
+	 * 
+	 * @param inputs
+	 *            The inputs, consumed lazily while the returned {@link Stream} is consumed.
+	 * @return {@link Stream} of results, sequential and ordered
+	 */
+	public Stream<T> run(final Stream<? extends I> inputs) {
+		return run(inputs.iterator()).onClose(inputs::close);
+	}
+
+	private Stream<T> run(final Iterator<? extends I> inputs) {
+		final BatchIterator iterator = new BatchIterator(inputs, concurrency == 0 ? Runtime.getRuntime().availableProcessors() : concurrency, completionOrder);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false).onClose(iterator::cancel);
+	}
+
+}
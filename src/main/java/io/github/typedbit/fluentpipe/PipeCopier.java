@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Deep copies of objects by serializing them on one side of a pipe and deserializing them on the other side, so that neither the serialized form is kept in memory as a whole nor
+ * serialization and deserialization wait for each other.
+ * <p>
+ * All objects of {@link #deepCopyAll(Collection)} are copied through a single pair of {@link ObjectOutputStream} and {@link ObjectInputStream}, so the stream header and the
+ * descriptor of each class are written and parsed once per batch rather than once per object. The classes are handed over to the deserializing side directly, so resolving them
+ * neither looks them up by name nor depends on the class loaders on the stack of the thread deserializing.
+ * </p>
+ * <p>
+ * The write operation runs on the calling thread, the read operation follows on the same thread as long as the serialized form fits into the 64 KiB buffer, see
+ * {@code inlineIfFits()}; larger copies overlap serialization and deserialization on the {@link java.util.concurrent.ForkJoinPool#commonPool()}. The buffers are pooled, so
+ * repeated copies allocate almost nothing besides the copies.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public final class PipeCopier {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final BufferPool POOL = BufferPool.create();
+
+	/**
+	 * Remembers the class of each descriptor written.
+	 */
+	private static final class ClassRecordingOutputStream extends ObjectOutputStream {
+
+		private final Map<String, Class<?>> classes;
+
+		private ClassRecordingOutputStream(final OutputStream out, final Map<String, Class<?>> classes) throws IOException {
+			super(out);
+			this.classes = classes;
+		}
+
+		@Override
+		protected void annotateClass(final Class<?> cl) {
+			classes.putIfAbsent(cl.getName(), cl);
+		}
+
+	}
+
+	/**
+	 * Resolves the classes remembered by the writing side.
+	 */
+	private static final class ClassResolvingInputStream extends ObjectInputStream {
+
+		private final Map<String, Class<?>> classes;
+
+		private ClassResolvingInputStream(final InputStream in, final Map<String, Class<?>> classes) throws IOException {
+			super(in);
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			final Class<?> cl = classes.get(desc.getName());
+			return cl != null ? cl : super.resolveClass(desc);
+		}
+
+	}
+
+	private PipeCopier() {
+		// utility class
+	}
+
+	/**
+	 * Returns a deep copy of the given object.
+	 * 
+	 * @param object
+	 *            The object to copy, {@code null} or {@link java.io.Serializable}.
+	 * @param <T>
+	 *            Type of the object
+	 * @return copy of the object
+	 * @throws IOException
+	 *             if the object cannot be serialized or deserialized
+	 */
+	public static <T> T deepCopy(final T object) throws IOException {
+		return deepCopyAll(Collections.singletonList(object)).get(0);
+	}
+
+	/**
+	 * Returns deep copies of the given objects. The objects are copied as one object graph, i.e. an object referenced by several of the given objects is copied once and
+	 * referenced by their copies.
+	 * 
+	 * @param objects
+	 *            The objects to copy, each {@code null} or {@link java.io.Serializable}.
+	 * @param <T>
+	 *            Type of the objects
+	 * @return copies of the objects in iteration order of the given {@link Collection}
+	 * @throws IOException
+	 *             if an object cannot be serialized or deserialized
+	 */
+	public static <T> List<T> deepCopyAll(final Collection<? extends T> objects) throws IOException {
+		final List<? extends T> originals = new ArrayList<>(Objects.requireNonNull(objects));
+		final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+		final CompletableFuture<List<T>> future = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(BUFFER_SIZE, POOL)
+
+				.forOutput((o) -> {
+					try {
+						final ObjectOutputStream output = new ClassRecordingOutputStream(o, classes);
+						for (final T original : originals) {
+							output.writeObject(original);
+						}
+						output.flush();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						final ObjectInputStream input = new ClassResolvingInputStream(i, classes);
+						final List<T> copies = new ArrayList<>(originals.size());
+						for (int n = 0; n < originals.size(); n++) {
+							@SuppressWarnings("unchecked")
+							final T copy = (T) input.readObject();
+							copies.add(copy);
+						}
+						return copies;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					} catch (ClassNotFoundException e) {
+						throw new UncheckedIOException(new IOException("class of copied object not found", e));
+					}
+				})
+
+				.inlineIfFits()
+
+				.get();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while copying");
+		} catch (ExecutionException e) {
+			throw failure(e.getCause());
+		}
+	}
+
+	private static IOException failure(final Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof UncheckedIOException) {
+				return ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof IOException) {
+				return (IOException) cause;
+			}
+		}
+		return new IOException("deep copy failed", failure);
+	}
+
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterReader;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Tears down a single execution of a pipe on cancellation or timeout, so that neither side keeps occupying a thread. Tearing down closes the reading end of the pipe, which
+ * makes any further write fail, and interrupts the threads currently running an operation of the pipe, which makes a blocked read fail. The writing end is not closed, so the
+ * reading side never mistakes a cancelled execution for EOF. As the reading side may still be copying from the buffer meanwhile, a buffer torn down this way is not returned
+ * to its {@link BufferPool}.
+ * <p>
+ * A thread runs an operation within {@link #guard(Runnable)} resp. {@link #guard(Supplier)}, so it is interrupted only while it works for the pipe. An interrupt caused by this
+ * class is cleared before the thread returns to its {@link java.util.concurrent.Executor}.
+ * </p>
+ * <p>
+ * Deadline and idle timeout are checked by a single daemon thread shared by all pipes. Progress is the number of elements read, which the lock-free buffers track anyway; the
+ * reading end of other engines is wrapped by {@link #watch(InputStream)} resp. {@link #watch(Reader)} to count them. A pipe running the write operation before the read
+ * operation counts the elements written as well until the read operation starts, see {@link #watchWrites(OutputStream)}.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class PipeGuard {
+
+	private static final class Timer {
+
+		private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, (r) -> {
+			final Thread thread = new Thread(r, "fluent-pipe-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		static {
+			EXECUTOR.setRemoveOnCancelPolicy(true);
+		}
+
+	}
+
+	private final class CountingInputStream extends FilterInputStream {
+
+		private CountingInputStream(final InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int value = super.read();
+			if (value >= 0) {
+				progress++;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int count = super.read(b, off, len);
+			if (count > 0) {
+				progress += count;
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long count = super.skip(n);
+			progress += count;
+			return count;
+		}
+
+	}
+
+	private final class CountingReader extends FilterReader {
+
+		private CountingReader(final Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int value = super.read();
+			if (value >= 0) {
+				progress++;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			final int count = super.read(cbuf, off, len);
+			if (count > 0) {
+				progress += count;
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long count = super.skip(n);
+			progress += count;
+			return count;
+		}
+
+	}
+
+	private final class CountingOutputStream extends FilterOutputStream {
+
+		private CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			writeProgress++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			writeProgress += len;
+		}
+
+	}
+
+	private final class CountingWriter extends FilterWriter {
+
+		private CountingWriter(final Writer out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int c) throws IOException {
+			super.write(c);
+			writeProgress++;
+		}
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			super.write(cbuf, off, len);
+			writeProgress += len;
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			super.write(str, off, len);
+			writeProgress += len;
+		}
+
+	}
+
+	private final PipeTimeouts timeouts;
+
+	private final Closeable readEnd;
+
+	// null if progress is counted by a wrapper of the reading end
+	private final AbstractPipeBuffer buffer;
+
+	// written by the reading side only
+	private volatile long progress;
+
+	// written by the writing side only
+	private volatile long writeProgress;
+
+	private volatile boolean countingWrites;
+
+	// guarded by this
+	private final List<Thread> threads = new ArrayList<>(2);
+
+	private final List<Thread> interrupted = new ArrayList<>(2);
+
+	private Throwable failure;
+
+	private Consumer<? super Throwable> listener;
+
+	private boolean finished;
+
+	private ScheduledFuture<?> deadlineTask;
+
+	private ScheduledFuture<?> idleTask;
+
+	// accessed by the timer thread only
+	private long lastProgress;
+
+	private long lastProgressTime;
+
+	/**
+	 * @param timeouts
+	 *            The time limits of the execution.
+	 * @param connection
+	 *            The connection built up by the engine for the execution.
+	 * @param readEnd
+	 *            The reading end of the connection.
+	 */
+	PipeGuard(final PipeTimeouts timeouts, final Object connection, final Closeable readEnd) {
+		this.timeouts = timeouts;
+		this.readEnd = readEnd;
+		this.buffer = connection instanceof AbstractPipeBuffer ? (AbstractPipeBuffer) connection : null;
+	}
+
+	/**
+	 * Returns the given reading end, wrapped to count the bytes read if needed for the idle timeout.
+	 * 
+	 * @param input
+	 *            The reading end of the connection.
+	 * @return {@link InputStream} to pass to the read operation
+	 */
+	InputStream watch(final InputStream input) {
+		return timeouts.getIdleTimeout() == 0 || buffer != null ? input : new CountingInputStream(input);
+	}
+
+	/**
+	 * Returns the given reading end, wrapped to count the chars read if needed for the idle timeout.
+	 * 
+	 * @param reader
+	 *            The reading end of the connection.
+	 * @return {@link Reader} to pass to the read operation
+	 */
+	Reader watch(final Reader reader) {
+		return timeouts.getIdleTimeout() == 0 || buffer != null ? reader : new CountingReader(reader);
+	}
+
+	/**
+	 * Counts the bytes written as progress as well, until {@link #stopWatchingWrites()} is called. For a pipe running the write operation before the read operation, which
+	 * would otherwise time out while writing into a buffer nobody reads yet.
+	 * 
+	 * @param output
+	 *            The writing end of the connection.
+	 * @return {@link OutputStream} to pass to the write operation
+	 */
+	OutputStream watchWrites(final OutputStream output) {
+		countingWrites = true;
+		return timeouts.getIdleTimeout() == 0 || buffer != null ? output : new CountingOutputStream(output);
+	}
+
+	/**
+	 * Counts the chars written as progress as well, until {@link #stopWatchingWrites()} is called. For a pipe running the write operation before the read operation, which
+	 * would otherwise time out while writing into a buffer nobody reads yet.
+	 * 
+	 * @param writer
+	 *            The writing end of the connection.
+	 * @return {@link Writer} to pass to the write operation
+	 */
+	Writer watchWrites(final Writer writer) {
+		countingWrites = true;
+		return timeouts.getIdleTimeout() == 0 || buffer != null ? writer : new CountingWriter(writer);
+	}
+
+	/**
+	 * Counts the elements read only from now on, as the read operation runs and keeps up with the write operation.
+	 */
+	void stopWatchingWrites() {
+		countingWrites = false;
+	}
+
+	/**
+	 * Starts the timers of deadline and idle timeout.
+	 * 
+	 * @param listener
+	 *            {@link Consumer} notified of the cause once the execution has been torn down, e.g. to complete the future of the execution.
+	 */
+	void start(final Consumer<? super Throwable> listener) {
+		final Throwable failure;
+		synchronized (this) {
+			this.listener = listener;
+			failure = this.failure;
+			if (failure == null && !finished) {
+				if (timeouts.getDeadline() != 0) {
+					deadlineTask = Timer.EXECUTOR.schedule(() -> {
+						cancel(new TimeoutException("deadline of " + TimeUnit.NANOSECONDS.toMillis(timeouts.getDeadline()) + " ms exceeded"));
+					}, timeouts.getDeadline(), TimeUnit.NANOSECONDS);
+				}
+				if (timeouts.getIdleTimeout() != 0) {
+					lastProgressTime = System.nanoTime();
+					// check four times per timeout, so that a stall is detected at most a quarter of the timeout late
+					final long period = Math.max(timeouts.getIdleTimeout() / 4, TimeUnit.MILLISECONDS.toNanos(1));
+					idleTask = Timer.EXECUTOR.scheduleWithFixedDelay(this::checkProgress, period, period, TimeUnit.NANOSECONDS);
+				}
+			}
+		}
+		if (failure != null) {
+			// torn down before the listener was known
+			listener.accept(failure);
+		}
+	}
+
+	/**
+	 * Stops the timers after the execution has finished.
+	 */
+	synchronized void finish() {
+		finished = true;
+		stopTimers();
+	}
+
+	/**
+	 * Tears down the execution unless it has already been torn down.
+	 * 
+	 * @param cause
+	 *            The reason, e.g. {@link CancellationException} or {@link TimeoutException}.
+	 * @return {@code true} if the execution has been torn down by this call
+	 */
+	boolean cancel(final Throwable cause) {
+		final Consumer<? super Throwable> listener;
+		synchronized (this) {
+			if (failure != null || finished) {
+				return false;
+			}
+			failure = cause;
+			stopTimers();
+			listener = this.listener;
+		}
+		if (listener != null) {
+			// report the cause before the operations fail with their own exceptions
+			listener.accept(cause);
+		}
+		if (buffer != null) {
+			buffer.tearDown();
+		}
+		try {
+			readEnd.close();
+		} catch (IOException e) {
+			cause.addSuppressed(e);
+		}
+		synchronized (this) {
+			for (final Thread thread : threads) {
+				interrupted.add(thread);
+				thread.interrupt();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the reason the execution has been torn down for.
+	 * 
+	 * @return cause passed to {@link #cancel(Throwable)}, {@code null} if not torn down
+	 */
+	synchronized Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Returns the exception to report for a failed execution: the reason of tearing down if the execution has been torn down, otherwise the given exception.
+	 * 
+	 * @param exception
+	 *            The exception the execution failed with.
+	 * @return {@link Exception} to throw
+	 */
+	Exception failure(final Exception exception) {
+		final Throwable failure = getFailure();
+		if (failure instanceof Exception && failure != exception) {
+			failure.addSuppressed(exception);
+			return (Exception) failure;
+		}
+		return exception;
+	}
+
+	/**
+	 * Returns a {@link Runnable} running the given operation on a thread which gets interrupted if the execution is torn down meanwhile.
+	 * 
+	 * @param operation
+	 *            The operation of the pipe.
+	 * @return {@link Runnable}
+	 */
+	Runnable guard(final Runnable operation) {
+		return () -> {
+			enter();
+			try {
+				operation.run();
+			} finally {
+				exit();
+			}
+		};
+	}
+
+	/**
+	 * Returns a {@link Supplier} running the given operation on a thread which gets interrupted if the execution is torn down meanwhile.
+	 * 
+	 * @param operation
+	 *            The operation of the pipe.
+	 * @param <T>
+	 *            Type of the result of the operation
+	 * @return {@link Supplier}
+	 */
+	<T> Supplier<T> guard(final Supplier<T> operation) {
+		return () -> {
+			enter();
+			try {
+				return operation.get();
+			} finally {
+				exit();
+			}
+		};
+	}
+
+	private synchronized void enter() {
+		final Thread thread = Thread.currentThread();
+		if (failure != null) {
+			// torn down before the operation started, let it fail fast
+			interrupted.add(thread);
+			thread.interrupt();
+		}
+		threads.add(thread);
+	}
+
+	private synchronized void exit() {
+		final Thread thread = Thread.currentThread();
+		threads.remove(thread);
+		if (interrupted.remove(thread)) {
+			// do not leak the interrupt to the next task of the executor
+			Thread.interrupted();
+		}
+	}
+
+	private void stopTimers() {
+		if (deadlineTask != null) {
+			deadlineTask.cancel(false);
+		}
+		if (idleTask != null) {
+			idleTask.cancel(false);
+		}
+	}
+
+	private void checkProgress() {
+		long current = buffer != null ? buffer.readCommitted() : progress;
+		if (countingWrites) {
+			current += buffer != null ? buffer.writeCommitted() : writeProgress;
+		}
+		final long now = System.nanoTime();
+		if (current != lastProgress) {
+			lastProgress = current;
+			lastProgressTime = now;
+		} else if (now - lastProgressTime >= timeouts.getIdleTimeout()) {
+			cancel(new TimeoutException("no progress for " + TimeUnit.NANOSECONDS.toMillis(timeouts.getIdleTimeout()) + " ms"));
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the pipes of a builder telling whether a slow pipe is bound by its writing or by its reading side. The metrics sum up all executions since the instance has been
+ * created: elements transferred, time each side spent blocked on a full resp. empty buffer, number of wake-ups after blocking, a histogram of the buffer occupancy and the
+ * duration from building up the buffer until both ends have been closed.
+ * <p>
+ * Each buffer records its figures in plain fields owned by either side and adds them to the striped counters of this class once, after both ends have been closed. So recording
+ * takes no lock and does not add contention between the sides. Blocked time is only measured when a side actually has to wait, the occupancy is sampled each time the writing side
+ * publishes elements.
+ * </p>
+ * <p>
+ * Metrics are recorded by the lock-free buffers, i.e. the engines {@code ringBuffer}, {@code adaptive}, {@code spillToDisk} and {@code chunked}. Connections of other engines,
+ * e.g. {@code piped}, are not metered. The {@code chunked} engine counts the transferred bytes as well, but samples its occupancy in chunks. An instance is thread-safe and may
+ * be shared by any number of pipes and builders.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public final class PipeMetrics {
+
+	/**
+	 * Number of buckets of the occupancy histogram, see {@link #getOccupancyHistogram()}.
+	 */
+	public static final int OCCUPANCY_BUCKETS = Integer.SIZE + 1;
+
+	private final LongAdder executions = new LongAdder();
+
+	private final LongAdder transferred = new LongAdder();
+
+	private final LongAdder duration = new LongAdder();
+
+	private final LongAdder producerBlocked = new LongAdder();
+
+	private final LongAdder consumerBlocked = new LongAdder();
+
+	private final LongAdder producerWakeups = new LongAdder();
+
+	private final LongAdder consumerWakeups = new LongAdder();
+
+	private final LongAdder[] occupancy = new LongAdder[OCCUPANCY_BUCKETS];
+
+	/**
+	 * Returns a new instance without any recorded execution.
+	 * 
+	 * @return {@link PipeMetrics}
+	 */
+	public static PipeMetrics create() {
+		return new PipeMetrics();
+	}
+
+	private PipeMetrics() {
+		for (int i = 0; i < OCCUPANCY_BUCKETS; i++) {
+			occupancy[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the bucket of the occupancy histogram for the given number of elements.
+	 * 
+	 * @param elements
+	 *            The number of elements written but not yet read.
+	 * @return index of bucket
+	 */
+	static int occupancyBucket(final long elements) {
+		return Math.min(OCCUPANCY_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(elements));
+	}
+
+	/**
+	 * Adds the figures of one finished execution.
+	 * 
+	 * @param transferred
+	 *            The number of elements read.
+	 * @param duration
+	 *            The duration of the execution in nanoseconds.
+	 * @param producerBlocked
+	 *            The time the writing side spent blocked in nanoseconds.
+	 * @param consumerBlocked
+	 *            The time the reading side spent blocked in nanoseconds.
+	 * @param producerWakeups
+	 *            The number of times the writing side has been woken up.
+	 * @param consumerWakeups
+	 *            The number of times the reading side has been woken up.
+	 * @param occupancy
+	 *            The occupancy histogram of the execution, {@code null} if no sample has been taken.
+	 */
+	void record(final long transferred, final long duration, final long producerBlocked, final long consumerBlocked, final long producerWakeups, final long consumerWakeups, final long[] occupancy) {
+		this.executions.increment();
+		this.transferred.add(transferred);
+		this.duration.add(duration);
+		this.producerBlocked.add(producerBlocked);
+		this.consumerBlocked.add(consumerBlocked);
+		this.producerWakeups.add(producerWakeups);
+		this.consumerWakeups.add(consumerWakeups);
+		if (occupancy != null) {
+			for (int i = 0; i < OCCUPANCY_BUCKETS; i++) {
+				if (occupancy[i] != 0) {
+					this.occupancy[i].add(occupancy[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of executions recorded, i.e. of buffers whose ends have both been closed.
+	 * 
+	 * @return number of executions
+	 */
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	/**
+	 * Returns the number of elements, i.e. bytes resp. chars, read from the pipes.
+	 * 
+	 * @return number of elements
+	 */
+	public long getTransferred() {
+		return transferred.sum();
+	}
+
+	/**
+	 * Returns the total duration of all executions, from building up the buffer until both ends have been closed.
+	 * 
+	 * @return {@link Duration}
+	 */
+	public Duration getDuration() {
+		return Duration.ofNanos(duration.sum());
+	}
+
+	/**
+	 * Returns the time the writing sides spent waiting for free space in a full buffer. A high value means the pipes are bound by their reading side.
+	 * 
+	 * @return {@link Duration}
+	 */
+	public Duration getProducerBlockedTime() {
+		return Duration.ofNanos(producerBlocked.sum());
+	}
+
+	/**
+	 * Returns the time the reading sides spent waiting for data in an empty buffer. A high value means the pipes are bound by their writing side.
+	 * 
+	 * @return {@link Duration}
+	 */
+	public Duration getConsumerBlockedTime() {
+		return Duration.ofNanos(consumerBlocked.sum());
+	}
+
+	/**
+	 * Returns the number of times a writing side has been woken up after waiting for free space.
+	 * 
+	 * @return number of wake-ups
+	 */
+	public long getProducerWakeups() {
+		return producerWakeups.sum();
+	}
+
+	/**
+	 * Returns the number of times a reading side has been woken up after waiting for data.
+	 * 
+	 * @return number of wake-ups
+	 */
+	public long getConsumerWakeups() {
+		return consumerWakeups.sum();
+	}
+
+	/**
+	 * Returns the histogram of the buffer occupancy sampled each time a writing side published elements. Bucket 0 counts the samples of an empty buffer, bucket {@code i} those
+	 * with at least 2<sup>i-1</sup> and less than 2<sup>i</sup> elements written but not yet read.
+	 * 
+	 * @return new array of {@link #OCCUPANCY_BUCKETS} counts
+	 */
+	public long[] getOccupancyHistogram() {
+		final long[] histogram = new long[OCCUPANCY_BUCKETS];
+		for (int i = 0; i < OCCUPANCY_BUCKETS; i++) {
+			histogram[i] = occupancy[i].sum();
+		}
+		return histogram;
+	}
+
+	@Override
+	public String toString() {
+		return "PipeMetrics [executions=" + getExecutions() + ", transferred=" + getTransferred() + ", duration=" + getDuration() + ", producerBlockedTime=" + getProducerBlockedTime()
+				+ ", consumerBlockedTime=" + getConsumerBlockedTime() + ", producerWakeups=" + getProducerWakeups() + ", consumerWakeups=" + getConsumerWakeups() + "]";
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Time limits of a pipe execution: a deadline for the whole execution and an idle timeout which is exceeded if no element has been read for the given time, resp. written
+ * while the read operation has not started yet. Both are disabled by default.
+ * 
+ * @author Dieter König
+ */
+final class PipeTimeouts {
+
+	static final PipeTimeouts NONE = new PipeTimeouts(0, 0);
+
+	// nanoseconds, 0 if disabled
+	private final long deadline;
+
+	private final long idleTimeout;
+
+	private PipeTimeouts(final long deadline, final long idleTimeout) {
+		this.deadline = deadline;
+		this.idleTimeout = idleTimeout;
+	}
+
+	private static long toNanos(final Duration duration) {
+		Objects.requireNonNull(duration);
+		if (duration.isNegative() || duration.isZero()) {
+			throw new IllegalArgumentException("timeout must be positive: " + duration);
+		}
+		return duration.compareTo(Duration.ofNanos(Long.MAX_VALUE)) < 0 ? duration.toNanos() : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param deadline
+	 *            The maximum duration of an execution, positive.
+	 * @return new instance with the given deadline
+	 * @throws IllegalStateException
+	 *             if the deadline has already been set
+	 */
+	PipeTimeouts withDeadline(final Duration deadline) {
+		final long nanos = toNanos(deadline);
+		if (this.deadline != 0) {
+			throw new IllegalStateException("deadline was already initialized");
+		}
+		return new PipeTimeouts(nanos, idleTimeout);
+	}
+
+	/**
+	 * @param idleTimeout
+	 *            The maximum duration without progress of the reading side, positive.
+	 * @return new instance with the given idle timeout
+	 * @throws IllegalStateException
+	 *             if the idle timeout has already been set
+	 */
+	PipeTimeouts withIdleTimeout(final Duration idleTimeout) {
+		final long nanos = toNanos(idleTimeout);
+		if (this.idleTimeout != 0) {
+			throw new IllegalStateException("idleTimeout was already initialized");
+		}
+		return new PipeTimeouts(deadline, nanos);
+	}
+
+	long getDeadline() {
+		return deadline;
+	}
+
+	long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+}
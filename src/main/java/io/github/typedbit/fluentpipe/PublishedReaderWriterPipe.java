@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of Pipe connecting a {@link Flow.Publisher} with a {@link Function}. The {@link Flow.Publisher} publishes {@link CharBuffer} items and the {@link Function} is
+ * reading from a {@link Reader} which in fact will read all chars published.
+ * <p>
+ * No thread is needed for the writing side: the items are queued by the threads of the {@link Flow.Publisher}, which are never blocked. One item is requested at a time and only
+ * while fewer chars than the capacity are queued, so the {@link Flow.Publisher} is throttled by the {@link Function} as with a buffer of the given capacity.
+ * </p>
+ * <p>
+ * This implementation subscribes to the {@link Flow.Publisher} and executes {@link Function#apply(Object)} of {@code readerMapper} <b>asynchronously</b> on the given
+ * {@link Executor}. The returned {@link CompletableFuture} completes exceptionally if the {@link Flow.Publisher} signaled an error. Closing the {@link Reader} cancels the
+ * subscription, so does cancelling the returned {@link CompletableFuture}.
+ * </p>
+ * <p>
+ * All methods are invoked only after {@link #get()} method of this {@link Supplier} is being called, each call subscribes once.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the result of the {@link Function}
+ */
+public class PublishedReaderWriterPipe<T> implements Supplier<CompletableFuture<T>> {
+
+	private final int capacity;
+
+	private final Executor readExecutor;
+
+	private final Flow.Publisher<? extends CharBuffer> publisher;
+
+	private final Function<Reader, T> readerMapper;
+
+	private final PipeTimeouts timeouts;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * 
+	 * @param capacity
+	 *            The number of chars which may be queued before no further item is requested. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 Ki chars.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operation on {@link Reader}.
+	 * @param publisher
+	 *            The {@link Flow.Publisher} of the chars to read.
+	 * @param readerMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
+	 */
+	public PublishedReaderWriterPipe(final int capacity, final Executor readExecutor, final Flow.Publisher<? extends CharBuffer> publisher, final Function<Reader, T> readerMapper) {
+		this(capacity, readExecutor, publisher, readerMapper, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param capacity
+	 *            The number of chars which may be queued before no further item is requested. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 Ki chars.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operation on {@link Reader}.
+	 * @param publisher
+	 *            The {@link Flow.Publisher} of the chars to read.
+	 * @param readerMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	PublishedReaderWriterPipe(final int capacity, final Executor readExecutor, final Flow.Publisher<? extends CharBuffer> publisher, final Function<Reader, T> readerMapper, final PipeTimeouts timeouts) {
+		this.capacity = capacity;
+		this.readExecutor = Objects.requireNonNull(readExecutor);
+		this.publisher = Objects.requireNonNull(publisher);
+		this.readerMapper = Objects.requireNonNull(readerMapper);
+		this.timeouts = Objects.requireNonNull(timeouts);
+	}
+
+	@Override
+	public CompletableFuture<T> get() {
+		// subscribe prior to the read task, items are queued until it starts
+		final CharPublisherSource source = new CharPublisherSource(capacity);
+		final Reader sourceReader = source.getReader();
+		final PipeGuard guard = new PipeGuard(timeouts, source, sourceReader);
+		publisher.subscribe(source);
+
+		// submit read task to given Executor
+		final CompletableFuture<T> readFuture = CompletableFuture.supplyAsync(guard.guard(() -> {
+			// close reader in both cases (success, failure) prior to death of thread otherwise the subscription will not be cancelled
+			try (final Reader reader = guard.watch(sourceReader)) {
+				final T result = readerMapper.apply(reader);
+				// check if the publisher failed even if not all chars have been read
+				source.checkPublisher();
+				return result;
+			} catch (IOException e) {
+				throw new RuntimeException("error reading published items", e);
+			}
+		}), readExecutor);
+
+		// cancellation of the future, a timeout or a failure closes the reader, which cancels the subscription and wakes up a blocked read operation
+		readFuture.whenComplete((result, failure) -> {
+			if (failure != null) {
+				guard.cancel(failure);
+			}
+			guard.finish();
+		});
+		guard.start(readFuture::completeExceptionally);
+
+		return readFuture;
+	}
+
+}
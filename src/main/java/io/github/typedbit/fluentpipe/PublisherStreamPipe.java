@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of Pipe publishing the bytes written by a {@link Consumer} to an {@link OutputStream} as {@link ByteBuffer} chunks to a {@link Flow.Subscriber}. No thread
+ * blocks on the reading side: the demand signaled by {@link Flow.Subscription#request(long)} is the backpressure on the writing side, which blocks as soon as it has filled a
+ * chunk nobody asked for.
+ * <p>
+ * Each subscription executes {@link Consumer#accept(Object)} of {@code outputStreamConsumer} <b>asynchronously</b> on the given {@link Executor} once. All signals to the
+ * {@link Flow.Subscriber} except {@link Flow.Subscriber#onSubscribe(Flow.Subscription)} are sent by that task. A chunk is published when it is full, when the
+ * {@link OutputStream} gets flushed and when the {@link Consumer} has finished, each chunk is a new {@link ByteBuffer} owned by the {@link Flow.Subscriber} afterwards. At most the
+ * chunks requested and one chunk being filled are held in memory.
+ * </p>
+ * <p>
+ * The {@link Flow.Subscriber} is completed after the {@link Consumer} has finished, it receives the error if the {@link Consumer} failed. After
+ * {@link Flow.Subscription#cancel()} any write operation fails with an {@link IOException} and no further signal is sent.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public class PublisherStreamPipe implements Flow.Publisher<ByteBuffer> {
+
+	/**
+	 * Default size of a chunk in bytes.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 13;
+
+	private final class Subscription extends OutputStream implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+		private final AtomicLong demand = new AtomicLong();
+
+		private volatile boolean cancelled;
+
+		private volatile IllegalArgumentException illegalRequest;
+
+		private volatile Thread parkedWriter;
+
+		// accessed by the writing side only
+		private ByteBuffer chunk;
+
+		private boolean closed;
+
+		private boolean terminated;
+
+		private Subscription(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				// the writing side sends the error, so signals are never sent concurrently
+				illegalRequest = new IllegalArgumentException("non-positive request " + n);
+				cancelled = true;
+			} else {
+				demand.accumulateAndGet(n, (current, requested) -> current + requested < 0 ? Long.MAX_VALUE : current + requested);
+			}
+			wakeUp();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			wakeUp();
+		}
+
+		@Override
+		public void run() {
+			try {
+				outputStreamConsumer.accept(this);
+				closed = true;
+				publish();
+				if (!cancelled) {
+					terminated = true;
+					subscriber.onComplete();
+				}
+			} catch (RuntimeException | Error | IOException e) {
+				if (!cancelled) {
+					terminated = true;
+					subscriber.onError(e);
+				}
+			}
+			final IllegalArgumentException error = illegalRequest;
+			if (error != null && !terminated) {
+				terminated = true;
+				subscriber.onError(error);
+			}
+			// the subscriber owns all chunks published, drop the one not published
+			chunk = null;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			checkOpen();
+			obtain().put((byte) b);
+			if (!chunk.hasRemaining()) {
+				publish();
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			checkOpen();
+			while (len > 0) {
+				final ByteBuffer target = obtain();
+				final int count = Math.min(len, target.remaining());
+				target.put(b, off, count);
+				if (!target.hasRemaining()) {
+					publish();
+				}
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			checkOpen();
+			publish();
+		}
+
+		@Override
+		public void close() {
+			// the chunk not published yet is published after the consumer has finished
+			closed = true;
+		}
+
+		private void checkOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (cancelled) {
+				throw new IOException("Subscription cancelled");
+			}
+		}
+
+		private ByteBuffer obtain() {
+			if (chunk == null) {
+				chunk = ByteBuffer.allocate(chunkSize);
+			}
+			return chunk;
+		}
+
+		private void publish() throws IOException {
+			if (chunk == null || chunk.position() == 0) {
+				return;
+			}
+			awaitDemand();
+			final ByteBuffer published = chunk;
+			chunk = null;
+			published.flip();
+			subscriber.onNext(published);
+		}
+
+		private void awaitDemand() throws IOException {
+			for (;;) {
+				if (cancelled) {
+					throw new IOException("Subscription cancelled");
+				}
+				final long current = demand.get();
+				if (current == Long.MAX_VALUE) {
+					// unbounded demand is never decremented
+					return;
+				}
+				if (current > 0 && demand.compareAndSet(current, current - 1)) {
+					return;
+				}
+				if (current == 0) {
+					parkedWriter = Thread.currentThread();
+					try {
+						// re-check after registration, otherwise a concurrent request() or cancel() might miss this thread
+						if (demand.get() == 0 && !cancelled) {
+							ManagedBlocking.park(this);
+						}
+					} finally {
+						parkedWriter = null;
+					}
+					if (Thread.currentThread().isInterrupted()) {
+						throw new IOException("interrupted while waiting for demand");
+					}
+				}
+			}
+		}
+
+		private void wakeUp() {
+			final Thread writer = parkedWriter;
+			if (writer != null) {
+				LockSupport.unpark(writer);
+			}
+		}
+
+	}
+
+	private final int chunkSize;
+
+	private final Executor writeExecutor;
+
+	private final Consumer<OutputStream> outputStreamConsumer;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Flow.Publisher} of the bytes written.
+	 * 
+	 * @param chunkSize
+	 *            The size of each chunk in bytes. If the provided value is negative or zero then this implementation falls back to {@link #DEFAULT_CHUNK_SIZE}.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 */
+	public PublisherStreamPipe(final int chunkSize, final Executor writeExecutor, final Consumer<OutputStream> outputStreamConsumer) {
+		this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+		this.writeExecutor = Objects.requireNonNull(writeExecutor);
+		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+		final Subscription subscription = new Subscription(Objects.requireNonNull(subscriber));
+		subscriber.onSubscribe(subscription);
+		try {
+			writeExecutor.execute(subscription);
+		} catch (RejectedExecutionException e) {
+			subscription.cancelled = true;
+			subscriber.onError(e);
+		}
+	}
+
+}
@@ -15,12 +15,23 @@
  */
 package io.github.typedbit.fluentpipe;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -30,6 +41,7 @@ import io.github.typedbit.fluentpipe.builder.ConsumedMappedPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.ConsumedWriterPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.InitialReaderWriterPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.InitialStreamPipeBuilder;
+import io.github.typedbit.fluentpipe.builder.PublishedReaderWriterPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.ReadExecutorDefinedPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.SizedReaderWriterPipeBuilder;
 
@@ -48,10 +60,31 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 			this.readerMapper = Objects.requireNonNull(readerMapper);
 		}
 
+		@Override
+		public ReadExecutorDefinedPipeBuilder<T> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
 		@Override
 		public Supplier<CompletableFuture<T>> asyncWrite(Executor writeExecutor) {
 			asyncWriteInternal(writeExecutor);
-			return new CompletableReaderWriterPipe<T>(getPipeSize(), getReadExecutor(), getWriteExecutor(), getWriterConsumer(), readerMapper);
+			return new CompletableReaderWriterPipe<T>(getEngine(), getReadExecutor(), getWriteExecutor(), getWriterConsumer(), readerMapper, getTimeouts());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> inlineIfFits(final Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			return new InlineReaderWriterPipe<T>(getEngine(), readExecutor, getWriterConsumer(), readerMapper, getTimeouts());
 		}
 
 		@Override
@@ -62,6 +95,96 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 
 	}
 
+	private static class BroadcastPipeBuilder<T, R> extends ReaderWriterPipeBuilder implements ConsumedMappedPipeBuilder<R>, ReadExecutorDefinedPipeBuilder<R> {
+
+		private final List<Function<Reader, T>> readerMappers;
+
+		private final Function<List<T>, R> resultMapper;
+
+		private BroadcastPipeBuilder(List<Function<Reader, T>> readerMappers, Function<List<T>, R> resultMapper) {
+			this.readerMappers = Objects.requireNonNull(readerMappers);
+			this.resultMapper = resultMapper;
+		}
+
+		@Override
+		public ReadExecutorDefinedPipeBuilder<R> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> asyncWrite(Executor writeExecutor) {
+			asyncWriteInternal(writeExecutor);
+			final BroadcastReaderWriterPipe<T> pipe = new BroadcastReaderWriterPipe<T>(getBufferSize(), getReadExecutor(), getWriteExecutor(), getWriterConsumer(), readerMappers);
+			return () -> pipe.get().thenApply(resultMapper);
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> inlineIfFits(final Executor readExecutor) {
+			// several readers cannot run on the writing thread one after the other
+			return asyncRead(readExecutor).asyncWrite(readExecutor);
+		}
+
+		@Override
+		public ReadExecutorDefinedPipeBuilder<R> asyncRead(Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			return this;
+		}
+
+	}
+
+	private static class PublishedPipeBuilder implements PublishedReaderWriterPipeBuilder {
+
+		private final int capacity;
+
+		private final Executor defaultExecutor;
+
+		private final Flow.Publisher<? extends CharBuffer> publisher;
+
+		private final PipeTimeouts timeouts;
+
+		private PublishedPipeBuilder(final int capacity, final Executor defaultExecutor, final Flow.Publisher<? extends CharBuffer> publisher, final PipeTimeouts timeouts) {
+			this.capacity = capacity;
+			this.defaultExecutor = defaultExecutor;
+			this.publisher = Objects.requireNonNull(publisher);
+			this.timeouts = timeouts;
+		}
+
+		@Override
+		public Supplier<CompletableFuture<Void>> forReader(final Consumer<Reader> readerConsumer) {
+			return forReader(readerConsumer, defaultExecutor);
+		}
+
+		@Override
+		public Supplier<CompletableFuture<Void>> forReader(final Consumer<Reader> readerConsumer, final Executor readExecutor) {
+			Objects.requireNonNull(readerConsumer);
+			return mapReader((r) -> {
+				readerConsumer.accept(r);
+				return null;
+			}, readExecutor);
+		}
+
+		@Override
+		public <T> Supplier<CompletableFuture<T>> mapReader(final Function<Reader, T> readerMapper) {
+			return mapReader(readerMapper, defaultExecutor);
+		}
+
+		@Override
+		public <T> Supplier<CompletableFuture<T>> mapReader(final Function<Reader, T> readerMapper, final Executor readExecutor) {
+			return new PublishedReaderWriterPipe<T>(capacity, readExecutor, publisher, readerMapper, timeouts);
+		}
+
+	}
+
 	private static class ConsumedPipeBuilder extends ReaderWriterPipeBuilder implements ConsumedConsumedPipeBuilder, Supplier<Callable<Void>> {
 
 		private final Consumer<Reader> readerConsumer;
@@ -70,6 +193,16 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 			this.readerConsumer = Objects.requireNonNull(readerConsumer);
 		}
 
+		@Override
+		public Supplier<Callable<Void>> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<Callable<Void>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
 		public Supplier<Callable<Void>> asyncRead(final Executor readExecutor) {
 			asyncReadInternal(readExecutor);
 			return this;
@@ -80,13 +213,28 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 			return this;
 		}
 
+		@Override
+		public Supplier<Callable<Void>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<Callable<Void>> inlineIfFits(final Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			final InlineReaderWriterPipe<Void> pipe = new InlineReaderWriterPipe<Void>(getEngine(), readExecutor, getWriterConsumer(), (r) -> {
+				readerConsumer.accept(r);
+				return null;
+			}, getTimeouts());
+			return () -> pipe::call;
+		}
+
 		@Override
 		public Callable<Void> get() {
 			if (getReadExecutor() != null) {
-				return new ReadAsyncReaderWriterPipe(getPipeSize(), getReadExecutor(), getWriterConsumer(), readerConsumer);
+				return new ReadAsyncReaderWriterPipe(getEngine(), getReadExecutor(), getWriterConsumer(), readerConsumer, getTimeouts());
 			}
 			if (getWriteExecutor() != null) {
-				return new WriteAsyncReaderWriterPipe(getPipeSize(), getWriteExecutor(), getWriterConsumer(), readerConsumer);
+				return new WriteAsyncReaderWriterPipe(getEngine(), getWriteExecutor(), getWriterConsumer(), readerConsumer, getTimeouts());
 			}
 			throw new IllegalStateException("readExecutor and writeExecutor are not initialized");
 		}
@@ -106,7 +254,18 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 
 	private Executor writeExecutor;
 
-	private int pipeSize;
+	private ReaderWriterPipeEngine engine;
+
+	private Executor defaultExecutor = ForkJoinPool.commonPool();
+
+	private int bufferSize;
+
+	private PipeMetrics metrics;
+
+	// engine configured by pipeSize, ringBuffer or virtualThreads, the only ones a broadcast pipe can replace by its shared buffer
+	private boolean sizedEngine;
+
+	private PipeTimeouts timeouts = PipeTimeouts.NONE;
 
 	private Consumer<Writer> writerConsumer;
 
@@ -115,7 +274,29 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 	}
 
 	public ConsumedConsumedPipeBuilder forReader(final Consumer<Reader> readerConsumer) {
-		return (ConsumedPipeBuilder) new ConsumedPipeBuilder(readerConsumer).pipeSize(pipeSize).forWriter(writerConsumer);
+		return copyTo(new ConsumedPipeBuilder(readerConsumer));
+	}
+
+	private <B extends ReaderWriterPipeBuilder> B copyTo(final B builder) {
+		final ReaderWriterPipeBuilder target = builder;
+		target.engine = engine;
+		target.defaultExecutor = defaultExecutor;
+		target.bufferSize = bufferSize;
+		target.timeouts = timeouts;
+		target.forWriter(writerConsumer);
+		return builder;
+	}
+
+	private void checkBroadcast() {
+		if (!sizedEngine) {
+			throw new IllegalStateException("broadcast pipe requires engine pipeSize, ringBuffer or virtualThreads");
+		}
+		if (metrics != null) {
+			throw new IllegalStateException("broadcast pipe does not support metrics");
+		}
+		if (timeouts != PipeTimeouts.NONE) {
+			throw new IllegalStateException("broadcast pipe does not support deadline or idleTimeout");
+		}
 	}
 
 	private void checkOutput() {
@@ -124,9 +305,78 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> ConsumedMappedPipeBuilder<T> mapReader(final Function<Reader, T> readerMapper) {
-		return (MappedPipeBuilder<T>) new MappedPipeBuilder<T>(readerMapper).pipeSize(pipeSize).forWriter(writerConsumer);
+		return copyTo(new MappedPipeBuilder<T>(readerMapper));
+	}
+
+	public ConsumedConsumedPipeBuilder forInput(final Charset charset, final CodecSide side, final Consumer<InputStream> inputStreamConsumer) {
+		Objects.requireNonNull(charset);
+		Objects.requireNonNull(inputStreamConsumer);
+		if (Objects.requireNonNull(side) == CodecSide.WRITING) {
+			return StreamPipeBuilder.encoding(this, charset).forInput(inputStreamConsumer);
+		}
+		return forReader((r) -> inputStreamConsumer.accept(new EncodingInputStream(r, charset)));
+	}
+
+	public <T> ConsumedMappedPipeBuilder<T> mapInput(final Charset charset, final CodecSide side, final Function<InputStream, T> inputStreamMapper) {
+		Objects.requireNonNull(charset);
+		Objects.requireNonNull(inputStreamMapper);
+		if (Objects.requireNonNull(side) == CodecSide.WRITING) {
+			return StreamPipeBuilder.encoding(this, charset).mapInput(inputStreamMapper);
+		}
+		return mapReader((r) -> inputStreamMapper.apply(new EncodingInputStream(r, charset)));
+	}
+
+	/**
+	 * Returns a builder of a char pipe whose write operation decodes the bytes written by the write operation of the given byte pipe, configured like the given byte pipe.
+	 * 
+	 * @param bytes
+	 *            The builder of the byte pipe.
+	 * @param charset
+	 *            The {@link Charset} of the written bytes.
+	 * @return configured builder instance
+	 */
+	static ConsumedWriterPipeBuilder decoding(final StreamPipeBuilder bytes, final Charset charset) {
+		final ReaderWriterPipeBuilder builder = new ReaderWriterPipeBuilder();
+		builder.defaultExecutor = bytes.getDefaultExecutor();
+		builder.timeouts = bytes.getTimeouts();
+		builder.ringBuffer(bytes.getBufferSize());
+		if (bytes.getMetrics() != null) {
+			builder.metrics(bytes.getMetrics());
+		}
+		final Consumer<OutputStream> outputStreamConsumer = bytes.getOutputStreamConsumer();
+		return builder.forWriter((w) -> {
+			final DecodingOutputStream output = new DecodingOutputStream(w, charset);
+			outputStreamConsumer.accept(output);
+			try {
+				output.finish();
+			} catch (IOException e) {
+				throw new RuntimeException("error during writing to Writer", e);
+			}
+		});
+	}
+
+	public ConsumedMappedPipeBuilder<Void> forReaders(final List<Consumer<Reader>> readerConsumers) {
+		checkBroadcast();
+		final List<Function<Reader, Void>> readerMappers = new ArrayList<>(readerConsumers.size());
+		for (final Consumer<Reader> readerConsumer : readerConsumers) {
+			Objects.requireNonNull(readerConsumer);
+			readerMappers.add((r) -> {
+				readerConsumer.accept(r);
+				return null;
+			});
+		}
+		return copyTo(new BroadcastPipeBuilder<Void, Void>(readerMappers, (results) -> null));
+	}
+
+	public <T> ConsumedMappedPipeBuilder<List<T>> mapReaders(final List<Function<Reader, T>> readerMappers) {
+		checkBroadcast();
+		return copyTo(new BroadcastPipeBuilder<T, List<T>>(new ArrayList<>(readerMappers), (results) -> results));
+	}
+
+	public ConsumedWriterPipeBuilder through(final BiConsumer<Reader, Writer> stage) {
+		this.writerConsumer = new ReaderWriterStage(engine, defaultExecutor, writerConsumer, stage);
+		return this;
 	}
 
 	public ConsumedWriterPipeBuilder forWriter(final Consumer<Writer> writerConsumer) {
@@ -150,8 +400,47 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 	}
 
 	@Override
-	public SizedReaderWriterPipeBuilder pipeSize(int pipeSize) {
-		this.pipeSize = pipeSize;
+	public PublishedReaderWriterPipeBuilder forPublisher(final Flow.Publisher<? extends CharBuffer> publisher) {
+		if (metrics != null) {
+			throw new IllegalStateException("published pipe does not support metrics");
+		}
+		return new PublishedPipeBuilder(bufferSize, defaultExecutor, publisher, timeouts);
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder metrics(final PipeMetrics metrics) {
+		Objects.requireNonNull(metrics);
+		if (this.metrics != null) {
+			throw new IllegalStateException("metrics was already initialized");
+		}
+		this.metrics = metrics;
+		final ReaderWriterPipeEngine meteredEngine = engine;
+		this.engine = () -> {
+			final ReaderWriterPipeEngine.Connection connection = meteredEngine.connect();
+			if (connection instanceof AbstractPipeBuffer) {
+				((AbstractPipeBuffer) connection).meter(metrics);
+			}
+			return connection;
+		};
+		return this;
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder deadline(final Duration deadline) {
+		this.timeouts = timeouts.withDeadline(deadline);
+		return this;
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder idleTimeout(final Duration idleTimeout) {
+		this.timeouts = timeouts.withIdleTimeout(idleTimeout);
+		return this;
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder engine(ReaderWriterPipeEngine engine) {
+		this.engine = Objects.requireNonNull(engine);
+		this.sizedEngine = false;
 		return this;
 	}
 
@@ -163,8 +452,49 @@ public class ReaderWriterPipeBuilder implements InitialReaderWriterPipeBuilder,
 		return writeExecutor;
 	}
 
-	protected int getPipeSize() {
-		return pipeSize;
+	@Override
+	public SizedReaderWriterPipeBuilder pipeSize(int pipeSize) {
+		this.bufferSize = pipeSize;
+		InitialReaderWriterPipeBuilder.super.pipeSize(pipeSize);
+		this.sizedEngine = true;
+		return this;
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder ringBuffer(int capacity) {
+		this.bufferSize = capacity;
+		InitialReaderWriterPipeBuilder.super.ringBuffer(capacity);
+		this.sizedEngine = true;
+		return this;
+	}
+
+	@Override
+	public SizedReaderWriterPipeBuilder virtualThreads(int capacity) {
+		this.bufferSize = capacity;
+		this.defaultExecutor = VirtualThreads.executor();
+		engine(ReaderWriterPipeEngine.ringBuffer(capacity));
+		this.sizedEngine = true;
+		return this;
+	}
+
+	protected Executor getDefaultExecutor() {
+		return defaultExecutor;
+	}
+
+	PipeTimeouts getTimeouts() {
+		return timeouts;
+	}
+
+	protected int getBufferSize() {
+		return bufferSize;
+	}
+
+	protected ReaderWriterPipeEngine getEngine() {
+		return engine;
+	}
+
+	PipeMetrics getMetrics() {
+		return metrics;
 	}
 
 	protected Consumer<Writer> getWriterConsumer() {
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Engine building up the buffer which connects the {@link Writer} of a pipe with its {@link Reader}.
+ * <p>
+ * Each call to {@link #connect()} must return a new, independent {@link Connection} because a pipe instance may be executed multiple times.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+@FunctionalInterface
+public interface ReaderWriterPipeEngine {
+
+	/**
+	 * Both ends of a char pipe. Closing the {@link Writer} signals EOF to the {@link Reader} after all written chars have been read, closing the {@link Reader} makes any further
+	 * write operation on the {@link Writer} fail.
+	 * 
+	 * @author Dieter König
+	 */
+	public interface Connection {
+
+		/**
+		 * Returns the reading end of the pipe.
+		 * 
+		 * @return {@link Reader}
+		 */
+		public Reader getReader();
+
+		/**
+		 * Returns the writing end of the pipe.
+		 * 
+		 * @return {@link Writer}
+		 */
+		public Writer getWriter();
+
+	}
+
+	/**
+	 * Returns an engine connecting a {@link PipedWriter} with a {@link PipedReader}.
+	 * 
+	 * @param pipeSize
+	 *            The size of pipe buffer to use. If the provided value is negative or zero then this implementation falls back to default size usage.
+	 * @return {@link ReaderWriterPipeEngine}
+	 */
+	public static ReaderWriterPipeEngine piped(final int pipeSize) {
+		return () -> {
+			final ManagedPipedReader pipedReader = new ManagedPipedReader(pipeSize);
+			final PipedWriter pipedWriter = new ManagedPipedWriter(pipedReader);
+			return new Connection() {
+
+				@Override
+				public Reader getReader() {
+					return pipedReader;
+				}
+
+				@Override
+				public Writer getWriter() {
+					return pipedWriter;
+				}
+
+			};
+		};
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a lock-free single-producer/single-consumer ring buffer of chars. Chars are transferred in bulk, i.e. {@code char[]},
+	 * {@link String}, {@link StringBuilder} and {@link java.nio.CharBuffer} are copied directly into the ring buffer without intermediate copies and
+	 * {@link Reader#read(java.nio.CharBuffer)} copies directly into the target buffer.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 Ki chars.
+	 * @return {@link ReaderWriterPipeEngine}
+	 */
+	public static ReaderWriterPipeEngine ringBuffer(final int capacity) {
+		return () -> new CharRingBuffer(capacity);
+	}
+
+	/**
+	 * Returns an engine like {@link #ringBuffer(int)} which takes the array backing the ring buffer from the given pool and returns it after both ends have been closed. Share
+	 * the engine, or the pool, between pipes executed over and over again, so that in steady state no buffer gets allocated.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link ReaderWriterPipeEngine}
+	 */
+	public static ReaderWriterPipeEngine ringBuffer(final int capacity, final BufferPool pool) {
+		Objects.requireNonNull(pool);
+		return () -> new CharRingBuffer(capacity, pool);
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a lock-free single-producer/single-consumer buffer which adapts its capacity to the workload. The buffer starts with the minimum
+	 * capacity; while the writing side keeps finding the buffer full it grows in segments up to the maximum capacity, when the reading side has caught up the additional
+	 * segments are released again. So a pipe with a bursty producer gets a large buffer only for as long as it needs one.
+	 * 
+	 * @param minimumCapacity
+	 *            The capacity in chars the buffer starts with and shrinks back to.
+	 * @param maximumCapacity
+	 *            The capacity in chars the buffer may grow to. If a provided value is negative or zero then this implementation falls back to default capacity of 1 Ki resp. 64 Mi chars.
+	 * @return {@link ReaderWriterPipeEngine}
+	 * @throws IllegalArgumentException
+	 *             if the maximum capacity is less than the minimum capacity
+	 */
+	public static ReaderWriterPipeEngine adaptive(final int minimumCapacity, final int maximumCapacity) {
+		AbstractSegmentedBuffer.checkCapacities(minimumCapacity, maximumCapacity);
+		return () -> new CharSegmentedBuffer(minimumCapacity, maximumCapacity);
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a ring buffer which spills to a memory-mapped temporary file once it is full, so the writing side never waits for a slow reading
+	 * side. The reading side drains memory and file in order. The heap memory used is bounded by the capacity of the ring buffer, the file is created on first spill and
+	 * deleted after both ends have been closed.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 Ki.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 * @return {@link ReaderWriterPipeEngine}
+	 */
+	public static ReaderWriterPipeEngine spillToDisk(final int capacity, final Path directory) {
+		return () -> new CharSpillBuffer(capacity, directory);
+	}
+
+	/**
+	 * Creates a new pair of connected {@link Reader} and {@link Writer}.
+	 * 
+	 * @return {@link Connection}
+	 * @throws IOException
+	 *             if setting up the pipe failed
+	 */
+	public Connection connect() throws IOException;
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Stage of a pipeline: a {@link Consumer} writing to a {@link Writer} which in fact runs the preceding {@link Consumer} on a thread of its own, connected by a pipe of its
+ * own, and transforms the {@link Reader} of that pipe into the given {@link Writer}.
+ * <p>
+ * Stages nest, so a chain of stages needs no intermediate materialization: every stage holds only the chars of its own bounded buffer. A failure anywhere tears down the chain.
+ * A failing stage closes its {@link Reader}, so the write operations of all preceding stages fail; a failing preceding stage makes the {@link Reader} fail instead of
+ * signaling EOF, so the failure is passed on to all following stages.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class ReaderWriterStage extends AbstractPipe implements Consumer<Writer> {
+
+	private static final class StageReader extends FilterReader {
+
+		private final Upstream upstream;
+
+		private StageReader(final Reader reader, final Upstream upstream) {
+			super(reader);
+			this.upstream = upstream;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return upstream.check(super.read());
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			return upstream.check(super.read(cbuf, off, len));
+		}
+
+	}
+
+	private static final class Upstream {
+
+		// set before the Writer is closed, so a reading side seeing EOF sees the failure as well
+		private volatile RuntimeException failure;
+
+		private int check(final int result) throws IOException {
+			if (result < 0 && failure != null) {
+				throw new IOException("preceding stage failed", failure);
+			}
+			return result;
+		}
+
+	}
+
+	private final ReaderWriterPipeEngine engine;
+
+	private final Executor executor;
+
+	private final Consumer<Writer> writerConsumer;
+
+	private final BiConsumer<Reader, Writer> stage;
+
+	/**
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} building up the buffer connecting the preceding {@link Consumer} with the stage.
+	 * @param executor
+	 *            The {@link Executor} to run the preceding {@link Consumer} on.
+	 * @param writerConsumer
+	 *            The preceding {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param stage
+	 *            The transformation reading the chars written by the preceding {@link Consumer} and writing the result.
+	 */
+	ReaderWriterStage(final ReaderWriterPipeEngine engine, final Executor executor, final Consumer<Writer> writerConsumer, final BiConsumer<Reader, Writer> stage) {
+		this.engine = Objects.requireNonNull(engine);
+		this.executor = Objects.requireNonNull(executor);
+		this.writerConsumer = Objects.requireNonNull(writerConsumer);
+		this.stage = Objects.requireNonNull(stage);
+	}
+
+	@Override
+	public void accept(final Writer writer) {
+		// build up a pipe
+		final ReaderWriterPipeEngine.Connection connection;
+		try {
+			connection = engine.connect();
+		} catch (IOException e) {
+			throw new RuntimeException("error setting up pipe", e);
+		}
+		final Upstream upstream = new Upstream();
+
+		// submit preceding write task to given Executor
+		final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(writerRunnable(connection.getWriter(), (w) -> {
+			try {
+				writerConsumer.accept(w);
+			} catch (RuntimeException e) {
+				upstream.failure = e;
+				throw e;
+			}
+		}), executor);
+
+		// close reader in both cases (success, failure) prior to death of thread otherwise the preceding stage will block infinitely
+		try (final Reader reader = new StageReader(connection.getReader(), upstream)) {
+			stage.accept(reader, writer);
+		} catch (IOException e) {
+			throw new RuntimeException("error closing Reader", e);
+		}
+
+		// check if preceding write operation failed with an exception and if so throw it
+		try {
+			writeFuture.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("error during writing to Writer", e);
+		}
+	}
+
+}
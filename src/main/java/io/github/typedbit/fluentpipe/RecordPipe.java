@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of Pipe connecting a producer emitting records to a {@link RecordSink} with a {@link Function} consuming them as lazily evaluated {@link Stream}. The records
+ * cross the threads through a {@link RecordRingBuffer} in batches.
+ * <p>
+ * Each operation is executed <b>asynchronously</b> on its {@link Executor} or, if none is given, <b>directly</b> on the thread calling {@link #get()}. In inline mode the
+ * producer is executed directly and the consumer afterwards on the same thread, unless the buffer gets full, which hands the consumer over to the read {@link Executor}, see
+ * {@link InlineStreamPipe}.
+ * </p>
+ * <p>
+ * Both operations are invoked only after {@link #get()} method of this {@link Supplier} is being called. The consumer should consume the {@link Stream} until its end, otherwise
+ * the producer fails on its next record.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the records
+ * @param <R>
+ *            Type of the result
+ */
+public class RecordPipe<T, R> implements Supplier<CompletableFuture<R>> {
+
+	private final int capacity;
+
+	private final int batchSize;
+
+	private final Executor readExecutor;
+
+	private final Executor writeExecutor;
+
+	private final boolean inline;
+
+	private final Consumer<? super RecordSink<T>> producer;
+
+	private final Function<? super Stream<T>, R> consumer;
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Supplier} of {@link CompletableFuture} to execute the piped processing.
+	 * 
+	 * @param capacity
+	 *            The capacity of the buffer in records. If the provided value is negative or zero then this implementation falls back to default capacity.
+	 * @param batchSize
+	 *            The number of records handed over at once. If the provided value is negative or zero then this implementation falls back to default batch size.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the consumer, {@code null} to execute it directly.
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the producer, {@code null} to execute it directly.
+	 * @param inline
+	 *            {@code true} to execute the consumer directly after the producer unless the buffer gets full, requires a read {@link Executor} and no write {@link Executor}.
+	 * @param producer
+	 *            The {@link Consumer} emitting the records to a {@link RecordSink}.
+	 * @param consumer
+	 *            {@link Function} which consumes the records and produces a result.
+	 * @throws IllegalArgumentException
+	 *             if no {@link Executor} is given or inline mode is requested with an invalid combination of {@link Executor}s
+	 */
+	public RecordPipe(final int capacity, final int batchSize, final Executor readExecutor, final Executor writeExecutor, final boolean inline, final Consumer<? super RecordSink<T>> producer,
+			final Function<? super Stream<T>, R> consumer) {
+		if (readExecutor == null && writeExecutor == null) {
+			throw new IllegalArgumentException("at least one of read executor and write executor is required");
+		}
+		if (inline && (readExecutor == null || writeExecutor != null)) {
+			throw new IllegalArgumentException("inline mode requires a read executor and no write executor");
+		}
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.readExecutor = readExecutor;
+		this.writeExecutor = writeExecutor;
+		this.inline = inline;
+		this.producer = Objects.requireNonNull(producer);
+		this.consumer = Objects.requireNonNull(consumer);
+	}
+
+	private static <T> void complete(final CompletableFuture<T> source, final CompletableFuture<T> target) {
+		source.whenComplete((result, failure) -> {
+			if (failure != null) {
+				target.completeExceptionally(failure);
+			} else {
+				target.complete(result);
+			}
+		});
+	}
+
+	private static <T> CompletableFuture<T> supply(final Supplier<T> operation) {
+		try {
+			return CompletableFuture.completedFuture(operation.get());
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Executes the piped processing and waits for its result, for use as {@link java.util.concurrent.Callable}.
+	 * 
+	 * @return result of the consumer
+	 * @throws Exception
+	 *             if the execution failed or the calling thread has been interrupted while waiting
+	 */
+	R call() throws Exception {
+		final CompletableFuture<R> future = get();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			// free the threads of the operations as well
+			future.cancel(true);
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<R> get() {
+		// build up a pipe
+		final RecordRingBuffer<T> buffer = new RecordRingBuffer<>(capacity, batchSize);
+		final RecordRingBuffer<T>.Source source = buffer.getSource();
+		final PipeGuard guard = new PipeGuard(PipeTimeouts.NONE, buffer, source);
+
+		final CompletableFuture<R> future = new CompletableFuture<>();
+		final CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+		final Runnable write = guard.guard(() -> {
+			// close sink in both cases (success, failure) prior to death of thread otherwise the consumer will block infinitely
+			try (final RecordSink<T> sink = buffer.getSink()) {
+				producer.accept(sink);
+			}
+		});
+		final Supplier<R> read = guard.guard(() -> {
+			try (final Stream<T> records = buffer.stream()) {
+				return consumer.apply(records);
+			}
+		});
+
+		// cancellation of the future or a failure tears down both operations, so that none of them keeps blocking a thread
+		future.whenComplete((result, failure) -> {
+			if (failure != null) {
+				guard.cancel(failure);
+			}
+			guard.finish();
+		});
+		guard.start(future::completeExceptionally);
+
+		final AtomicBoolean readStarted = new AtomicBoolean();
+		final Runnable startRead = () -> {
+			readStarted.set(true);
+			complete(CompletableFuture.supplyAsync(read, readExecutor).thenCombine(writeFuture, (result, ignored) -> result), future);
+		};
+		if (inline) {
+			// the producer hands the consumer over to the executor as soon as it would have to wait for it
+			buffer.onFull(startRead);
+		} else if (readExecutor != null) {
+			startRead.run();
+		}
+
+		final CompletableFuture<Void> writeResult = writeExecutor != null ? CompletableFuture.runAsync(write, writeExecutor) : supply(() -> {
+			write.run();
+			return null;
+		});
+		writeResult.whenComplete((result, failure) -> {
+			if (failure != null) {
+				final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+				writeFuture.completeExceptionally(new RuntimeException("error during writing records", cause));
+			} else {
+				writeFuture.complete(null);
+			}
+		});
+
+		if (!readStarted.get()) {
+			if (writeFuture.isCompletedExceptionally()) {
+				// the producer failed before the consumer has been started
+				source.close();
+				complete(writeFuture.thenApply((ignored) -> null), future);
+			} else {
+				// no read executor or, in inline mode, all records fit into the buffer, so read on this thread
+				complete(supply(read).thenCombine(writeFuture, (result, ignored) -> result), future);
+			}
+		}
+		return future;
+	}
+
+}
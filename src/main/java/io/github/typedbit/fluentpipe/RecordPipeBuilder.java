@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import io.github.typedbit.fluentpipe.builder.ConsumedConsumedPipeBuilder;
+import io.github.typedbit.fluentpipe.builder.ConsumedMappedPipeBuilder;
+import io.github.typedbit.fluentpipe.builder.ReadExecutorDefinedPipeBuilder;
+
+/**
+ * Builder for a pipe carrying records instead of bytes or chars. The producer emits records to a {@link RecordSink}, the consumer receives them as lazily evaluated
+ * {@link Stream} resp. {@link Iterator}. Records are handed over as they are, so nothing gets formatted and parsed again, and they cross the threads in batches of bounded size, so
+ * the synchronization cost is paid once per batch.
+ * 
+ * <pre>
+ * long count = RecordPipeBuilder.&lt;Order&gt;create().capacity(4096).batchSize(128)
+ * 	.forSink((sink) -&gt; orders.forEach(sink))
+ * 	.mapStream((stream) -&gt; stream.filter(Order::isOpen).count())
+ * 	.asyncRead().asyncWrite().get().join();
+ * </pre>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the records
+ */
+public class RecordPipeBuilder<T> {
+
+	private class ConsumedPipeBuilder implements ConsumedConsumedPipeBuilder {
+
+		private final Function<? super Stream<T>, Void> consumer;
+
+		private ConsumedPipeBuilder(final Consumer<? super Stream<T>> consumer) {
+			Objects.requireNonNull(consumer);
+			this.consumer = (records) -> {
+				consumer.accept(records);
+				return null;
+			};
+		}
+
+		@Override
+		public Supplier<Callable<Void>> asyncRead(final Executor executor) {
+			return callable(Objects.requireNonNull(executor), null, false);
+		}
+
+		@Override
+		public Supplier<Callable<Void>> asyncWrite(final Executor executor) {
+			return callable(null, Objects.requireNonNull(executor), false);
+		}
+
+		@Override
+		public Supplier<Callable<Void>> inlineIfFits(final Executor executor) {
+			return callable(Objects.requireNonNull(executor), null, true);
+		}
+
+		private Supplier<Callable<Void>> callable(final Executor readExecutor, final Executor writeExecutor, final boolean inline) {
+			final RecordPipe<T, Void> pipe = new RecordPipe<>(capacity, batchSize, readExecutor, writeExecutor, inline, producer, consumer);
+			return () -> pipe::call;
+		}
+
+	}
+
+	private class MappedPipeBuilder<R> implements ConsumedMappedPipeBuilder<R>, ReadExecutorDefinedPipeBuilder<R> {
+
+		private final Function<? super Stream<T>, R> consumer;
+
+		private Executor readExecutor;
+
+		private MappedPipeBuilder(final Function<? super Stream<T>, R> consumer) {
+			this.consumer = Objects.requireNonNull(consumer);
+		}
+
+		@Override
+		public ReadExecutorDefinedPipeBuilder<R> asyncRead(final Executor readExecutor) {
+			if (this.readExecutor != null) {
+				throw new IllegalStateException("readExecutor was already initialized");
+			}
+			this.readExecutor = Objects.requireNonNull(readExecutor);
+			return this;
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> asyncWrite(final Executor writeExecutor) {
+			return new RecordPipe<>(capacity, batchSize, readExecutor, Objects.requireNonNull(writeExecutor), false, producer, consumer);
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> inlineIfFits(final Executor readExecutor) {
+			return new RecordPipe<>(capacity, batchSize, Objects.requireNonNull(readExecutor), null, true, producer, consumer);
+		}
+
+	}
+
+	private int capacity;
+
+	private int batchSize;
+
+	private Consumer<? super RecordSink<T>> producer;
+
+	private RecordPipeBuilder() {
+		// hidden to ensure proper initialization via interfaces
+	}
+
+	/**
+	 * Returns a new instance of {@link RecordPipeBuilder}.
+	 * 
+	 * @param <T>
+	 *            Type of the records
+	 * @return {@link RecordPipeBuilder}
+	 */
+	public static <T> RecordPipeBuilder<T> create() {
+		return new RecordPipeBuilder<>();
+	}
+
+	/**
+	 * Configures this builder to use a buffer of the given capacity. If the provided value is negative or zero then this implementation falls back to default capacity of 1 Ki
+	 * records.
+	 * 
+	 * @param capacity
+	 *            The maximum number of records in flight, rounded up to the next power of two.
+	 * @return {@link RecordPipeBuilder}
+	 */
+	public RecordPipeBuilder<T> capacity(final int capacity) {
+		this.capacity = capacity;
+		return this;
+	}
+
+	/**
+	 * Configures this builder to hand over records in batches of the given size. Larger batches amortize the synchronization of the threads over more records, smaller batches
+	 * let the consumer start earlier. If the provided value is negative or zero then this implementation falls back to default batch size of 64 records. The batch size is limited
+	 * to half of the capacity.
+	 * 
+	 * @param batchSize
+	 *            The number of records published at once.
+	 * @return {@link RecordPipeBuilder}
+	 */
+	public RecordPipeBuilder<T> batchSize(final int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Configures this builder to use the given producer. The {@link RecordSink} is closed after the producer has returned.
+	 * 
+	 * @param producer
+	 *            The {@link Consumer} emitting the records to a {@link RecordSink}.
+	 * @return {@link RecordPipeBuilder}
+	 */
+	public RecordPipeBuilder<T> forSink(final Consumer<? super RecordSink<T>> producer) {
+		if (this.producer != null) {
+			throw new IllegalStateException("producer was already initialized");
+		}
+		this.producer = Objects.requireNonNull(producer);
+		return this;
+	}
+
+	/**
+	 * Configures this builder to use the given consumer of the records. The {@link Stream} is sequential and should be consumed until its end.
+	 * 
+	 * @param consumer
+	 *            The {@link Consumer} of the {@link Stream} of records.
+	 * @return {@link ConsumedConsumedPipeBuilder}
+	 */
+	public ConsumedConsumedPipeBuilder forStream(final Consumer<? super Stream<T>> consumer) {
+		checkProducer();
+		return new ConsumedPipeBuilder(consumer);
+	}
+
+	/**
+	 * Configures this builder to use the given consumer of the records producing a result. The {@link Stream} is sequential and should be consumed until its end.
+	 * 
+	 * @param consumer
+	 *            {@link Function} which consumes the {@link Stream} of records and produces a result.
+	 * @param <R>
+	 *            Type of the result
+	 * @return {@link ConsumedMappedPipeBuilder}
+	 */
+	public <R> ConsumedMappedPipeBuilder<R> mapStream(final Function<? super Stream<T>, R> consumer) {
+		checkProducer();
+		return new MappedPipeBuilder<>(consumer);
+	}
+
+	/**
+	 * Configures this builder to use the given consumer of the records producing a result. The {@link Iterator} should be consumed until its end, failures of the pipe are thrown
+	 * as {@link java.io.UncheckedIOException}.
+	 * 
+	 * @param consumer
+	 *            {@link Function} which consumes the {@link Iterator} of records and produces a result.
+	 * @param <R>
+	 *            Type of the result
+	 * @return {@link ConsumedMappedPipeBuilder}
+	 */
+	public <R> ConsumedMappedPipeBuilder<R> mapIterator(final Function<? super Iterator<T>, R> consumer) {
+		Objects.requireNonNull(consumer);
+		return mapStream((records) -> consumer.apply(records.iterator()));
+	}
+
+	private void checkProducer() {
+		if (producer == null) {
+			throw new IllegalStateException("producer is not initialized");
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Single-producer/single-consumer ring buffer of object references providing a {@link RecordSink} for the writing and an {@link Iterator} for the reading thread.
+ * <p>
+ * Both sides publish their progress in batches: the writing side stores records into the ring right away but commits them only once a batch is full, the reading side clears the
+ * slots it has consumed and commits them at the same granularity. Either side commits everything pending before it waits for the other one, so the batching never causes a
+ * deadlock.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the records
+ */
+final class RecordRingBuffer<T> extends AbstractRingBuffer {
+
+	static final int DEFAULT_CAPACITY = 1 << 10;
+
+	static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final class Sink implements RecordSink<T> {
+
+		// accessed by the writing side only
+		private long position;
+
+		private long committed;
+
+		private int writable;
+
+		@Override
+		public void accept(final T record) {
+			Objects.requireNonNull(record);
+			try {
+				if (writable == 0) {
+					// publish everything before waiting for free space
+					flush();
+					writable = awaitWritable();
+				}
+				slots[(int) position & mask] = record;
+				position++;
+				writable--;
+				if (position - committed >= batchSize) {
+					flush();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void flush() {
+			if (position != committed) {
+				commitWrite(position);
+				committed = position;
+			}
+		}
+
+		@Override
+		public void close() {
+			flush();
+			closeWrite();
+		}
+
+	}
+
+	final class Source implements Iterator<T>, Closeable {
+
+		// accessed by the reading side only
+		private long position;
+
+		private long committed;
+
+		private int readable;
+
+		@Override
+		public boolean hasNext() {
+			if (readable > 0) {
+				return true;
+			}
+			// release everything consumed before waiting for more records
+			release();
+			try {
+				readable = awaitReadable();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return readable > 0;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final int index = (int) position & mask;
+			@SuppressWarnings("unchecked")
+			final T record = (T) slots[index];
+			// do not keep the record reachable
+			slots[index] = null;
+			position++;
+			readable--;
+			if (position - committed >= batchSize) {
+				release();
+			}
+			return record;
+		}
+
+		private void release() {
+			if (position != committed) {
+				commitRead(position);
+				committed = position;
+			}
+		}
+
+		@Override
+		public void close() {
+			closeRead();
+		}
+
+	}
+
+	private final Object[] slots;
+
+	private final int batchSize;
+
+	private final Sink sink = new Sink();
+
+	private final Source source = new Source();
+
+	/**
+	 * @param capacity
+	 *            The capacity of the ring buffer in records, rounded up to the next power of two. If the provided value is negative or zero then {@link #DEFAULT_CAPACITY} is
+	 *            used.
+	 * @param batchSize
+	 *            The number of records published at once. If the provided value is negative or zero then {@link #DEFAULT_BATCH_SIZE} is used, it is limited to half of the
+	 *            capacity.
+	 */
+	RecordRingBuffer(final int capacity, final int batchSize) {
+		super(capacity <= 0 ? DEFAULT_CAPACITY : capacity);
+		this.slots = new Object[this.capacity];
+		this.batchSize = Math.min(batchSize <= 0 ? DEFAULT_BATCH_SIZE : batchSize, this.capacity / 2);
+	}
+
+	/**
+	 * Returns the writing end.
+	 * 
+	 * @return {@link RecordSink}
+	 */
+	RecordSink<T> getSink() {
+		return sink;
+	}
+
+	/**
+	 * Returns the reading end.
+	 * 
+	 * @return {@link Closeable} {@link Iterator}
+	 */
+	Source getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the reading end as sequential {@link Stream}, closing the stream closes the reading end.
+	 * 
+	 * @return {@link Stream}
+	 */
+	Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(source, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(source::close);
+	}
+
+}
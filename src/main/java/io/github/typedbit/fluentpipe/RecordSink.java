@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Producing end of a record pipe built by {@link RecordPipeBuilder}. Records are handed over to the consumer as they are, i.e. without serialization, and are published in
+ * batches, so the cost of synchronizing with the consuming thread is paid once per batch rather than once per record.
+ * <p>
+ * Failures of the pipe, e.g. the consumer having closed its end, are thrown as {@link java.io.UncheckedIOException}.
+ * </p>
+ * 
+ * @author Dieter König
+ * @param <T>
+ *            Type of the records
+ */
+public interface RecordSink<T> extends Consumer<T>, Closeable {
+
+	/**
+	 * Emits a record. The record gets visible to the consumer once its batch is full, on {@link #flush()}, on {@link #close()} or when the producer would have to wait for free
+	 * space.
+	 * 
+	 * @param record
+	 *            The record, not {@code null}.
+	 */
+	@Override
+	public void accept(T record);
+
+	/**
+	 * Publishes the records of the current batch immediately, e.g. to bound the latency of a slow producer.
+	 */
+	public void flush();
+
+	/**
+	 * Publishes the records of the current batch and signals the end of the records to the consumer.
+	 */
+	@Override
+	public void close();
+
+}
@@ -15,12 +15,23 @@
  */
 package io.github.typedbit.fluentpipe;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -29,6 +40,7 @@ import io.github.typedbit.fluentpipe.builder.ConsumedConsumedPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.ConsumedMappedPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.ConsumedOutputStreamPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.InitialStreamPipeBuilder;
+import io.github.typedbit.fluentpipe.builder.PublishedStreamPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.ReadExecutorDefinedPipeBuilder;
 import io.github.typedbit.fluentpipe.builder.SizedStreamPipeBuilder;
 
@@ -47,10 +59,31 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 			this.inputStreamMapper = Objects.requireNonNull(inputStreamMapper);
 		}
 
+		@Override
+		public ReadExecutorDefinedPipeBuilder<T> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
 		@Override
 		public Supplier<CompletableFuture<T>> asyncWrite(Executor writeExecutor) {
 			asyncWriteInternal(writeExecutor);
-			return new CompletableStreamPipe<T>(getPipeSize(), getReadExecutor(), getWriteExecutor(), getOutputStreamConsumer(), inputStreamMapper);
+			return new CompletableStreamPipe<T>(getEngine(), getReadExecutor(), getWriteExecutor(), getOutputStreamConsumer(), inputStreamMapper, getTimeouts());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<T>> inlineIfFits(final Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			return new InlineStreamPipe<T>(getEngine(), readExecutor, getOutputStreamConsumer(), inputStreamMapper, getTimeouts());
 		}
 
 		@Override
@@ -61,6 +94,96 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 
 	}
 
+	private static class BroadcastPipeBuilder<T, R> extends StreamPipeBuilder implements ConsumedMappedPipeBuilder<R>, ReadExecutorDefinedPipeBuilder<R> {
+
+		private final List<Function<InputStream, T>> inputStreamMappers;
+
+		private final Function<List<T>, R> resultMapper;
+
+		private BroadcastPipeBuilder(List<Function<InputStream, T>> inputStreamMappers, Function<List<T>, R> resultMapper) {
+			this.inputStreamMappers = Objects.requireNonNull(inputStreamMappers);
+			this.resultMapper = resultMapper;
+		}
+
+		@Override
+		public ReadExecutorDefinedPipeBuilder<R> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> asyncWrite(Executor writeExecutor) {
+			asyncWriteInternal(writeExecutor);
+			final BroadcastStreamPipe<T> pipe = new BroadcastStreamPipe<T>(getBufferSize(), getReadExecutor(), getWriteExecutor(), getOutputStreamConsumer(), inputStreamMappers);
+			return () -> pipe.get().thenApply(resultMapper);
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<CompletableFuture<R>> inlineIfFits(final Executor readExecutor) {
+			// several readers cannot run on the writing thread one after the other
+			return asyncRead(readExecutor).asyncWrite(readExecutor);
+		}
+
+		@Override
+		public ReadExecutorDefinedPipeBuilder<R> asyncRead(Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			return this;
+		}
+
+	}
+
+	private static class PublishedPipeBuilder implements PublishedStreamPipeBuilder {
+
+		private final int capacity;
+
+		private final Executor defaultExecutor;
+
+		private final Flow.Publisher<? extends ByteBuffer> publisher;
+
+		private final PipeTimeouts timeouts;
+
+		private PublishedPipeBuilder(final int capacity, final Executor defaultExecutor, final Flow.Publisher<? extends ByteBuffer> publisher, final PipeTimeouts timeouts) {
+			this.capacity = capacity;
+			this.defaultExecutor = defaultExecutor;
+			this.publisher = Objects.requireNonNull(publisher);
+			this.timeouts = timeouts;
+		}
+
+		@Override
+		public Supplier<CompletableFuture<Void>> forInput(final Consumer<InputStream> inputStreamConsumer) {
+			return forInput(inputStreamConsumer, defaultExecutor);
+		}
+
+		@Override
+		public Supplier<CompletableFuture<Void>> forInput(final Consumer<InputStream> inputStreamConsumer, final Executor readExecutor) {
+			Objects.requireNonNull(inputStreamConsumer);
+			return mapInput((i) -> {
+				inputStreamConsumer.accept(i);
+				return null;
+			}, readExecutor);
+		}
+
+		@Override
+		public <T> Supplier<CompletableFuture<T>> mapInput(final Function<InputStream, T> inputStreamMapper) {
+			return mapInput(inputStreamMapper, defaultExecutor);
+		}
+
+		@Override
+		public <T> Supplier<CompletableFuture<T>> mapInput(final Function<InputStream, T> inputStreamMapper, final Executor readExecutor) {
+			return new PublishedStreamPipe<T>(capacity, readExecutor, publisher, inputStreamMapper, timeouts);
+		}
+
+	}
+
 	private static class ConsumedPipeBuilder extends StreamPipeBuilder implements ConsumedConsumedPipeBuilder, Supplier<Callable<Void>> {
 
 		private final Consumer<InputStream> inputStreamConsumer;
@@ -69,6 +192,16 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 			this.inputStreamConsumer = Objects.requireNonNull(inputStreamConsumer);
 		}
 
+		@Override
+		public Supplier<Callable<Void>> asyncRead() {
+			return asyncRead(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<Callable<Void>> asyncWrite() {
+			return asyncWrite(getDefaultExecutor());
+		}
+
 		public Supplier<Callable<Void>> asyncRead(final Executor readExecutor) {
 			asyncReadInternal(readExecutor);
 			return this;
@@ -79,13 +212,28 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 			return this;
 		}
 
+		@Override
+		public Supplier<Callable<Void>> inlineIfFits() {
+			return inlineIfFits(getDefaultExecutor());
+		}
+
+		@Override
+		public Supplier<Callable<Void>> inlineIfFits(final Executor readExecutor) {
+			asyncReadInternal(readExecutor);
+			final InlineStreamPipe<Void> pipe = new InlineStreamPipe<Void>(getEngine(), readExecutor, getOutputStreamConsumer(), (i) -> {
+				inputStreamConsumer.accept(i);
+				return null;
+			}, getTimeouts());
+			return () -> pipe::call;
+		}
+
 		@Override
 		public Callable<Void> get() {
 			if (getReadExecutor() != null) {
-				return new ReadAsyncStreamPipe(getPipeSize(), getReadExecutor(), getOutputStreamConsumer(), inputStreamConsumer);
+				return new ReadAsyncStreamPipe(getEngine(), getReadExecutor(), getOutputStreamConsumer(), inputStreamConsumer, getTimeouts());
 			}
 			if (getWriteExecutor() != null) {
-				return new WriteAsyncStreamPipe(getPipeSize(), getWriteExecutor(), getOutputStreamConsumer(), inputStreamConsumer);
+				return new WriteAsyncStreamPipe(getEngine(), getWriteExecutor(), getOutputStreamConsumer(), inputStreamConsumer, getTimeouts());
 			}
 			throw new IllegalStateException("readExecutor and writeExecutor are not initialized");
 		}
@@ -105,7 +253,18 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 
 	private Executor writeExecutor;
 
-	private int pipeSize;
+	private StreamPipeEngine engine;
+
+	private Executor defaultExecutor = ForkJoinPool.commonPool();
+
+	private int bufferSize;
+
+	private PipeMetrics metrics;
+
+	// engine configured by pipeSize, ringBuffer or virtualThreads, the only ones a broadcast or publisher pipe can replace by a buffer of its own
+	private boolean sizedEngine;
+
+	private PipeTimeouts timeouts = PipeTimeouts.NONE;
 
 	private Consumer<OutputStream> outputStreamConsumer;
 
@@ -114,7 +273,29 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 	}
 
 	public ConsumedConsumedPipeBuilder forInput(final Consumer<InputStream> inputStreamConsumer) {
-		return (ConsumedPipeBuilder) new ConsumedPipeBuilder(inputStreamConsumer).pipeSize(pipeSize).forOutput(outputStreamConsumer);
+		return copyTo(new ConsumedPipeBuilder(inputStreamConsumer));
+	}
+
+	private <B extends StreamPipeBuilder> B copyTo(final B builder) {
+		final StreamPipeBuilder target = builder;
+		target.engine = engine;
+		target.defaultExecutor = defaultExecutor;
+		target.bufferSize = bufferSize;
+		target.timeouts = timeouts;
+		target.forOutput(outputStreamConsumer);
+		return builder;
+	}
+
+	private void checkSizeOnly(final String pipe) {
+		if (!sizedEngine) {
+			throw new IllegalStateException(pipe + " requires engine pipeSize, ringBuffer or virtualThreads");
+		}
+		if (metrics != null) {
+			throw new IllegalStateException(pipe + " does not support metrics");
+		}
+		if (timeouts != PipeTimeouts.NONE) {
+			throw new IllegalStateException(pipe + " does not support deadline or idleTimeout");
+		}
 	}
 
 	private void checkOutput() {
@@ -123,9 +304,99 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> ConsumedMappedPipeBuilder<T> mapInput(final Function<InputStream, T> inputStreamMapper) {
-		return (MappedPipeBuilder<T>) new MappedPipeBuilder<T>(inputStreamMapper).pipeSize(pipeSize).forOutput(outputStreamConsumer);
+		return copyTo(new MappedPipeBuilder<T>(inputStreamMapper));
+	}
+
+	public ConsumedConsumedPipeBuilder forReader(final Charset charset, final CodecSide side, final Consumer<Reader> readerConsumer) {
+		Objects.requireNonNull(charset);
+		Objects.requireNonNull(readerConsumer);
+		if (Objects.requireNonNull(side) == CodecSide.WRITING) {
+			return ReaderWriterPipeBuilder.decoding(this, charset).forReader(readerConsumer);
+		}
+		return forInput((i) -> readerConsumer.accept(new DecodingReader(i, charset)));
+	}
+
+	public <T> ConsumedMappedPipeBuilder<T> mapReader(final Charset charset, final CodecSide side, final Function<Reader, T> readerMapper) {
+		Objects.requireNonNull(charset);
+		Objects.requireNonNull(readerMapper);
+		if (Objects.requireNonNull(side) == CodecSide.WRITING) {
+			return ReaderWriterPipeBuilder.decoding(this, charset).mapReader(readerMapper);
+		}
+		return mapInput((i) -> readerMapper.apply(new DecodingReader(i, charset)));
+	}
+
+	/**
+	 * Returns a builder of a byte pipe whose write operation encodes the chars written by the write operation of the given char pipe, configured like the given char pipe.
+	 * 
+	 * @param chars
+	 *            The builder of the char pipe.
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 * @return configured builder instance
+	 */
+	static ConsumedOutputStreamPipeBuilder encoding(final ReaderWriterPipeBuilder chars, final Charset charset) {
+		final StreamPipeBuilder builder = new StreamPipeBuilder();
+		builder.defaultExecutor = chars.getDefaultExecutor();
+		builder.timeouts = chars.getTimeouts();
+		builder.ringBuffer(chars.getBufferSize());
+		if (chars.getMetrics() != null) {
+			builder.metrics(chars.getMetrics());
+		}
+		final Consumer<Writer> writerConsumer = chars.getWriterConsumer();
+		return builder.forOutput((o) -> {
+			final EncodingWriter writer = new EncodingWriter(o, charset);
+			writerConsumer.accept(writer);
+			try {
+				writer.finish();
+			} catch (IOException e) {
+				throw new RuntimeException("error during writing to OutputStream", e);
+			}
+		});
+	}
+
+	public ConsumedMappedPipeBuilder<Void> forInputs(final List<Consumer<InputStream>> inputStreamConsumers) {
+		checkSizeOnly("broadcast pipe");
+		final List<Function<InputStream, Void>> inputStreamMappers = new ArrayList<>(inputStreamConsumers.size());
+		for (final Consumer<InputStream> inputStreamConsumer : inputStreamConsumers) {
+			Objects.requireNonNull(inputStreamConsumer);
+			inputStreamMappers.add((i) -> {
+				inputStreamConsumer.accept(i);
+				return null;
+			});
+		}
+		return copyTo(new BroadcastPipeBuilder<Void, Void>(inputStreamMappers, (results) -> null));
+	}
+
+	public <T> ConsumedMappedPipeBuilder<List<T>> mapInputs(final List<Function<InputStream, T>> inputStreamMappers) {
+		checkSizeOnly("broadcast pipe");
+		return copyTo(new BroadcastPipeBuilder<T, List<T>>(new ArrayList<>(inputStreamMappers), (results) -> results));
+	}
+
+	public ConsumedOutputStreamPipeBuilder through(final BiConsumer<InputStream, OutputStream> stage) {
+		this.outputStreamConsumer = new StreamStage(engine, defaultExecutor, outputStreamConsumer, stage);
+		return this;
+	}
+
+	public ConsumedOutputStreamPipeBuilder throughParallel(final int chunkSize, final int parallelism, final Executor executor, final Function<byte[], byte[]> transformation) {
+		return through(new ParallelChunkStage(chunkSize, parallelism, executor, transformation));
+	}
+
+	public ConsumedOutputStreamPipeBuilder throughGzip(final int blockSize, final int parallelism, final Executor executor) {
+		return through(new ParallelGzipStage(blockSize, parallelism, executor));
+	}
+
+	public ConsumedOutputStreamPipeBuilder throughGunzip(final int parallelism, final Executor executor) {
+		return through(new ParallelGunzipStage(parallelism, executor));
+	}
+
+	public Flow.Publisher<ByteBuffer> publish() {
+		return publish(defaultExecutor);
+	}
+
+	public Flow.Publisher<ByteBuffer> publish(final Executor writeExecutor) {
+		checkSizeOnly("publisher pipe");
+		return new PublisherStreamPipe(bufferSize, writeExecutor, outputStreamConsumer);
 	}
 
 	public ConsumedOutputStreamPipeBuilder forOutput(final Consumer<OutputStream> outputStreamConsumer) {
@@ -149,8 +420,47 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 	}
 
 	@Override
-	public SizedStreamPipeBuilder pipeSize(int pipeSize) {
-		this.pipeSize = pipeSize;
+	public PublishedStreamPipeBuilder forPublisher(final Flow.Publisher<? extends ByteBuffer> publisher) {
+		if (metrics != null) {
+			throw new IllegalStateException("published pipe does not support metrics");
+		}
+		return new PublishedPipeBuilder(bufferSize, defaultExecutor, publisher, timeouts);
+	}
+
+	@Override
+	public SizedStreamPipeBuilder metrics(final PipeMetrics metrics) {
+		Objects.requireNonNull(metrics);
+		if (this.metrics != null) {
+			throw new IllegalStateException("metrics was already initialized");
+		}
+		this.metrics = metrics;
+		final StreamPipeEngine meteredEngine = engine;
+		this.engine = () -> {
+			final StreamPipeEngine.Connection connection = meteredEngine.connect();
+			if (connection instanceof AbstractPipeBuffer) {
+				((AbstractPipeBuffer) connection).meter(metrics);
+			}
+			return connection;
+		};
+		return this;
+	}
+
+	@Override
+	public SizedStreamPipeBuilder deadline(final Duration deadline) {
+		this.timeouts = timeouts.withDeadline(deadline);
+		return this;
+	}
+
+	@Override
+	public SizedStreamPipeBuilder idleTimeout(final Duration idleTimeout) {
+		this.timeouts = timeouts.withIdleTimeout(idleTimeout);
+		return this;
+	}
+
+	@Override
+	public SizedStreamPipeBuilder engine(StreamPipeEngine engine) {
+		this.engine = Objects.requireNonNull(engine);
+		this.sizedEngine = false;
 		return this;
 	}
 
@@ -162,8 +472,49 @@ public class StreamPipeBuilder implements InitialStreamPipeBuilder, SizedStreamP
 		return writeExecutor;
 	}
 
-	protected int getPipeSize() {
-		return pipeSize;
+	@Override
+	public SizedStreamPipeBuilder pipeSize(int pipeSize) {
+		this.bufferSize = pipeSize;
+		InitialStreamPipeBuilder.super.pipeSize(pipeSize);
+		this.sizedEngine = true;
+		return this;
+	}
+
+	@Override
+	public SizedStreamPipeBuilder ringBuffer(int capacity) {
+		this.bufferSize = capacity;
+		InitialStreamPipeBuilder.super.ringBuffer(capacity);
+		this.sizedEngine = true;
+		return this;
+	}
+
+	@Override
+	public SizedStreamPipeBuilder virtualThreads(int capacity) {
+		this.bufferSize = capacity;
+		this.defaultExecutor = VirtualThreads.executor();
+		engine(StreamPipeEngine.ringBuffer(capacity));
+		this.sizedEngine = true;
+		return this;
+	}
+
+	protected Executor getDefaultExecutor() {
+		return defaultExecutor;
+	}
+
+	PipeTimeouts getTimeouts() {
+		return timeouts;
+	}
+
+	protected int getBufferSize() {
+		return bufferSize;
+	}
+
+	protected StreamPipeEngine getEngine() {
+		return engine;
+	}
+
+	PipeMetrics getMetrics() {
+		return metrics;
 	}
 
 	protected Consumer<OutputStream> getOutputStreamConsumer() {
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Engine building up the buffer which connects the {@link OutputStream} of a pipe with its {@link InputStream}.
+ * <p>
+ * Each call to {@link #connect()} must return a new, independent {@link Connection} because a pipe instance may be executed multiple times.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+@FunctionalInterface
+public interface StreamPipeEngine {
+
+	/**
+	 * Both ends of a byte pipe. Closing the {@link OutputStream} signals EOF to the {@link InputStream} after all written bytes have been read, closing the {@link InputStream}
+	 * makes any further write operation on the {@link OutputStream} fail.
+	 * 
+	 * @author Dieter König
+	 */
+	public interface Connection {
+
+		/**
+		 * Returns the reading end of the pipe.
+		 * 
+		 * @return {@link InputStream}
+		 */
+		public InputStream getInputStream();
+
+		/**
+		 * Returns the writing end of the pipe.
+		 * 
+		 * @return {@link OutputStream}
+		 */
+		public OutputStream getOutputStream();
+
+	}
+
+	/**
+	 * Returns an engine connecting a {@link PipedOutputStream} with a {@link PipedInputStream}.
+	 * 
+	 * @param pipeSize
+	 *            The size of pipe buffer to use. If the provided value is negative or zero then this implementation falls back to default size usage.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine piped(final int pipeSize) {
+		return () -> {
+			final ManagedPipedInputStream pipedInput = new ManagedPipedInputStream(pipeSize);
+			final PipedOutputStream pipedOutput = new ManagedPipedOutputStream(pipedInput);
+			return new Connection() {
+
+				@Override
+				public InputStream getInputStream() {
+					return pipedInput;
+				}
+
+				@Override
+				public OutputStream getOutputStream() {
+					return pipedOutput;
+				}
+
+			};
+		};
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a lock-free single-producer/single-consumer ring buffer. Bytes are transferred by bulk array copies and a thread is only parked
+	 * if the buffer is actually empty (reading side) resp. full (writing side).
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 KiB.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine ringBuffer(final int capacity) {
+		return () -> new ByteRingBuffer(capacity);
+	}
+
+	/**
+	 * Returns an engine like {@link #ringBuffer(int)} which takes the array backing the ring buffer from the given pool and returns it after both ends have been closed. Share
+	 * the engine, or the pool, between pipes executed over and over again, so that in steady state no buffer gets allocated.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine ringBuffer(final int capacity, final BufferPool pool) {
+		Objects.requireNonNull(pool);
+		return () -> new ByteRingBuffer(capacity, pool);
+	}
+
+	/**
+	 * Returns an engine like {@link #ringBuffer(int)} whose ring buffer is a direct {@link java.nio.ByteBuffer}. File and socket channels read into resp. write from the off-heap
+	 * memory directly by {@link ChannelSink#transferFrom(java.nio.channels.ReadableByteChannel)} and {@link ChannelSource#transferTo(java.nio.channels.WritableByteChannel)}, so a
+	 * file to socket transfer through the pipe skips the temporary buffers the JDK uses for heap memory.
+	 * <p>
+	 * Direct memory is more expensive to allocate than heap memory, counts against {@code -XX:MaxDirectMemorySize} and is only freed once the garbage collector finds its buffer
+	 * unreachable. So the engine keeps the buffers of closed pipes in a {@link BufferPool} of its own and hands them out to the next pipes, i.e. share the engine between pipes
+	 * executed over and over again. Up to 16 buffers are retained for one minute, use {@link #directRingBuffer(int, BufferPool)} to configure this. This engine pays off for
+	 * large transfers between channels.
+	 * </p>
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 KiB.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine directRingBuffer(final int capacity) {
+		return directRingBuffer(capacity, BufferPool.create());
+	}
+
+	/**
+	 * Returns an engine like {@link #directRingBuffer(int)} which takes the direct buffers from the given pool and returns them after both ends have been closed.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine directRingBuffer(final int capacity, final BufferPool pool) {
+		Objects.requireNonNull(pool);
+		return () -> new DirectRingBuffer(capacity, pool);
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a lock-free single-producer/single-consumer buffer which adapts its capacity to the workload. The buffer starts with the minimum
+	 * capacity; while the writing side keeps finding the buffer full it grows in segments up to the maximum capacity, when the reading side has caught up the additional
+	 * segments are released again. So a pipe with a bursty producer gets a large buffer only for as long as it needs one.
+	 * 
+	 * @param minimumCapacity
+	 *            The capacity in bytes the buffer starts with and shrinks back to.
+	 * @param maximumCapacity
+	 *            The capacity in bytes the buffer may grow to. If a provided value is negative or zero then this implementation falls back to default capacity of 1 KiB resp. 64 MiB.
+	 * @return {@link StreamPipeEngine}
+	 * @throws IllegalArgumentException
+	 *             if the maximum capacity is less than the minimum capacity
+	 */
+	public static StreamPipeEngine adaptive(final int minimumCapacity, final int maximumCapacity) {
+		AbstractSegmentedBuffer.checkCapacities(minimumCapacity, maximumCapacity);
+		return () -> new ByteSegmentedBuffer(minimumCapacity, maximumCapacity);
+	}
+
+	/**
+	 * Returns an engine connecting both ends by a ring buffer which spills to a memory-mapped temporary file once it is full, so the writing side never waits for a slow reading
+	 * side. The reading side drains memory and file in order. The heap memory used is bounded by the capacity of the ring buffer, the file is created on first spill and
+	 * deleted after both ends have been closed.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to
+	 *            default capacity of 64 Ki.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 * @return {@link StreamPipeEngine}
+	 */
+	public static StreamPipeEngine spillToDisk(final int capacity, final Path directory) {
+		return () -> new ByteSpillBuffer(capacity, directory);
+	}
+
+	/**
+	 * Returns an engine handing over {@link java.nio.ByteBuffer} chunks instead of copying bytes. The streams of the connection implement {@link ChunkSink} resp.
+	 * {@link ChunkSource}: a chunk aware producer obtains a chunk, fills and publishes it, a chunk aware consumer receives and releases it, so the ownership of the chunk moves
+	 * instead of the bytes. Stream operations keep working on top of the chunks.
+	 * 
+	 * @param chunkSize
+	 *            The size of a chunk in bytes. If the provided value is negative or zero then this implementation falls back to default size of 64 KiB.
+	 * @param chunkCount
+	 *            The number of chunks in flight, rounded up to the next power of two. If the provided value is negative or zero then this implementation falls back to default
+	 *            count of 8.
+	 * @return {@link StreamPipeEngine}
+	 * @see ChunkSink#of(OutputStream)
+	 * @see ChunkSource#of(InputStream)
+	 */
+	public static StreamPipeEngine chunked(final int chunkSize, final int chunkCount) {
+		return () -> new ChunkRingBuffer(chunkSize, chunkCount);
+	}
+
+	/**
+	 * Creates a new pair of connected streams.
+	 * 
+	 * @return {@link Connection}
+	 * @throws IOException
+	 *             if setting up the pipe failed
+	 */
+	public Connection connect() throws IOException;
+
+}
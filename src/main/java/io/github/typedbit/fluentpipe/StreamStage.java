@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Stage of a pipeline: a {@link Consumer} writing to an {@link OutputStream} which in fact runs the preceding {@link Consumer} on a thread of its own, connected by a pipe of its
+ * own, and transforms the {@link InputStream} of that pipe into the given {@link OutputStream}.
+ * <p>
+ * Stages nest, so a chain of stages needs no intermediate materialization: every stage holds only the bytes of its own bounded buffer. A failure anywhere tears down the chain.
+ * A failing stage closes its {@link InputStream}, so the write operations of all preceding stages fail; a failing preceding stage makes the {@link InputStream} fail instead of
+ * signaling EOF, so the failure is passed on to all following stages.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class StreamStage extends AbstractPipe implements Consumer<OutputStream> {
+
+	private static final class StageInputStream extends FilterInputStream {
+
+		private final Upstream upstream;
+
+		private StageInputStream(final InputStream input, final Upstream upstream) {
+			super(input);
+			this.upstream = upstream;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return upstream.check(super.read());
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			return upstream.check(super.read(b, off, len));
+		}
+
+	}
+
+	private static final class Upstream {
+
+		// set before the OutputStream is closed, so a reading side seeing EOF sees the failure as well
+		private volatile RuntimeException failure;
+
+		private int check(final int result) throws IOException {
+			if (result < 0 && failure != null) {
+				throw new IOException("preceding stage failed", failure);
+			}
+			return result;
+		}
+
+	}
+
+	private final StreamPipeEngine engine;
+
+	private final Executor executor;
+
+	private final Consumer<OutputStream> outputStreamConsumer;
+
+	private final BiConsumer<InputStream, OutputStream> stage;
+
+	/**
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting the preceding {@link Consumer} with the stage.
+	 * @param executor
+	 *            The {@link Executor} to run the preceding {@link Consumer} on.
+	 * @param outputStreamConsumer
+	 *            The preceding {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param stage
+	 *            The transformation reading the bytes written by the preceding {@link Consumer} and writing the result.
+	 */
+	StreamStage(final StreamPipeEngine engine, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final BiConsumer<InputStream, OutputStream> stage) {
+		this.engine = Objects.requireNonNull(engine);
+		this.executor = Objects.requireNonNull(executor);
+		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
+		this.stage = Objects.requireNonNull(stage);
+	}
+
+	@Override
+	public void accept(final OutputStream output) {
+		// build up a pipe
+		final StreamPipeEngine.Connection connection;
+		try {
+			connection = engine.connect();
+		} catch (IOException e) {
+			throw new RuntimeException("error setting up pipe", e);
+		}
+		final Upstream upstream = new Upstream();
+
+		// submit preceding write task to given Executor
+		final CompletableFuture<Void> writeFuture = CompletableFuture.runAsync(outputRunnable(connection.getOutputStream(), (o) -> {
+			try {
+				outputStreamConsumer.accept(o);
+			} catch (RuntimeException e) {
+				upstream.failure = e;
+				throw e;
+			}
+		}), executor);
+
+		// close stream in both cases (success, failure) prior to death of thread otherwise the preceding stage will block infinitely
+		try (final InputStream input = new StageInputStream(connection.getInputStream(), upstream)) {
+			stage.accept(input, output);
+		} catch (IOException e) {
+			throw new RuntimeException("error closing InputStream", e);
+		}
+
+		// check if preceding write operation failed with an exception and if so throw it
+		try {
+			writeFuture.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("error during writing to OutputStream", e);
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Cache of compiled stylesheets, i.e. {@link Templates}, keyed by the identity of the stylesheet, e.g. its URL. A stylesheet is compiled on first use only, the least recently
+ * used stylesheets are evicted once the cache holds its maximum number of entries.
+ * <p>
+ * An instance is thread-safe and may be shared by any number of {@link XsltStage}s. {@link Templates} are thread-safe as well, so a cached stylesheet is used by all threads
+ * concurrently. A stylesheet requested by several threads at once is compiled by the first of them while the others wait for it, different stylesheets are compiled in
+ * parallel. As a {@link TransformerFactory} is not thread-safe, each compiling thread uses a factory of its own.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+public final class TemplatesCache {
+
+	private static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+	private final ThreadLocal<TransformerFactory> factories;
+
+	// guarded by this, in access order, completed once the stylesheet has been compiled
+	private final Map<String, CompletableFuture<Templates>> templates;
+
+	private TemplatesCache(final Supplier<? extends TransformerFactory> factory, final int maximumSize) {
+		this.factories = ThreadLocal.withInitial(factory);
+		this.templates = new LinkedHashMap<String, CompletableFuture<Templates>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CompletableFuture<Templates>> eldest) {
+				return size() > maximumSize;
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a new cache holding up to 64 stylesheets compiled by the default {@link TransformerFactory}.
+	 * 
+	 * @return {@link TemplatesCache}
+	 */
+	public static TemplatesCache create() {
+		return create(TransformerFactory::newInstance, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Returns a new cache.
+	 * 
+	 * @param factory
+	 *            {@link Supplier} of the {@link TransformerFactory} compiling the stylesheets, called once per compiling thread.
+	 * @param maximumSize
+	 *            The maximum number of stylesheets kept.
+	 * @return {@link TemplatesCache}
+	 * @throws IllegalArgumentException
+	 *             if the maximum size is not positive
+	 */
+	public static TemplatesCache create(final Supplier<? extends TransformerFactory> factory, final int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+		}
+		return new TemplatesCache(Objects.requireNonNull(factory), maximumSize);
+	}
+
+	/**
+	 * Returns the compiled stylesheet of the given identity, compiling it if it is not cached.
+	 * 
+	 * @param id
+	 *            The identity of the stylesheet, e.g. its URL.
+	 * @param stylesheet
+	 *            {@link Supplier} of the stylesheet, called only if it has to be compiled.
+	 * @return {@link Templates}
+	 * @throws TransformerConfigurationException
+	 *             if the stylesheet cannot be compiled or the thread has been interrupted while waiting for another thread compiling it
+	 */
+	public Templates get(final String id, final Supplier<? extends Source> stylesheet) throws TransformerConfigurationException {
+		Objects.requireNonNull(id);
+		final CompletableFuture<Templates> future;
+		final boolean compile;
+		synchronized (this) {
+			final CompletableFuture<Templates> cached = templates.get(id);
+			compile = cached == null;
+			future = compile ? new CompletableFuture<>() : cached;
+			if (compile) {
+				templates.put(id, future);
+			}
+		}
+		if (compile) {
+			// compile outside the lock of the cache, so that neither hits nor other stylesheets are held up by a compilation
+			try {
+				final Templates compiled = factories.get().newTemplates(stylesheet.get());
+				future.complete(compiled);
+				return compiled;
+			} catch (TransformerConfigurationException | RuntimeException | Error e) {
+				// let the next request compile again
+				synchronized (this) {
+					templates.remove(id, future);
+				}
+				future.completeExceptionally(e);
+				throw e;
+			}
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TransformerConfigurationException("interrupted while waiting for the compilation of " + id, e);
+		} catch (ExecutionException e) {
+			throw new TransformerConfigurationException("error compiling " + id, e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the number of cached stylesheets.
+	 * 
+	 * @return number of entries
+	 */
+	public synchronized int size() {
+		return templates.size();
+	}
+
+	/**
+	 * Removes all cached stylesheets, e.g. after stylesheets have been changed.
+	 */
+	public synchronized void clear() {
+		templates.clear();
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Provides an {@link Executor} starting a new virtual thread for each task.
+ * <p>
+ * This is the Java 9 variant of this class. It looks up {@code Thread.startVirtualThread(Runnable)} reflectively so that class directories and jars built without the Java 21
+ * variant from {@code META-INF/versions/21} still support virtual threads if they run on Java 21 or later.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class VirtualThreads {
+
+	private static final MethodHandle START_VIRTUAL_THREAD = lookup();
+
+	private static MethodHandle lookup() {
+		try {
+			return MethodHandles.publicLookup().findStatic(Thread.class, "startVirtualThread", MethodType.methodType(Thread.class, Runnable.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private VirtualThreads() {
+		// utility class
+	}
+
+	/**
+	 * Returns an {@link Executor} starting a new virtual thread for each task.
+	 * 
+	 * @return {@link Executor}
+	 * @throws UnsupportedOperationException
+	 *             if the running JVM does not support virtual threads
+	 */
+	static Executor executor() {
+		if (START_VIRTUAL_THREAD == null) {
+			throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+		}
+		return (command) -> {
+			try {
+				START_VIRTUAL_THREAD.invoke(command);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RejectedExecutionException(e);
+			}
+		};
+	}
+
+}
@@ -15,8 +15,6 @@
  */
 package io.github.typedbit.fluentpipe;
 
-import java.io.PipedReader;
-import java.io.PipedWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.Objects;
@@ -41,7 +39,7 @@ import java.util.function.Consumer;
  */
 public class WriteAsyncReaderWriterPipe extends AbstractPipe implements Callable<Void> {
 
-	private final int pipeSize;
+	private final ReaderWriterPipeEngine engine;
 
 	private final Executor executor;
 
@@ -49,6 +47,8 @@ public class WriteAsyncReaderWriterPipe extends AbstractPipe implements Callable
 
 	private final Consumer<Reader> readerConsumer;
 
+	private final PipeTimeouts timeouts;
+
 	/**
 	 * Configures this pipe so that it is ready to be used as {@link Callable} to execute the piped processing.
 	 * 
@@ -62,28 +62,78 @@ public class WriteAsyncReaderWriterPipe extends AbstractPipe implements Callable
 	 *            The {@link Consumer} implementing the read operation on {@link Reader}.
 	 */
 	public WriteAsyncReaderWriterPipe(final int pipeSize, final Executor executor, final Consumer<Writer> writerConsumer, final Consumer<Reader> readerConsumer) {
-		this.pipeSize = pipeSize;
+		this(ReaderWriterPipeEngine.piped(pipeSize), executor, writerConsumer, readerConsumer);
+	}
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Callable} to execute the piped processing.
+	 * 
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} building up the buffer connecting {@link Writer} and {@link Reader}.
+	 * @param executor
+	 *            The {@link Executor} to use for the write operations on {@link Writer}.
+	 * @param writerConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param readerConsumer
+	 *            The {@link Consumer} implementing the read operation on {@link Reader}.
+	 */
+	public WriteAsyncReaderWriterPipe(final ReaderWriterPipeEngine engine, final Executor executor, final Consumer<Writer> writerConsumer, final Consumer<Reader> readerConsumer) {
+		this(engine, executor, writerConsumer, readerConsumer, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} building up the buffer connecting {@link Writer} and {@link Reader}.
+	 * @param executor
+	 *            The {@link Executor} to use for the write operations on {@link Writer}.
+	 * @param writerConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link Writer}.
+	 * @param readerConsumer
+	 *            The {@link Consumer} implementing the read operation on {@link Reader}.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	WriteAsyncReaderWriterPipe(final ReaderWriterPipeEngine engine, final Executor executor, final Consumer<Writer> writerConsumer, final Consumer<Reader> readerConsumer, final PipeTimeouts timeouts) {
+		this.engine = Objects.requireNonNull(engine);
 		this.executor = Objects.requireNonNull(executor);
 		this.writerConsumer = Objects.requireNonNull(writerConsumer);
 		this.readerConsumer = Objects.requireNonNull(readerConsumer);
+		this.timeouts = Objects.requireNonNull(timeouts);
 	}
 
 	@Override
 	public Void call() throws Exception {
 		// build up a pipe
-		try (final PipedReader pipedReader = pipeSize > 0 ? new PipedReader(pipeSize) : new PipedReader()) {
-			try (final PipedWriter pipedWriter = new PipedWriter(pipedReader)) {
+		final ReaderWriterPipeEngine.Connection connection = engine.connect();
+		try (final Reader pipedReader = connection.getReader()) {
+			try (final Writer pipedWriter = connection.getWriter()) {
+
+				final PipeGuard guard = new PipeGuard(timeouts, connection, pipedReader);
 
 				// submit write task to given Executor
-				final CompletableFuture<Void> future = CompletableFuture.runAsync(writerRunnable(pipedWriter, writerConsumer), executor);
+				final CompletableFuture<Void> future = CompletableFuture.runAsync(guard.guard(writerRunnable(pipedWriter, writerConsumer)), executor);
+				guard.start(future::completeExceptionally);
 
-				// close reader in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
-				try (final Reader reader = pipedReader) {
-					// execute reading in a thread where call() has been called
-					readerConsumer.accept(reader);
+				try {
+					// close reader in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
+					try (final Reader reader = guard.watch(pipedReader)) {
+						// execute reading in a thread where call() has been called
+						guard.guard(() -> readerConsumer.accept(reader)).run();
+					}
+					// check if async write operation failed with an exception and if so throw it to mark pipe operation as failure
+					return future.get();
+				} catch (InterruptedException e) {
+					// the calling thread has been interrupted, e.g. by cancellation of its task, so free the thread of the write operation as well
+					guard.cancel(e);
+					throw e;
+				} catch (Exception e) {
+					// report a timeout rather than the failure it caused
+					throw guard.failure(e);
+				} finally {
+					guard.finish();
 				}
-				// check if async write operation failed with an exception and if so throw it to mark pipe operation as failure
-				return future.get();
 
 			}
 
@@ -17,8 +17,6 @@ package io.github.typedbit.fluentpipe;
 
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
@@ -41,7 +39,7 @@ import java.util.function.Consumer;
  */
 public class WriteAsyncStreamPipe extends AbstractPipe implements Callable<Void> {
 
-	private final int pipeSize;
+	private final StreamPipeEngine engine;
 
 	private final Executor executor;
 
@@ -49,6 +47,8 @@ public class WriteAsyncStreamPipe extends AbstractPipe implements Callable<Void>
 
 	private final Consumer<InputStream> inputStreamConsumer;
 
+	private final PipeTimeouts timeouts;
+
 	/**
 	 * Configures this pipe so that it is ready to be used as {@link Callable} to execute the piped processing.
 	 * 
@@ -62,28 +62,78 @@ public class WriteAsyncStreamPipe extends AbstractPipe implements Callable<Void>
 	 *            The {@link Consumer} implementing the read operation on {@link InputStream}.
 	 */
 	public WriteAsyncStreamPipe(final int pipeSize, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final Consumer<InputStream> inputStreamConsumer) {
-		this.pipeSize = pipeSize;
+		this(StreamPipeEngine.piped(pipeSize), executor, outputStreamConsumer, inputStreamConsumer);
+	}
+
+	/**
+	 * Configures this pipe so that it is ready to be used as {@link Callable} to execute the piped processing.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param executor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamConsumer
+	 *            The {@link Consumer} implementing the read operation on {@link InputStream}.
+	 */
+	public WriteAsyncStreamPipe(final StreamPipeEngine engine, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final Consumer<InputStream> inputStreamConsumer) {
+		this(engine, executor, outputStreamConsumer, inputStreamConsumer, PipeTimeouts.NONE);
+	}
+
+	/**
+	 * Configures this pipe like the public constructor, tearing down an execution which exceeds the given time limits.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} building up the buffer connecting {@link OutputStream} and {@link InputStream}.
+	 * @param executor
+	 *            The {@link Executor} to use for the write operations on {@link OutputStream}.
+	 * @param outputStreamConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link OutputStream}.
+	 * @param inputStreamConsumer
+	 *            The {@link Consumer} implementing the read operation on {@link InputStream}.
+	 * @param timeouts
+	 *            The time limits of an execution.
+	 */
+	WriteAsyncStreamPipe(final StreamPipeEngine engine, final Executor executor, final Consumer<OutputStream> outputStreamConsumer, final Consumer<InputStream> inputStreamConsumer, final PipeTimeouts timeouts) {
+		this.engine = Objects.requireNonNull(engine);
 		this.executor = Objects.requireNonNull(executor);
 		this.outputStreamConsumer = Objects.requireNonNull(outputStreamConsumer);
 		this.inputStreamConsumer = Objects.requireNonNull(inputStreamConsumer);
+		this.timeouts = Objects.requireNonNull(timeouts);
 	}
 
 	@Override
 	public Void call() throws Exception {
 		// build up a pipe
-		try (final PipedInputStream pipedInput = pipeSize > 0 ? new PipedInputStream(pipeSize) : new PipedInputStream()) {
-			try (final PipedOutputStream pipedOutput = new PipedOutputStream(pipedInput)) {
+		final StreamPipeEngine.Connection connection = engine.connect();
+		try (final InputStream pipedInput = connection.getInputStream()) {
+			try (final OutputStream pipedOutput = connection.getOutputStream()) {
+
+				final PipeGuard guard = new PipeGuard(timeouts, connection, pipedInput);
 
 				// submit write task to given Executor
-				final CompletableFuture<Void> future = CompletableFuture.runAsync(outputRunnable(pipedOutput, outputStreamConsumer), executor);
+				final CompletableFuture<Void> future = CompletableFuture.runAsync(guard.guard(outputRunnable(pipedOutput, outputStreamConsumer)), executor);
+				guard.start(future::completeExceptionally);
 
-				// close stream in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
-				try (final InputStream input = pipedInput) {
-					// execute reading in a thread where call() has been called
-					inputStreamConsumer.accept(input);
+				try {
+					// close stream in both cases (success, failure) prior to death of thread otherwise pipe will be broken or another operation will block infinitely
+					try (final InputStream input = guard.watch(pipedInput)) {
+						// execute reading in a thread where call() has been called
+						guard.guard(() -> inputStreamConsumer.accept(input)).run();
+					}
+					// check if async write operation failed with an exception and if so throw it to mark pipe operation as failure
+					return future.get();
+				} catch (InterruptedException e) {
+					// the calling thread has been interrupted, e.g. by cancellation of its task, so free the thread of the write operation as well
+					guard.cancel(e);
+					throw e;
+				} catch (Exception e) {
+					// report a timeout rather than the failure it caused
+					throw guard.failure(e);
+				} finally {
+					guard.finish();
 				}
-				// check if async write operation failed with an exception and if so throw it to mark pipe operation as failure
-				return future.get();
 
 			}
 
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * XSLT transformation as stage of a pipeline, see {@code through(...)} of {@link StreamPipeBuilder} resp. {@link ReaderWriterPipeBuilder}. The stage streams the XML read from
+ * the preceding stage through the stylesheet into the following stage.
+ * <p>
+ * The stylesheet is compiled once and kept in a {@link TemplatesCache}, each thread reuses its {@link Transformer} for subsequent transformations, so transforming at a high rate
+ * neither compiles the stylesheet nor creates a {@link Transformer} each time.
+ * </p>
+ * 
+ * <pre>
+ * XsltStage xslt = XsltStage.create(getClass().getResource("invoice.xsl"));
+ * StreamPipeBuilder.create().ringBuffer(64 * 1024)
+ * 	.forOutput((o) -&gt; writeXml(o))
+ * 	.through(xslt.streams())
+ * 	.forInput((i) -&gt; readResult(i))
+ * 	.asyncWrite().get().call();
+ * </pre>
+ * 
+ * @author Dieter König
+ */
+public final class XsltStage {
+
+	private static final class SharedCache {
+
+		private static final TemplatesCache INSTANCE = TemplatesCache.create();
+
+	}
+
+	/**
+	 * {@link Transformer} of a thread together with the {@link Templates} it has been created from.
+	 */
+	private static final class PooledTransformer {
+
+		private final Templates templates;
+
+		private final Transformer transformer;
+
+		private PooledTransformer(final Templates templates, final Transformer transformer) {
+			this.templates = templates;
+			this.transformer = transformer;
+		}
+
+	}
+
+	private final String id;
+
+	private final Supplier<? extends Source> stylesheet;
+
+	private final TemplatesCache cache;
+
+	private final ThreadLocal<PooledTransformer> transformers = new ThreadLocal<>();
+
+	private XsltStage(final String id, final Supplier<? extends Source> stylesheet, final TemplatesCache cache) {
+		this.id = id;
+		this.stylesheet = stylesheet;
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns a stage applying the stylesheet at the given URL, cached in a {@link TemplatesCache} shared by all stages created without a cache of their own.
+	 * 
+	 * @param stylesheet
+	 *            The URL of the stylesheet, which is its identity within the cache as well.
+	 * @return {@link XsltStage}
+	 */
+	public static XsltStage create(final URL stylesheet) {
+		return create(stylesheet, SharedCache.INSTANCE);
+	}
+
+	/**
+	 * Returns a stage applying the stylesheet at the given URL.
+	 * 
+	 * @param stylesheet
+	 *            The URL of the stylesheet, which is its identity within the cache as well.
+	 * @param cache
+	 *            The {@link TemplatesCache} to keep the compiled stylesheet in.
+	 * @return {@link XsltStage}
+	 */
+	public static XsltStage create(final URL stylesheet, final TemplatesCache cache) {
+		final String id = stylesheet.toExternalForm();
+		return create(id, () -> new StreamSource(id), cache);
+	}
+
+	/**
+	 * Returns a stage applying the given stylesheet.
+	 * 
+	 * @param id
+	 *            The identity of the stylesheet within the cache, stages of the same identity share the compiled stylesheet.
+	 * @param stylesheet
+	 *            {@link Supplier} of the stylesheet, called only if it has to be compiled.
+	 * @param cache
+	 *            The {@link TemplatesCache} to keep the compiled stylesheet in.
+	 * @return {@link XsltStage}
+	 */
+	public static XsltStage create(final String id, final Supplier<? extends Source> stylesheet, final TemplatesCache cache) {
+		return new XsltStage(Objects.requireNonNull(id), Objects.requireNonNull(stylesheet), Objects.requireNonNull(cache));
+	}
+
+	/**
+	 * Returns the stage for a stream based pipeline.
+	 * 
+	 * @return {@link BiConsumer} for {@code through(...)}
+	 */
+	public BiConsumer<InputStream, OutputStream> streams() {
+		return (input, output) -> transform(new StreamSource(input), new StreamResult(output));
+	}
+
+	/**
+	 * Returns the stage for a {@link Reader}/{@link Writer} based pipeline.
+	 * 
+	 * @return {@link BiConsumer} for {@code through(...)}
+	 */
+	public BiConsumer<Reader, Writer> readerWriter() {
+		return (reader, writer) -> transform(new StreamSource(reader), new StreamResult(writer));
+	}
+
+	/**
+	 * Transforms the given source into the given result on the calling thread.
+	 * 
+	 * @param source
+	 *            The XML to transform.
+	 * @param result
+	 *            The result of the transformation.
+	 * @throws RuntimeException
+	 *             if the stylesheet cannot be compiled or the transformation failed
+	 */
+	public void transform(final Source source, final Result result) {
+		try {
+			final Templates templates = cache.get(id, stylesheet);
+			PooledTransformer pooled = transformers.get();
+			if (pooled == null || pooled.templates != templates) {
+				// first use on this thread or the stylesheet has been evicted and compiled again meanwhile
+				pooled = new PooledTransformer(templates, templates.newTransformer());
+			}
+			// a failing transformer is dropped, it may be left in any state
+			transformers.remove();
+			pooled.transformer.transform(source, result);
+			pooled.transformer.reset();
+			transformers.set(pooled);
+		} catch (TransformerException e) {
+			throw new RuntimeException("error transforming by " + id, e);
+		}
+	}
+
+}
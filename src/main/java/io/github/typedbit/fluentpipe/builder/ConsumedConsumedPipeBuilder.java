@@ -32,7 +32,8 @@ import java.util.function.Supplier;
 public interface ConsumedConsumedPipeBuilder {
 
 	/**
-	 * Returns a {@link Supplier} for a pipe which executes an asynchronous read operation on the {@link ForkJoinPool#commonPool()}.
+	 * Returns a {@link Supplier} for a pipe which executes an asynchronous read operation on the {@link ForkJoinPool#commonPool()} resp. on a virtual
+	 * thread if the builder has been configured by {@code virtualThreads()}.
 	 * 
 	 * @return {@link Supplier}
 	 */
@@ -50,7 +51,8 @@ public interface ConsumedConsumedPipeBuilder {
 	public Supplier<Callable<Void>> asyncRead(final Executor executor);
 
 	/**
-	 * Returns a {@link Supplier} for a pipe which executes an asynchronous write operation on the {@link ForkJoinPool#commonPool()}.
+	 * Returns a {@link Supplier} for a pipe which executes an asynchronous write operation on the {@link ForkJoinPool#commonPool()} resp. on a virtual
+	 * thread if the builder has been configured by {@code virtualThreads()}.
 	 * 
 	 * @return {@link Supplier}
 	 */
@@ -67,4 +69,26 @@ public interface ConsumedConsumedPipeBuilder {
 	 */
 	public Supplier<Callable<Void>> asyncWrite(final Executor executor);
 
+	/**
+	 * Returns a {@link Supplier} for a pipe which executes the write operation directly and, as long as everything written fits into the buffer, the read operation afterwards
+	 * on the same thread. Only if the buffer gets full, the read operation is executed asynchronously on the {@link ForkJoinPool#commonPool()} resp. on a virtual thread if the
+	 * builder has been configured by {@code virtualThreads()}.
+	 * 
+	 * @return {@link Supplier}
+	 */
+	default public Supplier<Callable<Void>> inlineIfFits() {
+		return inlineIfFits(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns a {@link Supplier} for a pipe which executes the write operation directly and, as long as everything written fits into the buffer, the read operation afterwards
+	 * on the same thread. Only if the buffer gets full, the read operation is executed asynchronously on the given {@link Executor}. A failure of either operation is thrown as
+	 * {@link java.util.concurrent.ExecutionException}.
+	 * 
+	 * @param executor
+	 *            {@link Executor} for the read operation once the buffer is full
+	 * @return {@link Supplier}
+	 */
+	public Supplier<Callable<Void>> inlineIfFits(final Executor executor);
+
 }
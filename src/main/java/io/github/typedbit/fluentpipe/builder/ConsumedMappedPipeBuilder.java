@@ -19,8 +19,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * Builder for a stream ({@link InputStream} and {@link OutputStream}) or {@link Reader} and {@link Writer} based pipe.
@@ -30,7 +32,8 @@ import java.util.concurrent.ForkJoinPool;
 public interface ConsumedMappedPipeBuilder<T> {
 
 	/**
-	 * Configures this builder to use {@link ForkJoinPool#commonPool()} as {@link Executor} for the read operations on {@link InputStream} resp. {@link Reader}.
+	 * Configures this builder to use {@link ForkJoinPool#commonPool()} as {@link Executor} for the read operations on {@link InputStream} resp. {@link Reader}. If the
+	 * builder has been configured by {@code virtualThreads()} the read operations run on a virtual thread instead.
 	 * 
 	 * @return {@link ReadExecutorDefinedPipeBuilder}
 	 */
@@ -47,4 +50,28 @@ public interface ConsumedMappedPipeBuilder<T> {
 	 */
 	public ReadExecutorDefinedPipeBuilder<T> asyncRead(final Executor readExecutor);
 
+	/**
+	 * Returns a {@link Supplier} for a pipe which executes the write operation directly and, as long as everything written fits into the buffer, the read operation afterwards
+	 * on the same thread. Only if the buffer gets full, the read operation is executed asynchronously on the {@link ForkJoinPool#commonPool()} resp. on a virtual thread if the
+	 * builder has been configured by {@code virtualThreads()}. Call to {@link Supplier#get()} method on the returned {@link Supplier} will start the piped processing and return
+	 * after the write operation has finished.
+	 * 
+	 * @return {@link Supplier}
+	 */
+	default public Supplier<CompletableFuture<T>> inlineIfFits() {
+		return inlineIfFits(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns a {@link Supplier} for a pipe which executes the write operation directly and, as long as everything written fits into the buffer, the read operation afterwards
+	 * on the same thread. Only if the buffer gets full, the read operation is executed asynchronously on the given {@link Executor}. Call to {@link Supplier#get()} method on the
+	 * returned {@link Supplier} will start the piped processing and return after the write operation has finished. Broadcast pipes execute the write operation asynchronously on
+	 * the given {@link Executor} as well.
+	 * 
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operations on {@link InputStream} resp. {@link Reader} once the buffer is full.
+	 * @return {@link Supplier}
+	 */
+	public Supplier<CompletableFuture<T>> inlineIfFits(final Executor readExecutor);
+
 }
@@ -17,9 +17,21 @@ package io.github.typedbit.fluentpipe.builder;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import io.github.typedbit.fluentpipe.ChannelSource;
+import io.github.typedbit.fluentpipe.CodecSide;
+
 /**
  * Builder for a stream ({@link InputStream} and {@link OutputStream}) based pipe.
  * 
@@ -27,6 +39,68 @@ import java.util.function.Function;
  */
 public interface ConsumedOutputStreamPipeBuilder {
 
+	/**
+	 * Adds a stage to the pipeline: the given transformation reads the bytes written so far from an {@link InputStream} and writes its result to an {@link OutputStream}, which is read by the next
+	 * stage or the read operation. Each stage runs on a thread of its own taken from the default {@link java.util.concurrent.Executor} and is connected by a buffer of its own built
+	 * up by the configured engine, so no stage materializes its whole output. A failure in any stage fails all other stages and the pipe.
+	 * 
+	 * @param stage
+	 *            {@link BiConsumer} transforming the {@link InputStream} into the {@link OutputStream}, neither needs to be closed by the stage.
+	 * @return configured builder instance
+	 */
+	public ConsumedOutputStreamPipeBuilder through(final BiConsumer<InputStream, OutputStream> stage);
+
+	/**
+	 * Adds a stage to the pipeline which cuts the bytes written so far into chunks of the given size and transforms them in parallel, e.g. to compress, encode or hash them block
+	 * by block. The transformed chunks are passed on in the original order. At most {@code parallelism} chunks are in flight at a time, so the memory used stays bounded no matter
+	 * how fast the write operation produces.
+	 * 
+	 * @param chunkSize
+	 *            The number of bytes of each chunk, only the last chunk may be shorter.
+	 * @param parallelism
+	 *            The maximum number of chunks transformed at the same time.
+	 * @param executor
+	 *            The {@link Executor} to transform the chunks on, it should be able to run {@code parallelism} tasks at the same time.
+	 * @param transformation
+	 *            {@link Function} transforming a chunk, it may return the given array.
+	 * @return configured builder instance
+	 * @throws IllegalArgumentException
+	 *             if chunk size or parallelism are not positive
+	 */
+	public ConsumedOutputStreamPipeBuilder throughParallel(final int chunkSize, final int parallelism, final Executor executor, final Function<byte[], byte[]> transformation);
+
+	/**
+	 * Adds a stage to the pipeline which compresses the bytes written so far to gzip, cutting them into blocks of the given size which are compressed in parallel like
+	 * {@link #throughParallel(int, int, Executor, Function)}. Each block becomes a gzip member of its own, so the result is a standard multi-member gzip stream which any gunzip
+	 * can decompress. A block size of 128 KiB or more keeps the loss of compression ratio against a single member negligible.
+	 * 
+	 * @param blockSize
+	 *            The number of uncompressed bytes of each gzip member, only the last member may hold less.
+	 * @param parallelism
+	 *            The maximum number of blocks compressed at the same time.
+	 * @param executor
+	 *            The {@link Executor} to compress the blocks on, it should be able to run {@code parallelism} tasks at the same time.
+	 * @return configured builder instance
+	 * @throws IllegalArgumentException
+	 *             if block size or parallelism are not positive
+	 */
+	public ConsumedOutputStreamPipeBuilder throughGzip(final int blockSize, final int parallelism, final Executor executor);
+
+	/**
+	 * Adds a stage to the pipeline which decompresses the gzip stream written so far. The members of a stream compressed by {@link #throughGzip(int, int, Executor)} are
+	 * decompressed in parallel and passed on in the original order; any other gzip stream is decompressed sequentially from the first member not written that way. So is a
+	 * member longer than 64 MiB or one whose recorded size exceeds 64 MiB or what deflate can expand it to, as these sizes are read from the untrusted stream.
+	 * 
+	 * @param parallelism
+	 *            The maximum number of members decompressed at the same time.
+	 * @param executor
+	 *            The {@link Executor} to decompress the members on, it should be able to run {@code parallelism} tasks at the same time.
+	 * @return configured builder instance
+	 * @throws IllegalArgumentException
+	 *             if parallelism is not positive
+	 */
+	public ConsumedOutputStreamPipeBuilder throughGunzip(final int parallelism, final Executor executor);
+
 	/**
 	 * Configures this builder to use the given {@link Consumer} for pipe construction.
 	 * 
@@ -47,4 +121,114 @@ public interface ConsumedOutputStreamPipeBuilder {
 	 */
 	public <T> ConsumedMappedPipeBuilder<T> mapInput(final Function<InputStream, T> inputStreamMapper);
 
+	/**
+	 * Configures this builder to use the given {@link Consumer} as read operation on the chars decoded from the written bytes. The chars are decoded in bulk, bytes of ISO-8859-1
+	 * and ASCII bytes of US-ASCII resp. UTF-8 without a {@link java.nio.charset.CharsetDecoder}. Malformed input is replaced like {@link java.io.InputStreamReader} does.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} of the written bytes.
+	 * @param side
+	 *            The side decoding the bytes. On {@link CodecSide#WRITING} the pipe buffers chars in a ring buffer of the configured size instead of the configured engine.
+	 * @param readerConsumer
+	 *            {@link Consumer} which will be used by the pipe to process the {@link Reader}
+	 * @return configured builder instance
+	 */
+	public ConsumedConsumedPipeBuilder forReader(final Charset charset, final CodecSide side, final Consumer<Reader> readerConsumer);
+
+	/**
+	 * Configures this builder to use the given {@link Function} as read operation on the chars decoded from the written bytes, see
+	 * {@link #forReader(Charset, CodecSide, Consumer)}.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} of the written bytes.
+	 * @param side
+	 *            The side decoding the bytes.
+	 * @param readerMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link Reader} and produce a result.
+	 * @param <T>
+	 *            Type of the desired result object
+	 * @return configured builder instance
+	 */
+	public <T> ConsumedMappedPipeBuilder<T> mapReader(final Charset charset, final CodecSide side, final Function<Reader, T> readerMapper);
+
+	/**
+	 * Configures this builder to use the given {@link Consumer} as read operation on a {@link ReadableByteChannel}. The ring buffer engines read into {@link ByteBuffer} directly
+	 * and {@link ChannelSource#transferTo(java.nio.channels.WritableByteChannel)} writes channels directly from the ring buffer, other engines are adapted by
+	 * {@link ChannelSource#of(InputStream)}.
+	 * 
+	 * @param channelConsumer
+	 *            {@link Consumer} which will be used by the pipe to process the {@link ChannelSource}, a {@link ReadableByteChannel}.
+	 * @return configured builder instance
+	 */
+	default public ConsumedConsumedPipeBuilder forInputChannel(final Consumer<? super ChannelSource> channelConsumer) {
+		Objects.requireNonNull(channelConsumer);
+		return forInput((i) -> channelConsumer.accept(ChannelSource.of(i)));
+	}
+
+	/**
+	 * Configures this builder to use the given {@link Function} as read operation on a {@link ReadableByteChannel}, see {@link #forInputChannel(Consumer)}.
+	 * 
+	 * @param channelMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link ChannelSource}, a {@link ReadableByteChannel}, and produce a result.
+	 * @param <T>
+	 *            Type of the desired result object
+	 * @return configured builder instance
+	 */
+	default public <T> ConsumedMappedPipeBuilder<T> mapInputChannel(final Function<? super ChannelSource, T> channelMapper) {
+		Objects.requireNonNull(channelMapper);
+		return mapInput((i) -> channelMapper.apply(ChannelSource.of(i)));
+	}
+
+	/**
+	 * Configures this builder to use the given {@link Consumer} instances for a broadcast pipe: each {@link Consumer} reads all bytes written from a {@link InputStream} of its own. All
+	 * {@link InputStream} share one ring buffer, so the bytes are produced only once and the write operation is throttled by the slowest read operation. The capacity of the ring buffer is
+	 * configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)}. Other engines, {@code metrics(...)}, {@code deadline(...)} and {@code idleTimeout(...)} are not supported.
+	 * 
+	 * @param inputStreamConsumers
+	 *            {@link Consumer} instances which will be used by the pipe to process the bytes written.
+	 * @return configured builder instance, its {@link java.util.concurrent.CompletableFuture} completes after all operations have finished
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by broadcast pipes
+	 */
+	public ConsumedMappedPipeBuilder<Void> forInputs(final List<Consumer<InputStream>> inputStreamConsumers);
+
+	/**
+	 * Configures this builder to use the given {@link Function} instances for a broadcast pipe: each {@link Function} reads all bytes written from a {@link InputStream} of its own and
+	 * produces a result. All {@link InputStream} share one ring buffer, so the bytes are produced only once and the write operation is throttled by the slowest read operation. The capacity
+	 * of the ring buffer is configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)}. Other engines, {@code metrics(...)}, {@code deadline(...)} and {@code idleTimeout(...)} are not supported.
+	 * 
+	 * @param inputStreamMappers
+	 *            {@link Function} instances which will be used by the pipe to process the bytes written and produce a result each.
+	 * @param <T>
+	 *            Type of the desired result objects
+	 * @return configured builder instance, its {@link java.util.concurrent.CompletableFuture} completes with the results in the order of the given {@link Function} instances
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by broadcast pipes
+	 */
+	public <T> ConsumedMappedPipeBuilder<List<T>> mapInputs(final List<Function<InputStream, T>> inputStreamMappers);
+
+	/**
+	 * Configures this builder to publish the bytes written as {@link ByteBuffer} chunks instead of piping them to a read operation, using the default {@link Executor} for the write
+	 * operation. See {@link #publish(Executor)}.
+	 * 
+	 * @return {@link Flow.Publisher} executing the write operation once per subscription
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by publisher pipes
+	 */
+	public Flow.Publisher<ByteBuffer> publish();
+
+	/**
+	 * Configures this builder to publish the bytes written as {@link ByteBuffer} chunks instead of piping them to a read operation. No thread needs to block for reading: the demand
+	 * requested by the {@link Flow.Subscriber} is the backpressure on the write operation, which blocks once it has filled a chunk nobody asked for. The chunk size is the size
+	 * configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)}, 8 KiB for the default pipe size. Other engines, {@code metrics(...)}, {@code deadline(...)} and
+	 * {@code idleTimeout(...)} are not supported.
+	 * 
+	 * @param writeExecutor
+	 *            The {@link Executor} to use for the write operation on {@link OutputStream}.
+	 * @return {@link Flow.Publisher} executing the write operation once per subscription
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by publisher pipes
+	 */
+	public Flow.Publisher<ByteBuffer> publish(final Executor writeExecutor);
+
 }
@@ -15,11 +15,17 @@
  */
 package io.github.typedbit.fluentpipe.builder;
 
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import io.github.typedbit.fluentpipe.CodecSide;
+
 /**
  * Builder for a stream ({@link Reader} and {@link Writer}) based pipe.
  * 
@@ -27,6 +33,17 @@ import java.util.function.Function;
  */
 public interface ConsumedWriterPipeBuilder {
 
+	/**
+	 * Adds a stage to the pipeline: the given transformation reads the chars written so far from a {@link Reader} and writes its result to a {@link Writer}, which is read by the next
+	 * stage or the read operation. Each stage runs on a thread of its own taken from the default {@link java.util.concurrent.Executor} and is connected by a buffer of its own built
+	 * up by the configured engine, so no stage materializes its whole output. A failure in any stage fails all other stages and the pipe.
+	 * 
+	 * @param stage
+	 *            {@link BiConsumer} transforming the {@link Reader} into the {@link Writer}, neither needs to be closed by the stage.
+	 * @return configured builder instance
+	 */
+	public ConsumedWriterPipeBuilder through(final BiConsumer<Reader, Writer> stage);
+
 	/**
 	 * Configures this builder to use the given {@link Consumer} for pipe construction.
 	 * 
@@ -47,4 +64,62 @@ public interface ConsumedWriterPipeBuilder {
 	 */
 	public <T> ConsumedMappedPipeBuilder<T> mapReader(final Function<Reader, T> readerMapper);
 
+	/**
+	 * Configures this builder to use the given {@link Consumer} as read operation on the bytes encoded from the written chars. The chars are encoded in bulk, chars of ISO-8859-1
+	 * and ASCII chars of US-ASCII resp. UTF-8 without a {@link java.nio.charset.CharsetEncoder}. Unmappable chars are replaced like {@link java.io.OutputStreamWriter} does.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 * @param side
+	 *            The side encoding the chars. On {@link CodecSide#WRITING} the pipe buffers bytes in a ring buffer of the configured size instead of the configured engine.
+	 * @param inputStreamConsumer
+	 *            {@link Consumer} which will be used by the pipe to process the {@link InputStream}
+	 * @return configured builder instance
+	 */
+	public ConsumedConsumedPipeBuilder forInput(final Charset charset, final CodecSide side, final Consumer<InputStream> inputStreamConsumer);
+
+	/**
+	 * Configures this builder to use the given {@link Function} as read operation on the bytes encoded from the written chars, see
+	 * {@link #forInput(Charset, CodecSide, Consumer)}.
+	 * 
+	 * @param charset
+	 *            The {@link Charset} to encode.
+	 * @param side
+	 *            The side encoding the chars.
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 * @param <T>
+	 *            Type of the desired result object
+	 * @return configured builder instance
+	 */
+	public <T> ConsumedMappedPipeBuilder<T> mapInput(final Charset charset, final CodecSide side, final Function<InputStream, T> inputStreamMapper);
+
+	/**
+	 * Configures this builder to use the given {@link Consumer} instances for a broadcast pipe: each {@link Consumer} reads all chars written from a {@link Reader} of its own. All
+	 * {@link Reader} share one ring buffer, so the chars are produced only once and the write operation is throttled by the slowest read operation. The capacity of the ring buffer is
+	 * configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)}. Other engines, {@code metrics(...)}, {@code deadline(...)} and {@code idleTimeout(...)} are not supported.
+	 * 
+	 * @param readerConsumers
+	 *            {@link Consumer} instances which will be used by the pipe to process the chars written.
+	 * @return configured builder instance, its {@link java.util.concurrent.CompletableFuture} completes after all operations have finished
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by broadcast pipes
+	 */
+	public ConsumedMappedPipeBuilder<Void> forReaders(final List<Consumer<Reader>> readerConsumers);
+
+	/**
+	 * Configures this builder to use the given {@link Function} instances for a broadcast pipe: each {@link Function} reads all chars written from a {@link Reader} of its own and
+	 * produces a result. All {@link Reader} share one ring buffer, so the chars are produced only once and the write operation is throttled by the slowest read operation. The capacity
+	 * of the ring buffer is configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)}. Other engines, {@code metrics(...)}, {@code deadline(...)} and {@code idleTimeout(...)} are not supported.
+	 * 
+	 * @param readerMappers
+	 *            {@link Function} instances which will be used by the pipe to process the chars written and produce a result each.
+	 * @param <T>
+	 *            Type of the desired result objects
+	 * @return configured builder instance, its {@link java.util.concurrent.CompletableFuture} completes with the results in the order of the given {@link Function} instances
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with an option not supported by broadcast pipes
+	 */
+	public <T> ConsumedMappedPipeBuilder<List<T>> mapReaders(final List<Function<Reader, T>> readerMappers);
+
 }
@@ -18,6 +18,12 @@ package io.github.typedbit.fluentpipe.builder;
 import java.io.PipedReader;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.typedbit.fluentpipe.BufferPool;
+import io.github.typedbit.fluentpipe.ReaderWriterPipeEngine;
 
 /**
  * Builder for a stream ({@link Reader} and {@link Writer}) based pipe.
@@ -43,6 +49,129 @@ public interface InitialReaderWriterPipeBuilder {
 	 *            The size of pipe buffer to use.
 	 * @return {@link SizedReaderWriterPipeBuilder}
 	 */
-	public SizedReaderWriterPipeBuilder pipeSize(int pipeSize);
+	default public SizedReaderWriterPipeBuilder pipeSize(int pipeSize) {
+		return engine(ReaderWriterPipeEngine.piped(pipeSize));
+	}
+
+	/**
+	 * Configures this builder to use a lock-free single-producer/single-consumer ring buffer of chars instead of a {@link PipedReader}. If the provided value is negative or
+	 * zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @see ReaderWriterPipeEngine#ringBuffer(int)
+	 */
+	default public SizedReaderWriterPipeBuilder ringBuffer(int capacity) {
+		return engine(ReaderWriterPipeEngine.ringBuffer(capacity));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #ringBuffer(int)} whose arrays are pooled: all pipes obtained from this builder share a new {@link BufferPool}
+	 * with default bounds, so a pipe executed over and over again reuses the buffer of a finished execution. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 */
+	default public SizedReaderWriterPipeBuilder pooledRingBuffer(int capacity) {
+		return ringBuffer(capacity, BufferPool.create());
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #ringBuffer(int)} taking its arrays from the given {@link BufferPool}, which may be shared with other builders.
+	 * If the provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @see ReaderWriterPipeEngine#ringBuffer(int, BufferPool)
+	 */
+	default public SizedReaderWriterPipeBuilder ringBuffer(int capacity, BufferPool pool) {
+		return engine(ReaderWriterPipeEngine.ringBuffer(capacity, pool));
+	}
+
+	/**
+	 * Configures this builder to use a buffer which grows lazily from the minimum to the maximum capacity while the writing side keeps blocking on a full buffer and releases
+	 * the additional memory when the reading side has caught up. If a provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param minimumCapacity
+	 *            The capacity in chars the buffer starts with and shrinks back to.
+	 * @param maximumCapacity
+	 *            The capacity in chars the buffer may grow to.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the maximum capacity is less than the minimum capacity
+	 * @see ReaderWriterPipeEngine#adaptive(int, int)
+	 */
+	default public SizedReaderWriterPipeBuilder adaptivePipeSize(int minimumCapacity, int maximumCapacity) {
+		return engine(ReaderWriterPipeEngine.adaptive(minimumCapacity, maximumCapacity));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer which spills to a memory-mapped file in the default temporary-file directory once it is full. If the provided value is negative
+	 * or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @see ReaderWriterPipeEngine#spillToDisk(int, Path)
+	 */
+	default public SizedReaderWriterPipeBuilder spillToDisk(int capacity) {
+		return spillToDisk(capacity, null);
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer which spills to a memory-mapped file once it is full. The writing side never waits for the reading side, the heap memory used
+	 * is bounded by the capacity and the file is deleted after the pipe has finished, successfully or not. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in chars, rounded up to the next power of two.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @see ReaderWriterPipeEngine#spillToDisk(int, Path)
+	 */
+	default public SizedReaderWriterPipeBuilder spillToDisk(int capacity, Path directory) {
+		return engine(ReaderWriterPipeEngine.spillToDisk(capacity, directory));
+	}
+
+	/**
+	 * Configures this builder to run asynchronous operations on virtual threads unless an {@link Executor} is passed explicitly. The pipe uses a ring buffer with default
+	 * capacity which blocks by {@link LockSupport} only, so a waiting thread never pins its carrier thread.
+	 * 
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @throws UnsupportedOperationException
+	 *             if the running JVM does not support virtual threads (Java 21 or later is required)
+	 */
+	default public SizedReaderWriterPipeBuilder virtualThreads() {
+		return virtualThreads(0);
+	}
+
+	/**
+	 * Configures this builder to run asynchronous operations on virtual threads unless an {@link Executor} is passed explicitly. The pipe uses a ring buffer of the given
+	 * capacity which blocks by {@link LockSupport} only, so a waiting thread never pins its carrier thread. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer, rounded up to the next power of two.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @throws UnsupportedOperationException
+	 *             if the running JVM does not support virtual threads (Java 21 or later is required)
+	 */
+	public SizedReaderWriterPipeBuilder virtualThreads(int capacity);
+
+	/**
+	 * Configures this builder to use the given {@link ReaderWriterPipeEngine} to build up the buffer of the pipe.
+	 * 
+	 * @param engine
+	 *            The {@link ReaderWriterPipeEngine} connecting {@link Writer} and {@link Reader}.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 */
+	public SizedReaderWriterPipeBuilder engine(ReaderWriterPipeEngine engine);
 
 }
@@ -18,6 +18,13 @@ package io.github.typedbit.fluentpipe.builder;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import io.github.typedbit.fluentpipe.BufferPool;
+import io.github.typedbit.fluentpipe.StreamPipeEngine;
 
 /**
  * Builder for a stream ({@link InputStream} and {@link OutputStream}) based pipe.
@@ -43,6 +50,174 @@ public interface InitialStreamPipeBuilder {
 	 *            The size of pipe buffer to use.
 	 * @return {@link SizedStreamPipeBuilder}
 	 */
-	public SizedStreamPipeBuilder pipeSize(int pipeSize);
+	default public SizedStreamPipeBuilder pipeSize(int pipeSize) {
+		return engine(StreamPipeEngine.piped(pipeSize));
+	}
+
+	/**
+	 * Configures this builder to use a lock-free single-producer/single-consumer ring buffer instead of a {@link PipedInputStream}. If the provided value is negative or zero
+	 * then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#ringBuffer(int)
+	 */
+	default public SizedStreamPipeBuilder ringBuffer(int capacity) {
+		return engine(StreamPipeEngine.ringBuffer(capacity));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #ringBuffer(int)} whose arrays are pooled: all pipes obtained from this builder share a new {@link BufferPool}
+	 * with default bounds, so a pipe executed over and over again reuses the buffer of a finished execution. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 */
+	default public SizedStreamPipeBuilder pooledRingBuffer(int capacity) {
+		return ringBuffer(capacity, BufferPool.create());
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #ringBuffer(int)} taking its arrays from the given {@link BufferPool}, which may be shared with other builders.
+	 * If the provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#ringBuffer(int, BufferPool)
+	 */
+	default public SizedStreamPipeBuilder ringBuffer(int capacity, BufferPool pool) {
+		return engine(StreamPipeEngine.ringBuffer(capacity, pool));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #ringBuffer(int)} in off-heap memory, so that channels read into and write from the ring buffer without temporary
+	 * buffers, see {@link SizedStreamPipeBuilder#forOutputChannel(Consumer)}. All pipes obtained from this builder share a new {@link BufferPool} for the direct buffers, as
+	 * direct memory is expensive to allocate and limited. If the provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#directRingBuffer(int)
+	 */
+	default public SizedStreamPipeBuilder directRingBuffer(int capacity) {
+		return engine(StreamPipeEngine.directRingBuffer(capacity));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer like {@link #directRingBuffer(int)} taking its direct buffers from the given {@link BufferPool}, which may be shared with
+	 * other builders. If the provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @param pool
+	 *            The {@link BufferPool} to take the buffers from.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#directRingBuffer(int, BufferPool)
+	 */
+	default public SizedStreamPipeBuilder directRingBuffer(int capacity, BufferPool pool) {
+		return engine(StreamPipeEngine.directRingBuffer(capacity, pool));
+	}
+
+	/**
+	 * Configures this builder to use a buffer which grows lazily from the minimum to the maximum capacity while the writing side keeps blocking on a full buffer and releases
+	 * the additional memory when the reading side has caught up. If a provided value is negative or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param minimumCapacity
+	 *            The capacity in bytes the buffer starts with and shrinks back to.
+	 * @param maximumCapacity
+	 *            The capacity in bytes the buffer may grow to.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the maximum capacity is less than the minimum capacity
+	 * @see StreamPipeEngine#adaptive(int, int)
+	 */
+	default public SizedStreamPipeBuilder adaptivePipeSize(int minimumCapacity, int maximumCapacity) {
+		return engine(StreamPipeEngine.adaptive(minimumCapacity, maximumCapacity));
+	}
+
+	/**
+	 * Configures this builder to hand over {@link java.nio.ByteBuffer} chunks instead of copying bytes. Operations obtain the chunk API by
+	 * {@link io.github.typedbit.fluentpipe.ChunkSink#of(OutputStream)} resp. {@link io.github.typedbit.fluentpipe.ChunkSource#of(InputStream)}, plain stream operations keep
+	 * working. If a provided value is negative or zero then this implementation falls back to default.
+	 * 
+	 * @param chunkSize
+	 *            The size of a chunk in bytes.
+	 * @param chunkCount
+	 *            The number of chunks in flight, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#chunked(int, int)
+	 */
+	default public SizedStreamPipeBuilder chunked(int chunkSize, int chunkCount) {
+		return engine(StreamPipeEngine.chunked(chunkSize, chunkCount));
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer which spills to a memory-mapped file in the default temporary-file directory once it is full. If the provided value is negative
+	 * or zero then this implementation falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#spillToDisk(int, Path)
+	 */
+	default public SizedStreamPipeBuilder spillToDisk(int capacity) {
+		return spillToDisk(capacity, null);
+	}
+
+	/**
+	 * Configures this builder to use a ring buffer which spills to a memory-mapped file once it is full. The writing side never waits for the reading side, the heap memory used
+	 * is bounded by the capacity and the file is deleted after the pipe has finished, successfully or not. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer in bytes, rounded up to the next power of two.
+	 * @param directory
+	 *            The directory to create the temporary file in, {@code null} for the default temporary-file directory.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @see StreamPipeEngine#spillToDisk(int, Path)
+	 */
+	default public SizedStreamPipeBuilder spillToDisk(int capacity, Path directory) {
+		return engine(StreamPipeEngine.spillToDisk(capacity, directory));
+	}
+
+	/**
+	 * Configures this builder to run asynchronous operations on virtual threads unless an {@link Executor} is passed explicitly. The pipe uses a ring buffer with default
+	 * capacity which blocks by {@link LockSupport} only, so a waiting thread never pins its carrier thread.
+	 * 
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @throws UnsupportedOperationException
+	 *             if the running JVM does not support virtual threads (Java 21 or later is required)
+	 */
+	default public SizedStreamPipeBuilder virtualThreads() {
+		return virtualThreads(0);
+	}
+
+	/**
+	 * Configures this builder to run asynchronous operations on virtual threads unless an {@link Executor} is passed explicitly. The pipe uses a ring buffer of the given
+	 * capacity which blocks by {@link LockSupport} only, so a waiting thread never pins its carrier thread. If the provided value is negative or zero then this implementation
+	 * falls back to default capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity of the ring buffer, rounded up to the next power of two.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @throws UnsupportedOperationException
+	 *             if the running JVM does not support virtual threads (Java 21 or later is required)
+	 */
+	public SizedStreamPipeBuilder virtualThreads(int capacity);
+
+	/**
+	 * Configures this builder to use the given {@link StreamPipeEngine} to build up the buffer of the pipe.
+	 * 
+	 * @param engine
+	 *            The {@link StreamPipeEngine} connecting {@link OutputStream} and {@link InputStream}.
+	 * @return {@link SizedStreamPipeBuilder}
+	 */
+	public SizedStreamPipeBuilder engine(StreamPipeEngine engine);
 
 }
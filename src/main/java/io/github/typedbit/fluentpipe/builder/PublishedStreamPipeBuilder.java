@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe.builder;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Builder for a pipe reading the bytes published by a {@link Flow.Publisher} of {@link ByteBuffer} items from an {@link InputStream}.
+ * 
+ * @author Dieter König
+ */
+public interface PublishedStreamPipeBuilder {
+
+	/**
+	 * Configures this builder to use the given {@link Consumer} for the read operation, executed on the default {@link Executor}.
+	 * 
+	 * @param inputStreamConsumer
+	 *            {@link Consumer} which will be used by the pipe to process the {@link InputStream}
+	 * @return {@link Supplier} of {@link CompletableFuture}, each call subscribes once
+	 */
+	public Supplier<CompletableFuture<Void>> forInput(final Consumer<InputStream> inputStreamConsumer);
+
+	/**
+	 * Configures this builder to use the given {@link Consumer} for the read operation.
+	 * 
+	 * @param inputStreamConsumer
+	 *            {@link Consumer} which will be used by the pipe to process the {@link InputStream}
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operation on {@link InputStream}.
+	 * @return {@link Supplier} of {@link CompletableFuture}, each call subscribes once
+	 */
+	public Supplier<CompletableFuture<Void>> forInput(final Consumer<InputStream> inputStreamConsumer, final Executor readExecutor);
+
+	/**
+	 * Configures this builder to use the given {@link Function} for the read operation, executed on the default {@link Executor}.
+	 * 
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 * @param <T>
+	 *            Type of the desired result object
+	 * @return {@link Supplier} of {@link CompletableFuture}, each call subscribes once
+	 */
+	public <T> Supplier<CompletableFuture<T>> mapInput(final Function<InputStream, T> inputStreamMapper);
+
+	/**
+	 * Configures this builder to use the given {@link Function} for the read operation.
+	 * 
+	 * @param inputStreamMapper
+	 *            {@link Function} which will be used by the pipe to process the {@link InputStream} and produce a result.
+	 * @param readExecutor
+	 *            The {@link Executor} to use for the read operation on {@link InputStream}.
+	 * @param <T>
+	 *            Type of the desired result object
+	 * @return {@link Supplier} of {@link CompletableFuture}, each call subscribes once
+	 */
+	public <T> Supplier<CompletableFuture<T>> mapInput(final Function<InputStream, T> inputStreamMapper, final Executor readExecutor);
+
+}
@@ -31,7 +31,8 @@ public interface ReadExecutorDefinedPipeBuilder<T> {
 
 	/**
 	 * Configures this builder to use {@link ForkJoinPool#commonPool()} as {@link Executor} for the write operations on {@link OutputStream} resp. {@link Writer}. Call to
-	 * {@link Supplier#get()} method on the returned {@link Supplier} will start the piped processing.
+	 * {@link Supplier#get()} method on the returned {@link Supplier} will start the piped processing. If the builder has been configured by {@code virtualThreads()} the write
+	 * operations run on a virtual thread instead.
 	 * 
 	 * @return {@link Supplier}
 	 */
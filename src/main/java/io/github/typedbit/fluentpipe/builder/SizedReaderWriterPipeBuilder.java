@@ -17,8 +17,13 @@ package io.github.typedbit.fluentpipe.builder;
 
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.concurrent.Flow;
 import java.util.function.Consumer;
 
+import io.github.typedbit.fluentpipe.PipeMetrics;
+
 /**
  * Builder for a stream ({@link Reader} and {@link Writer}) based pipe.
  * 
@@ -26,6 +31,56 @@ import java.util.function.Consumer;
  */
 public interface SizedReaderWriterPipeBuilder {
 
+	/**
+	 * Configures this builder to read the chars published by the given {@link Flow.Publisher} instead of the chars written by a write operation. No thread is needed for the
+	 * writing side: items are requested one at a time while fewer than the size configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)} (otherwise 64 Ki) chars
+	 * are queued, so a reactive source is throttled by a blocking read operation without blocking the threads of the {@link Flow.Publisher}. The engine is not used and
+	 * {@code metrics(...)} is not supported, {@code deadline(...)} and {@code idleTimeout(...)} apply as for any other pipe.
+	 * 
+	 * @param publisher
+	 *            The {@link Flow.Publisher} of the chars to read.
+	 * @return {@link PublishedReaderWriterPipeBuilder}
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with {@code metrics(...)}
+	 */
+	public PublishedReaderWriterPipeBuilder forPublisher(final Flow.Publisher<? extends CharBuffer> publisher);
+
+	/**
+	 * Configures this builder to record the figures of each execution of the pipe, e.g. chars transferred and time blocked on either side, see {@link PipeMetrics}. The same
+	 * instance may be passed to any number of builders to aggregate their figures.
+	 * 
+	 * @param metrics
+	 *            The {@link PipeMetrics} to record to.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 */
+	public SizedReaderWriterPipeBuilder metrics(final PipeMetrics metrics);
+
+	/**
+	 * Configures this builder to tear down an execution which takes longer than the given duration: the pipe gets closed, the threads of both operations get interrupted and the
+	 * execution fails with {@link java.util.concurrent.TimeoutException}. Applies to the pipes obtained by {@code forInput} and {@code mapInput}.
+	 * 
+	 * @param deadline
+	 *            The maximum duration of an execution, measured from its start.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the duration is not positive
+	 */
+	public SizedReaderWriterPipeBuilder deadline(final Duration deadline);
+
+	/**
+	 * Configures this builder to tear down an execution in which no char has been read for the given duration, like {@link #deadline(Duration)}. So a hanging operation on either
+	 * side does not occupy threads forever, while a long but steady transfer is not affected. Note that the read operation must not spend more than the given duration after its
+	 * last read either. A pipe running the write operation before the read operation, see {@code inlineIfFits(...)}, counts the chars written as progress until the read
+	 * operation starts.
+	 * 
+	 * @param idleTimeout
+	 *            The maximum duration without progress.
+	 * @return {@link SizedReaderWriterPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the duration is not positive
+	 */
+	public SizedReaderWriterPipeBuilder idleTimeout(final Duration idleTimeout);
+
 	/**
 	 * Configures this builder to use given {@link Consumer} as write operation on {@link Writer}.
 	 * 
@@ -17,8 +17,16 @@ package io.github.typedbit.fluentpipe.builder;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.time.Duration;
+import java.util.concurrent.Flow;
 import java.util.function.Consumer;
 
+import io.github.typedbit.fluentpipe.ChannelSink;
+import io.github.typedbit.fluentpipe.PipeMetrics;
+
 /**
  * Builder for a stream ({@link InputStream} and {@link OutputStream}) based pipe.
  * 
@@ -26,6 +34,56 @@ import java.util.function.Consumer;
  */
 public interface SizedStreamPipeBuilder {
 
+	/**
+	 * Configures this builder to read the bytes published by the given {@link Flow.Publisher} instead of the bytes written by a write operation. No thread is needed for the
+	 * writing side: items are requested one at a time while fewer than the size configured by {@code pipeSize(int), ringBuffer(int) or virtualThreads(int)} (otherwise 64 Ki) bytes
+	 * are queued, so a reactive source is throttled by a blocking read operation without blocking the threads of the {@link Flow.Publisher}. The engine is not used and
+	 * {@code metrics(...)} is not supported, {@code deadline(...)} and {@code idleTimeout(...)} apply as for any other pipe.
+	 * 
+	 * @param publisher
+	 *            The {@link Flow.Publisher} of the bytes to read.
+	 * @return {@link PublishedStreamPipeBuilder}
+	 * @throws IllegalStateException
+	 *             if the pipe has been configured with {@code metrics(...)}
+	 */
+	public PublishedStreamPipeBuilder forPublisher(final Flow.Publisher<? extends ByteBuffer> publisher);
+
+	/**
+	 * Configures this builder to record the figures of each execution of the pipe, e.g. bytes transferred and time blocked on either side, see {@link PipeMetrics}. The same
+	 * instance may be passed to any number of builders to aggregate their figures.
+	 * 
+	 * @param metrics
+	 *            The {@link PipeMetrics} to record to.
+	 * @return {@link SizedStreamPipeBuilder}
+	 */
+	public SizedStreamPipeBuilder metrics(final PipeMetrics metrics);
+
+	/**
+	 * Configures this builder to tear down an execution which takes longer than the given duration: the pipe gets closed, the threads of both operations get interrupted and the
+	 * execution fails with {@link java.util.concurrent.TimeoutException}. Applies to the pipes obtained by {@code forInput} and {@code mapInput}.
+	 * 
+	 * @param deadline
+	 *            The maximum duration of an execution, measured from its start.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the duration is not positive
+	 */
+	public SizedStreamPipeBuilder deadline(final Duration deadline);
+
+	/**
+	 * Configures this builder to tear down an execution in which no byte has been read for the given duration, like {@link #deadline(Duration)}. So a hanging operation on either
+	 * side does not occupy threads forever, while a long but steady transfer is not affected. Note that the read operation must not spend more than the given duration after its
+	 * last read either. A pipe running the write operation before the read operation, see {@code inlineIfFits(...)}, counts the bytes written as progress until the read
+	 * operation starts.
+	 * 
+	 * @param idleTimeout
+	 *            The maximum duration without progress.
+	 * @return {@link SizedStreamPipeBuilder}
+	 * @throws IllegalArgumentException
+	 *             if the duration is not positive
+	 */
+	public SizedStreamPipeBuilder idleTimeout(final Duration idleTimeout);
+
 	/**
 	 * Configures this builder to use given {@link Consumer} as write operation on {@link OutputStream}.
 	 * 
@@ -35,4 +93,18 @@ public interface SizedStreamPipeBuilder {
 	 */
 	public ConsumedOutputStreamPipeBuilder forOutput(final Consumer<OutputStream> outputStreamConsumer);
 
+	/**
+	 * Configures this builder to use given {@link Consumer} as write operation on a {@link WritableByteChannel}. The ring buffer engines write {@link ByteBuffer} contents and
+	 * {@link ChannelSink#transferFrom(java.nio.channels.ReadableByteChannel)} reads channels directly into the ring buffer, other engines are adapted by
+	 * {@link ChannelSink#of(OutputStream)}.
+	 * 
+	 * @param channelConsumer
+	 *            The {@link Consumer} implementing the write operation on {@link ChannelSink}, a {@link WritableByteChannel}.
+	 * @return {@link ConsumedOutputStreamPipeBuilder}
+	 */
+	default public ConsumedOutputStreamPipeBuilder forOutputChannel(final Consumer<? super ChannelSink> channelConsumer) {
+		Objects.requireNonNull(channelConsumer);
+		return forOutput((o) -> channelConsumer.accept(ChannelSink.of(o)));
+	}
+
 }
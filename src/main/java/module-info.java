@@ -16,4 +16,5 @@
 module io.github.typedbit.fluentpipe {
 	exports io.github.typedbit.fluentpipe.builder;
 	exports io.github.typedbit.fluentpipe;
-}
\ No newline at end of file
+	requires transitive java.xml;
+}
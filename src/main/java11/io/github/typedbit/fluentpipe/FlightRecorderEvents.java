@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.Optional;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits JDK Flight Recorder events for the buffers of pipes: one event per pipe covering its lifetime from building up the buffer until both ends have been closed, with the
+ * elements transferred and the duration of either side, and one event per stall, i.e. each time a side blocks on a full resp. empty buffer for longer than the threshold.
+ * <p>
+ * This is the Java 11 variant of this class. The threshold of stall events defaults to 10 ms and is configured like the one of any other event, e.g. by
+ * {@code jdk.jfr.Recording.enable("io.github.typedbit.fluentpipe.PipeStall").withThreshold(Duration.ofMillis(1))} or the settings file of the recording. If the module
+ * {@code jdk.jfr} is not part of the runtime, no events are emitted.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class FlightRecorderEvents {
+
+	@Name("io.github.typedbit.fluentpipe.Pipe")
+	@Label("Pipe")
+	@Category("Fluent Pipe")
+	@Description("Lifetime of a pipe from building up its buffer until both ends have been closed")
+	@StackTrace(false)
+	static final class PipeEvent extends Event {
+
+		@Label("Buffer")
+		String buffer;
+
+		@Label("Transferred")
+		@Description("Number of bytes resp. chars read")
+		@DataAmount
+		long transferred;
+
+		@Label("Write Duration")
+		@Description("Time until the writing side has been closed")
+		@Timespan
+		long writeDuration;
+
+		@Label("Read Duration")
+		@Description("Time until the reading side has been closed")
+		@Timespan
+		long readDuration;
+
+	}
+
+	@Name("io.github.typedbit.fluentpipe.PipeStall")
+	@Label("Pipe Stall")
+	@Category("Fluent Pipe")
+	@Description("A side of a pipe blocked on a full resp. empty buffer")
+	@Threshold("10 ms")
+	static final class StallEvent extends Event {
+
+		@Label("Buffer")
+		String buffer;
+
+		@Label("Writing")
+		@Description("True if the writing side waited for free space, false if the reading side waited for data")
+		boolean writing;
+
+	}
+
+	private static final boolean AVAILABLE = available();
+
+	private static boolean available() {
+		final Optional<Module> module = ModuleLayer.boot().findModule("jdk.jfr");
+		if (module.isPresent()) {
+			// a named module does not read jdk.jfr without declaring it, which the Java 9 module descriptor cannot do
+			FlightRecorderEvents.class.getModule().addReads(module.get());
+			return true;
+		}
+		return false;
+	}
+
+	private FlightRecorderEvents() {
+		// utility class
+	}
+
+	static Object beginPipe(final Class<?> buffer) {
+		if (!AVAILABLE) {
+			return null;
+		}
+		final PipeEvent event = new PipeEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.buffer = buffer.getSimpleName();
+		event.begin();
+		return event;
+	}
+
+	static void endPipe(final Object event, final long transferred, final long writeDuration, final long readDuration) {
+		if (event != null) {
+			final PipeEvent pipeEvent = (PipeEvent) event;
+			pipeEvent.end();
+			if (pipeEvent.shouldCommit()) {
+				pipeEvent.transferred = transferred;
+				pipeEvent.writeDuration = Math.max(0, writeDuration);
+				pipeEvent.readDuration = Math.max(0, readDuration);
+				pipeEvent.commit();
+			}
+		}
+	}
+
+	static Object beginStall(final Class<?> buffer, final boolean writing) {
+		if (!AVAILABLE) {
+			return null;
+		}
+		final StallEvent event = new StallEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.buffer = buffer.getSimpleName();
+		event.writing = writing;
+		event.begin();
+		return event;
+	}
+
+	static void endStall(final Object event) {
+		if (event != null) {
+			final StallEvent stallEvent = (StallEvent) event;
+			stallEvent.end();
+			if (stallEvent.shouldCommit()) {
+				stallEvent.commit();
+			}
+		}
+	}
+
+}
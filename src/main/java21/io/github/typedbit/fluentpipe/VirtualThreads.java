@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides an {@link Executor} starting a new virtual thread for each task.
+ * <p>
+ * This is the Java 21 variant of this class which is packaged to {@code META-INF/versions/21} of the multi-release jar.
+ * </p>
+ * 
+ * @author Dieter König
+ */
+final class VirtualThreads {
+
+	private static final ThreadFactory FACTORY = Thread.ofVirtual().name("fluent-pipe-", 0).factory();
+
+	private static final Executor EXECUTOR = (command) -> FACTORY.newThread(command).start();
+
+	private VirtualThreads() {
+		// utility class
+	}
+
+	/**
+	 * Returns an {@link Executor} starting a new virtual thread for each task.
+	 * 
+	 * @return {@link Executor}
+	 */
+	static Executor executor() {
+		return EXECUTOR;
+	}
+
+}
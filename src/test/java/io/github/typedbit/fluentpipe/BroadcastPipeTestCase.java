@@ -0,0 +1,282 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BroadcastStreamPipe} and {@link BroadcastReaderWriterPipe} classes.
+ * 
+ * @author Dieter König
+ */
+public class BroadcastPipeTestCase {
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testMapInputs() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+
+		final Function<InputStream, byte[]> readAll = (i) -> {
+			try {
+				return i.readAllBytes();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		};
+		final Function<InputStream, byte[]> digest = (i) -> {
+			try {
+				final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+				final byte[] buffer = new byte[7];
+				int len;
+				while ((len = i.read(buffer)) != -1) {
+					messageDigest.update(buffer, 0, len);
+				}
+				return messageDigest.digest();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		};
+
+		final List<byte[]> actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					try {
+						for (int offset = 0; offset < expecteds.length; offset += 3000) {
+							o.write(expecteds, offset, Math.min(3000, expecteds.length - offset));
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInputs(Arrays.asList(readAll, digest, readAll))
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(3, actuals.size());
+		Assertions.assertArrayEquals(expecteds, actuals.get(0));
+		Assertions.assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expecteds), actuals.get(1));
+		Assertions.assertArrayEquals(expecteds, actuals.get(2));
+	}
+
+	@Test
+	public void testForInputsReaderClosedEarly() throws Exception {
+		final AtomicLong count = new AtomicLong();
+
+		StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[1 << 16]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInputs(Arrays.asList((i) -> {
+					try {
+						i.read();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, (i) -> {
+					try {
+						count.addAndGet(i.readAllBytes().length);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}))
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		// a reader closed early does not hold up the others
+		Assertions.assertEquals(1 << 16, count.get());
+	}
+
+	@Test
+	public void testReaderFailure() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forWriter((w) -> {
+					try {
+						for (int i = 0; i < 10000; i++) {
+							w.write("0123456789");
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forReaders(Arrays.asList((r) -> {
+					throw new IllegalStateException("reader failed");
+				}, (r) -> {
+					try {
+						readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}))
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get());
+
+		Assertions.assertEquals("reader failed", exception.getCause().getMessage());
+	}
+
+	@Test
+	public void testMapReaders() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			expected.append(i).append(',');
+		}
+
+		final List<String> actuals = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(100)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected, 0, 1000);
+						w.write(expected.substring(1000, 2000));
+						w.append(expected.subSequence(2000, expected.length()));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReaders(Arrays.<Function<Reader, String>> asList((r) -> {
+					try {
+						return readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, (r) -> {
+					try {
+						final StringBuilder result = new StringBuilder();
+						int c;
+						while ((c = r.read()) != -1) {
+							result.append((char) c);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}))
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(Arrays.asList(expected.toString(), expected.toString()), actuals);
+	}
+
+	private static String readAll(final Reader reader) throws IOException {
+		final StringWriter result = new StringWriter();
+		final char[] buffer = new char[13];
+		int len;
+		while ((len = reader.read(buffer)) != -1) {
+			result.write(buffer, 0, len);
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testUnsupportedOptions() {
+		final List<Consumer<InputStream>> inputStreamConsumers = Arrays.asList((i) -> {}, (i) -> {});
+		final List<Consumer<Reader>> readerConsumers = Arrays.asList((r) -> {}, (r) -> {});
+
+		// the shared buffer of a broadcast pipe would silently replace these options
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().adaptivePipeSize(16, 1024).forOutput((o) -> {}).forInputs(inputStreamConsumers));
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().spillToDisk(16).forOutput((o) -> {}).forInputs(inputStreamConsumers));
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> StreamPipeBuilder.create().ringBuffer(16).metrics(PipeMetrics.create()).forOutput((o) -> {}).forInputs(inputStreamConsumers));
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> StreamPipeBuilder.create().ringBuffer(16).deadline(Duration.ofSeconds(1)).forOutput((o) -> {}).forInputs(inputStreamConsumers));
+		Assertions.assertThrows(IllegalStateException.class, () -> ReaderWriterPipeBuilder.create().adaptivePipeSize(16, 1024).forWriter((w) -> {}).forReaders(readerConsumers));
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> ReaderWriterPipeBuilder.create().ringBuffer(16).idleTimeout(Duration.ofSeconds(1)).forWriter((w) -> {}).forReaders(readerConsumers));
+
+		Assertions.assertNotNull(StreamPipeBuilder.create().pipeSize(16).forOutput((o) -> {}).forInputs(inputStreamConsumers));
+		Assertions.assertNotNull(ReaderWriterPipeBuilder.create().ringBuffer(16).forWriter((w) -> {}).forReaders(readerConsumers));
+	}
+
+}
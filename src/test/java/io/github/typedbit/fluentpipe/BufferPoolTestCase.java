@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BufferPool} class.
+ * 
+ * @author Dieter König
+ */
+public class BufferPoolTestCase {
+
+	@Test
+	public void testReuseByBuilder() throws Exception {
+		final BufferPool pool = BufferPool.create();
+		final byte[] expecteds;
+		try (final InputStream input = BufferPoolTestCase.class.getResourceAsStream("test1.xml")) {
+			expecteds = input.readAllBytes();
+		}
+
+		final Supplier<Callable<Void>> supplier = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024, pool)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try {
+						Assertions.assertArrayEquals(expecteds, i.readAllBytes());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite();
+
+		for (int i = 0; i < 100; i++) {
+			supplier.get().call();
+		}
+		Assertions.assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void testReuseDirect() throws Exception {
+		final BufferPool pool = BufferPool.create();
+		final byte[] expecteds = new byte[5000];
+		new Random(42).nextBytes(expecteds);
+
+		final Supplier<Callable<Void>> supplier = StreamPipeBuilder
+
+				.create()
+
+				.directRingBuffer(1024, pool)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try {
+						Assertions.assertArrayEquals(expecteds, i.readAllBytes());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite();
+
+		for (int i = 0; i < 100; i++) {
+			supplier.get().call();
+		}
+		Assertions.assertEquals(1, pool.size());
+		final ByteBuffer buffer = pool.takeDirect(1024);
+		Assertions.assertTrue(buffer.isDirect());
+		Assertions.assertEquals(1024, buffer.capacity());
+		Assertions.assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void testReturnedAfterBothClosed() throws Exception {
+		final BufferPool pool = BufferPool.create();
+		final CharRingBuffer buffer = new CharRingBuffer(16, pool);
+		buffer.getWriter().close();
+		Assertions.assertEquals(0, pool.size());
+		buffer.getReader().close();
+		buffer.getReader().close();
+		Assertions.assertEquals(1, pool.size());
+		Assertions.assertEquals(16, pool.takeChars(16).length);
+		Assertions.assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void testNotReturnedAfterTearDown() throws Exception {
+		final BufferPool pool = BufferPool.create();
+		final ByteRingBuffer buffer = new ByteRingBuffer(16, pool);
+		final PipeGuard guard = new PipeGuard(PipeTimeouts.NONE, buffer, buffer.getInputStream());
+		buffer.getOutputStream().close();
+		// the reading side may still copy from the array
+		Assertions.assertTrue(guard.cancel(new CancellationException()));
+		buffer.getInputStream().close();
+		Assertions.assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void testSizeClasses() {
+		final BufferPool pool = BufferPool.create(2, Duration.ofMinutes(1));
+		final byte[] small = pool.takeBytes(1024);
+		final byte[] large = pool.takeBytes(2048);
+		pool.giveBytes(small);
+		pool.giveBytes(large);
+		Assertions.assertSame(large, pool.takeBytes(2048));
+		Assertions.assertSame(small, pool.takeBytes(1024));
+		Assertions.assertNotSame(small, pool.takeBytes(1024));
+
+		// bounded
+		for (int i = 0; i < 5; i++) {
+			pool.giveBytes(new byte[1024]);
+		}
+		Assertions.assertEquals(2, pool.size());
+	}
+
+	@Test
+	public void testIdleEviction() throws Exception {
+		final BufferPool pool = BufferPool.create(4, Duration.ofMillis(10));
+		final char[] array = pool.takeChars(64);
+		pool.giveChars(array);
+		Thread.sleep(50);
+		Assertions.assertNotSame(array, pool.takeChars(64));
+		Assertions.assertEquals(0, pool.size());
+	}
+
+}
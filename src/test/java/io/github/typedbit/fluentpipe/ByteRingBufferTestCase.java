@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ByteRingBuffer} class.
+ * 
+ * @author Dieter König
+ */
+public class ByteRingBufferTestCase {
+
+	@Test
+	public void testByBuilder() throws Exception {
+		StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.forOutput((o) -> {
+					try (final InputStream input = ByteRingBufferTestCase.class.getResourceAsStream("test1.xml")) {
+						final byte[] buffer = new byte[16];
+						int len;
+						while ((len = input.read(buffer)) != -1) {
+							o.write(buffer, 0, len);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try (final InputStream input = ByteRingBufferTestCase.class.getResourceAsStream("test1.xml")) {
+						Assertions.assertArrayEquals(input.readAllBytes(), i.readAllBytes());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite()
+
+				.get()
+
+				.call();
+	}
+
+	@Test
+	public void testWrapAround() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					final Random random = new Random(7);
+					try {
+						int offset = 0;
+						while (offset < expecteds.length) {
+							final int len = Math.min(random.nextInt(3000), expecteds.length - offset);
+							if (len == 0) {
+								o.write(expecteds[offset++]);
+							} else {
+								o.write(expecteds, offset, len);
+								offset += len;
+							}
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testReaderClosedEarly() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forOutput((o) -> {
+					try {
+						final byte[] buffer = new byte[1024];
+						for (int i = 0; i < 1024; i++) {
+							o.write(buffer);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try {
+						i.read();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite()
+
+				.get()
+
+				.call());
+
+		Assertions.assertEquals(IOException.class, exception.getCause().getCause().getClass());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final ByteRingBuffer ringBuffer = new ByteRingBuffer(4);
+		final InputStream input = ringBuffer.getInputStream();
+		final OutputStream output = ringBuffer.getOutputStream();
+
+		output.write(new byte[] { 1, 2, 3 });
+		Assertions.assertEquals(3, input.available());
+		output.close();
+		Assertions.assertThrows(IOException.class, () -> output.write(4));
+
+		final byte[] actuals = new byte[8];
+		Assertions.assertEquals(3, input.read(actuals));
+		Assertions.assertArrayEquals(new byte[] { 1, 2, 3 }, Arrays.copyOf(actuals, 3));
+		Assertions.assertEquals(-1, input.read());
+		input.close();
+		Assertions.assertThrows(IOException.class, () -> input.read());
+	}
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DirectRingBuffer}, {@link ChannelSink} and {@link ChannelSource} classes.
+ * 
+ * @author Dieter König
+ */
+public class ChannelPipeTestCase {
+
+	private Path source;
+
+	private Path target;
+
+	private byte[] expecteds;
+
+	@BeforeEach
+	public void createFiles() throws IOException {
+		expecteds = new byte[(1 << 20) + 123];
+		new Random(42).nextBytes(expecteds);
+		source = Files.createTempFile("fluent-pipe-test", ".bin");
+		target = Files.createTempFile("fluent-pipe-test", ".bin");
+		Files.write(source, expecteds);
+	}
+
+	@AfterEach
+	public void deleteFiles() throws IOException {
+		Files.delete(source);
+		Files.delete(target);
+	}
+
+	private void copyFile(final StreamPipeEngine engine) throws Exception {
+		final long transferred = StreamPipeBuilder
+
+				.create()
+
+				.engine(engine)
+
+				.forOutputChannel((c) -> {
+					try (final FileChannel file = FileChannel.open(source)) {
+						Assertions.assertEquals(expecteds.length, c.transferFrom(file));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInputChannel((c) -> {
+					try (final FileChannel file = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+						return c.transferTo(file);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expecteds.length, transferred);
+		Assertions.assertArrayEquals(expecteds, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void testTransferDirect() throws Exception {
+		copyFile(StreamPipeEngine.directRingBuffer(1000));
+	}
+
+	@Test
+	public void testTransferHeap() throws Exception {
+		copyFile(StreamPipeEngine.ringBuffer(1000));
+	}
+
+	@Test
+	public void testTransferCopying() throws Exception {
+		copyFile(StreamPipeEngine.piped(1000));
+	}
+
+	@Test
+	public void testFileChannelTransfer() throws Exception {
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.directRingBuffer(4096)
+
+				.forOutputChannel((c) -> {
+					try (final FileChannel file = FileChannel.open(source)) {
+						long position = 0;
+						while (position < file.size()) {
+							position += file.transferTo(position, file.size() - position, c);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInputChannel((c) -> {
+					try (final FileChannel file = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+						long position = 0;
+						long count;
+						while ((count = file.transferFrom(c, position, 1 << 16)) > 0) {
+							position += count;
+						}
+						return Files.readAllBytes(target);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testWrapAround() throws Exception {
+		for (final StreamPipeEngine engine : Arrays.asList(StreamPipeEngine.directRingBuffer(1000), StreamPipeEngine.ringBuffer(1000))) {
+			final byte[] actuals = StreamPipeBuilder
+
+					.create()
+
+					.engine(engine)
+
+					.forOutputChannel((c) -> {
+						final Random random = new Random(7);
+						try {
+							int offset = 0;
+							while (offset < expecteds.length) {
+								final int len = Math.min(random.nextInt(3000), expecteds.length - offset);
+								final ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocateDirect(len) : ByteBuffer.allocate(len);
+								buffer.put(expecteds, offset, len).flip();
+								Assertions.assertEquals(len, c.write(buffer));
+								Assertions.assertFalse(buffer.hasRemaining());
+								offset += len;
+							}
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					})
+
+					.mapInputChannel((c) -> {
+						final Random random = new Random(11);
+						final ByteBuffer result = ByteBuffer.allocate(expecteds.length);
+						try {
+							final ByteBuffer direct = ByteBuffer.allocateDirect(3000);
+							int count;
+							do {
+								direct.clear().limit(1 + random.nextInt(3000));
+								count = c.read(direct);
+								result.put(direct.flip());
+							} while (count >= 0);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+						return result.array();
+					})
+
+					.asyncRead()
+
+					.asyncWrite()
+
+					.get()
+
+					.get();
+
+			Assertions.assertArrayEquals(expecteds, actuals);
+		}
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final DirectRingBuffer ringBuffer = new DirectRingBuffer(4);
+		final InputStream input = ringBuffer.getInputStream();
+		final OutputStream output = ringBuffer.getOutputStream();
+		final ChannelSink sink = ChannelSink.of(output);
+		final ChannelSource source = ChannelSource.of(input);
+		Assertions.assertSame(output, sink);
+		Assertions.assertSame(input, source);
+
+		output.write(new byte[] { 1, 2, 3 });
+		Assertions.assertEquals(3, input.available());
+		sink.close();
+		Assertions.assertFalse(sink.isOpen());
+		Assertions.assertThrows(IOException.class, () -> sink.write(ByteBuffer.wrap(new byte[] { 4 })));
+
+		final ByteBuffer actuals = ByteBuffer.allocate(8);
+		Assertions.assertEquals(3, source.read(actuals));
+		Assertions.assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), actuals.flip());
+		Assertions.assertEquals(-1, input.read());
+		Assertions.assertTrue(source.isOpen());
+		source.close();
+		Assertions.assertFalse(source.isOpen());
+		Assertions.assertThrows(IOException.class, () -> input.read());
+	}
+
+	@Test
+	public void testNonBlockingChannel() throws Exception {
+		final Pipe channels = Pipe.open();
+		try {
+			channels.sink().configureBlocking(false);
+			channels.source().configureBlocking(false);
+			final List<StreamPipeEngine.Connection> connections = Arrays.asList(new DirectRingBuffer(16), new ByteRingBuffer(16), StreamPipeEngine.piped(16).connect());
+			for (final StreamPipeEngine.Connection connection : connections) {
+				// a transfer would spin as long as the channel is not ready instead of blocking
+				final ChannelSink sink = ChannelSink.of(connection.getOutputStream());
+				final ChannelSource source = ChannelSource.of(connection.getInputStream());
+				Assertions.assertThrows(IllegalBlockingModeException.class, () -> sink.transferFrom(channels.source()));
+				Assertions.assertThrows(IllegalBlockingModeException.class, () -> source.transferTo(channels.sink()));
+			}
+		} finally {
+			channels.sink().close();
+			channels.source().close();
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CharRingBuffer} class.
+ * 
+ * @author Dieter König
+ */
+public class CharRingBufferTestCase {
+
+	private static String readAll(final Reader reader) throws IOException {
+		final StringWriter result = new StringWriter();
+		final CharBuffer buffer = CharBuffer.allocate(100);
+		while (reader.read(buffer) != -1) {
+			buffer.flip();
+			result.append(buffer);
+			buffer.clear();
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testByBuilder() throws Exception {
+		final String expected;
+		try (final Reader reader = new InputStreamReader(CharRingBufferTestCase.class.getResourceAsStream("test1.xml"), StandardCharsets.UTF_8)) {
+			expected = readAll(reader);
+		}
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(32)
+
+				.forWriter((w) -> {
+					try (final Reader reader = new InputStreamReader(CharRingBufferTestCase.class.getResourceAsStream("test1.xml"), StandardCharsets.UTF_8)) {
+						final char[] buffer = new char[16];
+						int len;
+						while ((len = reader.read(buffer)) != -1) {
+							w.write(buffer, 0, len);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						return readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			expected.append(i).append(',');
+		}
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(100)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected, 0, 1000);
+						w.append(CharBuffer.wrap(expected, 1000, 2000));
+						w.append(CharBuffer.wrap(expected.substring(2000, 3000).toCharArray()));
+						w.write(expected.substring(3000, 4000));
+						w.append(expected.subSequence(4000, expected.length()));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						return readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expected.toString(), actual);
+	}
+
+}
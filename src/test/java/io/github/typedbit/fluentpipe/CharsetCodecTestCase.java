@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link CharsetCodec} class and the pipes converting between bytes and chars.
+ * 
+ * @author Dieter König
+ */
+public class CharsetCodecTestCase {
+
+	private static final String TEXT;
+
+	static {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			// ASCII, Latin-1, BMP and supplementary characters
+			text.append("line ").append(i).append(i % 3 == 0 ? " äöü" : "").append(i % 7 == 0 ? " €😀" : "").append('\n');
+		}
+		TEXT = text.toString();
+	}
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static String readAll(final Reader reader) {
+		try {
+			final StringWriter result = new StringWriter();
+			final char[] buffer = new char[777];
+			int len;
+			while ((len = reader.read(buffer)) != -1) {
+				result.write(buffer, 0, len);
+			}
+			return result.toString();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private String decode(final byte[] bytes, final Charset charset, final CodecSide side) throws Exception {
+		return StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					try {
+						// odd chunks split multi-byte sequences
+						for (int offset = 0; offset < bytes.length; offset += 999) {
+							o.write(bytes, offset, Math.min(999, bytes.length - offset));
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader(charset, side, CharsetCodecTestCase::readAll)
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+	}
+
+	private byte[] encode(final String text, final Charset charset, final CodecSide side) throws Exception {
+		return ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forWriter((w) -> {
+					try {
+						for (int offset = 0; offset < text.length(); offset += 999) {
+							w.write(text, offset, Math.min(999, text.length() - offset));
+						}
+						w.write(text.toCharArray(), 0, 0);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput(charset, side, (i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+	}
+
+	@Test
+	public void testDecode() throws Exception {
+		for (final CodecSide side : CodecSide.values()) {
+			for (final Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, Charset.forName("windows-1252") }) {
+				final String expected = new String(TEXT.getBytes(charset), charset);
+				Assertions.assertEquals(expected, decode(TEXT.getBytes(charset), charset, side), charset + " " + side);
+			}
+			final byte[] latin1 = new byte[256 * 100];
+			for (int i = 0; i < latin1.length; i++) {
+				latin1[i] = (byte) i;
+			}
+			Assertions.assertEquals(new String(latin1, StandardCharsets.ISO_8859_1), decode(latin1, StandardCharsets.ISO_8859_1, side));
+			Assertions.assertEquals(new String(latin1, StandardCharsets.US_ASCII), decode(latin1, StandardCharsets.US_ASCII, side));
+		}
+	}
+
+	@Test
+	public void testEncode() throws Exception {
+		for (final CodecSide side : CodecSide.values()) {
+			for (final Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII }) {
+				Assertions.assertArrayEquals(TEXT.getBytes(charset), encode(TEXT, charset, side), charset + " " + side);
+			}
+		}
+	}
+
+	@Test
+	public void testMalformed() throws Exception {
+		// truncated sequence at the end of the stream
+		final byte[] truncated = { 'a', (byte) 0xe2, (byte) 0x82 };
+		for (final CodecSide side : CodecSide.values()) {
+			Assertions.assertEquals(new String(truncated, StandardCharsets.UTF_8), decode(truncated, StandardCharsets.UTF_8, side));
+		}
+		Assertions.assertArrayEquals("a?".getBytes(StandardCharsets.UTF_8), encode("a\ud83d", StandardCharsets.UTF_8, CodecSide.READING));
+	}
+
+	@Test
+	public void testSingleChars() throws IOException {
+		final String text = "aä😀z";
+		final StringBuilder actual = new StringBuilder();
+		try (final Reader reader = new DecodingReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)) {
+			int c;
+			while ((c = reader.read()) != -1) {
+				actual.append((char) c);
+			}
+		}
+		Assertions.assertEquals(text, actual.toString());
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final InputStream input = new EncodingInputStream(new StringReader(text), StandardCharsets.UTF_8)) {
+			int b;
+			while ((b = input.read()) != -1) {
+				bytes.write(b);
+			}
+		}
+		Assertions.assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+
+		final StringWriter chars = new StringWriter();
+		try (final DecodingOutputStream output = new DecodingOutputStream(chars, StandardCharsets.UTF_8)) {
+			for (final byte b : text.getBytes(StandardCharsets.UTF_8)) {
+				output.write(b);
+			}
+		}
+		Assertions.assertEquals(text, chars.toString());
+
+		final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		try (final Writer writer = new EncodingWriter(encoded, StandardCharsets.UTF_8)) {
+			for (final char c : text.toCharArray()) {
+				writer.write(c);
+			}
+		}
+		Assertions.assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), encoded.toByteArray());
+	}
+
+	@Test
+	public void testFlushSingleBytes() throws IOException {
+		final StringWriter chars = new StringWriter();
+		try (final DecodingOutputStream output = new DecodingOutputStream(chars, StandardCharsets.UTF_8)) {
+			output.write('a');
+			output.write('b');
+			output.flush();
+			Assertions.assertEquals("ab", chars.toString());
+
+			// an incomplete sequence is kept until the rest of it has been written
+			final byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+			output.write(euro[0]);
+			output.flush();
+			Assertions.assertEquals("ab", chars.toString());
+			output.write(euro[1]);
+			output.write(euro[2]);
+			output.flush();
+			Assertions.assertEquals("ab€", chars.toString());
+		}
+	}
+
+}
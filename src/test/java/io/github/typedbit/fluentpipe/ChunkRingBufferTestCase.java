@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ChunkRingBuffer} class.
+ * 
+ * @author Dieter König
+ */
+public class ChunkRingBufferTestCase {
+
+	@Test
+	public void testChunks() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+		final Set<ByteBuffer> used = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.chunked(1000, 4)
+
+				.forOutput((o) -> {
+					try (final ChunkSink sink = ChunkSink.of(o)) {
+						int offset = 0;
+						while (offset < expecteds.length) {
+							final ByteBuffer chunk = sink.obtain();
+							final int len = Math.min(chunk.remaining(), expecteds.length - offset);
+							chunk.put(expecteds, offset, len).flip();
+							sink.publish(chunk);
+							offset += len;
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					final ByteArrayOutputStream result = new ByteArrayOutputStream();
+					try {
+						final ChunkSource source = ChunkSource.of(i);
+						ByteBuffer chunk;
+						while ((chunk = source.receive()) != null) {
+							used.add(chunk);
+							result.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+							source.release(chunk);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					return result.toByteArray();
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+		Assertions.assertTrue(used.size() <= 4, "chunks are recycled");
+	}
+
+	@Test
+	public void testStreamAdapters() throws Exception {
+		final byte[] expecteds;
+		try (final InputStream input = ChunkRingBufferTestCase.class.getResourceAsStream("test1.xml")) {
+			expecteds = input.readAllBytes();
+		}
+
+		// stream operations on both sides
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.chunked(64, 2)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds, 0, 10);
+						o.write(expecteds[10]);
+						o.flush();
+						o.write(expecteds, 11, expecteds.length - 11);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testMixed() throws Exception {
+		final ChunkRingBuffer buffer = new ChunkRingBuffer(8, 4);
+		final ChunkSink sink = ChunkSink.of(buffer.getOutputStream());
+		final ChunkSource source = ChunkSource.of(buffer.getInputStream());
+
+		buffer.getOutputStream().write(new byte[] { 1, 2, 3 });
+		final ByteBuffer obtained = sink.obtain();
+		Assertions.assertThrows(IllegalStateException.class, () -> sink.obtain());
+		obtained.put((byte) 4).flip();
+		sink.publish(obtained);
+		sink.close();
+
+		Assertions.assertEquals(1, buffer.getInputStream().read());
+		final ByteBuffer first = source.receive();
+		Assertions.assertEquals(ByteBuffer.wrap(new byte[] { 2, 3 }), first);
+		Assertions.assertThrows(IllegalStateException.class, () -> source.release(ByteBuffer.allocate(1)));
+		source.release(first);
+		Assertions.assertEquals(4, buffer.getInputStream().read());
+		Assertions.assertNull(source.receive());
+		Assertions.assertEquals(-1, buffer.getInputStream().read());
+	}
+
+	@Test
+	public void testCopying() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final ChunkSink sink = ChunkSink.of(output);
+		final ByteBuffer chunk = sink.obtain();
+		chunk.put(new byte[] { 1, 2, 3 }).flip();
+		sink.publish(chunk);
+		Assertions.assertArrayEquals(new byte[] { 1, 2, 3 }, output.toByteArray());
+
+		final ChunkSource source = ChunkSource.of(new ByteArrayInputStream(output.toByteArray()));
+		final ByteBuffer received = source.receive();
+		Assertions.assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), received);
+		source.release(received);
+		Assertions.assertNull(source.receive());
+	}
+
+}
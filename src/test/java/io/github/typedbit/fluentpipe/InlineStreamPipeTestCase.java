@@ -0,0 +1,399 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link InlineStreamPipe} and {@link InlineReaderWriterPipe} class.
+ * 
+ * @author Dieter König
+ */
+public class InlineStreamPipeTestCase {
+
+	private ExecutorService executorService;
+
+	private AtomicInteger submitted;
+
+	private Executor executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		executorService = Executors.newCachedThreadPool();
+		submitted = new AtomicInteger();
+		executor = (command) -> {
+			submitted.incrementAndGet();
+			executorService.execute(command);
+		};
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executorService.shutdownNow();
+	}
+
+	private static byte[] readAll(final InputStream input) {
+		try {
+			return input.readAllBytes();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testSmallPayloadInline() throws Exception {
+		final Thread caller = Thread.currentThread();
+		final AtomicReference<Thread> reader = new AtomicReference<>();
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[] { 1, 2, 3 });
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					reader.set(Thread.currentThread());
+					return readAll(i);
+				})
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(new byte[] { 1, 2, 3 }, actuals);
+		Assertions.assertSame(caller, reader.get());
+		Assertions.assertEquals(0, submitted.get());
+	}
+
+	@Test
+	public void testLargePayloadHandedOver() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+		final Thread caller = Thread.currentThread();
+		final AtomicReference<Thread> reader = new AtomicReference<>();
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					reader.set(Thread.currentThread());
+					return readAll(i);
+				})
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+		Assertions.assertNotSame(caller, reader.get());
+		Assertions.assertEquals(1, submitted.get());
+	}
+
+	@Test
+	public void testPiped() throws Exception {
+		final byte[] expecteds = new byte[100000];
+		new Random(7).nextBytes(expecteds);
+
+		Assertions.assertArrayEquals(new byte[] { 4, 5 }, StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[] { 4, 5 });
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput(InlineStreamPipeTestCase::readAll)
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get());
+		Assertions.assertEquals(0, submitted.get());
+
+		Assertions.assertArrayEquals(expecteds, StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput(InlineStreamPipeTestCase::readAll)
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, submitted.get());
+	}
+
+	@Test
+	public void testReaderWriterCallable() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			expected.append(i).append(',');
+		}
+		final StringBuilder actual = new StringBuilder();
+
+		ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forReader((r) -> {
+					try {
+						final char[] buffer = new char[100];
+						int len;
+						while ((len = r.read(buffer)) != -1) {
+							actual.append(buffer, 0, len);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.call();
+
+		Assertions.assertEquals(expected.toString(), actual.toString());
+		Assertions.assertEquals(1, submitted.get());
+	}
+
+	@Test
+	public void testWriteFailure() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.forOutput((o) -> {
+					throw new IllegalStateException("failed");
+				})
+
+				.forInput((i) -> {
+					Assertions.fail("read operation must not run");
+				})
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.call());
+
+		Assertions.assertEquals(IllegalStateException.class, exception.getCause().getCause().getClass());
+		Assertions.assertEquals(0, submitted.get());
+	}
+
+	private static void writeSlowly(final OutputStream output) {
+		try {
+			for (int i = 0; i < 10; i++) {
+				output.write(i);
+				Thread.sleep(100);
+			}
+		} catch (IOException | InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testIdleTimeoutWhileWriting() throws Exception {
+		// a writer slower than the idle timeout whose output fits into the buffer is still making progress
+		final int count = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1 << 16)
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forOutput(InlineStreamPipeTestCase::writeSlowly)
+
+				.mapInput((i) -> readAll(i).length)
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(10, count);
+		Assertions.assertEquals(0, submitted.get());
+	}
+
+	@Test
+	public void testIdleTimeoutWhileWritingPiped() throws Exception {
+		final int count = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(1024)
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forOutput(InlineStreamPipeTestCase::writeSlowly)
+
+				.mapInput((i) -> readAll(i).length)
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(10, count);
+	}
+
+	@Test
+	public void testIdleTimeoutWhileWritingSpilled() throws Exception {
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.spillToDisk(1024)
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forWriter((w) -> {
+					try {
+						for (int i = 0; i < 10; i++) {
+							w.write('a' + i);
+							Thread.sleep(100);
+						}
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						final StringBuilder builder = new StringBuilder();
+						int c;
+						while ((c = r.read()) != -1) {
+							builder.append((char) c);
+						}
+						return builder.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals("abcdefghij", actual);
+	}
+
+	@Test
+	public void testSpillToDiskInline() throws Exception {
+		final byte[] expecteds = new byte[100000];
+		new Random(3).nextBytes(expecteds);
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.spillToDisk(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput(InlineStreamPipeTestCase::readAll)
+
+				.inlineIfFits(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+		Assertions.assertEquals(0, submitted.get());
+	}
+
+}
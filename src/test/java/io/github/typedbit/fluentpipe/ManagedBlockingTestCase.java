@@ -0,0 +1,202 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ManagedBlocking} class, i.e. pipes running on a {@link ForkJoinPool} with a single worker.
+ * 
+ * @author Dieter König
+ */
+public class ManagedBlockingTestCase {
+
+	private static final int SIZE = 1 << 20;
+
+	private ForkJoinPool pool;
+
+	@BeforeEach
+	public void createPool() {
+		pool = new ForkJoinPool(1);
+	}
+
+	@AfterEach
+	public void shutdownPool() {
+		pool.shutdownNow();
+	}
+
+	private static void write(final OutputStream output) {
+		try {
+			final byte[] buffer = new byte[1000];
+			for (int i = 0; i < SIZE / buffer.length; i++) {
+				output.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long read(final InputStream input) {
+		try {
+			final byte[] buffer = new byte[1000];
+			long count = 0;
+			int len;
+			while ((len = input.read(buffer)) != -1) {
+				count += len;
+			}
+			return count;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testRingBuffer() throws Exception {
+		final long actual = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forOutput(ManagedBlockingTestCase::write)
+
+				.mapInput(ManagedBlockingTestCase::read)
+
+				.asyncRead(pool)
+
+				.asyncWrite(pool)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(SIZE / 1000 * 1000, actual);
+	}
+
+	@Test
+	public void testPiped() throws Exception {
+		final long actual = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forOutput(ManagedBlockingTestCase::write)
+
+				.mapInput(ManagedBlockingTestCase::read)
+
+				.asyncRead(pool)
+
+				.asyncWrite(pool)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(SIZE / 1000 * 1000, actual);
+	}
+
+	@Test
+	public void testPipedReaderWriter() throws Exception {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < SIZE / 10; i++) {
+			builder.append("0123456789");
+		}
+		final String expected = builder.toString();
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forWriter((w) -> {
+					try {
+						w.write(expected);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						final StringBuilder result = new StringBuilder();
+						final char[] buffer = new char[100];
+						int len;
+						while ((len = r.read(buffer)) != -1) {
+							result.append(buffer, 0, len);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(pool)
+
+				.asyncWrite(pool)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testWarning() throws Exception {
+		// a pool without spare threads cannot compensate for the blocked writer
+		final ForkJoinPool saturated = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, 1, 1, null, 1, TimeUnit.MINUTES);
+		final ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			final long actual = StreamPipeBuilder
+
+					.create()
+
+					.ringBuffer(16)
+
+					.forOutput(ManagedBlockingTestCase::write)
+
+					.mapInput(ManagedBlockingTestCase::read)
+
+					.asyncRead(reader)
+
+					.asyncWrite(saturated)
+
+					.get()
+
+					.get(10, TimeUnit.SECONDS);
+
+			Assertions.assertEquals(SIZE / 1000 * 1000, actual);
+			Assertions.assertTrue(ManagedBlocking.WARNED.contains(saturated));
+		} finally {
+			saturated.shutdownNow();
+			reader.shutdownNow();
+		}
+	}
+
+}
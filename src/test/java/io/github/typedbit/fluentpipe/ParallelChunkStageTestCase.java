@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ParallelChunkStage} class.
+ * 
+ * @author Dieter König
+ */
+public class ParallelChunkStageTestCase {
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOrderPreserved() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maximum = new AtomicInteger();
+
+		// reversing each chunk twice restores the input only if the chunks keep their order
+		final Function<byte[], byte[]> reverse = (chunk) -> {
+			maximum.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			final byte[] result = new byte[chunk.length];
+			for (int i = 0; i < chunk.length; i++) {
+				result[i] = chunk[chunk.length - 1 - i];
+			}
+			inFlight.decrementAndGet();
+			return result;
+		};
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.throughParallel(4096, 4, executor, reverse)
+
+				.throughParallel(4096, 3, executor, reverse)
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+		Assertions.assertTrue(maximum.get() <= 4 + 3, "too many chunks in flight: " + maximum.get());
+	}
+
+	@Test
+	public void testBoundedWindow() throws Exception {
+		final AtomicInteger read = new AtomicInteger();
+		final InputStream input = new ByteArrayInputStream(new byte[100]) {
+
+			@Override
+			public synchronized int read() {
+				final int value = super.read();
+				read.addAndGet(value < 0 ? 0 : 1);
+				return value;
+			}
+
+			@Override
+			public synchronized int read(final byte[] b, final int off, final int len) {
+				final int count = super.read(b, off, len);
+				read.addAndGet(count < 0 ? 0 : count);
+				return count;
+			}
+
+		};
+		final CountDownLatch release = new CountDownLatch(1);
+		final ParallelChunkStage stage = new ParallelChunkStage(10, 2, executor, (chunk) -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			return chunk;
+		});
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final Future<?> future = executor.submit(() -> stage.accept(input, output));
+		// with the window full the stage waits for the oldest chunk before reading another one
+		while (read.get() < 20) {
+			Thread.sleep(1);
+		}
+		Thread.sleep(100);
+		Assertions.assertEquals(20, read.get());
+
+		release.countDown();
+		future.get(10, TimeUnit.SECONDS);
+		Assertions.assertEquals(100, output.size());
+	}
+
+	@Test
+	public void testShortLastChunk() throws Exception {
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.defaultPipeSize()
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[10]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.throughParallel(4, 2, executor, (chunk) -> new byte[] { (byte) chunk.length })
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(new byte[] { 4, 4, 2 }, actuals);
+	}
+
+	@Test
+	public void testTransformationFailure() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+
+		// the write operation runs on the calling thread, so its failure is thrown directly
+		final RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[1 << 20]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.throughParallel(1024, 2, executor, (chunk) -> {
+					if (count.incrementAndGet() == 10) {
+						throw new IllegalStateException("chunk failed");
+					}
+					return chunk;
+				})
+
+				.forInput((i) -> {
+					try {
+						i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.get()
+
+				.call());
+
+		Throwable cause = exception;
+		while (cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		Assertions.assertEquals("chunk failed", cause.getMessage());
+	}
+
+	@Test
+	public void testIllegalArguments() {
+		final Function<byte[], byte[]> identity = (chunk) -> chunk;
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelChunkStage(0, 1, executor, identity));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelChunkStage(1, 0, executor, identity));
+	}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.typedbit.fluentpipe.builder.ConsumedOutputStreamPipeBuilder;
+
+/**
+ * Tests for {@link ParallelGzipStage} and {@link ParallelGunzipStage} classes.
+ * 
+ * @author Dieter König
+ */
+public class ParallelGzipStageTestCase {
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static byte[] data(final int length) {
+		// compressible, but not trivially
+		final Random random = new Random(42);
+		final byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return data;
+	}
+
+	private byte[] pipe(final byte[] input, final Function<ConsumedOutputStreamPipeBuilder, ConsumedOutputStreamPipeBuilder> stages) throws Exception {
+		return stages.apply(StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(4096)
+
+				.forOutput((o) -> {
+					try {
+						o.write(input);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}))
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+	}
+
+	private static byte[] gunzip(final byte[] compressed) throws IOException {
+		try (final GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return input.readAllBytes();
+		}
+	}
+
+	private static byte[] gzip(final byte[] data) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (final GZIPOutputStream output = new GZIPOutputStream(result)) {
+			output.write(data);
+		}
+		return result.toByteArray();
+	}
+
+	private static byte[] concat(final byte[] first, final byte[] second) {
+		final byte[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	@Test
+	public void testStandardGzip() throws Exception {
+		final byte[] expecteds = data(1 << 20);
+		final byte[] compressed = pipe(expecteds, (b) -> b.throughGzip(64 * 1024, 4, executor));
+
+		Assertions.assertTrue(compressed.length < expecteds.length / 2);
+		// 16 members any gunzip reads as one stream
+		Assertions.assertArrayEquals(expecteds, gunzip(compressed));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final byte[] expecteds = data(1 << 20);
+
+		Assertions.assertArrayEquals(expecteds, pipe(expecteds, (b) -> b.throughGzip(10000, 3, executor).throughGunzip(3, executor)));
+		Assertions.assertArrayEquals(new byte[0], pipe(new byte[0], (b) -> b.throughGzip(10000, 3, executor).throughGunzip(3, executor)));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		final byte[] compressed = pipe(new byte[0], (b) -> b.throughGzip(1024, 2, executor));
+
+		Assertions.assertArrayEquals(new byte[0], gunzip(compressed));
+	}
+
+	@Test
+	public void testForeignGzip() throws Exception {
+		final byte[] expecteds = data(100000);
+		final byte[] foreign = gzip(Arrays.copyOfRange(expecteds, 50000, expecteds.length));
+		final byte[] own = ParallelGzipStage.compress(Arrays.copyOf(expecteds, 50000));
+		final byte[] mixed = Arrays.copyOf(own, own.length + foreign.length);
+		System.arraycopy(foreign, 0, mixed, own.length, foreign.length);
+
+		Assertions.assertArrayEquals(expecteds, pipe(gzip(expecteds), (b) -> b.throughGunzip(2, executor)));
+		// members of their own are decompressed in parallel until the first foreign one
+		Assertions.assertArrayEquals(expecteds, pipe(mixed, (b) -> b.throughGunzip(2, executor)));
+	}
+
+	@Test
+	public void testForeignMembersFromSlowWriter() throws Exception {
+		final byte[] expecteds = data(100000);
+		final byte[] first = gzip(Arrays.copyOf(expecteds, 50000));
+		final byte[] second = gzip(Arrays.copyOfRange(expecteds, 50000, expecteds.length));
+
+		// nothing is available at the end of the first member, which must not be taken for the end of the stream
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(4096)
+
+				.forOutput((o) -> {
+					try {
+						o.write(first);
+						o.flush();
+						Thread.sleep(100);
+						o.write(second);
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.throughGunzip(2, executor)
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testTrailingGarbage() throws Exception {
+		final byte[] expecteds = data(100000);
+		final byte[] garbage = "trailing garbage".getBytes();
+		final byte[] foreign = gzip(expecteds);
+		final byte[] own = ParallelGzipStage.compress(expecteds);
+
+		// ignored after the last member like gunzip does, but not instead of the first one
+		Assertions.assertArrayEquals(expecteds, pipe(concat(foreign, garbage), (b) -> b.throughGunzip(2, executor)));
+		Assertions.assertArrayEquals(expecteds, pipe(concat(own, garbage), (b) -> b.throughGunzip(2, executor)));
+		Assertions.assertArrayEquals(expecteds, pipe(concat(own, new byte[] { 0x1f }), (b) -> b.throughGunzip(2, executor)));
+		Assertions.assertThrows(ExecutionException.class, () -> pipe(concat(garbage, foreign), (b) -> b.throughGunzip(2, executor)));
+	}
+
+	@Test
+	public void testCorrupt() throws Exception {
+		final byte[] compressed = ParallelGzipStage.compress(data(100000));
+		// flip a bit in the CRC
+		compressed[compressed.length - 8] ^= 1;
+
+		Assertions.assertThrows(ExecutionException.class, () -> pipe(compressed, (b) -> b.throughGunzip(2, executor)));
+		Assertions.assertThrows(ExecutionException.class, () -> pipe(Arrays.copyOf(compressed, compressed.length - 1), (b) -> b.throughGunzip(2, executor)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamPipeBuilder.create().ringBuffer(16).forOutput((o) -> {}).throughGzip(0, 1, executor));
+	}
+
+	@Test
+	public void testForgedSizes() throws Exception {
+		final byte[] expecteds = data(100000);
+		final byte[] compressed = ParallelGzipStage.compress(expecteds);
+
+		// a member length beyond the bound is not allocated but decompressed sequentially, which ignores the extra field
+		final byte[] forgedLength = compressed.clone();
+		ParallelGzipStage.writeInt(forgedLength, ParallelGzipStage.HEADER_LENGTH - 4, Integer.MAX_VALUE);
+		Assertions.assertArrayEquals(expecteds, pipe(forgedLength, (b) -> b.throughGunzip(2, executor)));
+
+		// an uncompressed size beyond the bound is not allocated either, the sequential decompression finds the trailer corrupt
+		final byte[] forgedSize = compressed.clone();
+		ParallelGzipStage.writeInt(forgedSize, forgedSize.length - 4, ParallelGunzipStage.MAXIMUM_MEMBER_SIZE + 1);
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> pipe(forgedSize, (b) -> b.throughGunzip(2, executor)));
+		Throwable cause = exception;
+		while (cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		Assertions.assertEquals(ZipException.class, cause.getClass());
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PipeBatch} class.
+ * 
+ * @author Dieter König
+ */
+public class PipeBatchTestCase {
+
+	private ExecutorService executor;
+
+	private BufferPool pool;
+
+	private AtomicInteger running;
+
+	private AtomicInteger maximumRunning;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newFixedThreadPool(8);
+		pool = BufferPool.create();
+		running = new AtomicInteger();
+		maximumRunning = new AtomicInteger();
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	private PipeBatch<Integer, Integer> countBytes() {
+		return PipeBatch.create((Integer size) -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(256, pool)
+
+				.forOutput((o) -> {
+					maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						if (size < 0) {
+							throw new IllegalArgumentException("negative size");
+						}
+						sleep(size % 7);
+						o.write(new byte[size]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return count(i);
+					} finally {
+						running.decrementAndGet();
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor));
+	}
+
+	private static int count(final InputStream input) {
+		try {
+			return input.readAllBytes().length;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testSubmissionOrder() {
+		final List<Integer> sizes = IntStream.range(0, 200).map((i) -> i * 37).boxed().collect(Collectors.toList());
+
+		final List<Integer> actual;
+		try (final Stream<Integer> results = countBytes().concurrency(4).run(sizes)) {
+			actual = results.collect(Collectors.toList());
+		}
+
+		Assertions.assertEquals(sizes, actual);
+		Assertions.assertTrue(maximumRunning.get() <= 4, "at most 4 pipes in flight: " + maximumRunning.get());
+	}
+
+	@Test
+	public void testCompletionOrder() {
+		final List<Integer> sizes = IntStream.range(0, 200).map((i) -> i * 37).boxed().collect(Collectors.toList());
+
+		final List<Integer> actual;
+		try (final Stream<Integer> results = countBytes().concurrency(3).completionOrder().run(sizes.stream())) {
+			actual = results.collect(Collectors.toList());
+		}
+
+		Assertions.assertEquals(sizes, actual.stream().sorted().collect(Collectors.toList()));
+		Assertions.assertTrue(maximumRunning.get() <= 3, "at most 3 pipes in flight: " + maximumRunning.get());
+	}
+
+	@Test
+	public void testCompletionOrderOvertakes() {
+		final List<Long> actual = PipeBatch.create((Long millis) -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forOutput((o) -> sleep(millis))
+
+				.mapInput((i) -> millis)
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor))
+
+				.concurrency(2)
+
+				.completionOrder()
+
+				.run(Arrays.asList(500L, 0L, 0L))
+
+				.collect(Collectors.toList());
+
+		Assertions.assertEquals(Arrays.asList(0L, 0L, 500L), actual);
+	}
+
+	@Test
+	public void testFailure() {
+		final Stream<Integer> results = countBytes().concurrency(2).run(Arrays.asList(10, 20, -1, 40));
+		final CompletionException exception = Assertions.assertThrows(CompletionException.class, () -> results.collect(Collectors.toList()));
+		results.close();
+
+		Assertions.assertEquals(RuntimeException.class, exception.getCause().getClass());
+		Assertions.assertEquals(IllegalArgumentException.class, exception.getCause().getCause().getCause().getClass());
+	}
+
+	@Test
+	public void testConcurrency() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> countBytes().concurrency(0));
+		Assertions.assertThrows(IllegalStateException.class, () -> countBytes().concurrency(1).concurrency(2));
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PipeCopier} class.
+ * 
+ * @author Dieter König
+ */
+public class PipeCopierTestCase {
+
+	private static final class Item implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private final int[] values;
+
+		private final List<Item> children = new ArrayList<>();
+
+		private Item(final String name, final int... values) {
+			this.name = name;
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Item)) {
+				return false;
+			}
+			final Item other = (Item) obj;
+			return name.equals(other.name) && Arrays.equals(values, other.values) && children.equals(other.children);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name, Arrays.hashCode(values), children);
+		}
+
+	}
+
+	@Test
+	public void testDeepCopy() throws Exception {
+		final Item original = new Item("root", 1, 2, 3);
+		original.children.add(new Item("child", 4));
+
+		final Item copy = PipeCopier.deepCopy(original);
+
+		Assertions.assertEquals(original, copy);
+		Assertions.assertNotSame(original, copy);
+		Assertions.assertNotSame(original.children.get(0), copy.children.get(0));
+		Assertions.assertNull(PipeCopier.deepCopy(null));
+	}
+
+	@Test
+	public void testDeepCopyAll() throws Exception {
+		final Item shared = new Item("shared", 42);
+		final List<Item> originals = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			final Item item = new Item("item" + i, i, i + 1);
+			item.children.add(shared);
+			originals.add(item);
+		}
+
+		final List<Item> copies = PipeCopier.deepCopyAll(originals);
+
+		Assertions.assertEquals(originals, copies);
+		Assertions.assertNotSame(shared, copies.get(0).children.get(0));
+		// copied as one object graph
+		Assertions.assertSame(copies.get(0).children.get(0), copies.get(9999).children.get(0));
+	}
+
+	@Test
+	public void testNotSerializable() {
+		Assertions.assertThrows(NotSerializableException.class, () -> PipeCopier.deepCopy(new Object()));
+		Assertions.assertThrows(NotSerializableException.class, () -> PipeCopier.deepCopyAll(Arrays.asList("a", new Object())));
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PipeGuard} class, i.e. cancellation, deadline and idle timeout of pipes.
+ * 
+ * @author Dieter König
+ */
+public class PipeGuardTestCase {
+
+	private ExecutorService executor;
+
+	private CountDownLatch finished;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newCachedThreadPool();
+		finished = new CountDownLatch(2);
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	private void writeForever(final OutputStream output) {
+		try {
+			final byte[] buffer = new byte[1024];
+			for (;;) {
+				output.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private void hang() {
+		try {
+			new CountDownLatch(1).await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private void assertFinished() throws InterruptedException {
+		Assertions.assertTrue(finished.await(5, TimeUnit.SECONDS), "operation still running");
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final CompletableFuture<Void> future = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.forOutput(this::writeForever)
+
+				.mapInput((i) -> {
+					hang();
+					return (Void) null;
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get();
+
+		Thread.sleep(100);
+		Assertions.assertTrue(future.cancel(true));
+		assertFinished();
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		final CompletableFuture<byte[]> future = StreamPipeBuilder
+
+				.create()
+
+				.defaultPipeSize()
+
+				.deadline(Duration.ofMillis(200))
+
+				.forOutput(this::writeForever)
+
+				.mapInput((i) -> {
+					hang();
+					return new byte[0];
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get();
+
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(TimeoutException.class, exception.getCause().getClass());
+		assertFinished();
+	}
+
+	@Test
+	public void testIdleTimeout() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.defaultPipeSize()
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[100]);
+						hang();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					} finally {
+						finished.countDown();
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get(5, TimeUnit.SECONDS));
+
+		Assertions.assertEquals(TimeoutException.class, exception.getCause().getClass());
+		assertFinished();
+	}
+
+	@Test
+	public void testIdleTimeoutSteadyProgress() throws Exception {
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forOutput((o) -> {
+					try {
+						for (int i = 0; i < 20; i++) {
+							o.write(i);
+							Thread.sleep(25);
+						}
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get(5, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(20, actuals.length);
+	}
+
+	@Test
+	public void testCallableDeadline() throws Exception {
+		Assertions.assertThrows(TimeoutException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.deadline(Duration.ofMillis(200))
+
+				.forOutput(this::writeForever)
+
+				.forInput((i) -> hang())
+
+				.asyncRead(executor)
+
+				.get()
+
+				.call());
+
+		assertFinished();
+	}
+
+	@Test
+	public void testReaderWriterIdleTimeout() throws Exception {
+		Assertions.assertThrows(TimeoutException.class, () -> ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.idleTimeout(Duration.ofMillis(200))
+
+				.forWriter((w) -> hang())
+
+				.forReader((r) -> {
+					try (final Reader reader = r) {
+						Assertions.assertThrows(IOException.class, () -> reader.read());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					} finally {
+						finished.countDown();
+					}
+				})
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.call());
+
+		assertFinished();
+	}
+
+	@Test
+	public void testInvalidTimeouts() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamPipeBuilder.create().defaultPipeSize().deadline(Duration.ZERO));
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().defaultPipeSize().idleTimeout(Duration.ofSeconds(1)).idleTimeout(Duration.ofSeconds(1)));
+	}
+
+}
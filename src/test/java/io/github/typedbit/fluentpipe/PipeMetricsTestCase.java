@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PipeMetrics} class.
+ * 
+ * @author Dieter König
+ */
+public class PipeMetricsTestCase {
+
+	private static final Consumer<OutputStream> WRITE_ALL = (o) -> {
+		try {
+			o.write(new byte[1 << 16]);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	};
+
+	private static final Consumer<InputStream> READ_ALL = (i) -> {
+		try {
+			i.readAllBytes();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	};
+
+	@Test
+	public void testSlowReader() throws Exception {
+		final PipeMetrics metrics = PipeMetrics.create();
+
+		final Supplier<Callable<Void>> supplier = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.metrics(metrics)
+
+				.forOutput(WRITE_ALL)
+
+				.forInput((i) -> {
+					try {
+						final byte[] buffer = new byte[4096];
+						while (i.read(buffer) != -1) {
+							Thread.sleep(1);
+						}
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite();
+
+		supplier.get().call();
+		supplier.get().call();
+
+		Assertions.assertEquals(2, metrics.getExecutions());
+		Assertions.assertEquals(2 << 16, metrics.getTransferred());
+		Assertions.assertTrue(metrics.getProducerWakeups() > 0);
+		Assertions.assertTrue(metrics.getProducerBlockedTime().toNanos() > 0);
+		Assertions.assertTrue(metrics.getDuration().compareTo(metrics.getProducerBlockedTime()) >= 0);
+		final long[] histogram = metrics.getOccupancyHistogram();
+		Assertions.assertEquals(PipeMetrics.OCCUPANCY_BUCKETS, histogram.length);
+		Assertions.assertTrue(Arrays.stream(histogram).sum() > 0);
+		// never more than the capacity of 1024 bytes in the buffer
+		for (int i = PipeMetrics.occupancyBucket(1024) + 1; i < histogram.length; i++) {
+			Assertions.assertEquals(0, histogram[i]);
+		}
+	}
+
+	@Test
+	public void testSlowWriter() throws Exception {
+		final PipeMetrics metrics = PipeMetrics.create();
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.metrics(metrics)
+
+				.forWriter((w) -> {
+					try {
+						for (int i = 0; i < 10; i++) {
+							Thread.sleep(1);
+							w.write("0123456789");
+						}
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						final StringBuilder result = new StringBuilder();
+						int c;
+						while ((c = r.read()) != -1) {
+							result.append((char) c);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(100, actual.length());
+		Assertions.assertEquals(1, metrics.getExecutions());
+		Assertions.assertEquals(100, metrics.getTransferred());
+		Assertions.assertTrue(metrics.getConsumerWakeups() > 0);
+		Assertions.assertTrue(metrics.getConsumerBlockedTime().toNanos() > 0);
+	}
+
+	@Test
+	public void testChunkedCountsBytes() throws Exception {
+		final PipeMetrics metrics = PipeMetrics.create();
+
+		StreamPipeBuilder
+
+				.create()
+
+				.chunked(1000, 4)
+
+				.metrics(metrics)
+
+				.forOutput(WRITE_ALL)
+
+				.forInput(READ_ALL)
+
+				.asyncWrite()
+
+				.get()
+
+				.call();
+
+		Assertions.assertEquals(1, metrics.getExecutions());
+		// bytes, not the 66 chunks they were handed over in
+		Assertions.assertEquals(1 << 16, metrics.getTransferred());
+	}
+
+	@Test
+	public void testPipedNotMetered() throws Exception {
+		final PipeMetrics metrics = PipeMetrics.create();
+
+		StreamPipeBuilder
+
+				.create()
+
+				.defaultPipeSize()
+
+				.metrics(metrics)
+
+				.forOutput(WRITE_ALL)
+
+				.forInput(READ_ALL)
+
+				.asyncWrite()
+
+				.get()
+
+				.call();
+
+		Assertions.assertEquals(0, metrics.getExecutions());
+	}
+
+	@Test
+	public void testMetricsOnce() {
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().ringBuffer(16).metrics(PipeMetrics.create()).metrics(PipeMetrics.create()));
+	}
+
+	@Test
+	public void testOccupancyBucket() {
+		Assertions.assertEquals(0, PipeMetrics.occupancyBucket(0));
+		Assertions.assertEquals(1, PipeMetrics.occupancyBucket(1));
+		Assertions.assertEquals(2, PipeMetrics.occupancyBucket(2));
+		Assertions.assertEquals(2, PipeMetrics.occupancyBucket(3));
+		Assertions.assertEquals(11, PipeMetrics.occupancyBucket(1024));
+		Assertions.assertEquals(PipeMetrics.OCCUPANCY_BUCKETS - 1, PipeMetrics.occupancyBucket(Long.MAX_VALUE));
+	}
+
+}
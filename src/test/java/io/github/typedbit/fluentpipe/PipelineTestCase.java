@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link StreamStage} and {@link ReaderWriterStage} classes.
+ * 
+ * @author Dieter König
+ */
+public class PipelineTestCase {
+
+	private static final BiConsumer<InputStream, OutputStream> GZIP = (i, o) -> {
+		try (final GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(o))) {
+			i.transferTo(gzip);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	};
+
+	private static final BiConsumer<InputStream, OutputStream> GUNZIP = (i, o) -> {
+		try {
+			new GZIPInputStream(i).transferTo(o);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	};
+
+	private static final class NonClosingOutputStream extends OutputStream {
+
+		private final OutputStream output;
+
+		private NonClosingOutputStream(final OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			output.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			output.write(b, off, len);
+		}
+
+	}
+
+	@Test
+	public void testThrough() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					try {
+						o.write(expecteds);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through(GZIP)
+
+				.through(GUNZIP)
+
+				.through(GZIP)
+
+				.through(GUNZIP)
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testStageFailure() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[1 << 20]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through(GZIP)
+
+				.through((i, o) -> {
+					throw new IllegalStateException("stage failed");
+				})
+
+				.through(GUNZIP)
+
+				.forInput((i) -> {
+					try {
+						i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite()
+
+				.get()
+
+				.call());
+
+		Assertions.assertEquals("stage failed", rootCause(exception).getMessage());
+	}
+
+	@Test
+	public void testWriterFailure() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forWriter((w) -> {
+					try {
+						w.write("truncated");
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					throw new IllegalStateException("writer failed");
+				})
+
+				.through(PipelineTestCase::reverseCase)
+
+				.mapReader((r) -> {
+					try {
+						return readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get());
+
+		// the stage must not mistake the failure for EOF
+		Assertions.assertEquals("writer failed", rootCause(exception).getMessage());
+	}
+
+	@Test
+	public void testReaderWriterThrough() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			expected.append(i).append(',');
+		}
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(100)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through((r, w) -> {
+					try {
+						final String text = readAll(r);
+						w.write(text.toUpperCase());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through(PipelineTestCase::reverseCase)
+
+				.mapReader((r) -> {
+					try {
+						return readAll(r);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expected.toString(), actual);
+	}
+
+	private static void reverseCase(final Reader reader, final Writer writer) {
+		try {
+			int c;
+			while ((c = reader.read()) != -1) {
+				writer.write(Character.toLowerCase(c));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String readAll(final Reader reader) throws IOException {
+		final StringWriter result = new StringWriter();
+		final char[] buffer = new char[13];
+		int len;
+		while ((len = reader.read(buffer)) != -1) {
+			result.write(buffer, 0, len);
+		}
+		return result.toString();
+	}
+
+	private static Throwable rootCause(Throwable throwable) {
+		while (throwable.getCause() != null) {
+			throwable = throwable.getCause();
+		}
+		return throwable;
+	}
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PublishedStreamPipe} and {@link PublishedReaderWriterPipe} classes.
+ * 
+ * @author Dieter König
+ */
+public class PublishedPipeTestCase {
+
+	private static final int CHUNK_SIZE = 1000;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testForPublisher() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+		final AtomicLong published = new AtomicLong();
+		final AtomicLong maximumQueued = new AtomicLong();
+
+		final SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(executor, 4);
+		// count the bytes passed to the pipe
+		final Flow.Publisher<ByteBuffer> counting = (subscriber) -> publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+
+			@Override
+			public void onSubscribe(final Flow.Subscription subscription) {
+				subscriber.onSubscribe(subscription);
+			}
+
+			@Override
+			public void onNext(final ByteBuffer item) {
+				published.addAndGet(item.remaining());
+				subscriber.onNext(item);
+			}
+
+			@Override
+			public void onError(final Throwable throwable) {
+				subscriber.onError(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				subscriber.onComplete();
+			}
+
+		});
+
+		final CompletableFuture<byte[]> future = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(4096)
+
+				.forPublisher(counting)
+
+				.mapInput((i) -> {
+					try {
+						final byte[] actuals = new byte[expecteds.length];
+						int offset = 0;
+						int len;
+						while ((len = i.read(actuals, offset, Math.min(100, actuals.length - offset))) > 0) {
+							offset += len;
+							maximumQueued.accumulateAndGet(published.get() - offset, Math::max);
+						}
+						Assertions.assertEquals(-1, i.read());
+						return Arrays.copyOf(actuals, offset);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, executor)
+
+				.get();
+
+		for (int offset = 0; offset < expecteds.length; offset += CHUNK_SIZE) {
+			publisher.submit(ByteBuffer.wrap(expecteds, offset, Math.min(CHUNK_SIZE, expecteds.length - offset)));
+		}
+		publisher.close();
+
+		Assertions.assertArrayEquals(expecteds, future.get(10, TimeUnit.SECONDS));
+		// not more than the capacity plus one item queued
+		Assertions.assertTrue(maximumQueued.get() <= 4096 + CHUNK_SIZE, "queued " + maximumQueued.get());
+	}
+
+	@Test
+	public void testPublisherFailure() throws Exception {
+		final SubmissionPublisher<CharBuffer> publisher = new SubmissionPublisher<>(executor, 4);
+
+		final CompletableFuture<Void> future = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forPublisher(publisher)
+
+				.forReader(PublishedPipeTestCase::readAll, executor)
+
+				.get();
+
+		publisher.submit(CharBuffer.wrap("0123456789"));
+		publisher.closeExceptionally(new IllegalStateException("publisher failed"));
+
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+		Throwable cause = exception;
+		while (cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		Assertions.assertEquals("publisher failed", cause.getMessage());
+	}
+
+	@Test
+	public void testReaderClosedEarly() throws Exception {
+		final AtomicLong requested = new AtomicLong();
+		final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+		// endless publisher emitting on the requesting thread
+		final Flow.Publisher<ByteBuffer> publisher = (subscriber) -> subscriber.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(final long n) {
+				requested.addAndGet(n);
+				for (long i = 0; i < n && !cancelled.isDone(); i++) {
+					subscriber.onNext(ByteBuffer.wrap("xyz".getBytes()));
+				}
+			}
+
+			@Override
+			public void cancel() {
+				cancelled.complete(null);
+			}
+
+		});
+
+		final String actual = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forPublisher(publisher)
+
+				.mapInput((i) -> {
+					try {
+						return String.valueOf((char) i.read());
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals("x", actual);
+		// closing the InputStream cancels the subscription, no more than capacity plus one item has been requested
+		Assertions.assertTrue(cancelled.isDone());
+		Assertions.assertTrue(requested.get() <= 16 / 3 + 2, "requested " + requested.get());
+	}
+
+	@Test
+	public void testReaderVariant() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			expected.append(i).append(',');
+		}
+		final SubmissionPublisher<CharBuffer> publisher = new SubmissionPublisher<>(executor, 2);
+
+		final CompletableFuture<String> future = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(64)
+
+				.forPublisher(publisher)
+
+				.mapReader((r) -> {
+					try {
+						final StringBuilder result = new StringBuilder();
+						int c;
+						while ((c = r.read()) != -1) {
+							result.append((char) c);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, executor)
+
+				.get();
+
+		for (int offset = 0; offset < expected.length(); offset += 7) {
+			publisher.submit(CharBuffer.wrap(expected, offset, Math.min(offset + 7, expected.length())));
+		}
+		publisher.close();
+
+		Assertions.assertEquals(expected.toString(), future.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+		final CompletableFuture<Void> future = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forPublisher(silentPublisher(cancelled))
+
+				.forInput((i) -> {
+					try {
+						i.read();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, executor)
+
+				.get();
+
+		Assertions.assertTrue(future.cancel(true));
+		// cancelling the future cancels the subscription, although the read operation is still blocked
+		cancelled.get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+		final CompletableFuture<Void> future = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.deadline(Duration.ofMillis(100))
+
+				.forPublisher(silentPublisher(cancelled))
+
+				.forReader(PublishedPipeTestCase::readAll, executor)
+
+				.get();
+
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+		Assertions.assertEquals(TimeoutException.class, exception.getCause().getClass());
+		cancelled.get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testUnsupportedOptions() {
+		final SubmissionPublisher<ByteBuffer> bytes = new SubmissionPublisher<>();
+		final SubmissionPublisher<CharBuffer> chars = new SubmissionPublisher<>();
+
+		// a published pipe has no buffer the metrics could be recorded for
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().pipeSize(16).metrics(PipeMetrics.create()).forPublisher(bytes));
+		Assertions.assertThrows(IllegalStateException.class, () -> ReaderWriterPipeBuilder.create().ringBuffer(16).metrics(PipeMetrics.create()).forPublisher(chars));
+	}
+
+	private static <B> Flow.Publisher<B> silentPublisher(final CompletableFuture<Void> cancelled) {
+		return (subscriber) -> subscriber.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(final long n) {
+				// never emits
+			}
+
+			@Override
+			public void cancel() {
+				cancelled.complete(null);
+			}
+
+		});
+	}
+
+	private static void readAll(final Reader reader) {
+		try {
+			final char[] buffer = new char[13];
+			while (reader.read(buffer) != -1) {
+				// discard
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
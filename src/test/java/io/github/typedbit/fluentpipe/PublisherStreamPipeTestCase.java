@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PublisherStreamPipe} class.
+ * 
+ * @author Dieter König
+ */
+public class PublisherStreamPipeTestCase {
+
+	/**
+	 * Collects all chunks, requesting a fixed number of chunks initially and one after each chunk received.
+	 */
+	private static class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+		private final long initialRequest;
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+		private final AtomicInteger chunks = new AtomicInteger();
+
+		private volatile int maximumChunkSize;
+
+		private Flow.Subscription subscription;
+
+		private CollectingSubscriber(final long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(initialRequest);
+		}
+
+		@Override
+		public void onNext(final ByteBuffer item) {
+			maximumChunkSize = Math.max(maximumChunkSize, item.remaining());
+			bytes.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+			chunks.incrementAndGet();
+			onChunk();
+		}
+
+		protected void onChunk() {
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			result.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			result.complete(bytes.toByteArray());
+		}
+
+	}
+
+	@Test
+	public void testPublish() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+
+		final Flow.Publisher<ByteBuffer> publisher = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1000)
+
+				.forOutput((o) -> {
+					final Random random = new Random(7);
+					try {
+						int offset = 0;
+						while (offset < expecteds.length) {
+							final int len = Math.min(random.nextInt(3000), expecteds.length - offset);
+							if (len == 0) {
+								o.write(expecteds[offset++]);
+								o.flush();
+							} else {
+								o.write(expecteds, offset, len);
+								offset += len;
+							}
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.publish();
+
+		// each subscription executes the write operation
+		for (int i = 0; i < 2; i++) {
+			final CollectingSubscriber subscriber = new CollectingSubscriber(1);
+			publisher.subscribe(subscriber);
+			Assertions.assertArrayEquals(expecteds, subscriber.result.get(10, TimeUnit.SECONDS));
+			Assertions.assertEquals(1000, subscriber.maximumChunkSize);
+		}
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		final CountDownLatch failed = new CountDownLatch(1);
+		final AtomicInteger written = new AtomicInteger();
+
+		final Flow.Publisher<ByteBuffer> publisher = StreamPipeBuilder
+
+				.create()
+
+				.pipeSize(16)
+
+				.forOutput((o) -> {
+					try {
+						for (int i = 0; i < 100; i++) {
+							o.write(new byte[16]);
+							written.incrementAndGet();
+						}
+					} catch (IOException e) {
+						failed.countDown();
+						throw new RuntimeException(e);
+					}
+				})
+
+				.publish();
+
+		final CollectingSubscriber subscriber = new CollectingSubscriber(2) {
+
+			@Override
+			protected void onChunk() {
+				// no further demand
+			}
+
+		};
+		publisher.subscribe(subscriber);
+
+		Thread.sleep(100);
+		Assertions.assertEquals(2, subscriber.chunks.get());
+		// the third chunk is filled but waits for demand
+		Assertions.assertEquals(2, written.get());
+
+		subscriber.subscription.cancel();
+		Assertions.assertTrue(failed.await(10, TimeUnit.SECONDS));
+		Thread.sleep(10);
+		Assertions.assertFalse(subscriber.result.isDone());
+		Assertions.assertEquals(2, subscriber.chunks.get());
+	}
+
+	@Test
+	public void testWriteFailure() throws Exception {
+		final Flow.Publisher<ByteBuffer> publisher = StreamPipeBuilder
+
+				.create()
+
+				.defaultPipeSize()
+
+				.forOutput((o) -> {
+					throw new IllegalStateException("writer failed");
+				})
+
+				.publish();
+
+		final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		publisher.subscribe(subscriber);
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> subscriber.result.get(10, TimeUnit.SECONDS));
+		Assertions.assertEquals("writer failed", exception.getCause().getMessage());
+	}
+
+	@Test
+	public void testIllegalRequest() throws Exception {
+		final Flow.Publisher<ByteBuffer> publisher = new PublisherStreamPipe(0, Runnable::run, (o) -> {
+			try {
+				o.write(new byte[1 << 16]);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		final CollectingSubscriber subscriber = new CollectingSubscriber(0);
+		publisher.subscribe(subscriber);
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> subscriber.result.get(10, TimeUnit.SECONDS));
+		Assertions.assertEquals(IllegalArgumentException.class, exception.getCause().getClass());
+		Assertions.assertEquals(0, subscriber.chunks.get());
+	}
+
+	@Test
+	public void testUnsupportedOptions() {
+		// the chunks of a publisher pipe would silently replace these options
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().chunked(16, 4).forOutput((o) -> {}).publish());
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().ringBuffer(16).metrics(PipeMetrics.create()).forOutput((o) -> {}).publish());
+		Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder.create().ringBuffer(16).deadline(Duration.ofSeconds(1)).forOutput((o) -> {}).publish());
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> StreamPipeBuilder.create().pipeSize(16).idleTimeout(Duration.ofSeconds(1)).forOutput((o) -> {}).publish(Runnable::run));
+
+		Assertions.assertNotNull(StreamPipeBuilder.create().defaultPipeSize().forOutput((o) -> {}).publish());
+	}
+
+}
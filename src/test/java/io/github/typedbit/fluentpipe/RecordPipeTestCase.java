@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RecordPipeBuilder} and {@link RecordRingBuffer} class.
+ * 
+ * @author Dieter König
+ */
+public class RecordPipeTestCase {
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testMapStream() throws Exception {
+		final long actual = RecordPipeBuilder
+
+				.<Integer> create()
+
+				.capacity(64)
+
+				.batchSize(16)
+
+				.forSink((sink) -> IntStream.range(0, 100000).boxed().forEach(sink))
+
+				.mapStream((records) -> records.mapToLong(Integer::longValue).sum())
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(100000L * 99999 / 2, actual);
+	}
+
+	@Test
+	public void testMapIteratorKeepsOrder() throws Exception {
+		final List<String> expected = IntStream.range(0, 10000).mapToObj(Integer::toString).collect(Collectors.toList());
+
+		final List<String> actual = RecordPipeBuilder
+
+				.<String> create()
+
+				.capacity(100)
+
+				.forSink((sink) -> {
+					for (int i = 0; i < expected.size(); i++) {
+						sink.accept(expected.get(i));
+						if (i % 1000 == 0) {
+							sink.flush();
+						}
+					}
+				})
+
+				.mapIterator((records) -> {
+					final List<String> result = new ArrayList<>();
+					records.forEachRemaining(result::add);
+					return result;
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS);
+
+		Assertions.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testForStreamOnCallingThread() throws Exception {
+		final AtomicLong count = new AtomicLong();
+
+		RecordPipeBuilder
+
+				.<Long> create()
+
+				.capacity(16)
+
+				.forSink((sink) -> {
+					for (long i = 0; i < 5000; i++) {
+						sink.accept(i);
+					}
+				})
+
+				.forStream((records) -> count.set(records.count()))
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.call();
+
+		Assertions.assertEquals(5000, count.get());
+	}
+
+	@Test
+	public void testInlineIfFits() throws Exception {
+		final AtomicInteger submitted = new AtomicInteger();
+		final Thread caller = Thread.currentThread();
+
+		final Thread consumer = RecordPipeBuilder
+
+				.<Integer> create()
+
+				.capacity(1024)
+
+				.forSink((sink) -> IntStream.range(0, 100).boxed().forEach(sink))
+
+				.mapStream((records) -> {
+					Assertions.assertEquals(100, records.count());
+					return Thread.currentThread();
+				})
+
+				.inlineIfFits((command) -> {
+					submitted.incrementAndGet();
+					executor.execute(command);
+				})
+
+				.get()
+
+				.get();
+
+		Assertions.assertSame(caller, consumer);
+		Assertions.assertEquals(0, submitted.get());
+	}
+
+	@Test
+	public void testProducerFailure() throws Exception {
+		final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> RecordPipeBuilder
+
+				.<Integer> create()
+
+				.forSink((sink) -> {
+					sink.accept(1);
+					throw new IllegalStateException("failed");
+				})
+
+				.mapStream((records) -> records.count())
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get(10, TimeUnit.SECONDS));
+
+		Assertions.assertEquals(IllegalStateException.class, exception.getCause().getCause().getClass());
+	}
+
+	@Test
+	public void testBatchedHandoff() {
+		final RecordRingBuffer<String> buffer = new RecordRingBuffer<>(16, 4);
+		final RecordSink<String> sink = buffer.getSink();
+		final Iterator<String> source = buffer.getSource();
+
+		sink.accept("a");
+		sink.accept("b");
+		sink.accept("c");
+		Assertions.assertEquals(0, buffer.readable());
+		sink.accept("d");
+		Assertions.assertEquals(4, buffer.readable());
+		sink.accept("e");
+		sink.flush();
+		Assertions.assertEquals(5, buffer.readable());
+		sink.close();
+
+		final List<String> actual = new ArrayList<>();
+		source.forEachRemaining(actual::add);
+		Assertions.assertEquals(List.of("a", "b", "c", "d", "e"), actual);
+	}
+
+}
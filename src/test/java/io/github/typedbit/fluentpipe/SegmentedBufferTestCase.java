@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ByteSegmentedBuffer} and {@link CharSegmentedBuffer} classes.
+ * 
+ * @author Dieter König
+ */
+public class SegmentedBufferTestCase {
+
+	@Test
+	public void testByBuilder() throws Exception {
+		final byte[] expecteds = new byte[1 << 20];
+		new Random(42).nextBytes(expecteds);
+
+		final byte[] actuals = StreamPipeBuilder
+
+				.create()
+
+				.adaptivePipeSize(100, 10000)
+
+				.forOutput((o) -> {
+					final Random random = new Random(7);
+					try {
+						int offset = 0;
+						while (offset < expecteds.length) {
+							final int len = Math.min(random.nextInt(3000), expecteds.length - offset);
+							if (len == 0) {
+								o.write(expecteds[offset++]);
+							} else {
+								o.write(expecteds, offset, len);
+								offset += len;
+							}
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertArrayEquals(expecteds, actuals);
+	}
+
+	@Test
+	public void testReaderWriterByBuilder() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			expected.append(i).append(',');
+		}
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.adaptivePipeSize(16, 1024)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected, 0, 1000);
+						w.write(expected.substring(1000, 2000));
+						w.write(expected.substring(2000, 3000).toCharArray());
+						w.append(expected.subSequence(3000, expected.length()));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						final StringWriter result = new StringWriter();
+						final char[] buffer = new char[100];
+						int len;
+						while ((len = r.read(buffer)) != -1) {
+							result.write(buffer, 0, len);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expected.toString(), actual);
+	}
+
+	@Test
+	public void testGrowAndShrink() throws Exception {
+		final ByteSegmentedBuffer buffer = new ByteSegmentedBuffer(64, 4096);
+		final InputStream input = buffer.getInputStream();
+		final OutputStream output = buffer.getOutputStream();
+		Assertions.assertEquals(64, buffer.capacity());
+
+		// the writer finds the buffer full several times as the reader is slow
+		final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try {
+				output.write(new byte[4096]);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		final byte[] actuals = new byte[4096];
+		int offset = 0;
+		while (offset < actuals.length) {
+			Thread.sleep(1);
+			offset += input.read(actuals, offset, Math.min(16, actuals.length - offset));
+		}
+		writer.get();
+		Assertions.assertTrue(buffer.capacity() > 64);
+		Assertions.assertTrue(buffer.capacity() <= 4096);
+
+		// the reader keeps up, segments are released again
+		for (int i = 0; i < 100000; i++) {
+			output.write(i);
+			Assertions.assertEquals(i & 0xff, input.read());
+		}
+		Assertions.assertEquals(64, buffer.capacity());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final CharSegmentedBuffer buffer = new CharSegmentedBuffer(4, 4);
+		final Reader reader = buffer.getReader();
+
+		buffer.getWriter().write("abc");
+		Assertions.assertTrue(reader.ready());
+		buffer.getWriter().close();
+		Assertions.assertThrows(IOException.class, () -> buffer.getWriter().write('d'));
+
+		final char[] actuals = new char[8];
+		int offset = 0;
+		int len;
+		while ((len = reader.read(actuals, offset, actuals.length - offset)) != -1) {
+			offset += len;
+		}
+		Assertions.assertArrayEquals("abc".toCharArray(), Arrays.copyOf(actuals, offset));
+		reader.close();
+		Assertions.assertThrows(IOException.class, () -> reader.read());
+	}
+
+	@Test
+	public void testIllegalCapacities() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> StreamPipeBuilder.create().adaptivePipeSize(1024, 16));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ReaderWriterPipeBuilder.create().adaptivePipeSize(1024, 16));
+	}
+
+}
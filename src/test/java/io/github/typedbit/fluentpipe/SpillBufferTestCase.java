@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ByteSpillBuffer} and {@link CharSpillBuffer} classes.
+ * 
+ * @author Dieter König
+ */
+public class SpillBufferTestCase {
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("fluent-pipe-test");
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (final Stream<Path> files = Files.list(directory)) {
+			Assertions.assertEquals(0, files.count(), "spill file not deleted");
+		} finally {
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testWriteWithoutReader() throws Exception {
+		final ByteSpillBuffer buffer = new ByteSpillBuffer(16, directory);
+		final InputStream input = buffer.getInputStream();
+		final OutputStream output = buffer.getOutputStream();
+
+		// more than two windows, nobody reads meanwhile
+		final byte[] expecteds = new byte[2 * AbstractSpillBuffer.WINDOW_SIZE + 1000];
+		new Random(42).nextBytes(expecteds);
+		output.write(expecteds, 0, 10);
+		output.write(expecteds[10]);
+		output.write(expecteds, 11, expecteds.length - 11);
+		Assertions.assertNotNull(buffer.file());
+
+		final byte[] actuals = new byte[expecteds.length];
+		int offset = 0;
+		while (offset < actuals.length) {
+			offset += input.read(actuals, offset, Math.min(5000, actuals.length - offset));
+		}
+		Assertions.assertArrayEquals(expecteds, actuals);
+
+		// drained, so the writing side continues in memory
+		output.write(7);
+		Assertions.assertEquals(7, input.read());
+		output.close();
+		Assertions.assertEquals(-1, input.read());
+		Assertions.assertNotNull(buffer.file());
+		input.close();
+		Assertions.assertNull(buffer.file());
+	}
+
+	@Test
+	public void testReaderWriterByBuilder() throws Exception {
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			expected.append(i).append(',');
+		}
+
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.spillToDisk(64, directory)
+
+				.forWriter((w) -> {
+					try {
+						w.append(expected, 0, 1000);
+						w.write(expected.substring(1000, 2000));
+						w.write(expected.substring(2000, 3000).toCharArray());
+						w.append(expected.subSequence(3000, expected.length()));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapReader((r) -> {
+					try {
+						final StringWriter result = new StringWriter();
+						final char[] buffer = new char[100];
+						int len;
+						while ((len = r.read(buffer)) != -1) {
+							result.write(buffer, 0, len);
+						}
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite()
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals(expected.toString(), actual);
+	}
+
+	@Test
+	public void testReaderFails() throws Exception {
+		final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> StreamPipeBuilder
+
+				.create()
+
+				.spillToDisk(16, directory)
+
+				.forOutput((o) -> {
+					try {
+						final byte[] buffer = new byte[1024];
+						for (int i = 0; i < 1024; i++) {
+							o.write(buffer);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try {
+						i.read();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					throw new IllegalStateException("consumer failed");
+				})
+
+				.asyncWrite()
+
+				.get()
+
+				.call());
+
+		Assertions.assertEquals("consumer failed", exception.getMessage());
+	}
+
+	@Test
+	public void testBacklogBeyondInt() {
+		// a spilling writer may get more than 2 GiB ahead, the readable count must neither turn negative (EOF) nor zero
+		Assertions.assertEquals(Integer.MAX_VALUE, AbstractPipeBuffer.count(1L << 31));
+		Assertions.assertEquals(Integer.MAX_VALUE, AbstractPipeBuffer.count(1L << 32));
+		Assertions.assertEquals(42, AbstractPipeBuffer.count(42));
+	}
+
+}
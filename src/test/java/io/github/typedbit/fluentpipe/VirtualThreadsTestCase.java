@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link VirtualThreads} class.
+ * 
+ * @author Dieter König
+ */
+public class VirtualThreadsTestCase {
+
+	private static boolean isSupported() {
+		try {
+			VirtualThreads.executor();
+			return true;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testManyConcurrentPipes() throws Exception {
+		Assumptions.assumeTrue(isSupported(), "virtual threads are not supported by this JVM");
+
+		final Supplier<CompletableFuture<Integer>> pipe = StreamPipeBuilder
+
+				.create()
+
+				.virtualThreads(16)
+
+				.forOutput((o) -> {
+					try {
+						for (int i = 0; i < 1024; i++) {
+							o.write(i);
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.mapInput((i) -> {
+					try {
+						return i.readAllBytes().length;
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead()
+
+				.asyncWrite();
+
+		// far more blocked pipes than carrier threads
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			futures.add(pipe.get());
+		}
+		for (final CompletableFuture<Integer> future : futures) {
+			Assertions.assertEquals(1024, future.get().intValue());
+		}
+	}
+
+	@Test
+	public void testUnsupported() {
+		Assumptions.assumeFalse(isSupported(), "virtual threads are supported by this JVM");
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> StreamPipeBuilder.create().virtualThreads());
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for {@link XsltStage} and {@link TemplatesCache} classes.
+ * 
+ * @author Dieter König
+ */
+public class XsltStageTestCase {
+
+	private static final URL STYLESHEET = XsltStageTestCase.class.getResource("test1.xsl");
+
+	private ExecutorService executor;
+
+	private static void copy(final Reader reader, final Writer writer) throws IOException {
+		final char[] buffer = new char[1024];
+		int len;
+		while ((len = reader.read(buffer)) != -1) {
+			writer.write(buffer, 0, len);
+		}
+	}
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testStreams() throws Exception {
+		final XsltStage xslt = XsltStage.create(STYLESHEET, TemplatesCache.create());
+		for (int run = 0; run < 3; run++) {
+			final String actual = StreamPipeBuilder
+
+					.create()
+
+					.ringBuffer(16)
+
+					.forOutput((o) -> {
+						try (final InputStream input = XsltStageTestCase.class.getResourceAsStream("test1.xml")) {
+							input.transferTo(o);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					})
+
+					.through(xslt.streams())
+
+					.mapInput((i) -> {
+						try {
+							return new String(i.readAllBytes(), StandardCharsets.UTF_8);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					})
+
+					.asyncRead(executor)
+
+					.asyncWrite(executor)
+
+					.get()
+
+					.get();
+
+			Assertions.assertEquals("foo,bar,", actual);
+		}
+	}
+
+	@Test
+	public void testReaderWriter() throws Exception {
+		final XsltStage xslt = XsltStage.create(STYLESHEET, TemplatesCache.create());
+		final String actual = ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forWriter((w) -> {
+					try (final Reader reader = new InputStreamReader(XsltStageTestCase.class.getResourceAsStream("test1.xml"), StandardCharsets.UTF_8)) {
+						copy(reader, w);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through(xslt.readerWriter())
+
+				.mapReader((r) -> {
+					try {
+						final StringWriter result = new StringWriter();
+						copy(r, result);
+						return result.toString();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get();
+
+		Assertions.assertEquals("foo,bar,", actual);
+	}
+
+	@Test
+	public void testMalformedInput() throws Exception {
+		final XsltStage xslt = XsltStage.create(STYLESHEET, TemplatesCache.create());
+		Assertions.assertThrows(ExecutionException.class, () -> ReaderWriterPipeBuilder
+
+				.create()
+
+				.ringBuffer(16)
+
+				.forWriter((w) -> {
+					try {
+						w.write("<test><customer");
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.through(xslt.readerWriter())
+
+				.mapReader((r) -> {
+					try {
+						copy(r, new StringWriter());
+						return null;
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncRead(executor)
+
+				.asyncWrite(executor)
+
+				.get()
+
+				.get());
+
+		// the stage is still usable afterwards
+		final StringWriter result = new StringWriter();
+		xslt.readerWriter().accept(new StringReader("<test><customer name=\"baz\"/></test>"), result);
+		Assertions.assertEquals("baz,", result.toString());
+	}
+
+	@Test
+	public void testSaxResult() throws Exception {
+		final XsltStage xslt = XsltStage.create(STYLESHEET, TemplatesCache.create());
+		final StringWriter expected = new StringWriter();
+		try (final InputStream input = XsltStageTestCase.class.getResourceAsStream("test1.xml")) {
+			xslt.transform(new StreamSource(input), new StreamResult(expected));
+		}
+
+		final StringBuilder actual = new StringBuilder();
+		try (final InputStream input = XsltStageTestCase.class.getResourceAsStream("test1.xml")) {
+			xslt.transform(new StreamSource(input), new SAXResult(new DefaultHandler() {
+
+				@Override
+				public void characters(final char[] ch, final int start, final int length) {
+					actual.append(ch, start, length);
+				}
+
+			}));
+		}
+		Assertions.assertFalse(actual.toString().isEmpty());
+		Assertions.assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		final AtomicInteger compiled = new AtomicInteger();
+		final TemplatesCache cache = TemplatesCache.create(TransformerFactory::newInstance, 1);
+		final Source first = new StreamSource(STYLESHEET.toExternalForm());
+
+		final Templates templates = cache.get("first", () -> {
+			compiled.incrementAndGet();
+			return first;
+		});
+		Assertions.assertSame(templates, cache.get("first", () -> {
+			compiled.incrementAndGet();
+			return first;
+		}));
+		Assertions.assertEquals(1, compiled.get());
+
+		// evicts the least recently used stylesheet
+		cache.get("second", () -> new StreamSource(STYLESHEET.toExternalForm()));
+		Assertions.assertEquals(1, cache.size());
+		Assertions.assertNotSame(templates, cache.get("first", () -> {
+			compiled.incrementAndGet();
+			return new StreamSource(STYLESHEET.toExternalForm());
+		}));
+		Assertions.assertEquals(2, compiled.get());
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TemplatesCache.create(TransformerFactory::newInstance, 0));
+	}
+
+	@Test
+	public void testConcurrentCompilation() throws Exception {
+		final AtomicInteger compiled = new AtomicInteger();
+		final CountDownLatch compiling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final TemplatesCache cache = TemplatesCache.create();
+		final Supplier<Source> slow = () -> {
+			compiled.incrementAndGet();
+			compiling.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			return new StreamSource(STYLESHEET.toExternalForm());
+		};
+
+		final Future<Templates> first = executor.submit(() -> cache.get("slow", slow));
+		compiling.await();
+		final Future<Templates> second = executor.submit(() -> cache.get("slow", slow));
+
+		// another stylesheet is not held up by the pending compilation
+		Assertions.assertNotNull(cache.get("fast", () -> new StreamSource(STYLESHEET.toExternalForm())));
+		Assertions.assertFalse(first.isDone());
+
+		release.countDown();
+		Assertions.assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, compiled.get());
+	}
+
+	@Test
+	public void testFailedCompilation() throws Exception {
+		final TemplatesCache cache = TemplatesCache.create();
+		Assertions.assertThrows(TransformerConfigurationException.class, () -> cache.get("broken", () -> new StreamSource(new StringReader("<xsl:stylesheet"))));
+		Assertions.assertEquals(0, cache.size());
+
+		// compiled again on the next request
+		Assertions.assertNotNull(cache.get("broken", () -> new StreamSource(STYLESHEET.toExternalForm())));
+		Assertions.assertEquals(1, cache.size());
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Dieter König
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package io.github.typedbit.fluentpipe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests for the Java 11 variant of {@link FlightRecorderEvents} class. Runs against the packaged multi-release jar, see the {@code java11} profile.
+ * 
+ * @author Dieter König
+ */
+public class FlightRecorderEventsTestCase {
+
+	private static final String PIPE = "io.github.typedbit.fluentpipe.Pipe";
+
+	private static final String STALL = "io.github.typedbit.fluentpipe.PipeStall";
+
+	private static List<RecordedEvent> events(final List<RecordedEvent> events, final String name) {
+		return events.stream().filter((e) -> name.equals(e.getEventType().getName())).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testSlowReader() throws Exception {
+		final Supplier<Callable<Void>> supplier = StreamPipeBuilder
+
+				.create()
+
+				.ringBuffer(1024)
+
+				.forOutput((o) -> {
+					try {
+						o.write(new byte[1 << 16]);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.forInput((i) -> {
+					try {
+						final byte[] buffer = new byte[4096];
+						while (i.read(buffer) != -1) {
+							Thread.sleep(1);
+						}
+					} catch (IOException | InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				})
+
+				.asyncWrite();
+
+		final Path file = Files.createTempFile("fluent-pipe", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable(PIPE);
+				recording.enable(STALL).withThreshold(Duration.ZERO);
+				recording.start();
+				supplier.get().call();
+				recording.stop();
+				recording.dump(file);
+			}
+			final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+			final List<RecordedEvent> pipes = events(events, PIPE);
+			Assertions.assertEquals(1, pipes.size());
+			final RecordedEvent pipe = pipes.get(0);
+			Assertions.assertEquals("ByteRingBuffer", pipe.getString("buffer"));
+			Assertions.assertEquals(1 << 16, pipe.getLong("transferred"));
+			Assertions.assertTrue(pipe.getLong("writeDuration") > 0);
+			Assertions.assertTrue(pipe.getLong("readDuration") > 0);
+
+			final List<RecordedEvent> stalls = events(events, STALL);
+			Assertions.assertFalse(stalls.isEmpty());
+			for (RecordedEvent stall : stalls) {
+				Assertions.assertEquals("ByteRingBuffer", stall.getString("buffer"));
+			}
+			// the writer fills the small buffer far faster than the sleeping reader drains it
+			Assertions.assertTrue(stalls.stream().anyMatch((e) -> e.getBoolean("writing")));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+	<xsl:output method="text" encoding="UTF-8"/>
+	<xsl:template match="/test">
+		<xsl:for-each select="customer">
+			<xsl:value-of select="@name"/>
+			<xsl:text>,</xsl:text>
+		</xsl:for-each>
+	</xsl:template>
+</xsl:stylesheet>